@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.hidglobal.biosdk.BioDeviceStatus;
+import com.hidglobal.biosdk.BioSDKVisitor;
+import com.hidglobal.biosdk.listener.ICaptureListener;
+import com.hidglobal.biosdkexample.core.AcqStatus;
+import com.hidglobal.biosdkexample.core.CaptureMetrics;
+import com.hidglobal.biosdkexample.core.ConfigurationProfile;
+import com.hidglobal.biosdkexample.core.SimulationProfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unplugs and replugs a simulated reader under a DevicePool and checks that the pool reopens it,
+ * re-applies its configuration and runs the work queued during the outage.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeviceReconnectTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private SimulatedBioSDKAPI mApi;
+    private DevicePool mPool;
+    private final CountDownLatch mDisconnected = new CountDownLatch(1);
+    private final CountDownLatch mReconnected = new CountDownLatch(1);
+
+    @Before
+    public void openPool() throws InterruptedException {
+        SimulationProfile profile = new SimulationProfile();
+        profile.setStatusSequence(AcqStatus.ACQ_DONE);
+        profile.setCaptureLatencyMs(10);
+        profile.setFingerClearLatencyMs(0);
+        profile.setConfigureLatencyMs(0);
+        mApi = new SimulatedBioSDKAPI(profile);
+        final CountDownLatch enumerated = new CountDownLatch(1);
+        mApi.enumerateDevices(new BioSDKVisitor() {
+            @Override
+            public void onUpdateProgress(int percent) {
+            }
+
+            @Override
+            public void onEnumerateFinished(BioDeviceStatus status) {
+                enumerated.countDown();
+            }
+        });
+        assertTrue(enumerated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mPool = DevicePool.open(mApi, new CaptureMetrics(), new IDevicePoolListener() {
+            @Override
+            public void onDeviceDisconnected(int deviceIndex, int remaining) {
+                mDisconnected.countDown();
+            }
+
+            @Override
+            public void onDeviceReconnected(int deviceIndex, long outageNanos) {
+                mReconnected.countDown();
+            }
+        });
+        assertNotNull(mPool);
+    }
+
+    @After
+    public void closePool() {
+        if(mPool != null){
+            mPool.shutdown();
+        }
+        mApi.closeDevices();
+    }
+
+    /**
+     * Queues a capture that records its outcome in status and counts down done.
+     */
+    private static DeviceCommand.Capture capture(final AtomicReference<BioDeviceStatus> status,
+                                                 final CountDownLatch done){
+        return new DeviceCommand.Capture(5, new ICaptureListener() {
+            @Override
+            public boolean onUpdateStatus(int acqStatus) {
+                return true;
+            }
+
+            @Override
+            public void bioSDKCaptureComplete(BioDeviceStatus result, Bitmap image,
+                                              byte[] template, int padResult) {
+                status.set(result);
+                done.countDown();
+            }
+        });
+    }
+
+    @Test
+    public void reconnectReappliesConfigurationAndResumesQueuedWork() throws InterruptedException {
+        DeviceCommandScheduler scheduler = mPool.getScheduler(DevicePool.LANE_ENROLL);
+        SimulatedBioSDKDevice device = (SimulatedBioSDKDevice) mApi.getBioDevice(0);
+        ConfigurationProfile high = ConfigurationProfile.securityLevels("high", "HIGH", "HIGH");
+        final AtomicReference<BioDeviceStatus> configured = new AtomicReference<>();
+        final CountDownLatch configureDone = new CountDownLatch(1);
+        assertEquals(BioDeviceStatus.BIOSDK_OK, scheduler.configure(high, new ICommandListener() {
+            @Override
+            public void onCommandComplete(DeviceCommand command, BioDeviceStatus status) {
+                configured.set(status);
+                configureDone.countDown();
+            }
+        }));
+        assertTrue(configureDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(BioDeviceStatus.BIOSDK_OK, configured.get());
+
+        device.disconnect();
+        assertTrue(mDisconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(scheduler.isConnected());
+        assertEquals(0, mPool.getDeviceCount());
+
+        // Queued while unplugged; it must run once the reader is back.
+        final AtomicReference<BioDeviceStatus> captured = new AtomicReference<>();
+        final CountDownLatch captureDone = new CountDownLatch(1);
+        assertEquals(BioDeviceStatus.BIOSDK_OK, scheduler.submit(capture(captured, captureDone)));
+
+        // A replugged sensor comes back with its default configuration.
+        device.reconnect();
+        assertTrue(mReconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(captureDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertEquals(BioDeviceStatus.BIOSDK_OK, captured.get());
+        assertEquals("HIGH", device.getConfigurationState().get(ConfigurationProfile.MATCHING_SECURITY_LEVEL));
+        assertEquals("HIGH", device.getConfigurationState().get(ConfigurationProfile.PAD_SECURITY_LEVEL));
+        assertTrue(scheduler.isConnected());
+        assertEquals(1, mPool.getDeviceCount());
+        assertEquals(1, scheduler.getReconnectCount());
+    }
+
+    @Test
+    public void cancelDuringOutageFinishesTheParkedCommand() throws InterruptedException {
+        DeviceCommandScheduler scheduler = mPool.getScheduler(DevicePool.LANE_ENROLL);
+        SimulatedBioSDKDevice device = (SimulatedBioSDKDevice) mApi.getBioDevice(0);
+        device.disconnect();
+        assertTrue(mDisconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final AtomicReference<BioDeviceStatus> cancelled = new AtomicReference<>();
+        final CountDownLatch cancelDone = new CountDownLatch(1);
+        assertEquals(BioDeviceStatus.BIOSDK_OK, scheduler.submit(capture(cancelled, cancelDone)));
+        // Wait for the worker to take the command and park it until the reader is back.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while(!scheduler.isRunning(DeviceCommand.Type.CAPTURE)){
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+        scheduler.cancel();
+        assertTrue(cancelDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(BioDeviceStatus.BIOSDK_CANCELLED, cancelled.get());
+        assertFalse(scheduler.isConnected());
+
+        // The scheduler still picks up where it left off once the reader is back.
+        device.reconnect();
+        assertTrue(mReconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        final AtomicReference<BioDeviceStatus> captured = new AtomicReference<>();
+        final CountDownLatch captureDone = new CountDownLatch(1);
+        assertEquals(BioDeviceStatus.BIOSDK_OK, scheduler.submit(capture(captured, captureDone)));
+        assertTrue(captureDone.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(BioDeviceStatus.BIOSDK_OK, captured.get());
+        assertEquals(1, scheduler.getReconnectCount());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * BitmapPool keeps a few mutable ARGB bitmaps for reuse, so rendering one image per capture does
+ * not allocate a new bitmap each time.  Captures and views keep the same size, so in steady state
+ * every acquire() is served from the pool.  At most MAX_FREE bitmaps are held; releasing beyond
+ * that drops the oldest one to the garbage collector.
+ *
+ * Thread safe.
+ */
+
+public class BitmapPool {
+    public static final int MAX_FREE = 4;
+    private final ArrayDeque<Bitmap> mFree = new ArrayDeque<>();
+    private long mHits;
+    private long mMisses;
+    private long mDropped;
+
+    /**
+     * Returns a mutable ARGB_8888 bitmap of exactly width x height with undefined contents.
+     */
+    public synchronized Bitmap acquire(int width, int height){
+        Iterator<Bitmap> it = mFree.iterator();
+        while(it.hasNext()){
+            Bitmap bitmap = it.next();
+            if(bitmap.getWidth() == width && bitmap.getHeight() == height){
+                it.remove();
+                mHits++;
+                return bitmap;
+            }
+        }
+        mMisses++;
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Returns bitmap to the pool.  It must no longer be shown or drawn by anyone.
+     */
+    public synchronized void release(Bitmap bitmap){
+        if(bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getConfig() != Bitmap.Config.ARGB_8888){
+            return;
+        }
+        if(mFree.size() >= MAX_FREE){
+            mFree.pollFirst();
+            mDropped++;
+        }
+        mFree.addLast(bitmap);
+    }
+
+    public synchronized long getHitCount(){
+        return mHits;
+    }
+
+    public synchronized long getMissCount(){
+        return mMisses;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return "BitmapPool{free=" + mFree.size() + ", hits=" + mHits + ", misses=" + mMisses
+                + ", dropped=" + mDropped + "}";
+    }
+}
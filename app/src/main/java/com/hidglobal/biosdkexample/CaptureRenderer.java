@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.hidglobal.biosdkexample.core.Ansi378Template;
+import com.hidglobal.biosdkexample.core.GrayFrame;
+
+/**
+ * CaptureRenderer turns a captured fingerprint into the image shown on screen without allocating
+ * per capture.  The SDK's bitmap is read once into a reusable 8-bit GrayFrame, which is what any
+ * further processing should use.  The frame is scaled down to the size of the view, expanded into
+ * a bitmap from a BitmapPool, and the template's minutiae are drawn on top at the same scale.
+ * The minutiae are read from the ANSI 378 template itself, so they line up with the scaled image.
+ *
+ * The SDK's bitmap is only read, never modified or kept.
+ *
+ * render() may run on any one thread at a time; displayed() belongs to the main thread.
+ */
+
+public class CaptureRenderer {
+    private static final float MINUTIA_RADIUS = 3f;
+    private static final float MINUTIA_TAIL = 8f;
+    private final BitmapPool mPool;
+    private final GrayFrame mFrame = new GrayFrame();
+    private final GrayFrame mScaled = new GrayFrame();
+    private final Canvas mCanvas = new Canvas();
+    private final Paint mEndingPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBifurcationPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private int[] mArgb = new int[0];
+    private int[] mDisplayArgb = new int[0];
+    private Bitmap mDisplayed;
+
+    public CaptureRenderer(BitmapPool pool){
+        mPool = pool;
+        mEndingPaint.setColor(Color.RED);
+        mEndingPaint.setStyle(Paint.Style.STROKE);
+        mEndingPaint.setStrokeWidth(1.5f);
+        mBifurcationPaint.setColor(Color.GREEN);
+        mBifurcationPaint.setStyle(Paint.Style.STROKE);
+        mBifurcationPaint.setStrokeWidth(1.5f);
+    }
+
+    /**
+     * Renders captured, scaled to fit within maxWidth x maxHeight without enlarging it, with the
+     * minutiae of template drawn on.  A size of 0 (a view not laid out yet) keeps the capture size.
+     * Returns a pooled bitmap, or null if there is no image.
+     */
+    public Bitmap render(Bitmap captured, byte[] template, int maxWidth, int maxHeight){
+        if(captured == null){
+            return null;
+        }
+        int width = captured.getWidth();
+        int height = captured.getHeight();
+        if(mArgb.length < width * height){
+            mArgb = new int[width * height];
+        }
+        captured.getPixels(mArgb, 0, width, 0, 0, width, height);
+        mFrame.setArgb(mArgb, width, height);
+
+        float scale = 1f;
+        if(maxWidth > 0 && maxHeight > 0){
+            scale = Math.min(1f, Math.min((float) maxWidth / width, (float) maxHeight / height));
+        }
+        int displayWidth = Math.max(1, Math.round(width * scale));
+        int displayHeight = Math.max(1, Math.round(height * scale));
+        mFrame.scaleInto(mScaled, displayWidth, displayHeight);
+        if(mDisplayArgb.length < displayWidth * displayHeight){
+            mDisplayArgb = new int[displayWidth * displayHeight];
+        }
+        mScaled.getArgb(mDisplayArgb);
+        Bitmap display = mPool.acquire(displayWidth, displayHeight);
+        display.setPixels(mDisplayArgb, 0, displayWidth, 0, 0, displayWidth, displayHeight);
+        drawMinutiae(display, template, width, displayWidth);
+        return display;
+    }
+
+    private void drawMinutiae(Bitmap display, byte[] template, int imageWidth, int displayWidth){
+        Ansi378Template parsed = template == null ? null : Ansi378Template.parse(template);
+        if(parsed == null || parsed.getViewCount() == 0){
+            return;
+        }
+        // Minutiae are in template image coordinates, which normally match the capture.
+        int templateWidth = parsed.getImageWidth() > 0 ? parsed.getImageWidth() : imageWidth;
+        float scale = (float) displayWidth / templateWidth;
+        mCanvas.setBitmap(display);
+        for(int i = 0; i < parsed.getMinutiaeCount(0); i++){
+            float x = parsed.getMinutiaX(0, i) * scale;
+            float y = parsed.getMinutiaY(0, i) * scale;
+            double angle = Math.toRadians(parsed.getMinutiaAngle(0, i));
+            Paint paint = parsed.getMinutiaType(0, i) == Ansi378Template.MINUTIA_TYPE_BIFURCATION
+                    ? mBifurcationPaint : mEndingPaint;
+            mCanvas.drawCircle(x, y, MINUTIA_RADIUS, paint);
+            // Angles run counterclockwise with y pointing down the image.
+            mCanvas.drawLine(x, y, x + (float) Math.cos(angle) * MINUTIA_TAIL,
+                    y - (float) Math.sin(angle) * MINUTIA_TAIL, paint);
+        }
+        mCanvas.setBitmap(null);
+    }
+
+    /**
+     * The last capture as 8-bit gray at full resolution.  Valid until the next render().
+     */
+    public GrayFrame getFrame(){
+        return mFrame;
+    }
+
+    /**
+     * Call on the main thread once bitmap is set on the view.  The bitmap shown before it is
+     * no longer visible and goes back to the pool.
+     */
+    public void displayed(Bitmap bitmap){
+        if(mDisplayed != null && mDisplayed != bitmap){
+            mPool.release(mDisplayed);
+        }
+        mDisplayed = bitmap;
+    }
+
+    public BitmapPool getPool(){
+        return mPool;
+    }
+}
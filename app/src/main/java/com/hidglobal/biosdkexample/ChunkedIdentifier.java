@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.hidglobal.biosdk.BioDeviceStatus;
+import com.hidglobal.biosdk.listener.IVerifyListener;
+import com.hidglobal.biosdkexample.core.IdentificationResult;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hidglobal.biosdk.BioDeviceStatus.*;
+
+/**
+ * ChunkedIdentifier performs 1:N identification against the TemplateGallery with verify commands
+ * queued on the DeviceCommandScheduler.  The gallery is streamed to the device in bounded chunks (the SDK
+ * accepts at most MAX_CHUNK_SIZE templates per call) and the search stops at the first chunk that
+ * reports a match.  The matching template inside that chunk is then resolved with a
+ * DeviceCommand.Resolve on the same scheduler; if no single template of the chunk matches on its
+ * own the search reports no match rather than guess an identity.
+ *
+ * The first chunk uses the caller's capture timeout; later chunks are expected to find the finger
+ * already on the sensor and use the shorter chunk timeout.  Per chunk latency is reported in the
+ * IdentificationResult.  Chunk completions are handed off to the main thread so the next
+ * chunk is never queued from inside the SDK callback.  The gallery is streamed in gallery order or,
+ * if one is given, in a SearchOrder sequence that puts likely matches first.  Deleted slots are
+ * skipped.  Templates are copied out of the mapped
+ * gallery only for the chunk in flight, into arrays the next chunk reuses.
+ */
+
+public class ChunkedIdentifier implements IVerifyListener {
+    private static final String TAG = "ChunkedIdentifier";
+    public static final int MAX_CHUNK_SIZE = 3;
+    public static final int DEFAULT_CHUNK_TIMEOUT = 5;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final List<byte[]> mChunk = new ArrayList<>(MAX_CHUNK_SIZE);
+    // Copies of the chunk's templates, reused by the next chunk when the lengths agree.
+    private final byte[][] mChunkBuffers = new byte[MAX_CHUNK_SIZE][];
+    private final int[] mChunkSlots = new int[MAX_CHUNK_SIZE];
+    private final Runnable mChunkCompleteRunner = new Runnable() {
+        @Override
+        public void run() {
+            onChunkComplete();
+        }
+    };
+    private final ICommandListener mResolveListener = new ICommandListener() {
+        @Override
+        public void onCommandComplete(DeviceCommand command, BioDeviceStatus status) {
+            onChunkResolved((DeviceCommand.Resolve) command, status);
+        }
+    };
+    private DeviceCommandScheduler mScheduler;
+    private TemplateGallery mGallery;
+    private int[] mOrder;
+    private IIdentificationListener mListener;
+    private int mChunkSize = MAX_CHUNK_SIZE;
+    private int mChunkTimeOut = DEFAULT_CHUNK_TIMEOUT;
+    private int mGallerySize;
+    // Position in the search sequence of the next slot to send.
+    private int mNextPosition;
+    private int mComparisons;
+    private int mChunks;
+    private long mStartNanos;
+    private long mChunkStartNanos;
+    private long mMinChunkNanos;
+    private long mMaxChunkNanos;
+    private volatile boolean mRunning = false;
+    private volatile boolean mCancel = false;
+
+    // Result of the last verify_async(), written by the SDK thread and read on the main thread.
+    private volatile BioDeviceStatus mVerStatus;
+    private volatile Bitmap mVerImage;
+    private volatile byte[] mVerTemplate;
+    private volatile int mVerMatchScore;
+    private volatile int mVerPADResult;
+
+    public void setChunkSize(int chunkSize){
+        mChunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, chunkSize));
+    }
+
+    public int getChunkSize(){
+        return mChunkSize;
+    }
+
+    public void setChunkTimeOut(int chunkTimeOut){
+        mChunkTimeOut = chunkTimeOut;
+    }
+
+    public boolean isRunning(){
+        return mRunning;
+    }
+
+    /**
+     * Starts identifying against every template in the gallery.  Returns whether the first chunk
+     * was queued; the result is delivered through listener.
+     */
+    public BioDeviceStatus start(DeviceCommandScheduler scheduler, TemplateGallery gallery, int timeOut,
+                                 IIdentificationListener listener){
+        return start(scheduler, gallery, null, timeOut, listener);
+    }
+
+    /**
+     * Like start(), but sends the gallery slots in the sequence given by order, which must list
+     * every slot once.  A null order sends them in gallery order.
+     */
+    public BioDeviceStatus start(DeviceCommandScheduler scheduler, TemplateGallery gallery, int[] order,
+                                 int timeOut, IIdentificationListener listener){
+        if(mRunning){
+            return BIOSDK_ERROR_ASYNC_TASK_RUNNING;
+        }
+        if(scheduler == null || gallery == null || listener == null){
+            return BIOSDK_ERROR_PARAMETER;
+        }
+        mGallerySize = gallery.size();
+        if(mGallerySize == 0){
+            return BIOSDK_ERROR_NO_DATA;
+        }
+        if(order != null && order.length != mGallerySize){
+            return BIOSDK_ERROR_PARAMETER;
+        }
+        mOrder = order;
+        mScheduler = scheduler;
+        mGallery = gallery;
+        mListener = listener;
+        mNextPosition = 0;
+        if(!skipDeleted()){
+            return BIOSDK_ERROR_NO_DATA;
+        }
+        mComparisons = 0;
+        mChunks = 0;
+        mMinChunkNanos = Long.MAX_VALUE;
+        mMaxChunkNanos = 0;
+        mCancel = false;
+        mRunning = true;
+        mStartNanos = System.nanoTime();
+        BioDeviceStatus status = sendChunk(timeOut);
+        if(status != BIOSDK_OK){
+            mRunning = false;
+        }
+        return status;
+    }
+
+    public void cancel(){
+        mCancel = true;
+    }
+
+    private BioDeviceStatus sendChunk(int timeOut){
+        mChunk.clear();
+        while(mChunk.size() < mChunkSize && skipDeleted()){
+            int i = mChunk.size();
+            mChunkSlots[i] = slotAt(mNextPosition++);
+            mChunkBuffers[i] = mGallery.copyTemplate(mChunkSlots[i], mChunkBuffers[i]);
+            mChunk.add(mChunkBuffers[i]);
+        }
+        mChunkStartNanos = System.nanoTime();
+        return mScheduler.submit(new DeviceCommand.Verify(mChunk, timeOut, this));
+    }
+
+    private int slotAt(int position){
+        return mOrder == null ? position : mOrder[position];
+    }
+
+    /**
+     * Moves past deleted slots.  Returns whether any slot is left to send.
+     */
+    private boolean skipDeleted(){
+        while(mNextPosition < mGallerySize && mGallery.isDeleted(slotAt(mNextPosition))){
+            mNextPosition++;
+        }
+        return mNextPosition < mGallerySize;
+    }
+
+    @Override
+    public boolean onUpdateStatus(int acqStatus){
+        if(mCancel){
+            return false;
+        }
+        return mListener.onUpdateStatus(acqStatus);
+    }
+
+    @Override
+    public void bioSDKVerifyComplete(BioDeviceStatus result, Bitmap verImage, byte[] verTemplate,
+                                     int verMatchScore, int verPADResult){
+        mVerStatus = result;
+        mVerImage = verImage;
+        mVerTemplate = verTemplate;
+        mVerMatchScore = verMatchScore;
+        mVerPADResult = verPADResult;
+        mHandler.post(mChunkCompleteRunner);
+    }
+
+    private void onChunkComplete(){
+        long chunkNanos = System.nanoTime() - mChunkStartNanos;
+        mMinChunkNanos = Math.min(mMinChunkNanos, chunkNanos);
+        mMaxChunkNanos = Math.max(mMaxChunkNanos, chunkNanos);
+        mChunks++;
+        if(mVerStatus != BIOSDK_OK){
+            finish(mVerStatus, IdentificationResult.NO_MATCH);
+            return;
+        }
+        mComparisons += mChunk.size();
+        if(mVerMatchScore == 1){
+            resolveChunkHit();
+            return;
+        }
+        if(!skipDeleted()){
+            finish(BIOSDK_OK, IdentificationResult.NO_MATCH);
+            return;
+        }
+        if(mCancel){
+            finish(BIOSDK_CANCELLED, IdentificationResult.NO_MATCH);
+            return;
+        }
+        BioDeviceStatus status = sendChunk(mChunkTimeOut);
+        if(status != BIOSDK_OK){
+            finish(status, IdentificationResult.NO_MATCH);
+        }
+    }
+
+    private void resolveChunkHit(){
+        if(mChunk.size() == 1){
+            finish(BIOSDK_OK, mChunkSlots[0]);
+            return;
+        }
+        // Matching blocks on the device, so it is queued like the chunks instead of running here.
+        BioDeviceStatus status = mScheduler.submit(new DeviceCommand.Resolve(mVerTemplate,
+                new ArrayList<>(mChunk), mResolveListener));
+        if(status != BIOSDK_OK){
+            finish(status, IdentificationResult.NO_MATCH);
+        }
+    }
+
+    private void onChunkResolved(DeviceCommand.Resolve resolve, BioDeviceStatus status){
+        mComparisons += resolve.getComparisons();
+        int index = resolve.getMatchIndex();
+        if(status != BIOSDK_OK){
+            finish(status, IdentificationResult.NO_MATCH);
+        }
+        else if(index == DeviceCommand.Resolve.NO_MATCH){
+            // verify_async() matched the chunk but no template on its own: nobody is identified.
+            Log.w(TAG, "Unable to resolve match inside chunk starting at slot " + mChunkSlots[0]);
+            finish(BIOSDK_OK, IdentificationResult.NO_MATCH);
+        }
+        else {
+            finish(BIOSDK_OK, mChunkSlots[index]);
+        }
+    }
+
+    private void finish(BioDeviceStatus status, int slot){
+        mRunning = false;
+        long identityId = slot == IdentificationResult.NO_MATCH ? -1 : mGallery.getIdentityId(slot);
+        IdentificationResult result = new IdentificationResult(slot, identityId, mComparisons,
+                mChunks, mChunkSize, System.nanoTime() - mStartNanos,
+                mChunks == 0 ? 0 : mMinChunkNanos, mMaxChunkNanos);
+        Log.d(TAG, result.toString());
+        mListener.onIdentificationComplete(status, mVerImage, mVerTemplate, mVerPADResult, result);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+
+import com.hidglobal.biosdk.BioDeviceStatus;
+import com.hidglobal.biosdk.BioSDKDevice;
+import com.hidglobal.biosdk.listener.ICaptureListener;
+import com.hidglobal.biosdk.listener.IVerifyListener;
+import com.hidglobal.biosdk.listener.IWaitForFingerClearListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DeviceCommand is one unit of work for the DeviceCommandScheduler.  Asynchronous commands wrap
+ * the caller's SDK listener: status updates are forwarded until the command is cancelled, and the
+ * completion callback first releases the device and then reaches the caller.  A command that was
+ * accepted but cannot run (cancelled before it started, or failed to start) still completes
+ * through the caller's listener with the failing status; a command the scheduler rejected is
+ * not delivered, the rejection is submit()'s return value.
+ *
+ * Every command records when it was queued, started and finished, so queue wait and device time
+ * can be told apart.
+ */
+
+public abstract class DeviceCommand {
+    public enum Type { CAPTURE, VERIFY, WAIT_FOR_FINGER_CLEAR, CONFIGURE, RESOLVE }
+
+    private final Type mType;
+    final int mTimeOut;
+    DeviceCommandScheduler mScheduler;
+    volatile boolean mCancelled = false;
+    volatile long mCancelRequestedNanos = 0;
+    private final AtomicBoolean mFinished = new AtomicBoolean(false);
+    volatile long mEnqueueNanos;
+    volatile long mStartNanos;
+    volatile long mFinishNanos;
+    volatile BioDeviceStatus mStatus;
+
+    DeviceCommand(Type type, int timeOut){
+        mType = type;
+        mTimeOut = timeOut;
+    }
+
+    public Type getType(){
+        return mType;
+    }
+
+    public BioDeviceStatus getStatus(){
+        return mStatus;
+    }
+
+    /**
+     * Issues the command to the device.  Asynchronous commands return once the SDK accepted it.
+     */
+    abstract BioDeviceStatus start(BioSDKDevice device);
+
+    /**
+     * Reports the outcome to the caller when the SDK will not, e.g. the command never started.
+     */
+    abstract void deliver(BioDeviceStatus status);
+
+    boolean isAsync(){
+        return true;
+    }
+
+    void requestCancel(){
+        mCancelled = true;
+        mCancelRequestedNanos = System.nanoTime();
+    }
+
+    boolean isFinished(){
+        return mFinished.get();
+    }
+
+    /**
+     * Marks the command finished.  Returns false if it had already finished, in which case the
+     * outcome must not be delivered again.
+     */
+    boolean finish(BioDeviceStatus status){
+        if(!mFinished.compareAndSet(false, true)){
+            return false;
+        }
+        mFinishNanos = System.nanoTime();
+        mStatus = status;
+        if(mScheduler != null){
+            mScheduler.onCommandFinished(this);
+        }
+        return true;
+    }
+
+    public long getQueueWaitNanos(){
+        return mStartNanos == 0 ? mFinishNanos - mEnqueueNanos : mStartNanos - mEnqueueNanos;
+    }
+
+    public long getDeviceNanos(){
+        return mStartNanos == 0 ? 0 : mFinishNanos - mStartNanos;
+    }
+
+    @Override
+    public String toString(){
+        return mType + "{status=" + mStatus + ", queueUs=" + getQueueWaitNanos() / 1000
+                + ", deviceUs=" + getDeviceNanos() / 1000 + "}";
+    }
+
+    public static class Capture extends DeviceCommand implements ICaptureListener {
+        private final ICaptureListener mListener;
+
+        public Capture(int timeOut, ICaptureListener listener){
+            super(Type.CAPTURE, timeOut);
+            mListener = listener;
+        }
+
+        @Override
+        BioDeviceStatus start(BioSDKDevice device){
+            return device.capture_async(mTimeOut, this);
+        }
+
+        @Override
+        void deliver(BioDeviceStatus status){
+            mListener.bioSDKCaptureComplete(status, null, null, 0);
+        }
+
+        @Override
+        public boolean onUpdateStatus(int acqStatus){
+            return !mCancelled && mListener.onUpdateStatus(acqStatus);
+        }
+
+        @Override
+        public void bioSDKCaptureComplete(BioDeviceStatus result, Bitmap capImage, byte[] capTemplate, int capPADResult){
+            if(finish(result)){
+                mListener.bioSDKCaptureComplete(result, capImage, capTemplate, capPADResult);
+            }
+        }
+    }
+
+    public static class Verify extends DeviceCommand implements IVerifyListener {
+        private final List<byte[]> mTemplates;
+        private final IVerifyListener mListener;
+
+        public Verify(List<byte[]> templates, int timeOut, IVerifyListener listener){
+            super(Type.VERIFY, timeOut);
+            mTemplates = templates;
+            mListener = listener;
+        }
+
+        @Override
+        BioDeviceStatus start(BioSDKDevice device){
+            return device.verify_async(mTemplates, mTimeOut, this);
+        }
+
+        @Override
+        void deliver(BioDeviceStatus status){
+            mListener.bioSDKVerifyComplete(status, null, null, 0, 0);
+        }
+
+        @Override
+        public boolean onUpdateStatus(int acqStatus){
+            return !mCancelled && mListener.onUpdateStatus(acqStatus);
+        }
+
+        @Override
+        public void bioSDKVerifyComplete(BioDeviceStatus result, Bitmap verImage, byte[] verTemplate,
+                                         int verMatchScore, int verPADResult){
+            if(finish(result)){
+                mListener.bioSDKVerifyComplete(result, verImage, verTemplate, verMatchScore, verPADResult);
+            }
+        }
+    }
+
+    public static class WaitForFingerClear extends DeviceCommand implements IWaitForFingerClearListener {
+        private final IWaitForFingerClearListener mListener;
+
+        public WaitForFingerClear(int timeOut, IWaitForFingerClearListener listener){
+            super(Type.WAIT_FOR_FINGER_CLEAR, timeOut);
+            mListener = listener;
+        }
+
+        @Override
+        BioDeviceStatus start(BioSDKDevice device){
+            return device.waitForFingerClear_asynch(mTimeOut, this);
+        }
+
+        @Override
+        void deliver(BioDeviceStatus status){
+            mListener.bioSDKWaitForFingerClearComplete(status);
+        }
+
+        @Override
+        public boolean onUpdateStatus(int acqStatus){
+            return !mCancelled && mListener.onUpdateStatus(acqStatus);
+        }
+
+        @Override
+        public void bioSDKWaitForFingerClearComplete(BioDeviceStatus status){
+            if(finish(status)){
+                mListener.bioSDKWaitForFingerClearComplete(status);
+            }
+        }
+    }
+
+    /**
+     * Finds which of a few candidates matches probe, with one synchronous match per candidate
+     * through the scheduler's DeviceMatcher.  Used after verify_async() reported a match for a set
+     * of templates without saying which one.  getMatchIndex() is the first candidate that matched
+     * on its own, or NO_MATCH; BIOSDK_ERROR_PROCESSING means a comparison failed before any match.
+     */
+    public static class Resolve extends DeviceCommand {
+        public static final int NO_MATCH = -1;
+        private final byte[] mProbe;
+        private final List<byte[]> mCandidates;
+        private final ICommandListener mListener;
+        private volatile int mMatchIndex = NO_MATCH;
+        private volatile int mComparisons;
+
+        public Resolve(byte[] probe, List<byte[]> candidates, ICommandListener listener){
+            super(Type.RESOLVE, 0);
+            mProbe = probe;
+            mCandidates = candidates;
+            mListener = listener;
+        }
+
+        public int getMatchIndex(){
+            return mMatchIndex;
+        }
+
+        public int getComparisons(){
+            return mComparisons;
+        }
+
+        @Override
+        BioDeviceStatus start(BioSDKDevice device){
+            if(mProbe == null){
+                return BioDeviceStatus.BIOSDK_ERROR_NO_DATA;
+            }
+            boolean failed = false;
+            for(int i = 0; i < mCandidates.size() && !mCancelled; i++){
+                int result = mScheduler.getMatcher().match(mProbe, mCandidates.get(i));
+                mComparisons = i + 1;
+                if(result == 1){
+                    mMatchIndex = i;
+                    return BioDeviceStatus.BIOSDK_OK;
+                }
+                failed |= result == DeviceMatcher.MATCH_ERROR;
+            }
+            if(mCancelled){
+                return BioDeviceStatus.BIOSDK_CANCELLED;
+            }
+            return failed ? BioDeviceStatus.BIOSDK_ERROR_PROCESSING : BioDeviceStatus.BIOSDK_OK;
+        }
+
+        @Override
+        void deliver(BioDeviceStatus status){
+            mListener.onCommandComplete(this, status);
+        }
+
+        @Override
+        boolean isAsync(){
+            return false;
+        }
+    }
+
+    public static class Configure extends DeviceCommand {
+        private final Map<String, String> mConfiguration;
+        private final ICommandListener mListener;
+
+        public Configure(Map<String, String> configuration, ICommandListener listener){
+            super(Type.CONFIGURE, 0);
+            mConfiguration = configuration;
+            mListener = listener;
+        }
+
+        Map<String, String> getConfiguration(){
+            return mConfiguration;
+        }
+
+        @Override
+        BioDeviceStatus start(BioSDKDevice device){
+            return device.setConfigurationState(mConfiguration);
+        }
+
+        @Override
+        void deliver(BioDeviceStatus status){
+            if(mListener != null){
+                mListener.onCommandComplete(this, status);
+            }
+        }
+
+        @Override
+        boolean isAsync(){
+            return false;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.hidglobal.biosdk.BioDeviceStatus;
+import com.hidglobal.biosdk.BioSDKDevice;
+import com.hidglobal.biosdkexample.core.CaptureMetrics;
+import com.hidglobal.biosdkexample.core.CaptureStage;
+import com.hidglobal.biosdkexample.core.ConfigurationProfile;
+import com.hidglobal.biosdkexample.core.ConfigurationState;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DeviceCommandScheduler is the single owner of the connected BioSDKDevice.  Capture, verify,
+ * wait-for-finger-clear and configuration commands are queued on a bounded queue and run one at a
+ * time by a dedicated worker, so the SDK never sees two acquisitions overlap and callers never
+ * have to deal with BIOSDK_ERROR_ASYNC_TASK_RUNNING.  A full queue rejects the command instead.
+ *
+ * Template matching does not acquire an image and is served by the DeviceMatcher owned here; it
+ * is serialized by the matcher's own lock so a 1:N search can run while the next capture is in
+ * progress.
+ *
+ * Outcomes the SDK does not report itself (a command cancelled while queued, a command that failed
+ * to start, a configuration result) are delivered on the main thread, like SDK completions.
+ *
+ * Configuration goes through configure(), which keeps a ConfigurationState of what the device
+ * has and pushes only the settings that change.
+ *
+ * Every finished command records its queue wait and its outcome, per command type and status, in
+ * the CaptureMetrics passed in.
+ *
+ * When the device disconnects the scheduler is suspended rather than shut down: queued commands
+ * stay queued and new ones are still accepted.  resume() hands it the reopened device, which gets
+ * the last configuration applied here before the queue starts running again, and records the time
+ * from the device reappearing to it being ready as CaptureStage.RECONNECT.
+ */
+
+public class DeviceCommandScheduler {
+    private static final String TAG = "DeviceCommandScheduler";
+    public static final int QUEUE_CAPACITY = 8;
+    static final int STATE_IDLE = 0;
+    static final int STATE_RUNNING = 1;
+    static final int STATE_SHUTDOWN = 2;
+    static final int STATE_SUSPENDED = 3;
+    private static final long POLL_MS = 100;
+    private static final long CANCEL_GRACE_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private volatile BioSDKDevice mDevice;
+    private final DeviceMatcher mMatcher;
+    private final CaptureMetrics mMetrics;
+    private final BlockingQueue<DeviceCommand> mQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicInteger mState = new AtomicInteger(STATE_IDLE);
+    private final Semaphore mCompletion = new Semaphore(0);
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Object mSuspendLock = new Object();
+    private final Thread mWorker;
+    private volatile DeviceCommand mRunning;
+    private final ConfigurationState mConfigState = new ConfigurationState();
+    private volatile long mSuspendedNanos;
+    private long mReappearedNanos;
+    private final AtomicLong mExecuted = new AtomicLong();
+    private final AtomicLong mRejected = new AtomicLong();
+    private final AtomicLong mCancelled = new AtomicLong();
+    private final AtomicLong mReconnects = new AtomicLong();
+
+    public DeviceCommandScheduler(BioSDKDevice device, CaptureMetrics metrics){
+        mDevice = device;
+        mMetrics = metrics;
+        mMatcher = new DeviceMatcher(device);
+        mWorker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runCommands();
+            }
+        }, TAG);
+        mWorker.start();
+    }
+
+    public DeviceMatcher getMatcher(){
+        return mMatcher;
+    }
+
+    /**
+     * Queues a command behind anything already queued.  Returns BIOSDK_OK if it was accepted; a
+     * rejected command is not delivered to its listener.
+     */
+    public BioDeviceStatus submit(DeviceCommand command){
+        if(mState.get() == STATE_SHUTDOWN){
+            return BioDeviceStatus.BIOSDK_ERROR_NOT_INITIALIZED;
+        }
+        command.mScheduler = this;
+        command.mEnqueueNanos = System.nanoTime();
+        if(!mQueue.offer(command)){
+            mRejected.incrementAndGet();
+            return BioDeviceStatus.BIOSDK_ERROR_ASYNC_TASK_RUNNING;
+        }
+        return BioDeviceStatus.BIOSDK_OK;
+    }
+
+    /**
+     * Brings the device to profile's settings.  Only settings the device does not already have, or
+     * is not already about to get, are queued, as one Configure command ahead of anything
+     * submitted after this call; when nothing changes no command is queued and listener is not
+     * called.  Returns BIOSDK_OK unless a needed command was rejected.
+     */
+    public BioDeviceStatus configure(ConfigurationProfile profile, ICommandListener listener){
+        Map<String, String> diff = mConfigState.request(profile.getSettings());
+        if(diff == null){
+            return BioDeviceStatus.BIOSDK_OK;
+        }
+        BioDeviceStatus status = submit(new DeviceCommand.Configure(diff, listener));
+        if(status != BioDeviceStatus.BIOSDK_OK){
+            mConfigState.failed(diff);
+        }
+        return status;
+    }
+
+    public ConfigurationState getConfigurationState(){
+        return mConfigState;
+    }
+
+    /**
+     * True while a command runs on the device or waits to.
+     */
+    public boolean isBusy(){
+        return mRunning != null || !mQueue.isEmpty();
+    }
+
+    /**
+     * False while suspended waiting for the device to come back.
+     */
+    public boolean isConnected(){
+        return mState.get() != STATE_SUSPENDED && mState.get() != STATE_SHUTDOWN;
+    }
+
+    public boolean isRunning(DeviceCommand.Type type){
+        DeviceCommand running = mRunning;
+        return running != null && running.getType() == type;
+    }
+
+    /**
+     * Drops every queued command and stops the running one.  Each dropped or stopped command
+     * completes with BIOSDK_CANCELLED, including one held by the worker while the device is away.
+     */
+    public void cancel(){
+        DeviceCommand queued;
+        while((queued = mQueue.poll()) != null){
+            mCancelled.incrementAndGet();
+            if(queued.finish(BioDeviceStatus.BIOSDK_CANCELLED)){
+                deliver(queued, BioDeviceStatus.BIOSDK_CANCELLED);
+            }
+        }
+        DeviceCommand running = mRunning;
+        if(running == null || running.mCancelled){
+            return;
+        }
+        if(running.mStartNanos == 0){
+            // Not on the device yet, most likely parked in awaitConnected(): wake the worker so
+            // it finishes the command instead of waiting for the reader to come back.
+            mCancelled.incrementAndGet();
+            running.requestCancel();
+            synchronized(mSuspendLock){
+                mSuspendLock.notifyAll();
+            }
+        }
+        else if(running.isAsync()){
+            mCancelled.incrementAndGet();
+            running.requestCancel();
+            mDevice.cancel_async();
+        }
+    }
+
+    /**
+     * Stops starting commands after the device disconnected.  The running command is left to fail
+     * on its own; everything queued waits for resume().
+     */
+    public void suspend(){
+        long now = System.nanoTime();
+        while(true){
+            int state = mState.get();
+            if(state == STATE_SHUTDOWN || state == STATE_SUSPENDED){
+                return;
+            }
+            mSuspendedNanos = now;
+            if(mState.compareAndSet(state, STATE_SUSPENDED)){
+                return;
+            }
+        }
+    }
+
+    /**
+     * Continues on device, the same sensor reopened after a disconnect.  reappearedNanos is when it
+     * was seen again, the start of the recorded reconnect time.
+     */
+    public void resume(BioSDKDevice device, long reappearedNanos){
+        synchronized(mSuspendLock){
+            if(mState.get() != STATE_SUSPENDED){
+                return;
+            }
+            mDevice = device;
+            mMatcher.setDevice(device);
+            mReappearedNanos = reappearedNanos;
+            mState.set(STATE_IDLE);
+            mSuspendLock.notifyAll();
+        }
+    }
+
+    /**
+     * Cancels all work and stops the worker.  The device itself is closed by its owner.
+     */
+    public void shutdown(){
+        if(mState.getAndSet(STATE_SHUTDOWN) == STATE_SHUTDOWN){
+            return;
+        }
+        cancel();
+        synchronized(mSuspendLock){
+            mSuspendLock.notifyAll();
+        }
+        mWorker.interrupt();
+    }
+
+    private void deliver(final DeviceCommand command, final BioDeviceStatus status){
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                command.deliver(status);
+            }
+        });
+    }
+
+    void onCommandFinished(DeviceCommand command){
+        mMetrics.record(CaptureStage.DEVICE_QUEUE, command.getQueueWaitNanos());
+        mMetrics.recordOutcome(command.getType() + " " + command.mStatus);
+        if(command instanceof DeviceCommand.Configure){
+            Map<String, String> settings = ((DeviceCommand.Configure) command).getConfiguration();
+            if(command.mStatus == BioDeviceStatus.BIOSDK_OK){
+                mConfigState.confirmed(settings);
+            }
+            else {
+                mConfigState.failed(settings);
+            }
+        }
+        if(command == mRunning){
+            mCompletion.release();
+        }
+    }
+
+    private void runCommands(){
+        while(mState.get() != STATE_SHUTDOWN){
+            DeviceCommand command;
+            try {
+                command = mQueue.take();
+            } catch(InterruptedException e){
+                break;
+            }
+            if(command.isFinished()){
+                continue;
+            }
+            // Held as the running command, so it still counts as busy, until the device is back.
+            mRunning = command;
+            try {
+                awaitConnected(command);
+            } catch(InterruptedException e){
+                // Shutting down: the command is cancelled below.
+            }
+            if(mState.get() == STATE_SHUTDOWN || command.mCancelled){
+                mRunning = null;
+                if(command.finish(BioDeviceStatus.BIOSDK_CANCELLED)){
+                    deliver(command, BioDeviceStatus.BIOSDK_CANCELLED);
+                }
+                continue;
+            }
+            mState.compareAndSet(STATE_IDLE, STATE_RUNNING);
+            mCompletion.drainPermits();
+            command.mStartNanos = System.nanoTime();
+            BioDeviceStatus status = command.start(mDevice);
+            if(!command.isAsync() || status != BioDeviceStatus.BIOSDK_OK){
+                if(command.finish(status)){
+                    deliver(command, status);
+                }
+            }
+            else {
+                if(command.mCancelled){
+                    // cancel() came in between the check above and the start.
+                    mDevice.cancel_async();
+                }
+                awaitCompletion(command);
+            }
+            mRunning = null;
+            mState.compareAndSet(STATE_RUNNING, STATE_IDLE);
+            mExecuted.incrementAndGet();
+            Log.d(TAG, command.toString());
+        }
+        // Anything still queued at shutdown completes as cancelled.
+        DeviceCommand queued;
+        while((queued = mQueue.poll()) != null){
+            if(queued.finish(BioDeviceStatus.BIOSDK_CANCELLED)){
+                deliver(queued, BioDeviceStatus.BIOSDK_CANCELLED);
+            }
+        }
+    }
+
+    /**
+     * Blocks while suspended, or until command is cancelled.  After a resume the last
+     * configuration is re-applied before any queued command runs, since a reconnected sensor
+     * starts from its defaults.
+     */
+    private void awaitConnected(DeviceCommand command) throws InterruptedException {
+        long reappeared;
+        synchronized(mSuspendLock){
+            if(mState.get() != STATE_SUSPENDED && mReappearedNanos == 0){
+                return;
+            }
+            while(mState.get() == STATE_SUSPENDED && !command.mCancelled){
+                mSuspendLock.wait();
+            }
+            if(mState.get() == STATE_SUSPENDED){
+                // Cancelled during the outage; the next command re-applies the configuration.
+                return;
+            }
+            reappeared = mReappearedNanos;
+            mReappearedNanos = 0;
+        }
+        if(mState.get() == STATE_SHUTDOWN){
+            return;
+        }
+        Map<String, String> configuration = mConfigState.getConfirmed();
+        if(!configuration.isEmpty()){
+            BioDeviceStatus status = mDevice.setConfigurationState(configuration);
+            if(status != BioDeviceStatus.BIOSDK_OK){
+                Log.w(TAG, "Re-applying configuration after reconnect failed: " + status);
+            }
+        }
+        long elapsed = System.nanoTime() - reappeared;
+        mMetrics.record(CaptureStage.RECONNECT, elapsed);
+        mReconnects.incrementAndGet();
+        Log.i(TAG, "Reconnected in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms, " + mQueue.size()
+                + " commands queued");
+    }
+
+    private void awaitCompletion(DeviceCommand command){
+        while(true){
+            try {
+                if(mCompletion.tryAcquire(POLL_MS, TimeUnit.MILLISECONDS)){
+                    return;
+                }
+            } catch(InterruptedException e){
+                // Shutting down: fall through and force the command to finish.
+            }
+            long now = System.nanoTime();
+            if(mState.get() == STATE_SUSPENDED && now - mSuspendedNanos > CANCEL_GRACE_NANOS){
+                // The device went away and never failed the command itself.
+                if(command.finish(BioDeviceStatus.BIOSDK_ERROR_NO_DEVICE_PRESENT)){
+                    deliver(command, BioDeviceStatus.BIOSDK_ERROR_NO_DEVICE_PRESENT);
+                }
+                return;
+            }
+            long cancelRequested = command.mCancelRequestedNanos;
+            boolean abandoned = mState.get() == STATE_SHUTDOWN
+                    || (cancelRequested != 0 && now - cancelRequested > CANCEL_GRACE_NANOS);
+            if(abandoned){
+                // The SDK never acknowledged the cancel; a late callback is dropped by finish().
+                if(command.finish(BioDeviceStatus.BIOSDK_CANCELLED)){
+                    deliver(command, BioDeviceStatus.BIOSDK_CANCELLED);
+                }
+                return;
+            }
+        }
+    }
+
+    public long getExecutedCount(){
+        return mExecuted.get();
+    }
+
+    public long getRejectedCount(){
+        return mRejected.get();
+    }
+
+    public long getCancelledCount(){
+        return mCancelled.get();
+    }
+
+    public long getReconnectCount(){
+        return mReconnects.get();
+    }
+
+    @Override
+    public String toString(){
+        return "DeviceCommandScheduler{executed=" + mExecuted.get() + ", rejected=" + mRejected.get()
+                + ", cancelled=" + mCancelled.get() + ", reconnects=" + mReconnects.get()
+                + ", queued=" + mQueue.size() + "}";
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import com.hidglobal.biosdk.BioDeviceStatus;
+import com.hidglobal.biosdk.BioSDKDevice;
+import com.hidglobal.biosdkexample.core.TemplateMatcher;
+
+/**
+ * DeviceMatcher makes BioSDKDevice.match() safe to call from several threads.  The device keeps
+ * the score of the last match internally, so match() and getLastMatchResult() have to run as one
+ * atomic step or concurrent callers would read each other's scores.
+ */
+
+public class DeviceMatcher implements TemplateMatcher {
+    private final Object mLock = new Object();
+    private BioSDKDevice mDevice;
+
+    public DeviceMatcher(BioSDKDevice device){
+        mDevice = device;
+    }
+
+    public BioSDKDevice getDevice(){
+        synchronized(mLock){
+            return mDevice;
+        }
+    }
+
+    /**
+     * Switches to a reopened device once any comparison in progress on the old one has finished.
+     */
+    void setDevice(BioSDKDevice device){
+        synchronized(mLock){
+            mDevice = device;
+        }
+    }
+
+    @Override
+    public int match(byte[] probe, byte[] candidate){
+        synchronized(mLock){
+            BioDeviceStatus status = mDevice.match(probe, candidate);
+            if(status != BioDeviceStatus.BIOSDK_OK){
+                return MATCH_ERROR;
+            }
+            return mDevice.getLastMatchResult();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.hidglobal.biosdk.BioSDKAPI;
+import com.hidglobal.biosdk.BioSDKDevice;
+import com.hidglobal.biosdk.listener.IBioSDKDeviceListener;
+import com.hidglobal.biosdkexample.core.CaptureMetrics;
+import com.hidglobal.biosdkexample.core.ConfigurationProfile;
+import com.hidglobal.biosdkexample.core.ConfigurationState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DevicePool opens every reader the SDK enumerated and gives each its own DeviceCommandScheduler.
+ * Readers are numbered in the pool from 0; each remembers its SDK device number, which need not be
+ * contiguous.
+ *
+ * Captures cannot move between readers, since the finger is on one of them, so capture work is
+ * routed by lane: each lane (enrollment, verification) is pinned to one reader, and both share
+ * reader 0 when only one is connected.  Template matching does not need the finger and goes
+ * through a PooledMatcher, which sends each comparison to whichever reader is least busy, so a
+ * 1:N search for one lane is offloaded to idle readers and throughput grows with the sensor count.
+ *
+ * A reader that disconnects is not torn down.  Its scheduler is suspended, keeping its queued
+ * commands, and it is dropped from match routing while its lane falls back to a connected reader.
+ * The pool then tries to reopen it, straight away when the SDK reports a device connected and
+ * otherwise on a backoff from RECONNECT_MIN_MS to RECONNECT_MAX_MS.  Attempts run on the pool's
+ * reconnect thread, since opening a device blocks on USB.  A reopened device only counts once it
+ * answers getConfigurationState(); getDeviceStatus() is reserved in the SDK and returns null.
+ * Once reopened, the scheduler
+ * resumes on the new device with its last configuration re-applied.  Galleries, indexes and
+ * everything else above the scheduler never see the outage, so recovery costs a device open and a
+ * configure instead of an SDK restart.
+ */
+
+public class DevicePool {
+    private static final String TAG = "DevicePool";
+    public static final int MAX_DEVICES = 8;
+    public static final int LANE_ENROLL = 0;
+    public static final int LANE_VERIFY = 1;
+    static final long RECONNECT_MIN_MS = 50;
+    static final long RECONNECT_MAX_MS = 1000;
+
+    private final BioSDKAPI mApi;
+    private final BioSDKDevice[] mDevices;
+    // SDK device number of each reader, for reopening it.
+    private final int[] mDeviceNumbers;
+    private final AtomicReferenceArray<DeviceCommandScheduler> mSchedulers;
+    private final AtomicReferenceArray<Reconnect> mReconnects;
+    private final PooledMatcher mMatcher;
+    private final IDevicePoolListener mListener;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ScheduledExecutorService mReconnectExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "DevicePool reconnect");
+                }
+            });
+
+    private DevicePool(BioSDKAPI api, List<BioSDKDevice> devices, List<Integer> deviceNumbers,
+                       CaptureMetrics metrics, IDevicePoolListener listener){
+        mApi = api;
+        mDevices = devices.toArray(new BioSDKDevice[devices.size()]);
+        mDeviceNumbers = new int[mDevices.length];
+        for(int i = 0; i < mDevices.length; i++){
+            mDeviceNumbers[i] = deviceNumbers.get(i);
+        }
+        mSchedulers = new AtomicReferenceArray<>(mDevices.length);
+        mReconnects = new AtomicReferenceArray<>(mDevices.length);
+        mListener = listener;
+        for(int i = 0; i < mDevices.length; i++){
+            mDevices[i].setBioSDKDeviceListener(new DeviceListener(i));
+            mSchedulers.set(i, new DeviceCommandScheduler(mDevices[i], metrics));
+        }
+        mMatcher = new PooledMatcher(mSchedulers);
+    }
+
+    /**
+     * Opens every reader enumerateDevices() found, up to MAX_DEVICES; call it once enumeration has
+     * finished.  Device numbers the SDK does not list are skipped, and a reader that fails to open
+     * does not hide the ones after it.  Returns null if none could be opened.
+     */
+    public static DevicePool open(BioSDKAPI api, CaptureMetrics metrics, IDevicePoolListener listener){
+        List<BioSDKDevice> devices = new ArrayList<>();
+        List<Integer> deviceNumbers = new ArrayList<>();
+        for(int i = 0; i < MAX_DEVICES; i++){
+            if(api.getBioDevice(i) == null){
+                continue;
+            }
+            BioSDKDevice device = api.openDevice(i);
+            if(device == null){
+                Log.w(TAG, "Unable to open enumerated reader " + i);
+                continue;
+            }
+            devices.add(device);
+            deviceNumbers.add(i);
+        }
+        if(devices.isEmpty()){
+            return null;
+        }
+        Log.i(TAG, "Opened " + devices.size() + " reader(s), device numbers " + deviceNumbers);
+        return new DevicePool(api, devices, deviceNumbers, metrics, listener);
+    }
+
+    /**
+     * Returns the scheduler that runs captures for lane, or null after shutdown.  With every reader
+     * disconnected this is the lane's own, suspended scheduler, which queues work until it is back.
+     */
+    public DeviceCommandScheduler getScheduler(int lane){
+        DeviceCommandScheduler pinned = mSchedulers.get(lane % mSchedulers.length());
+        if(pinned != null && pinned.isConnected()){
+            return pinned;
+        }
+        for(int i = 0; i < mSchedulers.length(); i++){
+            DeviceCommandScheduler scheduler = mSchedulers.get(i);
+            if(scheduler != null && scheduler.isConnected()){
+                return scheduler;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Brings every connected reader to profile.  listener hears from each reader that needed a
+     * change.
+     */
+    public void configure(ConfigurationProfile profile, ICommandListener listener){
+        for(int i = 0; i < mSchedulers.length(); i++){
+            DeviceCommandScheduler scheduler = mSchedulers.get(i);
+            if(scheduler != null && scheduler.isConnected()){
+                scheduler.configure(profile, listener);
+            }
+        }
+    }
+
+    /**
+     * Brings the reader that captures for lane to profile, ahead of the lane's next capture.
+     */
+    public void configure(int lane, ConfigurationProfile profile, ICommandListener listener){
+        DeviceCommandScheduler scheduler = getScheduler(lane);
+        if(scheduler != null){
+            scheduler.configure(profile, listener);
+        }
+    }
+
+    public PooledMatcher getMatcher(){
+        return mMatcher;
+    }
+
+    /**
+     * Number of readers still connected.
+     */
+    public int getDeviceCount(){
+        int count = 0;
+        for(int i = 0; i < mSchedulers.length(); i++){
+            DeviceCommandScheduler scheduler = mSchedulers.get(i);
+            if(scheduler != null && scheduler.isConnected()){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Cancels all work and stops every scheduler.  The devices themselves are closed with the SDK.
+     */
+    public void shutdown(){
+        mReconnectExecutor.shutdownNow();
+        mHandler.removeCallbacksAndMessages(null);
+        for(int i = 0; i < mSchedulers.length(); i++){
+            DeviceCommandScheduler scheduler = mSchedulers.getAndSet(i, null);
+            if(scheduler != null){
+                scheduler.shutdown();
+            }
+        }
+    }
+
+    private void onDisconnected(int deviceIndex){
+        DeviceCommandScheduler scheduler = mSchedulers.get(deviceIndex);
+        if(scheduler == null || !scheduler.isConnected()){
+            return;
+        }
+        scheduler.suspend();
+        Reconnect reconnect = new Reconnect(deviceIndex);
+        mReconnects.set(deviceIndex, reconnect);
+        reconnect.schedule(RECONNECT_MIN_MS);
+        int remaining = getDeviceCount();
+        Log.w(TAG, "Reader " + deviceIndex + " disconnected, " + remaining + " remaining");
+        mListener.onDeviceDisconnected(deviceIndex, remaining);
+    }
+
+    private void onConnected(int deviceIndex){
+        Reconnect reconnect = mReconnects.get(deviceIndex);
+        if(reconnect != null){
+            reconnect.retryNow();
+        }
+    }
+
+    /**
+     * A reopened device is usable once it answers a real command.
+     */
+    private static boolean probe(BioSDKDevice device){
+        return device.getConfigurationState() != null;
+    }
+
+    /**
+     * Gives up a reopened device that failed its probe.  The SDK only closes all devices at once,
+     * so that is done only while no other reader is connected.  Returns false if the handle has
+     * to be kept, in which case the next attempt probes it again instead of opening another.
+     */
+    private boolean release(){
+        if(getDeviceCount() > 0){
+            return false;
+        }
+        mApi.closeDevices();
+        return true;
+    }
+
+    /**
+     * Tries to reopen one disconnected reader, rescheduling itself with a growing delay until it
+     * succeeds.  Attempts run one at a time on the reconnect thread.
+     */
+    private class Reconnect implements Runnable {
+        private final int mIndex;
+        private final long mDisconnectedNanos = System.nanoTime();
+        // Only touched on the reconnect thread.
+        private long mDelayMs = RECONNECT_MIN_MS;
+        private int mAttempts;
+        private BioSDKDevice mUnprobed;
+        private volatile ScheduledFuture<?> mNext;
+
+        Reconnect(int index){
+            mIndex = index;
+        }
+
+        void schedule(long delayMs){
+            try {
+                mNext = mReconnectExecutor.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+            } catch(RejectedExecutionException e){
+                // Shut down.
+            }
+        }
+
+        /**
+         * Moves the next attempt up, unless one is running right now.
+         */
+        void retryNow(){
+            ScheduledFuture<?> next = mNext;
+            if(next != null && next.cancel(false)){
+                schedule(0);
+            }
+        }
+
+        @Override
+        public void run() {
+            DeviceCommandScheduler scheduler = mSchedulers.get(mIndex);
+            if(scheduler == null || mReconnects.get(mIndex) != this){
+                return;
+            }
+            mAttempts++;
+            long reappeared = System.nanoTime();
+            BioSDKDevice device = mUnprobed != null ? mUnprobed : mApi.openDevice(mDeviceNumbers[mIndex]);
+            mUnprobed = null;
+            if(device != null && !probe(device)){
+                if(!release()){
+                    mUnprobed = device;
+                }
+                device = null;
+            }
+            if(device == null){
+                mDelayMs = Math.min(mDelayMs * 2, RECONNECT_MAX_MS);
+                schedule(mDelayMs);
+                return;
+            }
+            if(!mReconnects.compareAndSet(mIndex, this, null)){
+                return;
+            }
+            mDevices[mIndex] = device;
+            device.setBioSDKDeviceListener(new DeviceListener(mIndex));
+            scheduler.resume(device, reappeared);
+            final long outageNanos = reappeared - mDisconnectedNanos;
+            Log.i(TAG, "Reader " + mIndex + " reopened after " + mAttempts + " attempts, "
+                    + outageNanos / 1000000 + " ms offline");
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mListener.onDeviceReconnected(mIndex, outageNanos);
+                }
+            });
+        }
+    }
+
+    /**
+     * Per-reader work done so far, one line per reader.
+     */
+    public String summary(){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < mSchedulers.length(); i++){
+            DeviceCommandScheduler scheduler = mSchedulers.get(i);
+            sb.append("reader ").append(i).append(": ");
+            if(scheduler == null){
+                sb.append("closed");
+            }
+            else {
+                sb.append(scheduler.isConnected() ? "" : "reconnecting, ")
+                        .append(scheduler.getExecutedCount()).append(" commands, ")
+                        .append(scheduler.getReconnectCount()).append(" reconnects");
+                ConfigurationState config = scheduler.getConfigurationState();
+                sb.append(", config v").append(config.getVersion()).append(' ')
+                        .append(config.getPushCount()).append(" pushed/")
+                        .append(config.getSkippedCount()).append(" skipped");
+            }
+            sb.append(", ").append(mMatcher.getMatchCount(i)).append(" matches\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString(){
+        return "DevicePool{devices=" + mDevices.length + ", connected=" + getDeviceCount() + "}";
+    }
+
+    private class DeviceListener implements IBioSDKDeviceListener {
+        private final int mIndex;
+
+        DeviceListener(int index){
+            mIndex = index;
+        }
+
+        @Override
+        public Void device_connected() {
+            onConnected(mIndex);
+            return null;
+        }
+
+        @Override
+        public Void device_disconnected() {
+            onDisconnected(mIndex);
+            return null;
+        }
+    }
+}
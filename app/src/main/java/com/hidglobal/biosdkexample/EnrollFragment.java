@@ -27,22 +27,36 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.content.ContextCompat;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.hidglobal.biosdk.BioDeviceStatus;
-import com.hidglobal.biosdk.BioSDKDevice;
 import com.hidglobal.biosdk.listener.ICaptureListener;
-import com.hidglobal.biosdk.ImageTools;
 import com.hidglobal.biosdk.listener.IWaitForFingerClearListener;
-
+import com.hidglobal.biosdkexample.core.AcquisitionFeedback;
+import com.hidglobal.biosdkexample.core.BatchEnrollmentWriter;
+import com.hidglobal.biosdkexample.core.CaptureTrace;
+import com.hidglobal.biosdkexample.core.ConfigurationProfile;
+import com.hidglobal.biosdkexample.core.DuplicateCheck;
+import com.hidglobal.biosdkexample.core.DuplicateDetector;
+import com.hidglobal.biosdkexample.core.EnrollmentRecord;
+import com.hidglobal.biosdkexample.core.IDuplicateCheckListener;
+import com.hidglobal.biosdkexample.core.StartupTimeline;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static com.hidglobal.biosdk.BioDeviceStatus.*;
 
@@ -54,28 +68,75 @@ import static com.hidglobal.biosdk.BioDeviceStatus.*;
  *
  * Implements the IWaitForFingerClearListener to receive acquisition status messages during wait for
  * finger clear from the biosdk and to receive wait for finger clear complete.
+ *
+ * As in VerifyFragment the capture is scaled and overlaid by a CaptureRenderer on a background
+ * thread, into pooled bitmaps; only the finished bitmap is set on the view on the main thread.
+ *
+ * In station mode the operator enters a queue of identities, one per line, and one press of the
+ * button enrolls them in turn.  Each genuine capture is handed to the BatchEnrollmentWriter, which
+ * persists templates and labels in group-committed batches, and the capture for the next person
+ * is armed as soon as the finger is lifted.  A capture judged an impostor is repeated for the
+ * same identity.  Stopping puts the identities not yet enrolled back in the queue.
+ *
+ * Before a station enrollment is stored the DuplicateDetector searches the gallery for the same
+ * finger in the background; the station does not wait for it.  Duplicates are not stored and are
+ * listed in the station status instead.
  */
 
 public class EnrollFragment extends Fragment implements ICaptureListener, IWaitForFingerClearListener {
+    private static final String TAG = "EnrollFragment";
+    private static final int LANE = DevicePool.LANE_ENROLL;
     private IFragmentListener mListener;
     private Button mEnrollButton;
     private ProgressBar mRealFingerProgressBar;
     private ImageView mFingerImageView;
     private TextView mRealFingerTxtView;
     private TextView mFingerFeedbackTxtView;
+    private StatusDispatcher mStatusDispatcher;
     BioDeviceStatus mStatus;
     int mColorGreen;
     int mColorRed;
     private int mTimeOut;
-    private String mMatchLevel = "MEDIUM";
-    private String mPADLevel = "MEDIUM";
+    private ConfigurationProfile mProfile = ConfigurationProfile.DEFAULT;
     private Bitmap mFingerImage;
+    private final CaptureRenderer mRenderer = new CaptureRenderer(new BitmapPool());
+    private final ExecutorService mRenderExecutor = Executors.newSingleThreadExecutor();
+    private Drawable mRealFingerGreen;
+    private Drawable mRealFingerRed;
     private byte[] mTemplate;
     private int mPADResult;
-    boolean mIsWaitForFingerClearRunning = false;
-    private boolean mCancelCapture = false;
+    private CaptureTrace mTrace = new CaptureTrace();
     boolean mWaitForFingerClear = false;
-    boolean mCaptureInProgress = false;
+    boolean mStationMode = false;
+    private boolean mStationRunning;
+    private final ArrayDeque<String> mStationQueue = new ArrayDeque<>();
+    private int mStationTotal;
+    private int mStationEnrolled;
+    private long mStationStartNanos;
+    private EditText mStationEditText;
+    private TextView mStationTxtView;
+    private final Map<Long, EnrollmentRecord> mStationChecks = new HashMap<>();
+    private final List<String> mStationDuplicates = new ArrayList<>();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final IDuplicateCheckListener mStationCheckListener = new IDuplicateCheckListener() {
+        @Override
+        public void onDuplicateCheckComplete(final DuplicateCheck check) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onStationCheckComplete(check);
+                }
+            });
+        }
+    };
+    private final ICommandListener mConfigureListener = new ICommandListener() {
+        @Override
+        public void onCommandComplete(DeviceCommand command, BioDeviceStatus status) {
+            if(status != BIOSDK_OK && mListener != null){
+                mListener.popupDialog("SetConfigState returned " + status.toString() + "(" + mProfile + ")", "Exit",true);
+            }
+        }
+    };
 
     public EnrollFragment() {
         // Required empty public constructor
@@ -106,7 +167,11 @@ public class EnrollFragment extends Fragment implements ICaptureListener, IWaitF
         mRealFingerTxtView = view.findViewById(R.id.realFingerLabel);
         mRealFingerTxtView.setText("");
         mFingerFeedbackTxtView = view.findViewById(R.id.fingerFeedbackEnLabel);
-        mFingerFeedbackTxtView.setText("");
+        mStationEditText = view.findViewById(R.id.editStationIdentities);
+        mStationTxtView = view.findViewById(R.id.stationStatusLabel);
+        mStationEditText.setVisibility(mStationMode ? View.VISIBLE : View.GONE);
+        mStatusDispatcher = new StatusDispatcher(mFingerFeedbackTxtView);
+        mStatusDispatcher.clear();
         mEnrollButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -115,84 +180,201 @@ public class EnrollFragment extends Fragment implements ICaptureListener, IWaitF
         });
         mColorGreen = ContextCompat.getColor(view.getContext(), R.color.green);
         mColorRed = ContextCompat.getColor(view.getContext(), R.color.StopSignRed);
+        Resources res = getResources();
+        mRealFingerGreen = res.getDrawable(R.drawable.curved_progress_bar_green);
+        mRealFingerRed = res.getDrawable(R.drawable.curved_progress_bar_red);
     }
 
     private void onEnroll(View v) {
-        BioSDKDevice fpDevice = mListener.getConnectedDevice();
-        if(fpDevice == null){
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        if(scheduler == null){
             mListener.popupDialog("Fingerprint Device is null", "OK", false);
             return;
         }
-        if(mCaptureInProgress == true){
-            mCancelCapture = true;
-            mFingerFeedbackTxtView.setText("");
+        if(mStationRunning || scheduler.isBusy()){
+            stopStation();
+            scheduler.cancel();
+            mStatusDispatcher.clear();
             mEnrollButton.setText("ENROLL");
-            mCaptureInProgress = false;
             return;
         }
-        Map<String, String> strMapSecurityLevel = new HashMap<>();
-        strMapSecurityLevel.put("matching_security_level", mMatchLevel);
-        strMapSecurityLevel.put("pad_security_level", mPADLevel);
-        BioDeviceStatus status = fpDevice.setConfigurationState(strMapSecurityLevel);
-        if(status != BioDeviceStatus.BIOSDK_OK){
-            mListener.popupDialog("SetConfigState returned " + status.toString() + "(" + mMatchLevel + " " + mPADLevel + ")", "Exit",true);
-            return;
+        if(mStationMode){
+            if(mListener.getEnrollmentWriter() == null){
+                mListener.popupDialog("Enrollment storage is unavailable", "OK", false);
+                return;
+            }
+            loadStationQueue();
+            if(mStationQueue.isEmpty()){
+                mListener.popupDialog("Enter the identities to enroll, one per line", "OK", false);
+                return;
+            }
         }
-        mStatus = fpDevice.capture_async(mTimeOut, this);
+        // Normally a no-op: the profile was pushed when it was set.  A change that has not reached
+        // the device yet is queued ahead of the capture, so the capture always runs with it.
+        scheduler.configure(mProfile, mConfigureListener);
+        mStatus = issueCapture(scheduler);
         if(mStatus != BIOSDK_OK){
-            mFingerFeedbackTxtView.setText("");
+            mStatusDispatcher.clear();
             mEnrollButton.setText("ENROLL");
-            mCaptureInProgress = false;
             mListener.handleBioDeviceStatus(mStatus);
+            return;
         }
         resetGUI();
-        mFingerFeedbackTxtView.setText("");
-        mEnrollButton.setText("CANCEL");
-        mCaptureInProgress = true;
+        mStatusDispatcher.clear();
+        if(mStationMode){
+            // The configuration queued above holds for the whole queue.
+            mStationRunning = true;
+            mStationTotal = mStationQueue.size();
+            mStationEnrolled = 0;
+            mStationDuplicates.clear();
+            mStationStartNanos = System.nanoTime();
+            mStationEditText.setVisibility(View.GONE);
+            mStationTxtView.setVisibility(View.VISIBLE);
+            showStationStatus();
+            mEnrollButton.setText("STOP");
+        }
+        else {
+            mStationTxtView.setVisibility(View.GONE);
+            mEnrollButton.setText("CANCEL");
+        }
     }
 
-    public void setTimeOut(int timeOut){
-        mTimeOut = timeOut;
+    private BioDeviceStatus issueCapture(DeviceCommandScheduler scheduler){
+        mTrace = new CaptureTrace();
+        mTrace.markIssued();
+        return scheduler.submit(new DeviceCommand.Capture(mTimeOut, this));
     }
 
-    public void setMatchLevel(String matchLevel){
-        mMatchLevel = matchLevel.toUpperCase();
+    private void loadStationQueue(){
+        mStationQueue.clear();
+        for(String line : mStationEditText.getText().toString().split("\n")){
+            String label = line.trim();
+            if(!label.isEmpty()){
+                mStationQueue.add(label);
+            }
+        }
     }
 
-    public void setPADLevel(String padLevel){
-        mPADLevel = padLevel.toUpperCase();
+    /**
+     * Arms the capture for the identity at the head of the queue, or ends the session when the
+     * queue is done.
+     */
+    private void rearmStation(){
+        if(mStationQueue.isEmpty()){
+            stopStation();
+            return;
+        }
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        BioDeviceStatus status = scheduler == null ? BIOSDK_ERROR_NOT_INITIALIZED : issueCapture(scheduler);
+        if(status != BIOSDK_OK){
+            stopStation();
+            mListener.handleBioDeviceStatus(status);
+            return;
+        }
+        showStationStatus();
     }
 
-    public void setWaitForFingerClear(boolean waitForFingerClear){
-        mWaitForFingerClear = waitForFingerClear;
+    private void awaitStationFingerClear(){
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        BioDeviceStatus status = scheduler == null ? BIOSDK_ERROR_NOT_INITIALIZED
+                : scheduler.submit(new DeviceCommand.WaitForFingerClear(mTimeOut, this));
+        if(status != BIOSDK_OK){
+            stopStation();
+            mListener.handleBioDeviceStatus(status);
+        }
     }
 
-    @Override
-    public boolean onUpdateStatus(int acqStatus){
-        if(mCancelCapture){
-            mCancelCapture = false;
-            return false;
+    private void onStationCheckComplete(DuplicateCheck check){
+        EnrollmentRecord record = mStationChecks.remove(check.getIdentityId());
+        if(record == null || mListener == null || check.isCancelled()){
+            return;
+        }
+        if(check.isDuplicate()){
+            mStationDuplicates.add(record.getLabel() + " = " + mListener.describeIdentity(check.getDuplicateOf()));
+        }
+        else {
+            storeStationRecord(record);
         }
+        showStationStatus();
+    }
 
-        String feedback = "";
+    private void storeStationRecord(EnrollmentRecord record){
+        BatchEnrollmentWriter writer = mListener.getEnrollmentWriter();
+        if(writer == null || !writer.submit(record)){
+            Log.e(TAG, "Unable to store " + record);
+            mListener.popupDialog("Unable to store enrollment of " + record.getLabel(), "OK", false);
+            return;
+        }
+        mStationEnrolled++;
+    }
 
-        if(mIsWaitForFingerClearRunning == true && acqStatus == AcqStatus.ACQ_FINGER_PRESENT){
-            feedback = "Lift Finger";
+    private void stopStation(){
+        if(!mStationRunning){
+            return;
         }
-        else if(mIsWaitForFingerClearRunning == false && (acqStatus != AcqStatus.ACQ_PROCESSING || acqStatus != AcqStatus.ACQ_DONE)){
-            feedback = "Finger Down";
+        mStationRunning = false;
+        showStationStatus();
+        // Whoever was not enrolled stays in the queue for the next session.
+        StringBuilder remaining = new StringBuilder();
+        for(String label : mStationQueue){
+            remaining.append(label).append('\n');
         }
-        class Runner implements Runnable{
-            Runner(String str) {
-                strFeedback = str;
-            }
-            @Override
-            public void run(){
-                mFingerFeedbackTxtView.setText(strFeedback);
+        mStationEditText.setText(remaining.toString());
+        mStationEditText.setVisibility(View.VISIBLE);
+        mEnrollButton.setText("ENROLL");
+        Log.d(TAG, "Station: " + mStationEnrolled + " of " + mStationTotal + " enrolled, "
+                + mListener.getEnrollmentWriter());
+    }
+
+    private void showStationStatus(){
+        BatchEnrollmentWriter writer = mListener.getEnrollmentWriter();
+        long elapsed = System.nanoTime() - mStationStartNanos;
+        double perHour = elapsed <= 0 ? 0 : mStationEnrolled * 3.6e12 / elapsed;
+        String next = mStationQueue.peek();
+        String head = mStationRunning && next != null
+                ? "Next: " + next + " (" + (mStationTotal - mStationQueue.size() + 1) + "/" + mStationTotal + ")"
+                : "Enrolled " + mStationEnrolled + " of " + mStationTotal;
+        String stats = String.format("%d enrolled  %.0f/h", mStationEnrolled, perHour);
+        if(writer != null){
+            stats += String.format("  stored %d, pending %d, lag p99 %.0f ms", writer.getCommittedCount(),
+                    writer.getPending(), writer.getLagHistogram().getPercentileNanos(0.99) / 1e6);
+        }
+        stats += String.format("\nchecking %d, duplicates %d", mStationChecks.size(), mStationDuplicates.size());
+        if(!mStationRunning){
+            for(String duplicate : mStationDuplicates){
+                stats += "\nAlready enrolled: " + duplicate;
             }
-            final String strFeedback;
         }
-        new Handler(Looper.getMainLooper()).post(new Runner(feedback));
+        mStationTxtView.setText(head + "\n" + stats);
+    }
+
+    public void setTimeOut(int timeOut){
+        mTimeOut = timeOut;
+    }
+
+    public void setProfile(ConfigurationProfile profile){
+        mProfile = profile;
+    }
+
+    public void setWaitForFingerClear(boolean waitForFingerClear){
+        mWaitForFingerClear = waitForFingerClear;
+    }
+
+    public void setStationMode(boolean stationMode){
+        mStationMode = stationMode;
+        if(mStationEditText != null && !mStationRunning){
+            mStationEditText.setVisibility(stationMode ? View.VISIBLE : View.GONE);
+            mStationTxtView.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public boolean onUpdateStatus(int acqStatus){
+        mTrace.markFirstStatus();
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        boolean waitingForFingerClear = scheduler != null
+                && scheduler.isRunning(DeviceCommand.Type.WAIT_FOR_FINGER_CLEAR);
+        mStatusDispatcher.publish(AcquisitionFeedback.feedbackFor(acqStatus, waitingForFingerClear));
 
         return true;
 
@@ -200,59 +382,113 @@ public class EnrollFragment extends Fragment implements ICaptureListener, IWaitF
 
     @Override
     public void bioSDKCaptureComplete(BioDeviceStatus result, Bitmap capImage, byte[] capTemplate, int capPADResult){
+        if(mStationRunning){
+            onStationCaptureComplete(result, capImage, capTemplate, capPADResult);
+            return;
+        }
         if(result != BIOSDK_OK){
             mListener.onEnrollmentFinished(null);
             mListener.handleBioDeviceStatus(result);
             resetGUI();
             mEnrollButton.setText("ENROLL");
-            mCaptureInProgress = false;
             return;
         }
+        mTrace.markCaptured();
+        mListener.getStartupTimeline().mark(StartupTimeline.Milestone.FIRST_CAPTURE);
         mFingerImage = capImage;
         mTemplate = capTemplate;
         mPADResult = capPADResult;
-        if(mWaitForFingerClear){
-            BioSDKDevice fpDevice = mListener.getConnectedDevice();
-            if(fpDevice == null){
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        if(mWaitForFingerClear && scheduler != null
+                && scheduler.submit(new DeviceCommand.WaitForFingerClear(mTimeOut, this)) == BIOSDK_OK){
+            return;
+        }
+        displayResults();
+    }
+
+    private void onStationCaptureComplete(BioDeviceStatus result, Bitmap capImage, byte[] capTemplate, int capPADResult){
+        if(result == BIOSDK_TIMEOUT){
+            // Nobody came forward; keep asking for the same identity.
+            rearmStation();
+            return;
+        }
+        if(result != BIOSDK_OK){
+            stopStation();
+            if(result != BIOSDK_CANCELLED){
+                mListener.handleBioDeviceStatus(result);
+            }
+            return;
+        }
+        mTrace.markCaptured();
+        mListener.getStartupTimeline().mark(StartupTimeline.Milestone.FIRST_CAPTURE);
+        mFingerImage = capImage;
+        mTemplate = capTemplate;
+        mPADResult = capPADResult;
+        showCapture();
+        if(mPADResult == 1){
+            BatchEnrollmentWriter writer = mListener.getEnrollmentWriter();
+            if(writer == null){
+                stopStation();
+                mListener.popupDialog("Enrollment storage is unavailable", "OK", false);
                 return;
             }
-            BioDeviceStatus status = fpDevice.waitForFingerClear_asynch(mTimeOut, this);
-            if(status == BIOSDK_OK) {
-                mIsWaitForFingerClearRunning = true;
+            EnrollmentRecord record = new EnrollmentRecord(writer.reserveIdentityId(), mStationQueue.poll(),
+                    mTemplate, mPADResult, System.currentTimeMillis());
+            DuplicateDetector detector = mListener.getDuplicateDetector();
+            if(detector == null){
+                storeStationRecord(record);
+            }
+            else {
+                mStationChecks.put(record.getIdentityId(), record);
+                detector.check(record.getIdentityId(), record.getTemplate(), mStationCheckListener);
             }
         }
-        else{
-            mCaptureInProgress = false;
-            displayResults();
-        }
+        // The next person must not be captured while this finger is still on the sensor.
+        awaitStationFingerClear();
     }
 
     @Override
     public void bioSDKWaitForFingerClearComplete(BioDeviceStatus var1){
-        mCaptureInProgress = false;
+        if(mStationRunning){
+            if(var1 == BIOSDK_OK){
+                rearmStation();
+            }
+            else if(var1 == BIOSDK_TIMEOUT){
+                awaitStationFingerClear();
+            }
+            else {
+                stopStation();
+                if(var1 != BIOSDK_CANCELLED){
+                    mListener.handleBioDeviceStatus(var1);
+                }
+            }
+            return;
+        }
+        mTrace.markFingerCleared();
         displayResults();
     }
 
     private void displayResults(){
         mEnrollButton.setText("ENROLL");
-        mFingerFeedbackTxtView.setText("");
-        mIsWaitForFingerClearRunning = false;
-        ImageTools.drawMinutiae(mFingerImage, mTemplate);
-        mFingerImageView.setImageBitmap(mFingerImage);
+        mStatusDispatcher.clear();
+        showCapture();
+        mListener.onEnrollmentFinished(mTemplate);
+    }
+
+    private void showCapture(){
+        renderCapture(mFingerImage, mTemplate, mTrace);
+        mFingerImage = null;
         int percent = 0;
         String realFinger = "";
         int textColor = 0;
-        Resources res = getResources();
-        Drawable dRed = res.getDrawable(R.drawable.curved_progress_bar_red);
-        Drawable dGreen = res.getDrawable(R.drawable.curved_progress_bar_green);
         if(mPADResult == 1 ) {
-            mRealFingerProgressBar.setProgressDrawable(dGreen);
+            mRealFingerProgressBar.setProgressDrawable(mRealFingerGreen);
             textColor = mColorGreen;
             realFinger = "Genuine";
             percent = 100;
         }
         else {
-            mRealFingerProgressBar.setProgressDrawable(dRed);
+            mRealFingerProgressBar.setProgressDrawable(mRealFingerRed);
             textColor = mColorRed;
             realFinger = "Impostor";
             percent = 15;
@@ -260,14 +496,42 @@ public class EnrollFragment extends Fragment implements ICaptureListener, IWaitF
         mRealFingerProgressBar.setProgress(percent);
         mRealFingerTxtView.setText(realFinger);
         mRealFingerTxtView.setTextColor(textColor);
-        mListener.onEnrollmentFinished(mTemplate);
+    }
+
+    /**
+     * Renders the capture off the main thread and shows it once it is done.  Captures are
+     * rendered and shown in the order they arrive.
+     */
+    private void renderCapture(final Bitmap captured, final byte[] template, final CaptureTrace trace){
+        final int width = mFingerImageView.getWidth();
+        final int height = mFingerImageView.getHeight();
+        mRenderExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap display = mRenderer.render(captured, template, width, height);
+                trace.markOverlayDone();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(mListener == null){
+                            return;
+                        }
+                        mFingerImageView.setImageBitmap(display);
+                        mRenderer.displayed(display);
+                        trace.markRendered();
+                        mListener.getCaptureMetrics().record(trace);
+                        Log.d(TAG, trace + " " + mStatusDispatcher);
+                    }
+                });
+            }
+        });
     }
 
     public void resetGUI(){
         mFingerImageView.setImageDrawable(null);
         mRealFingerProgressBar.setProgress(0);
         mRealFingerTxtView.setText("");
-        mFingerFeedbackTxtView.setText("");
+        mStatusDispatcher.clear();
     }
 
     @Override
@@ -296,12 +560,12 @@ public class EnrollFragment extends Fragment implements ICaptureListener, IWaitF
     @Override
     public void onHiddenChanged(boolean hidden){
         if(hidden){
-            BioSDKDevice device = mListener.getConnectedDevice();
-            if(device != null){
-                mFingerFeedbackTxtView.setText("");
+            stopStation();
+            DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+            if(scheduler != null && scheduler.isBusy()){
+                mStatusDispatcher.clear();
                 mEnrollButton.setText("ENROLL");
-                mCaptureInProgress = false;
-                device.cancel_async();
+                scheduler.cancel();
             }
         }
     }
@@ -324,6 +588,7 @@ public class EnrollFragment extends Fragment implements ICaptureListener, IWaitF
     @Override
     public void onDestroy(){
         super.onDestroy();
+        mRenderExecutor.shutdown();
     }
 
 }
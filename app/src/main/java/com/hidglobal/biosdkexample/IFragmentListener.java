@@ -17,12 +17,37 @@
 package com.hidglobal.biosdkexample;
 
 import com.hidglobal.biosdk.BioDeviceStatus;
-import com.hidglobal.biosdk.BioSDKDevice;
+import com.hidglobal.biosdk.BioSDKAPI;
+import com.hidglobal.biosdkexample.core.BatchEnrollmentWriter;
+import com.hidglobal.biosdkexample.core.CaptureMetrics;
+import com.hidglobal.biosdkexample.core.DuplicateDetector;
+import com.hidglobal.biosdkexample.core.GalleryCompactor;
+import com.hidglobal.biosdkexample.core.HotTier;
+import com.hidglobal.biosdkexample.core.MatchPriorityGate;
+import com.hidglobal.biosdkexample.core.MinutiaeIndex;
+import com.hidglobal.biosdkexample.core.SearchOrder;
+import com.hidglobal.biosdkexample.core.StartupTimeline;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+import com.hidglobal.biosdkexample.core.TemplateMatcher;
 
 public interface IFragmentListener {
     void onInitializationFinished(BioDeviceStatus status);
     void onTerminate(String msg);
-    BioSDKDevice getConnectedDevice();
+    BioSDKAPI getBioSDK();
+    DeviceCommandScheduler getDeviceScheduler(int lane);
+    TemplateMatcher getDeviceMatcher();
+    DevicePool getDevicePool();
+    TemplateGallery getGallery();
+    MinutiaeIndex getMinutiaeIndex();
+    HotTier getHotTier();
+    SearchOrder getSearchOrder();
+    DuplicateDetector getDuplicateDetector();
+    MatchPriorityGate getMatchGate();
+    BatchEnrollmentWriter getEnrollmentWriter();
+    GalleryCompactor.Result getLastCompaction();
+    String describeIdentity(long identityId);
+    CaptureMetrics getCaptureMetrics();
+    StartupTimeline getStartupTimeline();
     void onEnrollmentFinished(byte[] template);
     void handleBioDeviceStatus(BioDeviceStatus status);
     void popupDialog(String msg, String btn, final boolean terminal);
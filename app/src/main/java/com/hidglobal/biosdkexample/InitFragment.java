@@ -28,18 +28,21 @@ import android.widget.ProgressBar;
 
 import com.hidglobal.biosdk.BioDeviceStatus;
 import com.hidglobal.biosdk.BioSDKAPI;
-import com.hidglobal.biosdk.BioSDKFactory;
 import com.hidglobal.biosdk.BioSDKVisitor;
 
 /**
  * InitFragment initializes the biosdk and implements the BioSDKVisitor to receive updates on
- * initialization progress and when initialization completes.
+ * initialization progress and when initialization completes.  Enumeration starts once both the
+ * fragment's view exists and MainActivity reports the SDK ready, whichever happens last.
  */
 
 public class InitFragment extends Fragment implements BioSDKVisitor{
     private ProgressBar mInitProgressBar;
     private BioDeviceStatus mStatus;
     private IFragmentListener mListener;
+    private boolean mViewCreated = false;
+    private boolean mSDKReady = false;
+    private boolean mEnumerating = false;
 
     public InitFragment() {
         // Required empty public constructor
@@ -61,6 +64,15 @@ public class InitFragment extends Fragment implements BioSDKVisitor{
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
         initGUI(view);
+        mViewCreated = true;
+        initEngine();
+    }
+
+    /**
+     * Called on the main thread once the SDK has been initialized in the background.
+     */
+    public void onSDKReady(){
+        mSDKReady = true;
         initEngine();
     }
 
@@ -69,10 +81,14 @@ public class InitFragment extends Fragment implements BioSDKVisitor{
     }
 
     private boolean initEngine(){
-        BioSDKAPI api = BioSDKFactory.getBioSDK();
+        if(!mViewCreated || !mSDKReady || mEnumerating || mListener == null){
+            return false;
+        }
+        BioSDKAPI api = mListener.getBioSDK();
         if(api == null){
             return false;
         }
+        mEnumerating = true;
         api.enumerateDevices(this);
         return true;
     }
@@ -17,13 +17,16 @@
 package com.hidglobal.biosdkexample;
 
 import android.app.Dialog;
+import android.content.Context;
 import android.content.DialogInterface;
+import android.content.Intent;
 import android.content.res.Configuration;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.support.design.widget.BottomNavigationView;
 import android.support.v4.app.FragmentManager;
 import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentTransaction;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.util.DisplayMetrics;
@@ -37,15 +40,54 @@ import android.widget.TextView;
 import com.hidglobal.biosdk.*;
 import com.hidglobal.biosdk.BioSDKAPI;
 import com.hidglobal.biosdk.listener.*;
+import com.hidglobal.biosdkexample.core.BatchEnrollmentWriter;
+import com.hidglobal.biosdkexample.core.CaptureMetrics;
+import com.hidglobal.biosdkexample.core.ConfigurationProfile;
+import com.hidglobal.biosdkexample.core.DuplicateCheck;
+import com.hidglobal.biosdkexample.core.DuplicateDetector;
+import com.hidglobal.biosdkexample.core.GalleryCompactor;
+import com.hidglobal.biosdkexample.core.GalleryService;
+import com.hidglobal.biosdkexample.core.HotTier;
+import com.hidglobal.biosdkexample.core.IGalleryServiceListener;
+import com.hidglobal.biosdkexample.core.MatchPriorityGate;
+import com.hidglobal.biosdkexample.core.MinutiaeIndex;
+import com.hidglobal.biosdkexample.core.SearchOrder;
+import com.hidglobal.biosdkexample.core.SimulationProfile;
+import com.hidglobal.biosdkexample.core.StartupTimeline;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+import com.hidglobal.biosdkexample.core.TemplateMatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static com.hidglobal.biosdk.BioDeviceStatus.BIOSDK_OK;
 
 /**
- * MainActivity for the app.  Implements IBioSDKDeviceListener to receive device connection events.
+ * MainActivity for the app.  Implements IDevicePoolListener to receive reader connection events.
  * Creates the fragments responsible for initialization, enrollment, verification, and settings.
  * Serves as the hub coordinating access to the device.
+ *
+ * Startup is staged so the first capture is not held up by work it does not need.  Only the
+ * InitFragment is created up front.  SDK initialization and the gallery load run in parallel on
+ * the startup executor, followed after enumeration by opening and configuring the readers.  The
+ * Enroll fragment is shown once both the readers and the gallery are ready.  The Enroll, Verify
+ * and Settings fragments are inflated the first time they are shown.  Each milestone is recorded
+ * in a StartupTimeline, which the stats panel shows.
+ *
+ * The gallery and everything kept with it, from the enrollment writer to compaction and
+ * duplicate detection, belong to a GalleryService.  MainActivity opens it on the startup
+ * executor, has its callbacks run on the main thread, hands it finished enrollments and closes it
+ * in onDestroy().
  */
 
-public class MainActivity extends AppCompatActivity implements IFragmentListener, IBioSDKDeviceListener{
+public class MainActivity extends AppCompatActivity implements IFragmentListener, IDevicePoolListener{
     private final String TAG = "MainActivity";
     final FragmentManager mFragmentMgr = getSupportFragmentManager();
     final InitFragment mInitFragment = new InitFragment();
@@ -53,9 +95,68 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
     final VerifyFragment mVerifyFragment = new VerifyFragment();
     final SettingsFragment mSettingsFragment = new SettingsFragment();
     private static final int INITIAL_TIMEOUT = 15;
+    private static final String GALLERY_DIR = "gallery";
+    private static final String PROFILE_ENROLL = "enroll";
+    private static final String PROFILE_VERIFY = "verify";
+    // Simulated builds read the sensor profile from this asset, or the one named by the extra.
+    private static final String SIMULATION_ASSET = "simulation.properties";
+    static final String EXTRA_SIMULATION_PROFILE = "simulation.profile";
+    private static final String EXTRA_SIMULATION_PREFIX = "simulation.";
     private BottomNavigationView mNavView;
-    BioSDKDevice mFPDevice = null;
+    BioSDKAPI mSimulatedSDK = null;
+    private SimulatedPlugReceiver mPlugReceiver = null;
+    DevicePool mDevicePool = null;
+    private Dialog mReconnectDialog = null;
+    final CaptureMetrics mCaptureMetrics = new CaptureMetrics();
+    final ExecutorService mStartupExecutor = Executors.newFixedThreadPool(2);
+    final StartupTimeline mStartup = new StartupTimeline();
+    GalleryService mGalleryService = null;
+    private boolean mGalleryReady = false;
+    private boolean mDevicesReady = false;
+    private boolean mDestroyed = false;
+    private final Executor mMainExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            runOnUiThread(command);
+        }
+    };
+    private final IGalleryServiceListener mGalleryListener = new IGalleryServiceListener() {
+        @Override
+        public void onGalleryOpened(TemplateGallery gallery) {
+            mStartup.mark(StartupTimeline.Milestone.GALLERY_LOADED);
+            mGalleryReady = true;
+            onStartupStageFinished();
+        }
+
+        @Override
+        public void onGalleryCompacted(GalleryCompactor.Result result) {
+            Log.i(TAG, result.toString());
+        }
+
+        @Override
+        public void onDuplicateRejected(DuplicateCheck check) {
+            popupDialog("Finger already enrolled as " + describeIdentity(check.getDuplicateOf())
+                    + ", not stored", "OK", false);
+        }
+
+        @Override
+        public void onStorageFailed(String msg) {
+            popupDialog(msg, "OK", false);
+        }
+    };
+    private final ICommandListener mStartupConfigureListener = new ICommandListener() {
+        @Override
+        public void onCommandComplete(DeviceCommand command, BioDeviceStatus status) {
+            if(status == BIOSDK_OK){
+                mStartup.mark(StartupTimeline.Milestone.CONFIGURED);
+            }
+            else {
+                Log.w(TAG, "Initial configuration returned " + status);
+            }
+        }
+    };
     Fragment mActiveFragment;
+    private final Set<Fragment> mAddedFragments = new HashSet<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -65,6 +166,13 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
         mNavView = findViewById(R.id.nav_view);
         createFragments();
         setupNavigationView(mNavView);
+        mGalleryService = new GalleryService(new File(getFilesDir(), GALLERY_DIR), mMainExecutor, mGalleryListener);
+        mStartupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mGalleryService.open();
+            }
+        });
         initializeSDK();
     }
 
@@ -82,27 +190,149 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
     }
 
     public boolean initializeSDK(){
-        // One time init
-        BioSDKFactory.initializeBioSDKAPI(getApplicationContext());
-        mFragmentMgr.beginTransaction().show(mInitFragment).commit();
+        // One time init, off the main thread.  Simulated builds never touch the USB stack.
+        final Context context = getApplicationContext();
+        final Intent intent = getIntent();
+        mStartupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final BioSDKAPI simulated = BuildConfig.SIMULATED_DEVICE
+                        ? new SimulatedBioSDKAPI(loadSimulationProfile(intent)) : null;
+                if(simulated == null){
+                    BioSDKFactory.initializeBioSDKAPI(context);
+                }
+                mStartup.mark(StartupTimeline.Milestone.SDK_READY);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        mSimulatedSDK = simulated;
+                        if(simulated != null && !mDestroyed){
+                            mPlugReceiver = new SimulatedPlugReceiver(simulated);
+                            registerReceiver(mPlugReceiver, SimulatedPlugReceiver.getIntentFilter());
+                        }
+                        mInitFragment.onSDKReady();
+                    }
+                });
+            }
+        });
         mActiveFragment = mInitFragment;
         return true;
     }
 
+    /**
+     * The simulated sensors' profile: SIMULATION_ASSET, or the asset named by the
+     * EXTRA_SIMULATION_PROFILE extra, with any other extra named "simulation.<setting>" on top, e.g.
+     *
+     *   adb shell am start -n com.hidglobal.biosdkexample/.MainActivity \
+     *       --es simulation.profile stress.properties --es simulation.captureLatencyMs 100
+     *
+     * Falls back to the defaults if the profile cannot be read.  Runs on the startup executor.
+     */
+    private SimulationProfile loadSimulationProfile(Intent intent){
+        Bundle extras = intent == null ? null : intent.getExtras();
+        String asset = SIMULATION_ASSET;
+        Properties overrides = new Properties();
+        if(extras != null){
+            for(String key : extras.keySet()){
+                Object value = extras.get(key);
+                if(key.equals(EXTRA_SIMULATION_PROFILE)){
+                    asset = String.valueOf(value);
+                }
+                else if(key.startsWith(EXTRA_SIMULATION_PREFIX) && value != null){
+                    overrides.setProperty(key.substring(EXTRA_SIMULATION_PREFIX.length()), String.valueOf(value));
+                }
+            }
+        }
+        SimulationProfile profile = new SimulationProfile();
+        try {
+            InputStream in = getAssets().open(asset);
+            try {
+                profile = SimulationProfile.read(in);
+            } finally {
+                in.close();
+            }
+        } catch(IOException e){
+            if(!asset.equals(SIMULATION_ASSET)){
+                Log.w(TAG, "Unable to read simulation profile " + asset, e);
+            }
+        } catch(IllegalArgumentException e){
+            Log.w(TAG, "Invalid simulation profile " + asset + ": " + e.getMessage());
+        }
+        try {
+            profile.apply(overrides);
+        } catch(IllegalArgumentException e){
+            Log.w(TAG, "Ignoring simulation extra: " + e.getMessage());
+        }
+        Log.i(TAG, "Simulating " + profile);
+        return profile;
+    }
+
     private boolean initializeDevice(){
-        BioSDKAPI bAPI = BioSDKFactory.getBioSDK();
+        final BioSDKAPI bAPI = getBioSDK();
         if(bAPI == null){
             popupDialog("No device connected.", "Exit", false);
             return false;
         }
-        //The one-time open of the device
-        mFPDevice = bAPI.openDevice(0);
-        if(mFPDevice == null){
+        final ConfigurationProfile profile = getProfile(PROFILE_ENROLL);
+        //The one-time open of every enumerated reader, off the main thread.  The initial
+        //configuration is queued right away so it is applied before the first capture is issued.
+        mStartupExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DevicePool pool = DevicePool.open(bAPI, mCaptureMetrics, MainActivity.this);
+                if(pool != null){
+                    mStartup.mark(StartupTimeline.Milestone.DEVICES_OPEN);
+                    pool.configure(profile, mStartupConfigureListener);
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDevicesOpened(pool);
+                    }
+                });
+            }
+        });
+        return true;
+    }
+
+    private void onDevicesOpened(DevicePool pool){
+        if(mDestroyed){
+            if(pool != null){
+                pool.shutdown();
+            }
+            return;
+        }
+        if(pool == null){
             popupDialog("No device connected.", "Exit", false);
-            return false;
+            return;
+        }
+        mDevicePool = pool;
+        mDevicesReady = true;
+        onStartupStageFinished();
+    }
+
+    /**
+     * Called as each startup stage lands on the main thread.  The app becomes usable once both
+     * the readers and the gallery are ready.
+     */
+    private void onStartupStageFinished(){
+        if(!mGalleryReady || !mDevicesReady){
+            return;
+        }
+        mGalleryService.startDeduplication(mDevicePool.getMatcher());
+        if(mActiveFragment == mInitFragment){
+            // Default to the Enroll Fragment
+            selectNavigationItem(mNavView.getMenu().findItem(R.id.navigation_enroll));
+        }
+        mStartup.mark(StartupTimeline.Milestone.READY);
+        Log.i(TAG, mStartup.toString());
+    }
+
+    private void shutdownDevice(){
+        if(mDevicePool != null){
+            mDevicePool.shutdown();
+            mDevicePool = null;
         }
-        mFPDevice.setBioSDKDeviceListener(this);
-        return true;
     }
 
     private void createFragments(){
@@ -111,11 +341,24 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
         mEnrollFragment.setWaitForFingerClear(false);
         mVerifyFragment.setTimeOut(INITIAL_TIMEOUT);
         mVerifyFragment.setWaitForFingerClear(false);
-        // Create the fragments
-        mFragmentMgr.beginTransaction().add(R.id.fragment_container, mInitFragment, "1").hide(mInitFragment).commit();
-        mFragmentMgr.beginTransaction().add(R.id.fragment_container, mEnrollFragment, "2").hide(mEnrollFragment).commit();
-        mFragmentMgr.beginTransaction().add(R.id.fragment_container, mVerifyFragment, "3").hide(mVerifyFragment).commit();
-        mFragmentMgr.beginTransaction().add(R.id.fragment_container, mSettingsFragment, "4").hide(mSettingsFragment).commit();
+        // Only the InitFragment is needed at launch; the others are added by showFragment().
+        mFragmentMgr.beginTransaction().add(R.id.fragment_container, mInitFragment, "1").commit();
+    }
+
+    /**
+     * Hides the active fragment and shows fragment, adding it (and so inflating its views) the
+     * first time it is shown.
+     */
+    private void showFragment(Fragment fragment, String tag){
+        FragmentTransaction transaction = mFragmentMgr.beginTransaction().hide(mActiveFragment);
+        if(mAddedFragments.add(fragment)){
+            transaction.add(R.id.fragment_container, fragment, tag);
+        }
+        else {
+            transaction.show(fragment);
+        }
+        transaction.commitAllowingStateLoss();
+        mActiveFragment = fragment;
     }
 
     private void setupNavigationView(BottomNavigationView navigationView) {
@@ -133,34 +376,63 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
         // Create a new fragment and specify the fragment to show based on nav item clicked
         switch(menuItem.getItemId()) {
             case R.id.navigation_enroll:
-                mEnrollFragment.resetGUI();
+                if(mEnrollFragment.getView() != null){
+                    mEnrollFragment.resetGUI();
+                }
                 mEnrollFragment.setTimeOut(mSettingsFragment.getTimeOut());
-                mEnrollFragment.setMatchLevel(mSettingsFragment.getMatchLevel());
-                mEnrollFragment.setPADLevel(mSettingsFragment.getPADLevel());
+                mEnrollFragment.setProfile(configureLane(DevicePool.LANE_ENROLL, getProfile(PROFILE_ENROLL)));
                 mEnrollFragment.setWaitForFingerClear(mSettingsFragment.getWaitForFingerClear());
-                mFragmentMgr.beginTransaction().hide(mActiveFragment).show(mEnrollFragment).commitAllowingStateLoss();
-                mActiveFragment = mEnrollFragment;
+                mEnrollFragment.setStationMode(mSettingsFragment.getStationMode());
+                showFragment(mEnrollFragment, "2");
                 break;
             case R.id.navigation_verify:
-                mVerifyFragment.resetGUI();
+                if(mVerifyFragment.getView() != null){
+                    mVerifyFragment.resetGUI();
+                }
                 mVerifyFragment.setTimeOut(mSettingsFragment.getTimeOut());
-                mVerifyFragment.setMatchLevel(mSettingsFragment.getMatchLevel());
-                mVerifyFragment.setPADLevel(mSettingsFragment.getPADLevel());
+                mVerifyFragment.setProfile(configureLane(DevicePool.LANE_VERIFY, getProfile(PROFILE_VERIFY)));
                 mVerifyFragment.setWaitForFingerClear(mSettingsFragment.getWaitForFingerClear());
-                mFragmentMgr.beginTransaction().hide(mActiveFragment).show(mVerifyFragment).commitAllowingStateLoss();
-                mActiveFragment = mVerifyFragment;
+                mVerifyFragment.setIdentifyMode(mSettingsFragment.getIdentifyMode());
+                mVerifyFragment.setChunkSize(mSettingsFragment.getChunkSize());
+                mVerifyFragment.setPipelined(mSettingsFragment.getPipelined());
+                mVerifyFragment.setContinuous(mSettingsFragment.getContinuous());
+                showFragment(mVerifyFragment, "3");
                 break;
             case R.id.navigation_settings:
-                mFragmentMgr.beginTransaction().hide(mActiveFragment).show(mSettingsFragment).commitAllowingStateLoss();
-                mActiveFragment = mSettingsFragment;
+                showFragment(mSettingsFragment, "4");
                 break;
         }
     }
 
+    private ConfigurationProfile getProfile(String name){
+        return ConfigurationProfile.securityLevels(name, mSettingsFragment.getMatchLevel(),
+                mSettingsFragment.getPADLevel());
+    }
+
+    /**
+     * Pushes any change in profile to the lane's reader now, while the user is still navigating,
+     * so the next capture does not wait for a configuration.  Returns profile.
+     */
+    private ConfigurationProfile configureLane(int lane, ConfigurationProfile profile){
+        if(mDevicePool != null){
+            mDevicePool.configure(lane, profile, null);
+        }
+        return profile;
+    }
+
     @Override
     public void onDestroy(){
         super.onDestroy();
-        BioSDKFactory.releaseBioSDKAPI();
+        mDestroyed = true;
+        if(mPlugReceiver != null){
+            unregisterReceiver(mPlugReceiver);
+            mPlugReceiver = null;
+        }
+        mStartupExecutor.shutdown();
+        // The duplicate detector matches on the readers, so it stops with the gallery first.
+        mGalleryService.close();
+        shutdownDevice();
+        releaseSDK();
     }
 
     public void handleBioDeviceStatus(BioDeviceStatus status){
@@ -237,7 +509,10 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
     }
 
     public void popupDialog(String msg, String btn, final boolean terminal){
+        showDialog(msg, btn, terminal);
+    }
 
+    private Dialog showDialog(String msg, String btn, final boolean terminal){
         // custom dialog
         final Dialog dialog = new Dialog(this);
         dialog.setContentView(R.layout.alert_dialog);
@@ -262,11 +537,21 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
             }
         });
         dialog.show();
+        return dialog;
     }
 
 
+    private void releaseSDK(){
+        if(mSimulatedSDK != null){
+            mSimulatedSDK.closeDevices();
+        }
+        else {
+            BioSDKFactory.releaseBioSDKAPI();
+        }
+    }
+
     private void terminate(){
-        BioSDKFactory.releaseBioSDKAPI();
+        releaseSDK();
         finish();
         return;
     }
@@ -274,24 +559,29 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
     @Override
     public void onInitializationFinished(BioDeviceStatus status){
         if(status != BIOSDK_OK){
-            BioSDKFactory.releaseBioSDKAPI();
+            releaseSDK();
             finish();
             return;
         }
-        if(false == initializeDevice()){
-            return;
-        }
-        // Default to the Enroll Fragment
-        mFragmentMgr.beginTransaction().hide(mActiveFragment).show(mEnrollFragment).commitAllowingStateLoss();
-        mActiveFragment = mEnrollFragment;
+        mStartup.mark(StartupTimeline.Milestone.DEVICES_ENUMERATED);
+        // The Enroll Fragment is shown once the readers are open and the gallery is loaded.
+        initializeDevice();
         return;
     }
 
     @Override
     public void onEnrollmentFinished(byte[] template){
-        // In a real integration, this enrollment template would be persisted in a database.  For
-        // this source code example, we just send it to the Verify Fragment.
+        // Persist the enrollment in the gallery and keep sending the latest one to the Verify
+        // Fragment for 1:1 verification.
         mVerifyFragment.setProbeTemplate(template);
+        if(template != null){
+            mGalleryService.enroll(template);
+        }
+    }
+
+    @Override
+    public String describeIdentity(long identityId){
+        return mGalleryService.describeIdentity(identityId);
     }
 
     @Override
@@ -300,20 +590,94 @@ public class MainActivity extends AppCompatActivity implements IFragmentListener
     }
 
     @Override
-    public BioSDKDevice getConnectedDevice(){
-        return mFPDevice;
+    public BioSDKAPI getBioSDK(){
+        return mSimulatedSDK != null ? mSimulatedSDK : BioSDKFactory.getBioSDK();
+    }
+
+    @Override
+    public DeviceCommandScheduler getDeviceScheduler(int lane){
+        return mDevicePool == null ? null : mDevicePool.getScheduler(lane);
+    }
+
+    @Override
+    public TemplateMatcher getDeviceMatcher(){
+        return mDevicePool == null ? null : mDevicePool.getMatcher();
+    }
+
+    @Override
+    public DevicePool getDevicePool(){
+        return mDevicePool;
+    }
+
+    @Override
+    public TemplateGallery getGallery(){
+        return mGalleryService.getGallery();
     }
 
     @Override
-    public Void device_connected() {
-        return null;
+    public MinutiaeIndex getMinutiaeIndex(){
+        return mGalleryService.getMinutiaeIndex();
     }
 
     @Override
-    public Void device_disconnected() {
-        mFPDevice = null;
-        popupDialog("Device disconnected!", "Exit", true);
-        return null;
+    public HotTier getHotTier(){
+        return mGalleryService.getHotTier();
+    }
+
+    @Override
+    public SearchOrder getSearchOrder(){
+        return mGalleryService.getSearchOrder();
+    }
+
+    @Override
+    public DuplicateDetector getDuplicateDetector(){
+        return mGalleryService.getDuplicateDetector();
+    }
+
+    @Override
+    public MatchPriorityGate getMatchGate(){
+        return mGalleryService.getMatchGate();
+    }
+
+    @Override
+    public BatchEnrollmentWriter getEnrollmentWriter(){
+        return mGalleryService.getEnrollmentWriter();
+    }
+
+    @Override
+    public GalleryCompactor.Result getLastCompaction(){
+        return mGalleryService.getLastCompaction();
+    }
+
+    @Override
+    public CaptureMetrics getCaptureMetrics(){
+        return mCaptureMetrics;
+    }
+
+    @Override
+    public StartupTimeline getStartupTimeline(){
+        return mStartup;
+    }
+
+    @Override
+    public void onDeviceDisconnected(int deviceIndex, int remaining){
+        // The pool keeps trying to reopen the reader; queued work resumes once it is back.
+        String msg = remaining > 0
+                ? "Reader " + (deviceIndex + 1) + " disconnected, continuing with " + remaining
+                : "Device disconnected, waiting for it to reconnect";
+        if(mReconnectDialog != null){
+            mReconnectDialog.dismiss();
+        }
+        mReconnectDialog = showDialog(msg, "OK", false);
+    }
+
+    @Override
+    public void onDeviceReconnected(int deviceIndex, long outageNanos){
+        Log.i(TAG, "Reader " + deviceIndex + " back after " + outageNanos / 1000000 + " ms");
+        if(mReconnectDialog != null){
+            mReconnectDialog.dismiss();
+            mReconnectDialog = null;
+        }
     }
 
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import com.hidglobal.biosdkexample.core.TemplateMatcher;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * PooledMatcher spreads TemplateMatcher.match() calls over every reader in a DevicePool.  Each
+ * comparison goes to the least-busy device: the one with the fewest comparisons in flight, with a
+ * device that is also running a capture or other command counted as slightly busier.  Ties go to
+ * the lowest device index, so a single caller keeps using the same reader.  Readers waiting to
+ * reconnect are skipped.
+ *
+ * Each DeviceMatcher serializes its own device, so a 1:N search fanned out by ParallelMatcher
+ * runs one comparison per reader at a time and scales with the number of sensors.
+ */
+
+public class PooledMatcher implements TemplateMatcher {
+    private final AtomicReferenceArray<DeviceCommandScheduler> mSchedulers;
+    private final AtomicIntegerArray mInFlight;
+    private final AtomicLongArray mMatches;
+
+    PooledMatcher(AtomicReferenceArray<DeviceCommandScheduler> schedulers){
+        mSchedulers = schedulers;
+        mInFlight = new AtomicIntegerArray(schedulers.length());
+        mMatches = new AtomicLongArray(schedulers.length());
+    }
+
+    @Override
+    public int match(byte[] probe, byte[] candidate){
+        int best = -1;
+        DeviceCommandScheduler bestScheduler = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for(int i = 0; i < mSchedulers.length(); i++){
+            DeviceCommandScheduler scheduler = mSchedulers.get(i);
+            if(scheduler == null || !scheduler.isConnected()){
+                continue;
+            }
+            int load = mInFlight.get(i) * 2 + (scheduler.isBusy() ? 1 : 0);
+            if(load < bestLoad){
+                best = i;
+                bestScheduler = scheduler;
+                bestLoad = load;
+            }
+        }
+        if(bestScheduler == null){
+            return MATCH_ERROR;
+        }
+        mInFlight.incrementAndGet(best);
+        try {
+            return bestScheduler.getMatcher().match(probe, candidate);
+        } finally {
+            mInFlight.decrementAndGet(best);
+            mMatches.incrementAndGet(best);
+        }
+    }
+
+    public long getMatchCount(int deviceIndex){
+        return mMatches.get(deviceIndex);
+    }
+}
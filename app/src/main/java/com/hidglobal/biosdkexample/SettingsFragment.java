@@ -21,33 +21,55 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Button;
 import android.widget.CompoundButton;
 import android.widget.Switch;
 import android.widget.Spinner;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.TextView;
 
+import com.hidglobal.biosdkexample.core.BatchEnrollmentWriter;
+import com.hidglobal.biosdkexample.core.CaptureMetrics;
+import com.hidglobal.biosdkexample.core.GalleryCompactor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
  * SettingsFragment allows user turn on or off wait for finger clear and to change the capture
- * timeout value.
+ * timeout value.  Also selects the 1:N identification mode and how many gallery templates are
+ * sent to the device per verify call, whether verification is pipelined or continuous, and
+ * whether enrollment runs as a batch enrollment station.  The capture latency panel shows the
+ * per stage histograms collected in CaptureMetrics and exports them as JSON to the app's stats
+ * directory.
  */
 
 public class SettingsFragment extends Fragment {
+    private static final String TAG = "SettingsFragment";
+    private static final String STATS_DIR = "stats";
     private IFragmentListener mListener;
     private Switch mFingerClearSwitch;
     private Spinner mTimeOutSpinner;
+    private TextView mStatsTxtView;
     final static int DEFAULT_TIMOUT_SPINNER_INDEX = 2;
     private int mTimeOutIndex = DEFAULT_TIMOUT_SPINNER_INDEX;
     ArrayList<String> mTimeOutArrayList;
-    int mTimeOut;
+    int mTimeOut = getTimeOut(DEFAULT_TIMOUT_SPINNER_INDEX);
     boolean mWaitForFingerClear = false;
+    boolean mContinuous = false;
+    boolean mPipelined = false;
+    boolean mStationMode = false;
     String mMatchLevel = "Medium";
     String mPADLevel = "Medium";
+    int mIdentifyMode = VerifyFragment.IDENTIFY_OFF;
+    int mChunkSize = ChunkedIdentifier.MAX_CHUNK_SIZE;
 
 
     public SettingsFragment(){
@@ -169,6 +191,146 @@ public class SettingsFragment extends Fragment {
         if(nPosIndex != -1){
             spPADLevel.setSelection(nPosIndex);
         }
+
+        Spinner spIdentifyMode = view.findViewById(R.id.spinner_identify_mode);
+        // For the identify mode spinner control, we will use the identify_mode_array from strings.xml
+        ArrayAdapter<CharSequence> adapterIdentifyMode = ArrayAdapter.createFromResource(spIdentifyMode.getContext(),R.array.identify_mode_array, R.layout.spinner_dropdown_item);
+        adapterIdentifyMode.setDropDownViewResource(R.layout.spinner_dropdown_item);
+        spIdentifyMode.setAdapter(adapterIdentifyMode);
+        spIdentifyMode.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                // Items are listed in the order of the VerifyFragment IDENTIFY_ constants
+                mIdentifyMode = position;
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+
+            }
+        });
+        spIdentifyMode.setSelection(mIdentifyMode);
+
+        Spinner spChunkSize = view.findViewById(R.id.spinner_chunk_size);
+        // For the chunk size spinner control, we will use the chunk_size_array from strings.xml
+        ArrayAdapter<CharSequence> adapterChunkSize = ArrayAdapter.createFromResource(spChunkSize.getContext(),R.array.chunk_size_array, R.layout.spinner_dropdown_item);
+        adapterChunkSize.setDropDownViewResource(R.layout.spinner_dropdown_item);
+        spChunkSize.setAdapter(adapterChunkSize);
+        spChunkSize.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                mChunkSize = Integer.parseInt(parent.getItemAtPosition(position).toString());
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+
+            }
+        });
+
+        int nPosIndex3 = getIndex(spChunkSize, String.valueOf(mChunkSize));
+        if(nPosIndex3 != -1){
+            spChunkSize.setSelection(nPosIndex3);
+        }
+
+        Switch continuousSwitch = view.findViewById(R.id.switchContinuous);
+        continuousSwitch.setChecked(mContinuous);
+        continuousSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                mContinuous = isChecked;
+            }
+        });
+
+        Switch pipelinedSwitch = view.findViewById(R.id.switchPipelined);
+        pipelinedSwitch.setChecked(mPipelined);
+        pipelinedSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                mPipelined = isChecked;
+            }
+        });
+
+        Switch stationSwitch = view.findViewById(R.id.switchStation);
+        stationSwitch.setChecked(mStationMode);
+        stationSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                mStationMode = isChecked;
+            }
+        });
+
+        mStatsTxtView = view.findViewById(R.id.tvStats);
+        Button refreshButton = view.findViewById(R.id.buttonStatsRefresh);
+        refreshButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showStats();
+            }
+        });
+        Button exportButton = view.findViewById(R.id.buttonStatsExport);
+        exportButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                exportStats();
+            }
+        });
+        Button resetButton = view.findViewById(R.id.buttonStatsReset);
+        resetButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mListener.getCaptureMetrics().reset();
+                showStats();
+            }
+        });
+        showStats();
+    }
+
+    private void showStats(){
+        DevicePool pool = mListener.getDevicePool();
+        BatchEnrollmentWriter writer = mListener.getEnrollmentWriter();
+        GalleryCompactor.Result compaction = mListener.getLastCompaction();
+        String summary = mListener.getStartupTimeline().summary() + "\n"
+                + mListener.getHotTier().summary(mListener.getGallery()) + "\n"
+                + mListener.getSearchOrder().summary() + "\n"
+                + (writer == null ? "" : writer + "\n")
+                + (compaction == null ? "" : compaction + "\n") + "\n"
+                + mListener.getCaptureMetrics().summary();
+        mStatsTxtView.setText(pool == null ? summary : pool.summary() + "\n" + summary);
+    }
+
+    private void exportStats(){
+        CaptureMetrics metrics = mListener.getCaptureMetrics();
+        File dir = new File(getActivity().getFilesDir(), STATS_DIR);
+        File file = new File(dir, "capture-metrics-" + System.currentTimeMillis() + ".json");
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            mStatsTxtView.setText("Cannot create " + dir);
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            out.write(metrics.snapshot().getBytes("UTF-8"));
+            mStatsTxtView.setText("Exported to " + file + "\n\n" + metrics.summary());
+        } catch(IOException e){
+            Log.e(TAG, "export failed", e);
+            mStatsTxtView.setText("Export failed: " + e.getMessage());
+        } finally {
+            if(out != null){
+                try {
+                    out.close();
+                } catch(IOException e){
+                    // Nothing more to do.
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden){
+        if(!hidden && mStatsTxtView != null){
+            showStats();
+        }
     }
 
     public int getTimeOut(){
@@ -187,6 +349,26 @@ public class SettingsFragment extends Fragment {
         return mWaitForFingerClear;
     }
 
+    public int getIdentifyMode(){
+        return mIdentifyMode;
+    }
+
+    public int getChunkSize(){
+        return mChunkSize;
+    }
+
+    public boolean getStationMode(){
+        return mStationMode;
+    }
+
+    public boolean getPipelined(){
+        return mPipelined;
+    }
+
+    public boolean getContinuous(){
+        return mContinuous;
+    }
+
     private int getIndex(Spinner spinner, String myString){
         if(myString.equals("0")){
             return 0;
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.hidglobal.biosdk.BioDeviceStatus;
+import com.hidglobal.biosdk.BioSDKAPI;
+import com.hidglobal.biosdk.BioSDKDevice;
+import com.hidglobal.biosdk.BioSDKVisitor;
+import com.hidglobal.biosdkexample.core.SimulationProfile;
+
+/**
+ * SimulatedBioSDKAPI enumerates SimulatedBioSDKDevices instead of USB sensors.  It is used in
+ * place of BioSDKFactory.getBioSDK() when the app is built with SIMULATED_DEVICE.  As with the
+ * SDK, getBioDevice() lists the devices once enumerateDevices() has run, and openDevice() opens
+ * one of them.
+ */
+
+public class SimulatedBioSDKAPI implements BioSDKAPI {
+    private final SimulationProfile mProfile;
+    private final SimulatedBioSDKDevice[] mDevices;
+    private boolean mEnumerated = false;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    public SimulatedBioSDKAPI(SimulationProfile profile){
+        mProfile = profile;
+        mDevices = new SimulatedBioSDKDevice[profile.getDeviceCount()];
+    }
+
+    @Override
+    public void enumerateDevices(final BioSDKVisitor visitor){
+        synchronized(this){
+            mEnumerated = true;
+        }
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                visitor.onUpdateProgress(100);
+                visitor.onEnumerateFinished(mDevices.length > 0 ? BioDeviceStatus.BIOSDK_OK
+                        : BioDeviceStatus.BIOSDK_ERROR_NO_DEVICE_PRESENT);
+            }
+        });
+    }
+
+    @Override
+    public synchronized BioSDKDevice openDevice(int nDeviceNo){
+        SimulatedBioSDKDevice device = (SimulatedBioSDKDevice) getBioDevice(nDeviceNo);
+        // An unplugged sensor cannot be opened.
+        return device != null && device.isConnected() ? device : null;
+    }
+
+    @Override
+    public synchronized BioSDKDevice getBioDevice(int nIndexNo){
+        if(!mEnumerated || nIndexNo < 0 || nIndexNo >= mDevices.length){
+            return null;
+        }
+        if(mDevices[nIndexNo] == null){
+            mDevices[nIndexNo] = new SimulatedBioSDKDevice(mProfile, mProfile.getSeed() + nIndexNo);
+        }
+        return mDevices[nIndexNo];
+    }
+
+    @Override
+    public synchronized void closeDevices(){
+        for(int i = 0; i < mDevices.length; i++){
+            if(mDevices[i] != null){
+                mDevices[i].close();
+                mDevices[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.hidglobal.biosdk.BioDeviceStatus;
+import com.hidglobal.biosdk.BioSDKDevice;
+import com.hidglobal.biosdk.IVCOM;
+import com.hidglobal.biosdk.V100_DEVICE_TRANSPORT_INFO;
+import com.hidglobal.biosdk.listener.IBioSDKDeviceListener;
+import com.hidglobal.biosdk.listener.IBioSDKDeviceLogListener;
+import com.hidglobal.biosdk.listener.ICaptureListener;
+import com.hidglobal.biosdk.listener.IStatusListener;
+import com.hidglobal.biosdk.listener.IVerifyListener;
+import com.hidglobal.biosdk.listener.IWaitForFingerClearListener;
+import com.hidglobal.biosdkexample.core.ISimulatedStatusListener;
+import com.hidglobal.biosdkexample.core.SimulatedSensor;
+import com.hidglobal.biosdkexample.core.SimulationProfile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.hidglobal.biosdk.BioDeviceStatus.*;
+
+/**
+ * SimulatedBioSDKDevice stands in for an M21x sensor so the capture and match paths can run
+ * without hardware.  Statuses, latencies, templates and match results come from a core
+ * SimulatedSensor; this class adds the SDK's threading and renders images with SyntheticFinger.
+ * Like the SDK, only one asynchronous operation may run at a time, status updates arrive on a
+ * worker thread, and completions are delivered on the main thread.
+ */
+
+public class SimulatedBioSDKDevice implements BioSDKDevice {
+    private final SimulatedSensor mSensor;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mBusy = new AtomicBoolean(false);
+    private final Map<String, String> mConfiguration = new HashMap<>();
+    private volatile IBioSDKDeviceListener mDeviceListener;
+    private volatile Bitmap mLastImage;
+    private volatile byte[] mLastTemplate;
+    private volatile int mLastPADResult;
+    private volatile int mLastMatchResult;
+
+    public SimulatedBioSDKDevice(SimulationProfile profile, long seed){
+        mSensor = new SimulatedSensor(profile, seed);
+        mConfiguration.put("matching_security_level", "MEDIUM");
+        mConfiguration.put("pad_security_level", "MEDIUM");
+    }
+
+    @Override
+    public BioDeviceStatus capture_async(final int nTimeout, final ICaptureListener listener){
+        if(!begin()){
+            return mSensor.isConnected() ? BIOSDK_ERROR_ASYNC_TASK_RUNNING : BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final BioDeviceStatus status = acquire(nTimeout, listener);
+                final Bitmap image = mLastImage;
+                final byte[] template = mLastTemplate;
+                final int padResult = mLastPADResult;
+                end();
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(status == BIOSDK_OK){
+                            listener.bioSDKCaptureComplete(status, image, template, padResult);
+                        }
+                        else {
+                            listener.bioSDKCaptureComplete(status, null, null, 0);
+                        }
+                    }
+                });
+            }
+        });
+        return BIOSDK_OK;
+    }
+
+    @Override
+    public BioDeviceStatus verify_async(final List<byte[]> templateList, final int nTimeoutSeconds,
+                                        final IVerifyListener listener){
+        if(templateList == null || templateList.isEmpty()){
+            return BIOSDK_ERROR_PARAMETER;
+        }
+        if(!begin()){
+            return mSensor.isConnected() ? BIOSDK_ERROR_ASYNC_TASK_RUNNING : BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                BioDeviceStatus acquired = acquire(nTimeoutSeconds, listener);
+                final int score = acquired == BIOSDK_OK ? mSensor.matchAny(mLastTemplate, templateList) : 0;
+                final BioDeviceStatus status = acquired;
+                final Bitmap image = mLastImage;
+                final byte[] template = mLastTemplate;
+                final int padResult = mLastPADResult;
+                end();
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(status == BIOSDK_OK){
+                            listener.bioSDKVerifyComplete(status, image, template, score, padResult);
+                        }
+                        else {
+                            listener.bioSDKVerifyComplete(status, null, null, 0, 0);
+                        }
+                    }
+                });
+            }
+        });
+        return BIOSDK_OK;
+    }
+
+    @Override
+    public BioDeviceStatus waitForFingerClear_asynch(final int nTimeOutSeconds,
+                                                     final IWaitForFingerClearListener listener){
+        if(!begin()){
+            return mSensor.isConnected() ? BIOSDK_ERROR_ASYNC_TASK_RUNNING : BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final BioDeviceStatus status = statusOf(
+                        mSensor.waitForFingerClear(nTimeOutSeconds, forward(listener)));
+                end();
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.bioSDKWaitForFingerClearComplete(status);
+                    }
+                });
+            }
+        });
+        return BIOSDK_OK;
+    }
+
+    @Override
+    public BioDeviceStatus capture(int timeoutSeconds, IStatusListener listener){
+        if(!begin()){
+            return mSensor.isConnected() ? BIOSDK_ERROR_ASYNC_TASK_RUNNING : BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        try {
+            return acquire(timeoutSeconds, listener);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public BioDeviceStatus verify(int timeoutSeconds, List<byte[]> templateList, IStatusListener listener){
+        if(templateList == null || templateList.isEmpty()){
+            return BIOSDK_ERROR_PARAMETER;
+        }
+        if(!begin()){
+            return mSensor.isConnected() ? BIOSDK_ERROR_ASYNC_TASK_RUNNING : BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        try {
+            BioDeviceStatus status = acquire(timeoutSeconds, listener);
+            if(status == BIOSDK_OK){
+                mLastMatchResult = mSensor.matchAny(mLastTemplate, templateList);
+            }
+            return status;
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public BioDeviceStatus waitForFingerClear(int nTimeoutSeconds, IStatusListener listener){
+        if(!begin()){
+            return mSensor.isConnected() ? BIOSDK_ERROR_ASYNC_TASK_RUNNING : BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        try {
+            return statusOf(mSensor.waitForFingerClear(nTimeoutSeconds, forward(listener)));
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public BioDeviceStatus match(byte[] probe_template, byte[] gallery_template){
+        if(probe_template == null || gallery_template == null){
+            return BIOSDK_ERROR_PARAMETER;
+        }
+        if(!mSensor.isConnected()){
+            return BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        mLastMatchResult = mSensor.match(probe_template, gallery_template);
+        return BIOSDK_OK;
+    }
+
+    private boolean begin(){
+        if(!mSensor.isConnected() || !mBusy.compareAndSet(false, true)){
+            return false;
+        }
+        mSensor.begin();
+        return true;
+    }
+
+    private void end(){
+        mBusy.set(false);
+    }
+
+    /**
+     * Presents the next finger: replays the capture status sequence, then records the new image,
+     * template and PAD result as the device's last biometric data.
+     */
+    private BioDeviceStatus acquire(int timeOutSeconds, IStatusListener listener){
+        BioDeviceStatus status = statusOf(mSensor.capture(timeOutSeconds, forward(listener)));
+        if(status != BIOSDK_OK){
+            return status;
+        }
+        SimulatedSensor.Impression impression = mSensor.present();
+        SimulationProfile profile = mSensor.getProfile();
+        mLastTemplate = impression.getTemplate();
+        mLastImage = SyntheticFinger.image(impression.getFingerId(), profile.getImageWidth(), profile.getImageHeight());
+        mLastPADResult = impression.getPADResult();
+        return BIOSDK_OK;
+    }
+
+    private static ISimulatedStatusListener forward(final IStatusListener listener){
+        return new ISimulatedStatusListener() {
+            @Override
+            public boolean onUpdateStatus(int status) {
+                return listener.onUpdateStatus(status);
+            }
+        };
+    }
+
+    private static BioDeviceStatus statusOf(SimulatedSensor.Outcome outcome){
+        switch(outcome){
+            case OK:
+                return BIOSDK_OK;
+            case CANCELLED:
+                return BIOSDK_CANCELLED;
+            case TIMEOUT:
+                return BIOSDK_TIMEOUT;
+            default:
+                return BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+    }
+
+    @Override
+    public Map<String, String> getVersionInfo(){
+        Map<String, String> info = new HashMap<>();
+        info.put("device", "Simulated M21x");
+        info.put("firmware", "0.0.0");
+        return info;
+    }
+
+    @Override
+    public Map<String, String> getConfigurationState(){
+        if(!mSensor.isConnected()){
+            return null;
+        }
+        synchronized(mConfiguration){
+            return new HashMap<>(mConfiguration);
+        }
+    }
+
+    @Override
+    public BioDeviceStatus setConfigurationState(Map<String, String> obj){
+        if(obj == null){
+            return BIOSDK_ERROR_PARAMETER;
+        }
+        if(!mSensor.isConnected()){
+            return BIOSDK_ERROR_NO_DEVICE_PRESENT;
+        }
+        mSensor.configure();
+        synchronized(mConfiguration){
+            mConfiguration.putAll(obj);
+        }
+        return BIOSDK_OK;
+    }
+
+    @Override
+    public Bitmap getLastImage(){
+        return mLastImage;
+    }
+
+    @Override
+    public byte[] getLastTemplate(){
+        return mLastTemplate;
+    }
+
+    @Override
+    public int getLastPADResult(){
+        return mLastPADResult;
+    }
+
+    @Override
+    public int getLastMatchResult(){
+        return mLastMatchResult;
+    }
+
+    @Override
+    public void clearBioData(){
+        mLastImage = null;
+        mLastTemplate = null;
+        mLastPADResult = 0;
+        mLastMatchResult = 0;
+    }
+
+    @Override
+    public void setBioSDKDeviceListener(IBioSDKDeviceListener listener){
+        mDeviceListener = listener;
+    }
+
+    @Override
+    public boolean cancel_async(){
+        if(!mBusy.get()){
+            return false;
+        }
+        mSensor.cancel();
+        return true;
+    }
+
+    @Override
+    public boolean setLogListener(IBioSDKDeviceLogListener listener, int severity){
+        return false;
+    }
+
+    @Override
+    public IVCOM getNativeInterface(){
+        return null;
+    }
+
+    @Override
+    public V100_DEVICE_TRANSPORT_INFO getNativeHandle(){
+        return null;
+    }
+
+    @Override
+    public BioDeviceStatus getDeviceStatus(){
+        // Reserved in the SDK, which always returns null.
+        return null;
+    }
+
+    /**
+     * Simulates unplugging the sensor: running operations fail and the device listener is told
+     * the device disconnected.  Driven by SimulatedPlugReceiver in simulated builds.
+     */
+    public void disconnect(){
+        mSensor.setConnected(false);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                IBioSDKDeviceListener listener = mDeviceListener;
+                if(listener != null){
+                    listener.device_disconnected();
+                }
+            }
+        });
+    }
+
+    /**
+     * Simulates plugging the sensor back in.  Like a real power cycle it comes back with the default
+     * configuration, and the device listener is told the device connected.
+     */
+    public void reconnect(){
+        synchronized(mConfiguration){
+            mConfiguration.put("matching_security_level", "MEDIUM");
+            mConfiguration.put("pad_security_level", "MEDIUM");
+        }
+        mSensor.setConnected(true);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                IBioSDKDeviceListener listener = mDeviceListener;
+                if(listener != null){
+                    listener.device_connected();
+                }
+            }
+        });
+    }
+
+    boolean isConnected(){
+        return mSensor.isConnected();
+    }
+
+    void close(){
+        mSensor.setConnected(false);
+        mExecutor.shutdownNow();
+    }
+}
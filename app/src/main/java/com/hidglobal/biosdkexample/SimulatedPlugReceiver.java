@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+
+import com.hidglobal.biosdk.BioSDKAPI;
+import com.hidglobal.biosdk.BioSDKDevice;
+
+/**
+ * SimulatedPlugReceiver unplugs and replugs simulated sensors on request, so the reconnect path can
+ * be exercised without a USB cable.  MainActivity registers it in simulated builds only, e.g.
+ *
+ *   adb shell am broadcast -a com.hidglobal.biosdkexample.SIMULATE_UNPLUG --ei device 0
+ *   adb shell am broadcast -a com.hidglobal.biosdkexample.SIMULATE_REPLUG --ei device 0
+ *
+ * The device number defaults to 0.
+ */
+
+public class SimulatedPlugReceiver extends BroadcastReceiver {
+    private static final String TAG = "SimulatedPlugReceiver";
+    public static final String ACTION_UNPLUG = "com.hidglobal.biosdkexample.SIMULATE_UNPLUG";
+    public static final String ACTION_REPLUG = "com.hidglobal.biosdkexample.SIMULATE_REPLUG";
+    public static final String EXTRA_DEVICE = "device";
+
+    private final BioSDKAPI mApi;
+
+    public SimulatedPlugReceiver(BioSDKAPI api){
+        mApi = api;
+    }
+
+    public static IntentFilter getIntentFilter(){
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(ACTION_UNPLUG);
+        filter.addAction(ACTION_REPLUG);
+        return filter;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent){
+        int deviceNumber = intent.getIntExtra(EXTRA_DEVICE, 0);
+        BioSDKDevice device = mApi.getBioDevice(deviceNumber);
+        if(!(device instanceof SimulatedBioSDKDevice)){
+            Log.w(TAG, "No simulated device " + deviceNumber);
+            return;
+        }
+        if(ACTION_UNPLUG.equals(intent.getAction())){
+            Log.i(TAG, "Unplugging simulated device " + deviceNumber);
+            ((SimulatedBioSDKDevice) device).disconnect();
+        }
+        else if(ACTION_REPLUG.equals(intent.getAction())){
+            Log.i(TAG, "Replugging simulated device " + deviceNumber);
+            ((SimulatedBioSDKDevice) device).reconnect();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.view.Choreographer;
+import android.widget.TextView;
+
+import com.hidglobal.biosdkexample.core.AcquisitionFeedback;
+import com.hidglobal.biosdkexample.core.StatusCoalescer;
+
+/**
+ * StatusDispatcher forwards finger feedback from the SDK's acquisition status callbacks to a
+ * TextView without allocating per callback.  A StatusCoalescer conflates consecutive identical
+ * feedback and keeps at most one text update per display frame: if several updates arrive before
+ * the next frame only the latest is shown.  Its counters for conflated and dropped updates show
+ * how the callback rate compares with what actually reaches the screen.
+ *
+ * Must be created on the main thread; publish() may be called from any thread.
+ */
+
+public class StatusDispatcher implements Choreographer.FrameCallback {
+    private final TextView mTarget;
+    private final Choreographer mChoreographer;
+    private final StatusCoalescer mCoalescer = new StatusCoalescer(AcquisitionFeedback.FEEDBACK_NONE);
+
+    public StatusDispatcher(TextView target){
+        mTarget = target;
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Queues feedback for display on the next frame.  Feedback is compared by reference, so use
+     * the AcquisitionFeedback constants.
+     */
+    public void publish(String feedback){
+        if(mCoalescer.offer(feedback)){
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Clears the feedback immediately.  Main thread only.
+     */
+    public void clear(){
+        mCoalescer.reset(AcquisitionFeedback.FEEDBACK_NONE);
+        mTarget.setText(AcquisitionFeedback.FEEDBACK_NONE);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos){
+        mTarget.setText(mCoalescer.poll());
+    }
+
+    public long getPublishedCount(){
+        return mCoalescer.getPublishedCount();
+    }
+
+    public long getConflatedCount(){
+        return mCoalescer.getConflatedCount();
+    }
+
+    public long getDroppedCount(){
+        return mCoalescer.getDroppedCount();
+    }
+
+    public long getDeliveredCount(){
+        return mCoalescer.getDeliveredCount();
+    }
+
+    @Override
+    public String toString(){
+        return "StatusDispatcher{" + mCoalescer + "}";
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+
+/**
+ * SyntheticFinger renders the image of a simulated finger.  Its templates come from
+ * SyntheticTemplates.
+ */
+
+final class SyntheticFinger {
+
+    private SyntheticFinger(){
+    }
+
+    /**
+     * Renders a ridge-like grayscale pattern whose orientation depends on the finger id.
+     */
+    static Bitmap image(int fingerId, int width, int height){
+        int[] pixels = new int[width * height];
+        double theta = (fingerId % 12) * Math.PI / 12;
+        double fx = Math.cos(theta) * 0.35;
+        double fy = Math.sin(theta) * 0.35;
+        double cx = width / 2.0;
+        double cy = height / 2.0;
+        for(int y = 0; y < height; y++){
+            for(int x = 0; x < width; x++){
+                double r = Math.hypot(x - cx, y - cy) * 0.02;
+                int gray = (int) (127.5 + 127.5 * Math.sin(x * fx + y * fy + r));
+                pixels[y * width + x] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+            }
+        }
+        // Mutable, like the SDK's images: the minutiae overlay draws straight onto it.
+        Bitmap image = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        image.setPixels(pixels, 0, width, 0, 0, width, height);
+        return image;
+    }
+}
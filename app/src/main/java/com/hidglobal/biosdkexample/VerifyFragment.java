@@ -21,12 +21,11 @@ import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.content.ContextCompat;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -36,13 +35,18 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.hidglobal.biosdk.BioDeviceStatus;
-import com.hidglobal.biosdk.BioSDKDevice;
 import com.hidglobal.biosdk.listener.ICaptureListener;
-import com.hidglobal.biosdk.ImageTools;
 import com.hidglobal.biosdk.listener.IWaitForFingerClearListener;
-
-import java.util.HashMap;
-import java.util.Map;
+import com.hidglobal.biosdkexample.core.AcqStatus;
+import com.hidglobal.biosdkexample.core.AcquisitionFeedback;
+import com.hidglobal.biosdkexample.core.CaptureStage;
+import com.hidglobal.biosdkexample.core.CaptureTrace;
+import com.hidglobal.biosdkexample.core.ConfigurationProfile;
+import com.hidglobal.biosdkexample.core.IdentificationResult;
+import com.hidglobal.biosdkexample.core.MatchPriorityGate;
+import com.hidglobal.biosdkexample.core.StartupTimeline;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+import com.hidglobal.biosdkexample.core.ThroughputMeter;
 
 import static com.hidglobal.biosdk.BioDeviceStatus.*;
 
@@ -55,9 +59,28 @@ import static com.hidglobal.biosdk.BioDeviceStatus.*;
  *
  * Implements the IWaitForFingerClearListener to receive acquisition mStatus messages during wait for
  * finger clear from the biosdk and to receive wait for finger clear complete.
+ *
+ * When identification is enabled, the match result shows the identity found in the template
+ * gallery.  IDENTIFY_CHUNKED replaces the capture by a ChunkedIdentifier search on the device;
+ * IDENTIFY_PARALLEL captures as usual and then searches the gallery with the ParallelMatcher.
+ *
+ * Matching and the minutiae overlay run in the VerifyPipeline off the UI thread; only the final
+ * result is rendered on the main thread.  In pipelined mode a capture goes to the pipeline as soon
+ * as it completes and the wait for finger clear runs alongside, so 1:N identification is hidden
+ * behind the user lifting the finger instead of following it.
+ *
+ * In continuous mode one press of the button starts a hands-free loop for gate installations:
+ * the device is configured once, captures are always pipelined, and the wait for finger clear
+ * gates the next capture, which is re-armed as soon as the finger is lifted.  If matching falls
+ * VerifyPipeline.MAX_IN_FLIGHT results behind, the next capture waits for a result to be rendered.
+ * Capture time outs with nobody at the sensor simply re-arm.  A ThroughputMeter reports the
+ * sustained transactions per minute and how long the sensor sat idle between transactions.
  */
 
-public class VerifyFragment extends Fragment implements ICaptureListener, IWaitForFingerClearListener{
+public class VerifyFragment extends Fragment implements ICaptureListener, IWaitForFingerClearListener,
+        IIdentificationListener{
+    private static final String TAG = "VerifyFragment";
+    private static final int LANE = DevicePool.LANE_VERIFY;
     private IFragmentListener mListener;
     private Button mVerifyButton;
     private ProgressBar mRealFingerProgressBar;
@@ -66,20 +89,57 @@ public class VerifyFragment extends Fragment implements ICaptureListener, IWaitF
     private TextView mRealFingerTxtView;
     private TextView mMatchTxtView;
     private TextView mFingerFeedbackTxtView;
+    private TextView mThroughputTxtView;
+    private StatusDispatcher mStatusDispatcher;
     BioDeviceStatus mStatus;
     int mColorGreen;
     int mColorRed;
     private int mTimeOut = 15;
-    private String mMatchLevel= "MEDIUM";
-    private String mPADLevel= "MEDIUM";
+    private ConfigurationProfile mProfile = ConfigurationProfile.DEFAULT;
     private Bitmap mFingerImage;
     byte[] mProbeTemplate;
     private byte[] mTemplate;
     private int mPADResult;
     boolean mWaitForFingerClear = false;
-    boolean mWaitForFingerClearRunning = false;
-    private boolean mCancelCapture = false;
-    boolean mCaptureInProgress = false;
+    final static int IDENTIFY_OFF = 0;
+    final static int IDENTIFY_CHUNKED = 1;
+    final static int IDENTIFY_PARALLEL = 2;
+    int mIdentifyMode = IDENTIFY_OFF;
+    private final ChunkedIdentifier mIdentifier = new ChunkedIdentifier();
+    private final VerifyPipeline mPipeline = new VerifyPipeline();
+    private IdentificationResult mIdentificationResult;
+    private CaptureTrace mTrace = new CaptureTrace();
+    // Whether a running on-device identification holds the MatchPriorityGate.
+    private boolean mHoldingGate;
+    boolean mPipelined = false;
+    boolean mContinuous = false;
+    private boolean mContinuousRunning;
+    private boolean mRearmPending;
+    // Trace of the pipelined capture whose finger clear is pending, null otherwise.
+    private CaptureTrace mClearingTrace;
+    private final ThroughputMeter mThroughput = new ThroughputMeter();
+    // Set by the first finger present status after a capture is armed; status callbacks may
+    // arrive off the main thread, so the ThroughputMeter is only updated on capture complete.
+    private volatile long mFingerDetectedNanos;
+    // Progress drawables are resolved once; each progress bar needs its own instances.
+    private Drawable mRealFingerGreen;
+    private Drawable mRealFingerRed;
+    private Drawable mMatchGreen;
+    private Drawable mMatchRed;
+    private final ICommandListener mConfigureListener = new ICommandListener() {
+        @Override
+        public void onCommandComplete(DeviceCommand command, BioDeviceStatus status) {
+            if(status != BIOSDK_OK && mListener != null){
+                mListener.popupDialog("SetConfigState returned " + status.toString() + "(" + mProfile + ")", "Exit",true);
+            }
+        }
+    };
+    private final IVerifyPipelineListener mPipelineListener = new IVerifyPipelineListener() {
+        @Override
+        public void onVerifyResult(VerifyTransaction transaction) {
+            renderResults(transaction);
+        }
+    };
 
     public VerifyFragment(){
         // Required empty public constructor
@@ -111,9 +171,11 @@ public class VerifyFragment extends Fragment implements ICaptureListener, IWaitF
         mRealFingerTxtView = view.findViewById(R.id.RealFingerLabelVer);
         mMatchTxtView = view.findViewById(R.id.MatchLabel);
         mFingerFeedbackTxtView = view.findViewById(R.id.fingerFeedbackVerLabel);
+        mThroughputTxtView = view.findViewById(R.id.throughputVerLabel);
+        mStatusDispatcher = new StatusDispatcher(mFingerFeedbackTxtView);
         mRealFingerTxtView.setText("");
         mMatchTxtView.setText("");
-        mFingerFeedbackTxtView.setText("");
+        mStatusDispatcher.clear();
         mVerifyButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -122,150 +184,338 @@ public class VerifyFragment extends Fragment implements ICaptureListener, IWaitF
         });
         mColorGreen = ContextCompat.getColor(view.getContext(), R.color.green);
         mColorRed = ContextCompat.getColor(view.getContext(), R.color.StopSignRed);
+        Resources res = getResources();
+        mRealFingerGreen = res.getDrawable(R.drawable.curved_progress_bar_green);
+        mRealFingerRed = res.getDrawable(R.drawable.curved_progress_bar_red);
+        mMatchGreen = res.getDrawable(R.drawable.curved_progress_bar_green);
+        mMatchRed = res.getDrawable(R.drawable.curved_progress_bar_red);
     }
 
     private void onVerify(View v) {
-        BioSDKDevice fpDevice = mListener.getConnectedDevice();
-        if(fpDevice == null){
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        if(scheduler == null){
             mListener.popupDialog("Fingerprint Device is null", "OK", false);
             return;
         }
-        if(mCaptureInProgress == true) {
-            mCancelCapture = true;
-            mFingerFeedbackTxtView.setText("");
+        if(mContinuousRunning || scheduler.isBusy() || mIdentifier.isRunning()) {
+            stopContinuous();
+            mIdentifier.cancel();
+            mPipeline.cancel();
+            scheduler.cancel();
+            mStatusDispatcher.clear();
             mVerifyButton.setText("VERIFY");
-            mCaptureInProgress = false;
-            return;
-        }
-        Map<String, String> strMapSecurityLevel = new HashMap<>();
-        strMapSecurityLevel.put("matching_security_level", mMatchLevel);
-        strMapSecurityLevel.put("pad_security_level", mPADLevel);
-        BioDeviceStatus status = fpDevice.setConfigurationState(strMapSecurityLevel);
-        if(status != BioDeviceStatus.BIOSDK_OK){
-            mListener.popupDialog("SetConfigState returned " + status.toString() + "(" + mMatchLevel + " " + mPADLevel + ")", "Exit",true);
             return;
         }
-        // In this example we call capture_async().  Note: we could call verify_async() and pass in
-        // mProbeTemplate instead of calling match() in displayResults() method.
-        mStatus = fpDevice.capture_async(mTimeOut, this);
+        // Normally a no-op: the profile was pushed when it was set.  A change that has not reached
+        // the device yet is queued ahead of the capture, so the capture always runs with it.
+        scheduler.configure(mProfile, mConfigureListener);
+        mStatus = issueCapture(scheduler);
         if(mStatus != BIOSDK_OK){
-            mFingerFeedbackTxtView.setText("");
+            mStatusDispatcher.clear();
             mVerifyButton.setText("VERIFY");
-            mCaptureInProgress = false;
             mListener.handleBioDeviceStatus(mStatus);
+            return;
         }
         resetGUI();
-        mFingerFeedbackTxtView.setText("");
-        mVerifyButton.setText("CANCEL");
-        mCaptureInProgress = true;
+        mStatusDispatcher.clear();
+        if(mContinuous){
+            // The configuration queued above holds for every capture of the session.
+            mContinuousRunning = true;
+            mThroughput.start(mTrace.getIssuedNanos());
+            mThroughput.armed(mTrace.getIssuedNanos());
+            mThroughputTxtView.setText(mThroughput.summary(System.nanoTime()));
+            mThroughputTxtView.setVisibility(View.VISIBLE);
+            mVerifyButton.setText("STOP");
+        }
+        else {
+            mThroughputTxtView.setVisibility(View.GONE);
+            mVerifyButton.setText("CANCEL");
+        }
     }
 
-    public void setTimeOut(int timeOut){
-        mTimeOut = timeOut;
+    private BioDeviceStatus issueCapture(DeviceCommandScheduler scheduler){
+        // In this example we capture and then match.  Note: we could queue a verify command and
+        // pass in mProbeTemplate instead of calling match() in displayResults() method.
+        // Identification does exactly that, streaming the gallery through verify in chunks.
+        mIdentificationResult = null;
+        mFingerDetectedNanos = 0;
+        mTrace = new CaptureTrace();
+        mTrace.markIssued();
+        TemplateGallery gallery = mListener.getGallery();
+        if(mIdentifyMode == IDENTIFY_CHUNKED && gallery != null && gallery.size() > 0){
+            // The device runs the search itself, so background matching has to stay off it.
+            MatchPriorityGate gate = mListener.getMatchGate();
+            gate.enterLive();
+            int[] order = mListener.getSearchOrder().getOrder(gallery, LANE);
+            BioDeviceStatus status = mIdentifier.start(scheduler, gallery, order, mTimeOut, this);
+            if(status == BIOSDK_OK){
+                mHoldingGate = true;
+            }
+            else {
+                gate.exitLive();
+            }
+            return status;
+        }
+        return scheduler.submit(new DeviceCommand.Capture(mTimeOut, this));
+    }
+
+    /**
+     * Arms the next capture of a continuous session.  Ends the session if the capture cannot be
+     * queued.
+     */
+    private void rearm(){
+        if(mPipeline.getInFlight() >= VerifyPipeline.MAX_IN_FLIGHT){
+            // Matching has fallen behind; the next capture is armed when a result is rendered.
+            mRearmPending = true;
+            return;
+        }
+        mRearmPending = false;
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        BioDeviceStatus status = scheduler == null ? BIOSDK_ERROR_NOT_INITIALIZED : issueCapture(scheduler);
+        if(status != BIOSDK_OK){
+            stopContinuous();
+            mListener.handleBioDeviceStatus(status);
+            return;
+        }
+        mThroughput.armed(mTrace.getIssuedNanos());
+    }
+
+    private void stopContinuous(){
+        if(!mContinuousRunning){
+            return;
+        }
+        mContinuousRunning = false;
+        mRearmPending = false;
+        long now = System.nanoTime();
+        mThroughput.stop(now);
+        mThroughputTxtView.setText(mThroughput.summary(now));
+        mVerifyButton.setText("VERIFY");
+        Log.d(TAG, mThroughput.toString());
     }
 
-    public void setMatchLevel(String matchLevel){
-        mMatchLevel = matchLevel.toUpperCase();
+    public void setTimeOut(int timeOut){
+        mTimeOut = timeOut;
     }
 
-    public void setPADLevel(String padLevel){
-        mPADLevel = padLevel.toUpperCase();
+    public void setProfile(ConfigurationProfile profile){
+        mProfile = profile;
     }
 
     public void setWaitForFingerClear(boolean waitForFingerClear){
         mWaitForFingerClear = waitForFingerClear;
     }
 
+    public void setIdentifyMode(int identifyMode){
+        mIdentifyMode = identifyMode;
+    }
+
+    public void setChunkSize(int chunkSize){
+        mIdentifier.setChunkSize(chunkSize);
+    }
+
+    public void setPipelined(boolean pipelined){
+        mPipelined = pipelined;
+    }
+
+    public void setContinuous(boolean continuous){
+        mContinuous = continuous;
+    }
+
     @Override
     public boolean onUpdateStatus(int nAcqStatus){
-        if(mCancelCapture){
-            mCancelCapture = false;
-            return false;
+        mTrace.markFirstStatus();
+        if(nAcqStatus == AcqStatus.ACQ_FINGER_PRESENT && mFingerDetectedNanos == 0){
+            mFingerDetectedNanos = System.nanoTime();
         }
-        String feedback = "";
-
-        if(mWaitForFingerClearRunning == true && nAcqStatus == AcqStatus.ACQ_FINGER_PRESENT){
-            feedback = "Lift Finger";
-        }
-        else if(mWaitForFingerClearRunning == false && (nAcqStatus != AcqStatus.ACQ_PROCESSING || nAcqStatus != AcqStatus.ACQ_DONE)){
-            feedback = "Finger Down";
-        }
-        class Runner implements Runnable{
-            Runner(String str) {
-                strFeedback = str;
-            }
-            @Override
-            public void run(){
-                mFingerFeedbackTxtView.setText(strFeedback);
-            }
-            final String strFeedback;
-        }
-        new Handler(Looper.getMainLooper()).post(new Runner(feedback));
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        boolean waitingForFingerClear = scheduler != null
+                && scheduler.isRunning(DeviceCommand.Type.WAIT_FOR_FINGER_CLEAR);
+        mStatusDispatcher.publish(AcquisitionFeedback.feedbackFor(nAcqStatus, waitingForFingerClear));
         return true;
     }
 
     @Override
     public void bioSDKCaptureComplete(BioDeviceStatus result, Bitmap capImage, byte[] capTemplate, int capPADResult) {
+        onAcquisitionComplete(result, capImage, capTemplate, capPADResult);
+    }
+
+    @Override
+    public void onIdentificationComplete(BioDeviceStatus status, Bitmap image, byte[] template,
+                                         int padResult, IdentificationResult result){
+        if(mHoldingGate){
+            mHoldingGate = false;
+            mListener.getMatchGate().exitLive();
+        }
+        mIdentificationResult = result;
+        onAcquisitionComplete(status, image, template, padResult);
+    }
+
+    private void onAcquisitionComplete(BioDeviceStatus result, Bitmap capImage, byte[] capTemplate, int capPADResult) {
+        if(mContinuousRunning){
+            onContinuousAcquisitionComplete(result, capImage, capTemplate, capPADResult);
+            return;
+        }
         if(result != BIOSDK_OK){
             mListener.handleBioDeviceStatus(result);
             resetGUI();
             mVerifyButton.setText("VERIFY");
-            mCaptureInProgress = false;
             return;
         }
+        mTrace.markCaptured();
+        mListener.getStartupTimeline().mark(StartupTimeline.Milestone.FIRST_CAPTURE);
         mFingerImage = capImage;
         mTemplate = capTemplate;
         mPADResult = capPADResult;
 
-        if(mWaitForFingerClear){
-            BioSDKDevice fpDevice = mListener.getConnectedDevice();
-            if(fpDevice == null){
-                return;
+        if(mPipelined){
+            // Identification runs while the user lifts the finger.
+            displayResults();
+            if(mWaitForFingerClear){
+                awaitFingerClear();
             }
-            BioDeviceStatus status = fpDevice.waitForFingerClear_asynch(mTimeOut, this);
-            if(status ==BIOSDK_OK) {
-                mWaitForFingerClearRunning = true;
+            return;
+        }
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        if(mWaitForFingerClear && scheduler != null
+                && scheduler.submit(new DeviceCommand.WaitForFingerClear(mTimeOut, this)) == BIOSDK_OK){
+            return;
+        }
+        displayResults();
+    }
+
+    private void onContinuousAcquisitionComplete(BioDeviceStatus result, Bitmap capImage, byte[] capTemplate, int capPADResult) {
+        long fingerDetected = mFingerDetectedNanos;
+        if(fingerDetected != 0){
+            long idle = mThroughput.fingerDetected(fingerDetected);
+            if(idle >= 0){
+                mListener.getCaptureMetrics().record(CaptureStage.IDLE, idle);
             }
         }
-        else{
-            mCaptureInProgress = false;
-            displayResults();
+        if(result == BIOSDK_TIMEOUT){
+            // Nobody came to the sensor; keep waiting.
+            rearm();
+            return;
+        }
+        if(result != BIOSDK_OK){
+            stopContinuous();
+            if(result != BIOSDK_CANCELLED){
+                mListener.handleBioDeviceStatus(result);
+            }
+            return;
+        }
+        mTrace.markCaptured();
+        mListener.getStartupTimeline().mark(StartupTimeline.Milestone.FIRST_CAPTURE);
+        mFingerImage = capImage;
+        mTemplate = capTemplate;
+        mPADResult = capPADResult;
+        // Match while the user lifts the finger; the finger clear only gates the next capture.
+        displayResults();
+        awaitFingerClear();
+    }
+
+    /**
+     * Waits for the finger of a capture that is already in the VerifyPipeline to be lifted.
+     */
+    private void awaitFingerClear(){
+        DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+        BioDeviceStatus status = scheduler == null ? BIOSDK_ERROR_NOT_INITIALIZED
+                : scheduler.submit(new DeviceCommand.WaitForFingerClear(mTimeOut, this));
+        if(status == BIOSDK_OK){
+            mClearingTrace = mTrace;
+            return;
+        }
+        mClearingTrace = null;
+        if(mContinuousRunning){
+            stopContinuous();
+            mListener.handleBioDeviceStatus(status);
         }
     }
 
     @Override
     public void bioSDKWaitForFingerClearComplete(BioDeviceStatus var1){
-        mCaptureInProgress = false;
-        displayResults();
+        CaptureTrace cleared = mClearingTrace;
+        if(cleared == null){
+            mTrace.markFingerCleared();
+            displayResults();
+            return;
+        }
+        if(mContinuousRunning && var1 == BIOSDK_TIMEOUT){
+            // The finger is still on the sensor; capturing now would repeat the transaction.
+            awaitFingerClear();
+            return;
+        }
+        mClearingTrace = null;
+        if(var1 == BIOSDK_OK){
+            // The result may already be rendered and its trace recorded, so this stage is
+            // recorded on its own.
+            mListener.getCaptureMetrics().record(CaptureStage.FINGER_CLEAR,
+                    System.nanoTime() - cleared.getCapturedNanos());
+        }
+        if(!mContinuousRunning){
+            if(mPipeline.getInFlight() == 0){
+                mStatusDispatcher.clear();
+                mVerifyButton.setText("VERIFY");
+            }
+            return;
+        }
+        if(var1 == BIOSDK_OK){
+            rearm();
+        }
+        else {
+            stopContinuous();
+            if(var1 != BIOSDK_CANCELLED){
+                mListener.handleBioDeviceStatus(var1);
+            }
+        }
     }
 
     private void displayResults() {
-        mVerifyButton.setText("VERIFY");
-        mFingerFeedbackTxtView.setText("");
-        mWaitForFingerClearRunning = false;
-        mFingerFeedbackTxtView.setText("");
-        ImageTools.drawMinutiae(mFingerImage, mTemplate);
-        mFingerImageView.setImageBitmap(mFingerImage);
+        VerifyTransaction transaction = new VerifyTransaction();
+        transaction.mTrace = mTrace;
+        transaction.mCapturedImage = mFingerImage;
+        transaction.mDisplayWidth = mFingerImageView.getWidth();
+        transaction.mDisplayHeight = mFingerImageView.getHeight();
+        // The pipeline holds the capture until it is rendered; nothing else needs it.
+        mFingerImage = null;
+        transaction.mTemplate = mTemplate;
+        transaction.mPADResult = mPADResult;
+        transaction.mProbeTemplate = mProbeTemplate;
+        transaction.mIdentifyMode = mIdentifyMode;
+        transaction.mIdentificationResult = mIdentificationResult;
+        transaction.mMatcher = mListener.getDeviceMatcher();
+        transaction.mGallery = mListener.getGallery();
+        transaction.mIndex = mListener.getMinutiaeIndex();
+        transaction.mHotTier = mListener.getHotTier();
+        transaction.mSearchOrder = mListener.getSearchOrder();
+        transaction.mLane = LANE;
+        transaction.mGate = mListener.getMatchGate();
+        mPipeline.submit(transaction, mPipelineListener);
+    }
+
+    private void renderResults(VerifyTransaction transaction) {
+        if(mListener == null){
+            return;
+        }
+        if(!mContinuousRunning && mClearingTrace == null){
+            mVerifyButton.setText("VERIFY");
+            mStatusDispatcher.clear();
+        }
+        mFingerImageView.setImageBitmap(transaction.mDisplayImage);
+        mPipeline.displayed(transaction);
         int percent = 0;
 
-        String match = "";
         String fealFinger = "";
 
-        int txtColorMatch = 0;
         int txtColorRealFinger = 0;
 
-        Resources res = getResources();
-        Drawable dRed = res.getDrawable(R.drawable.curved_progress_bar_red);
-        Drawable dGreen = res.getDrawable(R.drawable.curved_progress_bar_green);
-
-        if(mPADResult == 1) {
-            mRealFingerProgressBar.setProgressDrawable(dGreen);
+        if(transaction.mPADResult == 1) {
+            mRealFingerProgressBar.setProgressDrawable(mRealFingerGreen);
             fealFinger = "Genuine";
             txtColorRealFinger = mColorGreen;
             percent = 100;
         }
         else {
-            mRealFingerProgressBar.setProgressDrawable(dRed);
+            mRealFingerProgressBar.setProgressDrawable(mRealFingerRed);
             fealFinger = "Impostor";
             txtColorRealFinger = mColorRed;
             percent = 15;
@@ -273,34 +523,37 @@ public class VerifyFragment extends Fragment implements ICaptureListener, IWaitF
         mRealFingerProgressBar.setProgress(percent);
         mRealFingerTxtView.setText(fealFinger);
         mRealFingerTxtView.setTextColor(txtColorRealFinger);
-        int matchScore = 0;
-        if(mProbeTemplate != null){
 
-            BioSDKDevice fpDevice = mListener.getConnectedDevice();
-            if(fpDevice == null){
-                return;
+        String match = "";
+        int txtColorMatch = 0;
+        if(transaction.mMatchDone){
+            if(transaction.mMatchScore == 1) {
+                mMatchProgressBar.setProgressDrawable(mMatchGreen);
+                mMatchProgressBar.setProgress(100);
+                match = transaction.mIdentificationResult != null
+                        ? mListener.describeIdentity(transaction.mIdentificationResult.getIdentityId()) : "Match";
+                txtColorMatch = mColorGreen;
             }
-            mStatus = fpDevice.match(mProbeTemplate, mTemplate);
-
-            if(mStatus == BIOSDK_OK) {
-                matchScore = fpDevice.getLastMatchResult();
-
-                if(matchScore == 1) {
-                    mMatchProgressBar.setProgressDrawable(dGreen);
-                    mMatchProgressBar.setProgress(100);
-                    match = "Match";
-                    txtColorMatch = mColorGreen;
-                }
-                else {
-                    mMatchProgressBar.setProgressDrawable(dRed);
-                    mMatchProgressBar.setProgress(15);
-                    match = "No Match";
-                    txtColorMatch = mColorRed;
-                }
+            else {
+                mMatchProgressBar.setProgressDrawable(mMatchRed);
+                mMatchProgressBar.setProgress(15);
+                match = "No Match";
+                txtColorMatch = mColorRed;
             }
         }
         mMatchTxtView.setText(match);
         mMatchTxtView.setTextColor(txtColorMatch);
+        transaction.mTrace.markRendered();
+        mListener.getCaptureMetrics().record(transaction.mTrace);
+        Log.d(TAG, "#" + transaction.mSequence + " " + transaction.mTrace + " " + mStatusDispatcher);
+        if(mContinuousRunning){
+            long now = System.nanoTime();
+            mThroughput.completed(now);
+            mThroughputTxtView.setText(mThroughput.summary(now));
+            if(mRearmPending){
+                rearm();
+            }
+        }
     }
 
     public void setProbeTemplate(byte[] probeTemplate){
@@ -310,7 +563,7 @@ public class VerifyFragment extends Fragment implements ICaptureListener, IWaitF
     public void resetGUI(){
         mRealFingerTxtView.setText("");
         mMatchTxtView.setText("");
-        mFingerFeedbackTxtView.setText("");
+        mStatusDispatcher.clear();
         mFingerImageView.setImageDrawable(null);
         mMatchProgressBar.setProgress(0);
         mRealFingerProgressBar.setProgress(0);
@@ -331,12 +584,14 @@ public class VerifyFragment extends Fragment implements ICaptureListener, IWaitF
     @Override
     public void onHiddenChanged(boolean hidden){
         if(hidden){
-            BioSDKDevice device = mListener.getConnectedDevice();
-            if(device != null){
-                mFingerFeedbackTxtView.setText("");
+            stopContinuous();
+            mIdentifier.cancel();
+            mPipeline.cancel();
+            DeviceCommandScheduler scheduler = mListener.getDeviceScheduler(LANE);
+            if(scheduler != null && scheduler.isBusy()){
+                mStatusDispatcher.clear();
                 mVerifyButton.setText("VERIFY");
-                mCaptureInProgress = false;
-                device.cancel_async();
+                scheduler.cancel();
             }
         }
     }
@@ -370,6 +625,7 @@ public class VerifyFragment extends Fragment implements ICaptureListener, IWaitF
     @Override
     public void onDestroy(){
         super.onDestroy();
+        mPipeline.shutdown();
     }
 
 }
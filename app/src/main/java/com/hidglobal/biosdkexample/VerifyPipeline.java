@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.hidglobal.biosdkexample.core.HotTier;
+import com.hidglobal.biosdkexample.core.IdentificationResult;
+import com.hidglobal.biosdkexample.core.MinutiaeIndex;
+import com.hidglobal.biosdkexample.core.ParallelMatcher;
+import com.hidglobal.biosdkexample.core.SearchOrder;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * VerifyPipeline moves everything between capture complete and the result appearing on screen
+ * off the UI thread.  Each VerifyTransaction is matched (1:1, or 1:N through the ParallelMatcher,
+ * trying its HotTier and then the MinutiaeIndex shortlist before the rest of the gallery) and
+ * has its display image, scaled to the view with the minutiae drawn on, rendered by a
+ * CaptureRenderer on a background thread.  Only the finished transaction is posted to the main
+ * looper for the bitmap swap, after which the fragment hands the bitmap back through
+ * displayed().
+ *
+ * The captured bitmap belongs to the SDK and is never modified; the transaction drops it once
+ * the display image is rendered.
+ *
+ * Transactions may be submitted while earlier ones are still matching, so the identification of
+ * one capture overlaps the next acquisition.  They are processed by a single worker and therefore
+ * delivered in submission order; each is numbered so the order can be checked in the logs.  The
+ * 1:N search itself is already spread over the ParallelMatcher's threads.  Callers should keep no
+ * more than MAX_IN_FLIGHT transactions outstanding.
+ *
+ * A transaction counts as live work on its MatchPriorityGate from submission until its match is
+ * done, so background searches stay off the matcher while a result is waiting.
+ */
+
+public class VerifyPipeline {
+    public static final int MAX_IN_FLIGHT = 2;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ParallelMatcher mParallelMatcher = new ParallelMatcher();
+    private final CaptureRenderer mRenderer = new CaptureRenderer(new BitmapPool());
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private long mNextSequence;
+
+    /**
+     * Main thread only.
+     */
+    public void submit(final VerifyTransaction transaction, final IVerifyPipelineListener listener){
+        transaction.mSequence = mNextSequence++;
+        mInFlight.incrementAndGet();
+        if(transaction.mGate != null){
+            transaction.mGate.enterLive();
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                transaction.mTrace.markMatchStart();
+                try {
+                    match(transaction);
+                } finally {
+                    if(transaction.mGate != null){
+                        transaction.mGate.exitLive();
+                    }
+                }
+                transaction.mTrace.markMatchDone();
+                overlay(transaction);
+                transaction.mTrace.markOverlayDone();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mInFlight.decrementAndGet();
+                        listener.onVerifyResult(transaction);
+                    }
+                });
+            }
+        });
+    }
+
+    private void match(VerifyTransaction transaction){
+        TemplateGallery gallery = transaction.mGallery;
+        if(transaction.mIdentifyMode == VerifyFragment.IDENTIFY_PARALLEL && gallery != null
+                && gallery.size() > 0 && transaction.mMatcher != null){
+            int cancels = mParallelMatcher.getCancelCount();
+            // The whole gallery is searched, likely matches first.
+            int[] order = transaction.mSearchOrder == null ? null
+                    : transaction.mSearchOrder.getOrder(gallery, transaction.mLane);
+            // The best prefilter candidates go to the device first once the index has caught up
+            // with the gallery.
+            int[] shortlist = null;
+            MinutiaeIndex index = transaction.mIndex;
+            if(index != null && index.size() == gallery.size()){
+                shortlist = index.shortlist(transaction.mTemplate, MinutiaeIndex.defaultShortlistSize(gallery.size()));
+            }
+            int[] candidates = shortlist != null ? shortlist : order;
+            HotTier hotTier = transaction.mHotTier;
+            IdentificationResult result;
+            if(hotTier != null){
+                result = hotTier.identify(mParallelMatcher, transaction.mMatcher, transaction.mTemplate,
+                        gallery, candidates);
+            }
+            else {
+                result = mParallelMatcher.identify(transaction.mMatcher, transaction.mTemplate, gallery, candidates);
+            }
+            if(shortlist != null && !result.isMatch() && mParallelMatcher.getCancelCount() == cancels){
+                // The prefilter only decides what is compared first: a print it ranked poorly is
+                // still found in the rest of the gallery.
+                IdentificationResult rest = mParallelMatcher.identify(transaction.mMatcher,
+                        transaction.mTemplate, gallery, MinutiaeIndex.remaining(shortlist, order, gallery.size()));
+                if(rest.isMatch() && hotTier != null){
+                    hotTier.recordMatch(rest.getIdentityId(), rest.getSlot(), gallery);
+                }
+                result = IdentificationResult.combine(result, rest);
+            }
+            transaction.mIdentificationResult = result;
+        }
+        if(transaction.mIdentificationResult != null){
+            SearchOrder order = transaction.mSearchOrder;
+            if(order != null && transaction.mIdentificationResult.isMatch()){
+                order.recordMatch(transaction.mIdentificationResult.getIdentityId(), transaction.mLane);
+            }
+            transaction.mMatchScore = transaction.mIdentificationResult.isMatch() ? 1 : 0;
+            transaction.mMatchDone = true;
+        }
+        else if(transaction.mProbeTemplate != null && transaction.mMatcher != null){
+            transaction.mMatchScore = transaction.mMatcher.match(transaction.mProbeTemplate, transaction.mTemplate);
+            transaction.mMatchDone = transaction.mMatchScore != DeviceMatcher.MATCH_ERROR;
+        }
+    }
+
+    private void overlay(VerifyTransaction transaction){
+        transaction.mDisplayImage = mRenderer.render(transaction.mCapturedImage, transaction.mTemplate,
+                transaction.mDisplayWidth, transaction.mDisplayHeight);
+        transaction.mCapturedImage = null;
+    }
+
+    /**
+     * Main thread only: the transaction's display image is now on screen, so the one it replaced
+     * can be reused.
+     */
+    public void displayed(VerifyTransaction transaction){
+        mRenderer.displayed(transaction.mDisplayImage);
+    }
+
+    /**
+     * Transactions submitted and not yet delivered.
+     */
+    public int getInFlight(){
+        return mInFlight.get();
+    }
+
+    /**
+     * Stops a running 1:N search.  The transaction still completes, without a match.
+     */
+    public void cancel(){
+        mParallelMatcher.cancel();
+    }
+
+    public void shutdown(){
+        mParallelMatcher.shutdown();
+        mExecutor.shutdownNow();
+    }
+}
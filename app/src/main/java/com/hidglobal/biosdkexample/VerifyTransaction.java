@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample;
+
+import android.graphics.Bitmap;
+
+import com.hidglobal.biosdkexample.core.CaptureTrace;
+import com.hidglobal.biosdkexample.core.HotTier;
+import com.hidglobal.biosdkexample.core.IdentificationResult;
+import com.hidglobal.biosdkexample.core.MatchPriorityGate;
+import com.hidglobal.biosdkexample.core.MinutiaeIndex;
+import com.hidglobal.biosdkexample.core.SearchOrder;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+import com.hidglobal.biosdkexample.core.TemplateMatcher;
+
+/**
+ * VerifyTransaction carries one capture through the VerifyPipeline: the capture results going
+ * in, the match result and display bitmap coming out, and the CaptureTrace that timestamps every
+ * stage so capture-to-result latency can be broken down.
+ */
+
+public class VerifyTransaction {
+    // Inputs, set by the fragment before the transaction is submitted
+    Bitmap mCapturedImage;
+    byte[] mTemplate;
+    int mPADResult;
+    byte[] mProbeTemplate;
+    int mDisplayWidth;
+    int mDisplayHeight;
+    int mIdentifyMode;
+    IdentificationResult mIdentificationResult;
+    TemplateMatcher mMatcher;
+    TemplateGallery mGallery;
+    MinutiaeIndex mIndex;
+    HotTier mHotTier;
+    SearchOrder mSearchOrder;
+    int mLane;
+    MatchPriorityGate mGate;
+    CaptureTrace mTrace;
+
+    // Outputs, set by the pipeline
+    long mSequence;
+    Bitmap mDisplayImage;
+    int mMatchScore;
+    boolean mMatchDone;
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.Ansi378Template;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses ANSI 378 records from heap arrays and from direct buffers, the latter standing in for
+ * templates read straight out of the mapped gallery.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class Ansi378Benchmark {
+    private static final int TEMPLATES = 256;
+
+    private byte[][] mTemplates;
+    private ByteBuffer[] mDirect;
+    private int mNext;
+
+    @Setup
+    public void setUp(){
+        Random impressions = new Random(3);
+        mTemplates = new byte[TEMPLATES][];
+        mDirect = new ByteBuffer[TEMPLATES];
+        for(int i = 0; i < TEMPLATES; i++){
+            mTemplates[i] = GalleryFixture.template(i, impressions);
+            mDirect[i] = ByteBuffer.allocateDirect(mTemplates[i].length);
+            mDirect[i].put(mTemplates[i]).flip();
+        }
+    }
+
+    @Benchmark
+    public int parseHeader(){
+        Ansi378Template template = Ansi378Template.parse(mTemplates[mNext++ & (TEMPLATES - 1)]);
+        return template.getMinutiaeCount(0);
+    }
+
+    @Benchmark
+    public int parseAndReadMinutiae(){
+        return readMinutiae(Ansi378Template.parse(mTemplates[mNext++ & (TEMPLATES - 1)]));
+    }
+
+    @Benchmark
+    public int parseDirectAndReadMinutiae(){
+        return readMinutiae(Ansi378Template.parse(mDirect[mNext++ & (TEMPLATES - 1)]));
+    }
+
+    private static int readMinutiae(Ansi378Template template){
+        int sum = 0;
+        int count = template.getMinutiaeCount(0);
+        for(int i = 0; i < count; i++){
+            sum += template.getMinutiaX(0, i) + template.getMinutiaY(0, i) + template.getMinutiaAngle(0, i);
+        }
+        return sum;
+    }
+}
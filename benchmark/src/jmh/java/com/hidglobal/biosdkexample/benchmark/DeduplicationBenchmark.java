@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.DuplicateCheck;
+import com.hidglobal.biosdkexample.core.DuplicateDetector;
+import com.hidglobal.biosdkexample.core.IDuplicateCheckListener;
+import com.hidglobal.biosdkexample.core.MatchPriorityGate;
+import com.hidglobal.biosdkexample.core.MinutiaeIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times one DuplicateDetector check from submission to the listener, against a FakeDevice.  A new
+ * finger is the common and worst case: the shortlist and then the rest of the gallery are searched
+ * without finding a match.  A re-enrolled finger stops at the first hit.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DeduplicationBenchmark {
+    private static final int PROBES = 64;
+    // Clean checks are remembered by the detector; cycling through far more new fingers than it
+    // remembers keeps a repeated probe from being reported as a duplicate of itself.
+    private static final int NEW_FINGERS = 4096;
+
+    @Param({"10000", "100000"})
+    public int gallerySize;
+
+    @Param({"1000"})
+    public long matchLatencyNanos;
+
+    private GalleryFixture mFixture;
+    private DuplicateDetector mDetector;
+    private byte[][] mNewFingers;
+    private byte[][] mEnrolledFingers;
+    private int mNext;
+    private final Semaphore mDone = new Semaphore(0);
+    private final IDuplicateCheckListener mListener = new IDuplicateCheckListener() {
+        @Override
+        public void onDuplicateCheckComplete(DuplicateCheck check) {
+            mDone.release();
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mFixture = GalleryFixture.create(gallerySize, 1);
+        MinutiaeIndex index = new MinutiaeIndex();
+        index.update(mFixture.mGallery);
+        mDetector = new DuplicateDetector(new FakeDevice(matchLatencyNanos, true), mFixture.mGallery,
+                index, new MatchPriorityGate());
+        Random impressions = new Random(5);
+        mNewFingers = new byte[NEW_FINGERS][];
+        for(int i = 0; i < NEW_FINGERS; i++){
+            mNewFingers[i] = GalleryFixture.template(gallerySize + i, impressions);
+        }
+        mEnrolledFingers = new byte[PROBES][];
+        for(int i = 0; i < PROBES; i++){
+            mEnrolledFingers[i] = GalleryFixture.template(impressions.nextInt(gallerySize), impressions);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mDetector.shutdown();
+        mFixture.close();
+    }
+
+    @Benchmark
+    public void newFinger() throws InterruptedException {
+        mDetector.check(-1, mNewFingers[mNext++ & (NEW_FINGERS - 1)], mListener);
+        mDone.acquire();
+    }
+
+    @Benchmark
+    public void enrolledFinger() throws InterruptedException {
+        mDetector.check(-1, mEnrolledFingers[mNext++ & (PROBES - 1)], mListener);
+        mDone.acquire();
+    }
+}
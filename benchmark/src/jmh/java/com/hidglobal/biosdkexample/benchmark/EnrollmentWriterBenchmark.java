@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.BatchEnrollmentWriter;
+import com.hidglobal.biosdkexample.core.EnrollmentJournal;
+import com.hidglobal.biosdkexample.core.EnrollmentRecord;
+import com.hidglobal.biosdkexample.core.IBatchCommitListener;
+import com.hidglobal.biosdkexample.core.IdentityDirectory;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from submitting enrollments to the BatchEnrollmentWriter until they are durable, with the
+ * enrollment journal and with a sync of the gallery and directory per batch.  durableOne is the
+ * latency a kiosk sees for a single enrollment; durableBatch submits a station's burst at once.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class EnrollmentWriterBenchmark {
+    private static final int BURST = 32;
+
+    @Param({"true", "false"})
+    public boolean journal;
+
+    private final IBatchCommitListener mListener = new IBatchCommitListener() {
+        @Override
+        public void onBatchCommitted(List<EnrollmentRecord> batch) {
+        }
+
+        @Override
+        public void onBatchFailed(List<EnrollmentRecord> batch, IOException e) {
+            throw new IllegalStateException(e);
+        }
+    };
+    private File mDir;
+    private TemplateGallery mGallery;
+    private IdentityDirectory mDirectory;
+    private EnrollmentJournal mJournal;
+    private BatchEnrollmentWriter mWriter;
+    private byte[][] mTemplates;
+    private int mNextTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        Random impressions = new Random(1);
+        mTemplates = new byte[256][];
+        for(int i = 0; i < mTemplates.length; i++){
+            mTemplates[i] = GalleryFixture.template(i, impressions);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void openWriter() throws IOException {
+        mDir = GalleryFixture.createTempDir();
+        mGallery = TemplateGallery.open(mDir);
+        mDirectory = IdentityDirectory.open(mDir);
+        if(journal){
+            mJournal = EnrollmentJournal.open(mDir);
+            mWriter = new BatchEnrollmentWriter(mGallery, mDirectory, mJournal, mListener);
+        }
+        else {
+            mWriter = new BatchEnrollmentWriter(mGallery, mDirectory, mListener);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeWriter() throws IOException {
+        mWriter.close();
+        if(mJournal != null){
+            mJournal.close();
+            mJournal = null;
+        }
+        mDirectory.close();
+        mGallery.close();
+        GalleryFixture.delete(mDir);
+    }
+
+    private EnrollmentRecord submit(){
+        byte[] template = mTemplates[mNextTemplate++ & (mTemplates.length - 1)];
+        EnrollmentRecord record = new EnrollmentRecord(mWriter.reserveIdentityId(), "bench", template, 0,
+                System.currentTimeMillis());
+        mWriter.submit(record);
+        return record;
+    }
+
+    private static void awaitCommitted(EnrollmentRecord record){
+        while(!record.isCommitted()){
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    public EnrollmentRecord durableOne(){
+        EnrollmentRecord record = submit();
+        awaitCommitted(record);
+        return record;
+    }
+
+    @Benchmark
+    public EnrollmentRecord durableBatch(){
+        EnrollmentRecord last = null;
+        for(int i = 0; i < BURST; i++){
+            last = submit();
+        }
+        awaitCommitted(last);
+        return last;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.SyntheticTemplates;
+import com.hidglobal.biosdkexample.core.TemplateMatcher;
+
+/**
+ * FakeDevice matches synthetic templates by finger id and spends a configurable time per
+ * comparison, like a sensor would.  A serialized device admits one comparison at a time, as the
+ * SDK does for a single M21x.
+ */
+
+final class FakeDevice implements TemplateMatcher {
+    private final long mMatchLatencyNanos;
+    private final boolean mSerialized;
+    private final Object mLock = new Object();
+
+    FakeDevice(long matchLatencyNanos, boolean serialized){
+        mMatchLatencyNanos = matchLatencyNanos;
+        mSerialized = serialized;
+    }
+
+    @Override
+    public int match(byte[] probe, byte[] candidate){
+        if(mSerialized){
+            synchronized(mLock){
+                return compare(probe, candidate);
+            }
+        }
+        return compare(probe, candidate);
+    }
+
+    private int compare(byte[] probe, byte[] candidate){
+        // Spin rather than sleep: sleeps are far coarser than a device match.
+        long end = System.nanoTime() + mMatchLatencyNanos;
+        while(System.nanoTime() < end){
+            // busy wait
+        }
+        int probeId = SyntheticTemplates.fingerIdOf(probe);
+        return probeId != -1 && probeId == SyntheticTemplates.fingerIdOf(candidate) ? 1 : 0;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends to and reads from the memory-mapped TemplateGallery.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class GalleryBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int gallerySize;
+
+    private GalleryFixture mFixture;
+    private byte[][] mTemplates;
+    private File mAppendDir;
+    private TemplateGallery mAppendGallery;
+    private int mNextTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mFixture = GalleryFixture.create(gallerySize, 1);
+        Random impressions = new Random(2);
+        mTemplates = new byte[1024][];
+        for(int i = 0; i < mTemplates.length; i++){
+            mTemplates[i] = GalleryFixture.template(i, impressions);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void openAppendGallery() throws IOException {
+        mAppendDir = GalleryFixture.createTempDir();
+        mAppendGallery = TemplateGallery.open(mAppendDir);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeAppendGallery() throws IOException {
+        mAppendGallery.close();
+        GalleryFixture.delete(mAppendDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mFixture.close();
+    }
+
+    @Benchmark
+    public int append() throws IOException {
+        byte[] template = mTemplates[mNextTemplate++ & (mTemplates.length - 1)];
+        return mAppendGallery.append(mAppendGallery.nextIdentityId(), template);
+    }
+
+    @Benchmark
+    public ByteBuffer lookupView(){
+        return mFixture.mGallery.getTemplateBuffer(ThreadLocalRandom.current().nextInt(gallerySize));
+    }
+
+    @Benchmark
+    public byte[] lookupCopy(){
+        return mFixture.mGallery.getTemplate(ThreadLocalRandom.current().nextInt(gallerySize));
+    }
+
+    @Benchmark
+    public long lookupIdentity(){
+        return mFixture.mGallery.getIdentityId(ThreadLocalRandom.current().nextInt(gallerySize));
+    }
+}
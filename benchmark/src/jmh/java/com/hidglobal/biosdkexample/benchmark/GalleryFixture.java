@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.SyntheticTemplates;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * GalleryFixture builds a TemplateGallery of synthetic enrollments in a temporary directory.  Slot
+ * n holds an impression of finger n, so a probe of finger n matches exactly one slot.
+ */
+
+final class GalleryFixture {
+    static final int IMAGE_WIDTH = 320;
+    static final int IMAGE_HEIGHT = 480;
+
+    final File mDir;
+    final TemplateGallery mGallery;
+
+    private GalleryFixture(File dir, TemplateGallery gallery){
+        mDir = dir;
+        mGallery = gallery;
+    }
+
+    static GalleryFixture create(int size, long seed) throws IOException {
+        File dir = createTempDir();
+        TemplateGallery gallery = TemplateGallery.open(dir);
+        Random impressions = new Random(seed);
+        for(int slot = 0; slot < size; slot++){
+            gallery.append(gallery.nextIdentityId(), template(slot, impressions));
+        }
+        return new GalleryFixture(dir, gallery);
+    }
+
+    static byte[] template(int fingerId, Random impressions){
+        return SyntheticTemplates.template(fingerId % SyntheticTemplates.MAX_FINGER_ID,
+                IMAGE_WIDTH, IMAGE_HEIGHT, impressions);
+    }
+
+    static File createTempDir() throws IOException {
+        File dir = File.createTempFile("gallery", "");
+        if(!dir.delete() || !dir.mkdirs()){
+            throw new IOException("Cannot create " + dir);
+        }
+        return dir;
+    }
+
+    static void delete(File dir){
+        File[] files = dir.listFiles();
+        if(files != null){
+            for(File file : files){
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    void close() throws IOException {
+        mGallery.close();
+        delete(mDir);
+    }
+}
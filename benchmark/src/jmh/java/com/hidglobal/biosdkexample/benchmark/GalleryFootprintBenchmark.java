@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.LongIntHashMap;
+import com.hidglobal.biosdkexample.core.SyntheticTemplates;
+import com.hidglobal.biosdkexample.core.TemplateGallery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a gallery held on the heap as List<byte[]> with an identity HashMap against the mapped
+ * TemplateGallery and its primitive identity map.  Each trial prints the heap the gallery retains
+ * and the collections run while it was live; fullGc shows what the retained objects cost a
+ * collection.  Run with -PgcProfile to add JMH's allocation rate figures.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class GalleryFootprintBenchmark {
+    public static final String HEAP = "HEAP";
+    public static final String MAPPED = "MAPPED";
+
+    @Param({"100000"})
+    public int gallerySize;
+
+    @Param({HEAP, MAPPED})
+    public String layout;
+
+    private GalleryFixture mFixture;
+    private List<byte[]> mHeapTemplates;
+    private Map<Long, Integer> mHeapSlots;
+    private long[] mIdentityIds;
+    private byte[] mProbe;
+    private long mRetainedBytes;
+    private long mGcCount;
+    private long mGcMillis;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        long before = usedHeap();
+        if(HEAP.equals(layout)){
+            Random impressions = new Random(1);
+            mHeapTemplates = new ArrayList<>(gallerySize);
+            mHeapSlots = new HashMap<>();
+            for(int slot = 0; slot < gallerySize; slot++){
+                mHeapTemplates.add(GalleryFixture.template(slot, impressions));
+                mHeapSlots.put((long) slot + 1, slot);
+            }
+        }
+        else {
+            mFixture = GalleryFixture.create(gallerySize, 1);
+        }
+        mRetainedBytes = usedHeap() - before;
+        mIdentityIds = new long[gallerySize];
+        for(int slot = 0; slot < gallerySize; slot++){
+            mIdentityIds[slot] = slot + 1;
+        }
+        // A finger the synthetic gallery never repeats, so scans visit every slot.
+        mProbe = GalleryFixture.template(SyntheticTemplates.MAX_FINGER_ID - 1, new Random(2));
+        mGcCount = gcCount();
+        mGcMillis = gcMillis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println();
+        System.out.println(layout + " gallery of " + gallerySize + ": retained " + (mRetainedBytes >> 10)
+                + " KB, " + (gcCount() - mGcCount) + " collections in " + (gcMillis() - mGcMillis) + " ms");
+        if(mFixture != null){
+            mFixture.close();
+        }
+        mHeapTemplates = null;
+        mHeapSlots = null;
+    }
+
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()){
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis(){
+        long millis = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()){
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Hands every template to a matcher in turn, as a 1:N search does.
+     */
+    @Benchmark
+    public int scan(){
+        int probeId = SyntheticTemplates.fingerIdOf(mProbe);
+        int matches = 0;
+        if(mHeapTemplates != null){
+            for(int slot = 0; slot < gallerySize; slot++){
+                if(SyntheticTemplates.fingerIdOf(mHeapTemplates.get(slot)) == probeId){
+                    matches++;
+                }
+            }
+            return matches;
+        }
+        TemplateGallery gallery = mFixture.mGallery;
+        byte[] candidate = null;
+        for(int slot = 0; slot < gallerySize; slot++){
+            candidate = gallery.copyTemplate(slot, candidate);
+            if(SyntheticTemplates.fingerIdOf(candidate) == probeId){
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int findSlot(){
+        long identityId = mIdentityIds[ThreadLocalRandom.current().nextInt(gallerySize)];
+        if(mHeapSlots != null){
+            Integer slot = mHeapSlots.get(identityId);
+            return slot == null ? LongIntHashMap.NO_VALUE : slot;
+        }
+        return mFixture.mGallery.findSlot(identityId);
+    }
+
+    /**
+     * A full collection has to trace whatever the gallery keeps on the heap.
+     */
+    @Benchmark
+    public void fullGc(){
+        System.gc();
+    }
+}
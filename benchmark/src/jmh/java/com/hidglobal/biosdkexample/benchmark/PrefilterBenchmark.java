@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.MinutiaeIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranks the gallery against a probe with the MinutiaeIndex signature prefilter.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class PrefilterBenchmark {
+    private static final int PROBES = 64;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int gallerySize;
+
+    private GalleryFixture mFixture;
+    private MinutiaeIndex mIndex;
+    private byte[][] mProbes;
+    private int mShortlistSize;
+    private int mNext;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mFixture = GalleryFixture.create(gallerySize, 1);
+        mIndex = new MinutiaeIndex();
+        mIndex.update(mFixture.mGallery);
+        mShortlistSize = MinutiaeIndex.defaultShortlistSize(gallerySize);
+        Random impressions = new Random(4);
+        mProbes = new byte[PROBES][];
+        for(int i = 0; i < PROBES; i++){
+            mProbes[i] = GalleryFixture.template(impressions.nextInt(gallerySize), impressions);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mFixture.close();
+    }
+
+    @Benchmark
+    public int[] shortlist(){
+        return mIndex.shortlist(mProbes[mNext++ & (PROBES - 1)], mShortlistSize);
+    }
+}
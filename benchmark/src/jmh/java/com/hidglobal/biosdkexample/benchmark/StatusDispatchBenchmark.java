@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.benchmark;
+
+import com.hidglobal.biosdkexample.core.AcqStatus;
+import com.hidglobal.biosdkexample.core.AcquisitionFeedback;
+import com.hidglobal.biosdkexample.core.StatusCoalescer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per callback cost of coalescing acquisition status feedback.  The single threaded
+ * case replays a capture's status stream with a frame every few callbacks; the grouped case has
+ * SDK callback threads publishing while a render thread drains frames.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Group)
+public class StatusDispatchBenchmark {
+    private static final int[] STATUS_STREAM = { AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_PROCESSING,
+            AcqStatus.ACQ_FINGER_PRESENT, AcqStatus.ACQ_FINGER_PRESENT, AcqStatus.ACQ_FINGER_PRESENT,
+            AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_DONE, AcqStatus.ACQ_FINGER_PRESENT };
+    private static final int CALLBACKS_PER_FRAME = 4;
+
+    private final StatusCoalescer mCoalescer = new StatusCoalescer(AcquisitionFeedback.FEEDBACK_NONE);
+    private int mNext;
+    private boolean mFramePending;
+
+    @Benchmark
+    public String publishWithFrames(){
+        int n = mNext++;
+        if(mCoalescer.offer(AcquisitionFeedback.feedbackFor(STATUS_STREAM[n & (STATUS_STREAM.length - 1)], (n & 8) != 0))){
+            mFramePending = true;
+        }
+        if(mFramePending && n % CALLBACKS_PER_FRAME == 0){
+            mFramePending = false;
+            return mCoalescer.poll();
+        }
+        return null;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public boolean publisher(){
+        int n = (int) (Thread.currentThread().getId() + System.nanoTime());
+        return mCoalescer.offer(AcquisitionFeedback.feedbackFor(STATUS_STREAM[n & (STATUS_STREAM.length - 1)], (n & 8) != 0));
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public String frame(){
+        return mCoalescer.poll();
+    }
+}
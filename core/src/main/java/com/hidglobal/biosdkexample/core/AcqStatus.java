@@ -14,10 +14,10 @@
  * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
-package com.hidglobal.biosdkexample;
+package com.hidglobal.biosdkexample.core;
 
 public class AcqStatus {
-    final static int ACQ_DONE = 0;
-    final static int ACQ_PROCESSING = 1;
-    final static int ACQ_FINGER_PRESENT = 12;
+    public final static int ACQ_DONE = 0;
+    public final static int ACQ_PROCESSING = 1;
+    public final static int ACQ_FINGER_PRESENT = 12;
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * AcquisitionFeedback maps acquisition status codes to the finger feedback shown to the user.
+ * Feedback values are shared constants so consumers may compare them by reference.
+ */
+
+public final class AcquisitionFeedback {
+    public static final String FEEDBACK_NONE = "";
+    public static final String FEEDBACK_FINGER_DOWN = "Finger Down";
+    public static final String FEEDBACK_LIFT_FINGER = "Lift Finger";
+
+    private AcquisitionFeedback(){
+    }
+
+    public static String feedbackFor(int acqStatus, boolean waitingForFingerClear){
+        if(waitingForFingerClear){
+            return acqStatus == AcqStatus.ACQ_FINGER_PRESENT ? FEEDBACK_LIFT_FINGER : FEEDBACK_NONE;
+        }
+        return FEEDBACK_FINGER_DOWN;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Ansi378Template is a read-only view of an ANSI INCITS 378-2004 finger minutiae record.  All
+ * fields are read with absolute gets straight out of the wrapped ByteBuffer, so a template stored
+ * in the memory-mapped TemplateGallery can be inspected without copying it onto the heap.  Only
+ * the start offset of each finger view is kept.
+ *
+ * Record layout (big endian):
+ *   header:      "FMR\0" version(4) length(2, or 0 followed by length(4)) productId(4)
+ *                equipment(2) width(2) height(2) xRes(2) yRes(2) views(1) reserved(1)
+ *   finger view: position(1) view/impression(1) quality(1) minutiae(1) minutia(6)*
+ *                extendedLength(2) extendedData
+ *   minutia:     type(2 bits) x(14 bits) reserved(2 bits) y(14 bits) angle(1) quality(1)
+ */
+
+public final class Ansi378Template {
+    public static final int FORMAT_ID = 0x464D5200; // "FMR\0"
+    public static final int VERSION_20 = 0x20323000; // " 20\0"
+    public static final int VIEW_HEADER_SIZE = 4;
+    public static final int MINUTIA_SIZE = 6;
+    public static final int MINUTIA_TYPE_OTHER = 0;
+    public static final int MINUTIA_TYPE_RIDGE_ENDING = 1;
+    public static final int MINUTIA_TYPE_BIFURCATION = 2;
+
+    private final ByteBuffer mBuffer;
+    private final int mBase;
+    private final int mLengthSize;
+    private final int[] mViewOffsets;
+
+    private Ansi378Template(ByteBuffer buffer, int base, int lengthSize, int[] viewOffsets){
+        mBuffer = buffer;
+        mBase = base;
+        mLengthSize = lengthSize;
+        mViewOffsets = viewOffsets;
+    }
+
+    /**
+     * Wraps the record starting at the buffer's position.  The buffer is not modified.  Returns
+     * null if the bytes are not a well formed ANSI 378 record.
+     */
+    public static Ansi378Template parse(ByteBuffer buffer){
+        if(buffer.order() != ByteOrder.BIG_ENDIAN){
+            buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        }
+        int base = buffer.position();
+        int limit = buffer.limit();
+        if(limit - base < 26 || buffer.getInt(base) != FORMAT_ID || buffer.getInt(base + 4) != VERSION_20){
+            return null;
+        }
+        int lengthSize = 2;
+        long recordLength = buffer.getShort(base + 8) & 0xFFFF;
+        if(recordLength == 0){
+            lengthSize = 6;
+            recordLength = buffer.getInt(base + 10) & 0xFFFFFFFFL;
+        }
+        int headerSize = 24 + lengthSize;
+        if(recordLength < headerSize || recordLength > limit - base){
+            return null;
+        }
+        int end = base + (int) recordLength;
+        int viewCount = buffer.get(base + headerSize - 2) & 0xFF;
+        int[] viewOffsets = new int[viewCount];
+        int offset = base + headerSize;
+        for(int view = 0; view < viewCount; view++){
+            if(offset + VIEW_HEADER_SIZE > end){
+                return null;
+            }
+            viewOffsets[view] = offset;
+            int minutiae = buffer.get(offset + 3) & 0xFF;
+            offset += VIEW_HEADER_SIZE + minutiae * MINUTIA_SIZE;
+            if(offset + 2 > end){
+                return null;
+            }
+            offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+        }
+        if(offset > end){
+            return null;
+        }
+        return new Ansi378Template(buffer, base, lengthSize, viewOffsets);
+    }
+
+    public static Ansi378Template parse(byte[] template){
+        return template == null ? null : parse(ByteBuffer.wrap(template));
+    }
+
+    private int u8(int position){
+        return mBuffer.get(position) & 0xFF;
+    }
+
+    private int u16(int position){
+        return mBuffer.getShort(position) & 0xFFFF;
+    }
+
+    private int header(int field){
+        // Header fields following the record length shift by 4 bytes for the long length form.
+        return mBase + 8 + mLengthSize + field;
+    }
+
+    public long getRecordLength(){
+        return mLengthSize == 2 ? u16(mBase + 8) : mBuffer.getInt(mBase + 10) & 0xFFFFFFFFL;
+    }
+
+    public int getProductId(){
+        return mBuffer.getInt(header(0));
+    }
+
+    public int getEquipmentId(){
+        return u16(header(4)) & 0x0FFF;
+    }
+
+    public int getImageWidth(){
+        return u16(header(6));
+    }
+
+    public int getImageHeight(){
+        return u16(header(8));
+    }
+
+    public int getXResolution(){
+        return u16(header(10));
+    }
+
+    public int getYResolution(){
+        return u16(header(12));
+    }
+
+    public int getViewCount(){
+        return mViewOffsets.length;
+    }
+
+    public int getFingerPosition(int view){
+        return u8(mViewOffsets[view]);
+    }
+
+    public int getViewNumber(int view){
+        return u8(mViewOffsets[view] + 1) >> 4;
+    }
+
+    public int getImpressionType(int view){
+        return u8(mViewOffsets[view] + 1) & 0x0F;
+    }
+
+    public int getFingerQuality(int view){
+        return u8(mViewOffsets[view] + 2);
+    }
+
+    public int getMinutiaeCount(int view){
+        return u8(mViewOffsets[view] + 3);
+    }
+
+    public int getTotalMinutiaeCount(){
+        int total = 0;
+        for(int view = 0; view < mViewOffsets.length; view++){
+            total += getMinutiaeCount(view);
+        }
+        return total;
+    }
+
+    private int minutia(int view, int index){
+        return mViewOffsets[view] + VIEW_HEADER_SIZE + index * MINUTIA_SIZE;
+    }
+
+    public int getMinutiaType(int view, int index){
+        return u8(minutia(view, index)) >> 6;
+    }
+
+    public int getMinutiaX(int view, int index){
+        return u16(minutia(view, index)) & 0x3FFF;
+    }
+
+    public int getMinutiaY(int view, int index){
+        return u16(minutia(view, index) + 2) & 0x3FFF;
+    }
+
+    /**
+     * Minutia direction in degrees, 0 to 358.  The record stores it in units of 2 degrees.
+     */
+    public int getMinutiaAngle(int view, int index){
+        return u8(minutia(view, index) + 4) * 2;
+    }
+
+    public int getMinutiaQuality(int view, int index){
+        return u8(minutia(view, index) + 5);
+    }
+}
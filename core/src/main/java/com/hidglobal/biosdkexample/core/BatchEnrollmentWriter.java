@@ -0,0 +1,416 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * BatchEnrollmentWriter persists enrollments and deletions off the capture path.  submit() only
+ * queues the record; a single writer thread collects whatever queues up within
+ * GROUP_COMMIT_WINDOW_MS of the first record, up to MAX_BATCH records, and commits them together.
+ * While storage is slow, records pile up and the next batch is bigger, so the number of syncs per
+ * enrollment drops exactly when it matters.
+ *
+ * With an EnrollmentJournal, a batch is committed by appending it to the journal and syncing that
+ * one file; only then are the templates applied to the TemplateGallery and the metadata to the
+ * IdentityDirectory, without syncing either.  Every CHECKPOINT_BYTES of journal, and on close, both
+ * are synced and the journal is emptied.  Records a crash left in the journal are replayed into
+ * the gallery and directory by the constructor.  Without a journal, the gallery and directory are
+ * appended to and then synced for every batch.
+ *
+ * Each template becomes visible in the gallery as soon as it is appended, but is only durable
+ * once its batch is committed.  With a journal, a batch is committed once the journal is synced:
+ * should applying it fail after that, the batch still counts as committed and applying is retried
+ * with the next batch, and the journal is not emptied until it succeeds.  Otherwise, if a batch
+ * fails part way, the records appended before the failure stay in the gallery and the whole batch
+ * is reported as failed.
+ *
+ * The durability latency, from submit() to commit, is kept in a LatencyHistogram.
+ */
+
+public class BatchEnrollmentWriter implements Closeable {
+    private static final Logger LOG = Logger.getLogger("BatchEnrollmentWriter");
+    public static final int MAX_BATCH = 32;
+    public static final long GROUP_COMMIT_WINDOW_MS = 2;
+    public static final long CHECKPOINT_BYTES = 4 * 1024 * 1024;
+    private static final long POLL_MS = 100;
+
+    private volatile TemplateGallery mGallery;
+    private final IdentityDirectory mDirectory;
+    private final EnrollmentJournal mJournal;
+    private final IBatchCommitListener mListener;
+    private final BlockingQueue<EnrollmentRecord> mQueue = new LinkedBlockingQueue<>();
+    private final LatencyHistogram mLag = new LatencyHistogram();
+    private final AtomicLong mSubmitted = new AtomicLong();
+    private final AtomicLong mCommitted = new AtomicLong();
+    private final AtomicLong mFailed = new AtomicLong();
+    private final AtomicLong mBatches = new AtomicLong();
+    private final AtomicLong mSyncs = new AtomicLong();
+    private final AtomicLong mCheckpoints = new AtomicLong();
+    private final AtomicLong mApplyFailures = new AtomicLong();
+    // Journaled records not yet applied to the gallery and directory.  Writer thread only.
+    private final List<EnrollmentRecord> mUnapplied = new ArrayList<>();
+    private int mRecovered;
+    private final Thread mWriter;
+    private volatile boolean mClosed = false;
+
+    public BatchEnrollmentWriter(TemplateGallery gallery, IdentityDirectory directory,
+                                 IBatchCommitListener listener){
+        mGallery = gallery;
+        mDirectory = directory;
+        mJournal = null;
+        mListener = listener;
+        mWriter = startWriter();
+    }
+
+    /**
+     * Creates a writer that commits through journal, after replaying the records it recovered.
+     * The journal stays owned by the caller; close it after the writer.
+     */
+    public BatchEnrollmentWriter(TemplateGallery gallery, IdentityDirectory directory,
+                                 EnrollmentJournal journal, IBatchCommitListener listener) throws IOException {
+        mGallery = gallery;
+        mDirectory = directory;
+        mJournal = journal;
+        mListener = listener;
+        replay();
+        mWriter = startWriter();
+    }
+
+    /**
+     * Writes to gallery from the next batch on.  A compacted gallery forwards to its successor
+     * anyway; this just saves the hop.
+     */
+    public void setGallery(TemplateGallery gallery){
+        mGallery = gallery;
+    }
+
+    private Thread startWriter(){
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeBatches();
+            }
+        }, "BatchEnrollmentWriter");
+        writer.start();
+        return writer;
+    }
+
+    /**
+     * Applies the journal's recovered records that had not reached the gallery or directory and
+     * checkpoints.  Replaying a record that was applied already changes nothing.
+     */
+    private void replay() throws IOException {
+        List<EnrollmentRecord> records = mJournal.getRecovered();
+        if(records.isEmpty()){
+            return;
+        }
+        reapply(records);
+        checkpoint();
+        mRecovered = records.size();
+        LOG.info("Replayed " + records.size() + " journaled records, dropped "
+                + mJournal.getTornBytes() + " torn bytes");
+    }
+
+    /**
+     * Applies journaled records that may already have been applied in part, skipping what the
+     * gallery and directory already hold.
+     */
+    private void reapply(List<EnrollmentRecord> records) throws IOException {
+        List<EnrollmentRecord> directoryRecords = new ArrayList<>();
+        for(EnrollmentRecord record : records){
+            if(record.isDeletion()){
+                mGallery.delete(record.getIdentityId());
+                directoryRecords.add(record);
+                continue;
+            }
+            if(!isInGallery(record)){
+                mGallery.append(record.getIdentityId(), record.getTemplate());
+            }
+            if(mDirectory.getLabel(record.getIdentityId()) == null){
+                directoryRecords.add(record);
+            }
+        }
+        mDirectory.append(directoryRecords);
+    }
+
+    private boolean isInGallery(EnrollmentRecord record){
+        int slot = mGallery.findSlot(record.getIdentityId());
+        return slot != LongIntHashMap.NO_VALUE && Arrays.equals(mGallery.getTemplate(slot), record.getTemplate());
+    }
+
+    /**
+     * Reserves the identity id for a new enrollment.  Ids are never reused, even if the
+     * enrollment is abandoned.
+     */
+    public long reserveIdentityId(){
+        return mGallery.nextIdentityId();
+    }
+
+    /**
+     * Queues a record for the next batch.  Returns false once the writer is closed.
+     */
+    public synchronized boolean submit(EnrollmentRecord record){
+        if(mClosed){
+            return false;
+        }
+        record.mSubmittedNanos = System.nanoTime();
+        mSubmitted.incrementAndGet();
+        return mQueue.offer(record);
+    }
+
+    /**
+     * Queues the deletion of identityId.  Returns false once the writer is closed.
+     */
+    public boolean submitDeletion(long identityId){
+        return submit(EnrollmentRecord.deletion(identityId, System.currentTimeMillis()));
+    }
+
+    /**
+     * Records submitted and not yet committed or failed.
+     */
+    public long getPending(){
+        return mSubmitted.get() - mCommitted.get() - mFailed.get();
+    }
+
+    public long getCommittedCount(){
+        return mCommitted.get();
+    }
+
+    public long getFailedCount(){
+        return mFailed.get();
+    }
+
+    public long getBatchCount(){
+        return mBatches.get();
+    }
+
+    /**
+     * Durability latency: from submit() to the record's batch being committed.
+     */
+    public LatencyHistogram getLagHistogram(){
+        return mLag;
+    }
+
+    public long getSyncCount(){
+        return mSyncs.get();
+    }
+
+    public long getCheckpointCount(){
+        return mCheckpoints.get();
+    }
+
+    /**
+     * Committed batches that could not be applied to the gallery or directory straight away.
+     */
+    public long getApplyFailureCount(){
+        return mApplyFailures.get();
+    }
+
+    /**
+     * Records replayed from the journal at startup.
+     */
+    public int getRecoveredCount(){
+        return mRecovered;
+    }
+
+    private void writeBatches(){
+        List<EnrollmentRecord> batch = new ArrayList<>(MAX_BATCH);
+        while(true){
+            EnrollmentRecord first;
+            try {
+                first = mQueue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e){
+                first = mQueue.poll();
+            }
+            if(first == null){
+                if(mClosed){
+                    finalCheckpoint();
+                    return;
+                }
+                continue;
+            }
+            batch.add(first);
+            collect(batch);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Adds what queues up within the group commit window to batch.
+     */
+    private void collect(List<EnrollmentRecord> batch){
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GROUP_COMMIT_WINDOW_MS);
+        mQueue.drainTo(batch, MAX_BATCH - batch.size());
+        while(batch.size() < MAX_BATCH && !mClosed){
+            long wait = deadline - System.nanoTime();
+            if(wait <= 0){
+                return;
+            }
+            EnrollmentRecord next;
+            try {
+                next = mQueue.poll(wait, TimeUnit.NANOSECONDS);
+            } catch(InterruptedException e){
+                return;
+            }
+            if(next == null){
+                return;
+            }
+            batch.add(next);
+            mQueue.drainTo(batch, MAX_BATCH - batch.size());
+        }
+    }
+
+    private void finalCheckpoint(){
+        if(mJournal == null || mJournal.size() == 0){
+            return;
+        }
+        try {
+            if(!mUnapplied.isEmpty()){
+                reapply(mUnapplied);
+                mUnapplied.clear();
+            }
+            checkpoint();
+        } catch(IOException e){
+            // The journal still holds everything; it is replayed at the next start.
+            LOG.log(Level.WARNING, "Checkpoint on close failed", e);
+        }
+    }
+
+    private void checkpoint() throws IOException {
+        mGallery.sync();
+        mDirectory.sync();
+        mJournal.reset();
+        mCheckpoints.incrementAndGet();
+    }
+
+    private void commit(List<EnrollmentRecord> batch){
+        long durableNanos;
+        try {
+            if(mJournal != null){
+                mJournal.append(batch);
+                mJournal.sync();
+                mSyncs.incrementAndGet();
+                // Durable from here, whatever happens to applying it.
+                durableNanos = System.nanoTime();
+                applyJournaled(batch);
+            }
+            else {
+                apply(batch);
+                mGallery.sync();
+                mDirectory.sync();
+                mSyncs.addAndGet(2);
+                durableNanos = System.nanoTime();
+            }
+        } catch(IOException | RuntimeException e){
+            LOG.log(Level.WARNING, "Batch of " + batch.size() + " enrollments failed", e);
+            mFailed.addAndGet(batch.size());
+            mListener.onBatchFailed(batch, e instanceof IOException ? (IOException) e : new IOException(e));
+            return;
+        }
+        for(EnrollmentRecord record : batch){
+            record.mCommittedNanos = durableNanos;
+            mLag.record(durableNanos - record.mSubmittedNanos);
+        }
+        mCommitted.addAndGet(batch.size());
+        mBatches.incrementAndGet();
+        mListener.onBatchCommitted(batch);
+    }
+
+    /**
+     * Applies a committed batch, after any earlier one that failed to apply, and checkpoints when
+     * the journal is big enough.  A failure is logged and leaves the records for the next batch,
+     * finalCheckpoint() or, failing those, the replay at the next start; the journal is only
+     * emptied once they are applied.
+     */
+    private void applyJournaled(List<EnrollmentRecord> batch){
+        try {
+            boolean retry = !mUnapplied.isEmpty();
+            mUnapplied.addAll(batch);
+            if(retry){
+                reapply(mUnapplied);
+            }
+            else {
+                apply(batch);
+            }
+            mUnapplied.clear();
+        } catch(IOException | RuntimeException e){
+            mApplyFailures.incrementAndGet();
+            LOG.log(Level.WARNING, "Applying " + mUnapplied.size()
+                    + " committed enrollments failed, retrying with the next batch", e);
+            return;
+        }
+        if(mJournal.size() < CHECKPOINT_BYTES){
+            return;
+        }
+        try {
+            checkpoint();
+        } catch(IOException | RuntimeException e){
+            // The journal keeps growing until a later checkpoint succeeds.
+            LOG.log(Level.WARNING, "Checkpoint failed", e);
+        }
+    }
+
+    private void apply(List<EnrollmentRecord> batch) throws IOException {
+        for(EnrollmentRecord record : batch){
+            if(record.isDeletion()){
+                mGallery.delete(record.getIdentityId());
+            }
+            else {
+                mGallery.append(record.getIdentityId(), record.getTemplate());
+            }
+        }
+        mDirectory.append(batch);
+    }
+
+    /**
+     * Stops accepting records, commits everything already queued, checkpoints and waits for the
+     * writer.
+     */
+    @Override
+    public void close(){
+        synchronized(this){
+            // After this no record can be queued behind the writer's last poll.
+            mClosed = true;
+        }
+        try {
+            mWriter.join();
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString(){
+        return "BatchEnrollmentWriter{committed=" + mCommitted.get() + ", batches=" + mBatches.get()
+                + ", failed=" + mFailed.get() + ", pending=" + getPending() + ", syncs=" + mSyncs.get()
+                + ", checkpoints=" + mCheckpoints.get() + ", applyFailures=" + mApplyFailures.get()
+                + ", recovered=" + mRecovered
+                + ", lagP99Ms=" + mLag.getPercentileNanos(0.99) / 1000000 + "}";
+    }
+}
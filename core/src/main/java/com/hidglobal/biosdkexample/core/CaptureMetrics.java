@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CaptureMetrics aggregates CaptureTraces into one LatencyHistogram per CaptureStage and counts
+ * command outcomes by status name.  Recording is lock-free; snapshot() renders everything as JSON
+ * for export.
+ */
+
+public class CaptureMetrics {
+    private final LatencyHistogram[] mStages = new LatencyHistogram[CaptureStage.values().length];
+    private final ConcurrentMap<String, AtomicLong> mOutcomes = new ConcurrentHashMap<>();
+    private volatile long mSinceMillis = System.currentTimeMillis();
+
+    public CaptureMetrics(){
+        for(int i = 0; i < mStages.length; i++){
+            mStages[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram getHistogram(CaptureStage stage){
+        return mStages[stage.ordinal()];
+    }
+
+    public void record(CaptureStage stage, long nanos){
+        if(nanos >= 0){
+            mStages[stage.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * Records every stage the trace passed through.
+     */
+    public void record(CaptureTrace trace){
+        for(CaptureStage stage : CaptureStage.values()){
+            record(stage, trace.getStageNanos(stage));
+        }
+    }
+
+    /**
+     * Counts one outcome, e.g. "CAPTURE BIOSDK_OK".
+     */
+    public void recordOutcome(String outcome){
+        AtomicLong counter = mOutcomes.get(outcome);
+        if(counter == null){
+            AtomicLong created = new AtomicLong();
+            counter = mOutcomes.putIfAbsent(outcome, created);
+            if(counter == null){
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    public Map<String, Long> getOutcomes(){
+        Map<String, Long> outcomes = new TreeMap<>();
+        for(Map.Entry<String, AtomicLong> entry : mOutcomes.entrySet()){
+            outcomes.put(entry.getKey(), entry.getValue().get());
+        }
+        return outcomes;
+    }
+
+    public void reset(){
+        for(LatencyHistogram histogram : mStages){
+            histogram.reset();
+        }
+        mOutcomes.clear();
+        mSinceMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Renders the histograms (in microseconds) and outcome counts as a JSON object.
+     */
+    public String snapshot(){
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"since\": ").append(mSinceMillis);
+        sb.append(",\n  \"taken\": ").append(System.currentTimeMillis());
+        sb.append(",\n  \"stages\": {");
+        String separator = "\n";
+        for(CaptureStage stage : CaptureStage.values()){
+            LatencyHistogram histogram = getHistogram(stage);
+            sb.append(separator).append("    \"").append(stage).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"meanUs\": ").append(histogram.getMeanNanos() / 1000)
+                    .append(", \"p50Us\": ").append(histogram.getPercentileNanos(0.50) / 1000)
+                    .append(", \"p95Us\": ").append(histogram.getPercentileNanos(0.95) / 1000)
+                    .append(", \"p99Us\": ").append(histogram.getPercentileNanos(0.99) / 1000)
+                    .append(", \"maxUs\": ").append(histogram.getMaxNanos() / 1000).append('}');
+            separator = ",\n";
+        }
+        sb.append("\n  },\n  \"outcomes\": {");
+        separator = "\n";
+        for(Map.Entry<String, Long> entry : getOutcomes().entrySet()){
+            sb.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+            separator = ",\n";
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Short human readable summary, one line per stage that has recordings, in milliseconds.
+     */
+    public String summary(){
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-13s %5s %7s %7s %7s %7s\n", "stage", "n", "p50", "p95", "p99", "max"));
+        for(CaptureStage stage : CaptureStage.values()){
+            LatencyHistogram histogram = getHistogram(stage);
+            if(histogram.getCount() == 0){
+                continue;
+            }
+            sb.append(String.format("%-13s %5d %7.1f %7.1f %7.1f %7.1f\n", stage, histogram.getCount(),
+                    histogram.getPercentileNanos(0.50) / 1e6, histogram.getPercentileNanos(0.95) / 1e6,
+                    histogram.getPercentileNanos(0.99) / 1e6, histogram.getMaxNanos() / 1e6));
+        }
+        for(Map.Entry<String, Long> entry : getOutcomes().entrySet()){
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * The stages a capture goes through between the user pressing the button and the result being on
+ * screen.  Most stages are measured between two CaptureTrace timestamps; DEVICE_QUEUE, RECONNECT
+ * and IDLE are recorded directly by the scheduler and the continuous verification loop.
+ */
+
+public enum CaptureStage {
+    /** Command queued until the device starts it. */
+    DEVICE_QUEUE,
+    /** Capture issued until the first acquisition status arrives. */
+    FIRST_STATUS,
+    /** Capture issued until the capture complete callback. */
+    CAPTURE,
+    /** Capture complete until the finger was lifted, when waiting for finger clear. */
+    FINGER_CLEAR,
+    /** Acquisition finished until matching starts. */
+    MATCH_QUEUE,
+    /** Template matching, 1:1 or 1:N. */
+    MATCH,
+    /** Drawing the minutiae onto the display image. */
+    OVERLAY,
+    /** Display image ready until it is set on the ImageView. */
+    RENDER,
+    /** Capture issued until the result is on screen. */
+    END_TO_END,
+    /** Continuous verification: capture armed until a finger is detected. */
+    IDLE,
+    /** Disconnected device seen again until it is configured and running queued commands. */
+    RECONNECT
+}
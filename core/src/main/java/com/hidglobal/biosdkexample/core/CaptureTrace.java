@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * CaptureTrace holds the System.nanoTime() timestamps of one capture as it passes through the
+ * CaptureStages.  A timestamp left at zero means the capture skipped that point, e.g. no finger
+ * clear wait or no match.  Marks may come from different threads.
+ */
+
+public class CaptureTrace {
+    private volatile long mIssued;
+    private volatile long mFirstStatus;
+    private volatile long mCaptured;
+    private volatile long mFingerCleared;
+    private volatile long mMatchStart;
+    private volatile long mMatchDone;
+    private volatile long mOverlayDone;
+    private volatile long mRendered;
+
+    public void markIssued(){
+        mIssued = System.nanoTime();
+    }
+
+    /**
+     * Marks the first acquisition status; later statuses are ignored.
+     */
+    public void markFirstStatus(){
+        if(mFirstStatus == 0){
+            mFirstStatus = System.nanoTime();
+        }
+    }
+
+    public void markCaptured(){
+        mCaptured = System.nanoTime();
+    }
+
+    public void markFingerCleared(){
+        mFingerCleared = System.nanoTime();
+    }
+
+    public void markMatchStart(){
+        mMatchStart = System.nanoTime();
+    }
+
+    public void markMatchDone(){
+        mMatchDone = System.nanoTime();
+    }
+
+    public void markOverlayDone(){
+        mOverlayDone = System.nanoTime();
+    }
+
+    public void markRendered(){
+        mRendered = System.nanoTime();
+    }
+
+    public long getIssuedNanos(){
+        return mIssued;
+    }
+
+    public long getCapturedNanos(){
+        return mCaptured;
+    }
+
+    /**
+     * Duration of stage, or -1 if the capture did not pass through both of its ends.
+     */
+    public long getStageNanos(CaptureStage stage){
+        switch(stage){
+            case FIRST_STATUS:
+                return between(mIssued, mFirstStatus);
+            case CAPTURE:
+                return between(mIssued, mCaptured);
+            case FINGER_CLEAR:
+                return between(mCaptured, mFingerCleared);
+            case MATCH_QUEUE:
+                return between(mFingerCleared != 0 ? mFingerCleared : mCaptured, mMatchStart);
+            case MATCH:
+                return between(mMatchStart, mMatchDone);
+            case OVERLAY:
+                return between(mMatchDone != 0 ? mMatchDone : (mFingerCleared != 0 ? mFingerCleared : mCaptured), mOverlayDone);
+            case RENDER:
+                return between(mOverlayDone, mRendered);
+            case END_TO_END:
+                return between(mIssued, mRendered);
+            default:
+                return -1;
+        }
+    }
+
+    private static long between(long start, long end){
+        return start == 0 || end == 0 ? -1 : end - start;
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder("CaptureTrace{");
+        for(CaptureStage stage : CaptureStage.values()){
+            long nanos = getStageNanos(stage);
+            if(nanos >= 0){
+                sb.append(stage).append("Us=").append(nanos / 1000).append(", ");
+            }
+        }
+        if(sb.length() > 13){
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append('}').toString();
+    }
+}
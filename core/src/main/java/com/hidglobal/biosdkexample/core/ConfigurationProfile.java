@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ConfigurationProfile is a named, immutable set of device configuration settings, such as the
+ * security levels used by one lane or site.  Values are validated when the profile is built, so
+ * a profile that exists can always be pushed to the device as is.
+ */
+
+public final class ConfigurationProfile {
+    public static final String MATCHING_SECURITY_LEVEL = "matching_security_level";
+    public static final String PAD_SECURITY_LEVEL = "pad_security_level";
+    public static final List<String> SECURITY_LEVELS = Collections.unmodifiableList(
+            Arrays.asList("CONVENIENCE", "MEDIUM", "HIGH"));
+    public static final ConfigurationProfile DEFAULT = securityLevels("default", "MEDIUM", "MEDIUM");
+
+    private final String mName;
+    private final Map<String, String> mSettings;
+
+    private ConfigurationProfile(String name, Map<String, String> settings){
+        mName = name;
+        mSettings = Collections.unmodifiableMap(settings);
+    }
+
+    /**
+     * Builds a profile with the given matching and PAD security levels, case insensitive.  Throws
+     * IllegalArgumentException for a level the device does not accept.
+     */
+    public static ConfigurationProfile securityLevels(String name, String matchLevel, String padLevel){
+        Map<String, String> settings = new TreeMap<>();
+        settings.put(MATCHING_SECURITY_LEVEL, checkLevel(matchLevel));
+        settings.put(PAD_SECURITY_LEVEL, checkLevel(padLevel));
+        return new ConfigurationProfile(name, settings);
+    }
+
+    private static String checkLevel(String level){
+        String upper = level == null ? null : level.toUpperCase();
+        if(!SECURITY_LEVELS.contains(upper)){
+            throw new IllegalArgumentException("Unknown security level " + level);
+        }
+        return upper;
+    }
+
+    public String getName(){
+        return mName;
+    }
+
+    public Map<String, String> getSettings(){
+        return mSettings;
+    }
+
+    public String get(String key){
+        return mSettings.get(key);
+    }
+
+    /**
+     * True if both profiles configure the device the same way, whatever their names.
+     */
+    public boolean sameSettings(ConfigurationProfile other){
+        return other != null && mSettings.equals(other.mSettings);
+    }
+
+    @Override
+    public String toString(){
+        return mName + mSettings;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ConfigurationState tracks the configuration one device currently has, so only settings that
+ * actually change are pushed to it.  Two views are kept: the settings the device has confirmed,
+ * and the settings it will have once every configuration already requested has run.  New
+ * requests are compared against the second, so repeating a request that is still queued costs
+ * nothing.  A failed or cancelled push rolls its keys back to the confirmed values.  The version
+ * goes up each time the confirmed configuration changes.
+ *
+ * Thread safe; requests come from the main thread and confirmations from the device worker.
+ */
+
+public class ConfigurationState {
+    private final Map<String, String> mConfirmed = new HashMap<>();
+    private final Map<String, String> mRequested = new HashMap<>();
+    private long mVersion;
+    private long mPushes;
+    private long mSkipped;
+
+    /**
+     * Records desired as requested and returns the settings that differ from what the device has
+     * or is about to get, or null if there is nothing to push.
+     */
+    public synchronized Map<String, String> request(Map<String, String> desired){
+        Map<String, String> diff = null;
+        for(Map.Entry<String, String> entry : desired.entrySet()){
+            if(!entry.getValue().equals(mRequested.get(entry.getKey()))){
+                if(diff == null){
+                    diff = new HashMap<>();
+                }
+                diff.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if(diff == null){
+            mSkipped++;
+            return null;
+        }
+        mRequested.putAll(diff);
+        mPushes++;
+        return diff;
+    }
+
+    /**
+     * The device accepted settings.
+     */
+    public synchronized void confirmed(Map<String, String> settings){
+        boolean changed = false;
+        for(Map.Entry<String, String> entry : settings.entrySet()){
+            String previous = mConfirmed.put(entry.getKey(), entry.getValue());
+            changed |= !entry.getValue().equals(previous);
+        }
+        // Requests made after this push are still pending and keep their values.
+        for(Map.Entry<String, String> entry : settings.entrySet()){
+            if(!mRequested.containsKey(entry.getKey())){
+                mRequested.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if(changed){
+            mVersion++;
+        }
+    }
+
+    /**
+     * A push of settings failed or never ran; the device still has the confirmed values.
+     */
+    public synchronized void failed(Map<String, String> settings){
+        for(String key : settings.keySet()){
+            String confirmed = mConfirmed.get(key);
+            if(confirmed == null){
+                mRequested.remove(key);
+            }
+            else {
+                mRequested.put(key, confirmed);
+            }
+        }
+    }
+
+    /**
+     * The confirmed configuration, to re-apply on a device that lost it.
+     */
+    public synchronized Map<String, String> getConfirmed(){
+        return new HashMap<>(mConfirmed);
+    }
+
+    public synchronized long getVersion(){
+        return mVersion;
+    }
+
+    public synchronized long getPushCount(){
+        return mPushes;
+    }
+
+    public synchronized long getSkippedCount(){
+        return mSkipped;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return "ConfigurationState{version=" + mVersion + ", confirmed=" + mConfirmed + ", pushes=" + mPushes
+                + ", skipped=" + mSkipped + "}";
+    }
+}
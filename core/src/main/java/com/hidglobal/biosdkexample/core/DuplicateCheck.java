@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * DuplicateCheck is one deduplication search queued on the DuplicateDetector: the template of a
+ * new enrollment and, once the search is done, the identity it duplicates if any.
+ */
+
+public class DuplicateCheck {
+    public static final long NO_DUPLICATE = -1;
+
+    private final DuplicateDetector mDetector;
+    private final long mIdentityId;
+    private final byte[] mTemplate;
+    volatile boolean mCancelled = false;
+    volatile boolean mDone = false;
+    volatile long mDuplicateOf = NO_DUPLICATE;
+    volatile int mComparisons;
+    volatile long mElapsedNanos;
+
+    DuplicateCheck(DuplicateDetector detector, long identityId, byte[] template){
+        mDetector = detector;
+        mIdentityId = identityId;
+        mTemplate = template;
+    }
+
+    /**
+     * The identity the new enrollment will be stored under.
+     */
+    public long getIdentityId(){
+        return mIdentityId;
+    }
+
+    public byte[] getTemplate(){
+        return mTemplate;
+    }
+
+    /**
+     * Stops the search.  The listener is still called, with isCancelled() true.
+     */
+    public void cancel(){
+        mCancelled = true;
+        mDetector.onCancelled(this);
+    }
+
+    public boolean isCancelled(){
+        return mCancelled;
+    }
+
+    public boolean isDone(){
+        return mDone;
+    }
+
+    public boolean isDuplicate(){
+        return mDuplicateOf != NO_DUPLICATE;
+    }
+
+    /**
+     * The already enrolled identity that matched, or NO_DUPLICATE.
+     */
+    public long getDuplicateOf(){
+        return mDuplicateOf;
+    }
+
+    public int getComparisons(){
+        return mComparisons;
+    }
+
+    public long getElapsedNanos(){
+        return mElapsedNanos;
+    }
+
+    @Override
+    public String toString(){
+        return "DuplicateCheck{id=" + mIdentityId + ", duplicateOf=" + mDuplicateOf + ", cancelled="
+                + mCancelled + ", comparisons=" + mComparisons + ", ms=" + mElapsedNanos / 1000000 + "}";
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * DuplicateDetector checks new enrollments against everything already enrolled before they are
+ * committed, so one finger cannot end up under two identities.  Checks are queued and run one at
+ * a time on a low priority thread; the caller is told the outcome through its listener and never
+ * waits for it.
+ *
+ * A search starts with the MinutiaeIndex shortlist of the indexed part of the gallery plus every
+ * slot the index has not caught up with yet, so a duplicate in a 100k gallery is usually found
+ * within about 10k device comparisons rather than 100k.  The shortlist only sets the order: when
+ * it holds no duplicate the search goes on through every other slot, since the prefilter is
+ * coarse and a check that misses a duplicate lets it into the gallery for good.  Templates
+ * accepted by recent checks but possibly not yet in the gallery are compared as well, which
+ * catches the same finger presented twice within one storage batch.
+ *
+ * Every comparison waits on the MatchPriorityGate first, so live verifications always get the
+ * matcher ahead of deduplication.
+ */
+
+public class DuplicateDetector {
+    private static final Logger LOG = Logger.getLogger("DuplicateDetector");
+    static final int RECENT = 64;
+    static final int SEARCH_PARALLELISM = 2;
+
+    private final TemplateMatcher mMatcher;
+    // Replaced together after a compaction; guarded by this.
+    private TemplateGallery mGallery;
+    private MinutiaeIndex mIndex;
+    private final ParallelMatcher mSearch = new ParallelMatcher(SEARCH_PARALLELISM);
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "DuplicateDetector");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    // Accepted templates, newest last; only touched by the detector thread.
+    private final long[] mRecentIds = new long[RECENT];
+    private final byte[][] mRecentTemplates = new byte[RECENT][];
+    private int mRecentCount = 0;
+    private volatile DuplicateCheck mRunning;
+
+    public DuplicateDetector(final TemplateMatcher matcher, TemplateGallery gallery, MinutiaeIndex index,
+                             final MatchPriorityGate gate){
+        mGallery = gallery;
+        mIndex = index;
+        mMatcher = new TemplateMatcher() {
+            @Override
+            public int match(byte[] probe, byte[] candidate) {
+                try {
+                    gate.awaitIdle();
+                } catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return MATCH_ERROR;
+                }
+                return matcher.match(probe, candidate);
+            }
+        };
+    }
+
+    /**
+     * Queues a deduplication search for a new enrollment that is to be stored under identityId.
+     */
+    public DuplicateCheck check(long identityId, byte[] template, final IDuplicateCheckListener listener){
+        final DuplicateCheck check = new DuplicateCheck(this, identityId, template);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                search(check);
+                check.mDone = true;
+                listener.onDuplicateCheckComplete(check);
+            }
+        });
+        return check;
+    }
+
+    /**
+     * Searches gallery, indexed by index, from the next check on; used after a compaction.
+     */
+    public synchronized void setGallery(TemplateGallery gallery, MinutiaeIndex index){
+        mIndex = index;
+        mGallery = gallery;
+    }
+
+    private void search(DuplicateCheck check){
+        if(check.mCancelled){
+            return;
+        }
+        mRunning = check;
+        if(check.mCancelled){
+            // Cancelled between the check above and becoming the running check.
+            mRunning = null;
+            return;
+        }
+        long start = System.nanoTime();
+        int comparisons = 0;
+        byte[] probe = check.getTemplate();
+        for(int i = mRecentCount - 1; i >= 0 && !check.mCancelled; i--){
+            comparisons++;
+            if(mMatcher.match(probe, mRecentTemplates[i]) == 1){
+                check.mDuplicateOf = mRecentIds[i];
+                break;
+            }
+        }
+        TemplateGallery gallery;
+        MinutiaeIndex index;
+        synchronized(this){
+            gallery = mGallery;
+            index = mIndex;
+        }
+        int[] candidates = check.isDuplicate() || check.mCancelled ? null : candidates(probe, gallery, index);
+        // Ranking the shortlist takes a while on a large gallery; a cancel may have come in.
+        if(candidates != null && !check.mCancelled){
+            comparisons += searchSlots(check, gallery, candidates);
+        }
+        if(candidates != null && !check.isDuplicate() && !check.mCancelled){
+            // Still at background priority: every comparison waits for the gate as before.
+            comparisons += searchSlots(check, gallery, MinutiaeIndex.remaining(candidates, null, gallery.size()));
+        }
+        mRunning = null;
+        check.mComparisons = comparisons;
+        check.mElapsedNanos = System.nanoTime() - start;
+        if(!check.isDuplicate() && !check.mCancelled){
+            remember(check);
+        }
+        LOG.fine(check.toString());
+    }
+
+    /**
+     * Searches candidates for the check's template.  Returns the number of comparisons made.
+     */
+    private int searchSlots(DuplicateCheck check, TemplateGallery gallery, int[] candidates){
+        if(candidates.length == 0){
+            return 0;
+        }
+        IdentificationResult result = mSearch.identify(mMatcher, check.getTemplate(), gallery, candidates);
+        if(result.isMatch()){
+            check.mDuplicateOf = result.getIdentityId();
+        }
+        return result.getComparisons();
+    }
+
+    private int[] candidates(byte[] probe, TemplateGallery gallery, MinutiaeIndex index){
+        int size = gallery.size();
+        int indexed = Math.min(index.size(), size);
+        int[] shortlist = indexed == 0 ? new int[0]
+                : index.shortlist(probe, MinutiaeIndex.defaultShortlistSize(indexed));
+        int[] candidates = Arrays.copyOf(shortlist, shortlist.length + size - indexed);
+        for(int slot = indexed; slot < size; slot++){
+            candidates[shortlist.length + slot - indexed] = slot;
+        }
+        return candidates;
+    }
+
+    private void remember(DuplicateCheck check){
+        if(mRecentCount == RECENT){
+            System.arraycopy(mRecentIds, 1, mRecentIds, 0, RECENT - 1);
+            System.arraycopy(mRecentTemplates, 1, mRecentTemplates, 0, RECENT - 1);
+            mRecentCount--;
+        }
+        mRecentIds[mRecentCount] = check.getIdentityId();
+        mRecentTemplates[mRecentCount] = check.getTemplate();
+        mRecentCount++;
+    }
+
+    void onCancelled(DuplicateCheck check){
+        if(mRunning == check){
+            mSearch.cancel();
+        }
+    }
+
+    public void shutdown(){
+        DuplicateCheck running = mRunning;
+        if(running != null){
+            running.cancel();
+        }
+        mExecutor.shutdownNow();
+        mSearch.shutdown();
+    }
+}
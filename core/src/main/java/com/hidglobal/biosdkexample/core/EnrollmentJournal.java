@@ -0,0 +1,323 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * EnrollmentJournal is the write-ahead log in front of the TemplateGallery and IdentityDirectory.
+ * The BatchEnrollmentWriter appends each batch of enrollments and deletions here and syncs this
+ * one file; the batch is durable from that moment, and the gallery and directory are updated
+ * without syncing them.  At a checkpoint both are synced and the journal is emptied.
+ *
+ * Journal file layout (little endian), one record after another:
+ *   record:  length(4) crc32(4) payload(length)
+ *   payload: type(1) identityId(8) atMillis(8) padResult(4) labelLength(4) label(UTF-8)
+ *            templateLength(4) template
+ *
+ * The CRC covers the payload.  The file is preallocated and zero filled, so appending does not
+ * change its length and a sync only has to force the data.  Opening the journal reads every record
+ * up to the zero tail or the first record that is incomplete or fails its CRC, which is what a
+ * crash in the middle of a write leaves behind, and clears the file from there.  The records read
+ * are handed to the writer for replay.
+ *
+ * The same format serves as the GalleryCompactor's snapshot file.  A snapshot is restored by
+ * installing it as JOURNAL_FILE in an empty gallery directory: the BatchEnrollmentWriter replays it
+ * on the next start.
+ *
+ * Not thread safe; a journal has a single writer.
+ */
+
+public class EnrollmentJournal implements Closeable {
+    public static final String JOURNAL_FILE = "enrollments.wal";
+    private static final byte TYPE_ENROLL = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int PAYLOAD_FIXED_SIZE = 1 + 8 + 8 + 4 + 4 + 4;
+    private static final int MAX_PAYLOAD = 1024 * 1024;
+    private static final long PREALLOCATED_BYTES = 1024 * 1024;
+    private static final String CHARSET = "UTF-8";
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final CRC32 mCrc = new CRC32();
+    private List<EnrollmentRecord> mRecovered = Collections.emptyList();
+    private ByteBuffer mBuffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    private long mEnd;
+    private long mCapacity;
+    private boolean mLengthChanged = false;
+    private long mSyncs;
+    private long mTornBytes;
+    private boolean mClosed = false;
+
+    private EnrollmentJournal(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        mChannel = mFile.getChannel();
+    }
+
+    /**
+     * Opens the journal in dir, creating an empty one if none exists yet, and reads the records a
+     * previous run left in it.
+     */
+    public static EnrollmentJournal open(File dir) throws IOException {
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            throw new IOException("Cannot create journal directory " + dir);
+        }
+        return openFile(new File(dir, JOURNAL_FILE));
+    }
+
+    /**
+     * Opens the journal stored in file, creating an empty one if none exists yet.
+     */
+    public static EnrollmentJournal openFile(File file) throws IOException {
+        EnrollmentJournal journal = new EnrollmentJournal(file);
+        try {
+            journal.load();
+        } catch(IOException e){
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    private void load() throws IOException {
+        long size = mChannel.size();
+        if(size > Integer.MAX_VALUE){
+            throw new IOException("Journal exceeds 2GB");
+        }
+        ByteBuffer file = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        while(file.hasRemaining() && mChannel.read(file, file.position()) >= 0){
+            // read the whole file
+        }
+        file.flip();
+        List<EnrollmentRecord> records = new ArrayList<>();
+        while(file.remaining() >= RECORD_HEADER_SIZE){
+            int start = file.position();
+            int length = file.getInt();
+            int crc = file.getInt();
+            if(length < PAYLOAD_FIXED_SIZE || length > MAX_PAYLOAD || length > file.remaining()){
+                file.position(start);
+                break;
+            }
+            mCrc.reset();
+            mCrc.update(file.array(), file.position(), length);
+            if((int) mCrc.getValue() != crc){
+                file.position(start);
+                break;
+            }
+            ByteBuffer payload = file.slice().order(ByteOrder.LITTLE_ENDIAN);
+            payload.limit(length);
+            file.position(file.position() + length);
+            EnrollmentRecord record = decode(payload);
+            if(record == null){
+                file.position(start);
+                break;
+            }
+            records.add(record);
+        }
+        mEnd = file.position();
+        int used = file.limit();
+        while(used > mEnd && file.get(used - 1) == 0){
+            used--;
+        }
+        mTornBytes = used - mEnd;
+        if(mTornBytes > 0 || size < PREALLOCATED_BYTES){
+            preallocate(mEnd);
+        }
+        else {
+            mCapacity = size;
+        }
+        mRecovered = records;
+    }
+
+    /**
+     * Keeps the first end bytes and zero fills the file from there up to its preallocated size.
+     */
+    private void preallocate(long end) throws IOException {
+        mChannel.truncate(end);
+        mFile.setLength(Math.max(PREALLOCATED_BYTES, end));
+        mChannel.force(true);
+        mCapacity = mChannel.size();
+        mLengthChanged = false;
+    }
+
+    private static EnrollmentRecord decode(ByteBuffer payload) throws IOException {
+        byte type = payload.get();
+        long identityId = payload.getLong();
+        long atMillis = payload.getLong();
+        int padResult = payload.getInt();
+        int labelLength = payload.getInt();
+        if(labelLength < 0 || labelLength > payload.remaining() - 4){
+            return null;
+        }
+        byte[] label = new byte[labelLength];
+        payload.get(label);
+        int templateLength = payload.getInt();
+        if(templateLength != payload.remaining()){
+            return null;
+        }
+        if(type == TYPE_DELETE){
+            return EnrollmentRecord.deletion(identityId, atMillis);
+        }
+        if(type != TYPE_ENROLL || templateLength == 0){
+            return null;
+        }
+        byte[] template = new byte[templateLength];
+        payload.get(template);
+        return new EnrollmentRecord(identityId, new String(label, CHARSET), template, padResult, atMillis);
+    }
+
+    /**
+     * Records found when the journal was opened, oldest first.  They were durable but may not
+     * have reached the gallery; replay them before appending new records.
+     */
+    public List<EnrollmentRecord> getRecovered(){
+        return mRecovered;
+    }
+
+    /**
+     * Bytes of an incomplete last record dropped when the journal was opened.
+     */
+    public long getTornBytes(){
+        return mTornBytes;
+    }
+
+    /**
+     * Writes the records in one write.  They are durable once sync() returns.
+     */
+    public void append(List<EnrollmentRecord> records) throws IOException {
+        if(mClosed){
+            throw new IOException("Journal is closed");
+        }
+        mBuffer.clear();
+        for(EnrollmentRecord record : records){
+            encode(record);
+        }
+        mBuffer.flip();
+        long position = mEnd;
+        if(position + mBuffer.remaining() > mCapacity){
+            mFile.setLength(Math.max(2 * mCapacity, position + mBuffer.remaining()));
+            mCapacity = mChannel.size();
+            mLengthChanged = true;
+        }
+        // A partial write is cut off again at the next open by its CRC.
+        while(mBuffer.hasRemaining()){
+            position += mChannel.write(mBuffer, position);
+        }
+        mEnd = position;
+    }
+
+    private void encode(EnrollmentRecord record) throws IOException {
+        byte[] label = record.getLabel() == null ? new byte[0] : record.getLabel().getBytes(CHARSET);
+        byte[] template = record.isDeletion() ? new byte[0] : record.getTemplate();
+        int length = PAYLOAD_FIXED_SIZE + label.length + template.length;
+        ensureCapacity(RECORD_HEADER_SIZE + length);
+        int start = mBuffer.position();
+        mBuffer.position(start + RECORD_HEADER_SIZE);
+        mBuffer.put(record.isDeletion() ? TYPE_DELETE : TYPE_ENROLL);
+        mBuffer.putLong(record.getIdentityId());
+        mBuffer.putLong(record.getEnrolledAtMillis());
+        mBuffer.putInt(record.getPADResult());
+        mBuffer.putInt(label.length);
+        mBuffer.put(label);
+        mBuffer.putInt(template.length);
+        mBuffer.put(template);
+        mCrc.reset();
+        mCrc.update(mBuffer.array(), start + RECORD_HEADER_SIZE, length);
+        mBuffer.putInt(start, length);
+        mBuffer.putInt(start + 4, (int) mCrc.getValue());
+    }
+
+    private void ensureCapacity(int bytes){
+        if(mBuffer.remaining() >= bytes){
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * mBuffer.capacity(), mBuffer.position() + bytes))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        mBuffer.flip();
+        grown.put(mBuffer);
+        mBuffer = grown;
+    }
+
+    /**
+     * Forces everything appended to storage.  The metadata is only forced when the file had to
+     * grow.
+     */
+    public void sync() throws IOException {
+        if(mClosed){
+            return;
+        }
+        mChannel.force(mLengthChanged);
+        mLengthChanged = false;
+        mSyncs++;
+    }
+
+    /**
+     * Empties the journal.  Only call once everything in it is durable elsewhere.
+     */
+    public void reset() throws IOException {
+        if(mClosed){
+            return;
+        }
+        preallocate(0);
+        mEnd = 0;
+        mRecovered = Collections.emptyList();
+    }
+
+    /**
+     * Cuts off the zero filled tail of a journal that is complete, such as a snapshot.
+     */
+    public void trim() throws IOException {
+        if(mClosed){
+            return;
+        }
+        mChannel.truncate(mEnd);
+        mChannel.force(true);
+        mCapacity = mEnd;
+        mLengthChanged = false;
+    }
+
+    /**
+     * Bytes written since the last reset.
+     */
+    public long size(){
+        return mEnd;
+    }
+
+    public long getSyncCount(){
+        return mSyncs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(mClosed){
+            return;
+        }
+        mClosed = true;
+        mFile.close();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * EnrollmentRecord is one captured enrollment on its way to storage: the identity it was reserved
+ * for, the operator supplied label, the template and PAD result, and the times it was handed to
+ * and committed by the BatchEnrollmentWriter.  A record without a template, made by deletion(),
+ * removes the identity instead.
+ */
+
+public class EnrollmentRecord {
+    private final long mIdentityId;
+    private final String mLabel;
+    private final byte[] mTemplate;
+    private final int mPADResult;
+    private final long mEnrolledAtMillis;
+    volatile long mSubmittedNanos;
+    volatile long mCommittedNanos;
+
+    public EnrollmentRecord(long identityId, String label, byte[] template, int padResult,
+                            long enrolledAtMillis){
+        mIdentityId = identityId;
+        mLabel = label;
+        mTemplate = template;
+        mPADResult = padResult;
+        mEnrolledAtMillis = enrolledAtMillis;
+    }
+
+    /**
+     * A record that deletes identityId when it is committed.
+     */
+    public static EnrollmentRecord deletion(long identityId, long deletedAtMillis){
+        return new EnrollmentRecord(identityId, null, null, 0, deletedAtMillis);
+    }
+
+    public boolean isDeletion(){
+        return mTemplate == null;
+    }
+
+    public long getIdentityId(){
+        return mIdentityId;
+    }
+
+    public String getLabel(){
+        return mLabel;
+    }
+
+    public byte[] getTemplate(){
+        return mTemplate;
+    }
+
+    public int getPADResult(){
+        return mPADResult;
+    }
+
+    public long getEnrolledAtMillis(){
+        return mEnrolledAtMillis;
+    }
+
+    public boolean isCommitted(){
+        return mCommittedNanos != 0;
+    }
+
+    /**
+     * Time from submission to the record being durable, or -1 until it is.
+     */
+    public long getPersistLagNanos(){
+        long committed = mCommittedNanos;
+        return committed == 0 ? -1 : committed - mSubmittedNanos;
+    }
+
+    @Override
+    public String toString(){
+        return (isDeletion() ? "EnrollmentRecord{deleted id=" : "EnrollmentRecord{id=") + mIdentityId
+                + ", label=" + mLabel + "}";
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.Arrays;
+
+/**
+ * FrequencySketch estimates how often each identity has matched recently, in a fixed amount of
+ * memory, for the HotTier's TinyLFU admission.  It is a count-min sketch of DEPTH rows of small
+ * saturating counters; an estimate is the smallest of the identity's counters, so collisions can
+ * only inflate it.  Once as many matches as the sample size have been counted every counter is
+ * halved, so old popularity fades and a regular who stops coming is eventually forgotten.
+ *
+ * Not thread safe.
+ */
+
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+            0x97cb3127d3a2f8e1L, 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL
+    };
+
+    private final byte[] mCounters;
+    private final int mWidthMask;
+    private final int mSampleSize;
+    private int mAdditions;
+
+    /**
+     * Sizes the sketch for tracking about capacity identities at a time.
+     */
+    FrequencySketch(int capacity){
+        int width = 16;
+        while(width < 4 * capacity){
+            width <<= 1;
+        }
+        mCounters = new byte[DEPTH * width];
+        mWidthMask = width - 1;
+        mSampleSize = 10 * Math.max(1, capacity);
+    }
+
+    private int index(long key, int row){
+        long h = (key + SEEDS[row]) * SEEDS[(row + 1) & (DEPTH - 1)];
+        h ^= h >>> 32;
+        return row * (mWidthMask + 1) + ((int) h & mWidthMask);
+    }
+
+    int frequency(long key){
+        int min = MAX_COUNT;
+        for(int row = 0; row < DEPTH; row++){
+            min = Math.min(min, mCounters[index(key, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Counts one occurrence of key.  Only the counters at the current minimum are raised, which
+     * keeps collisions from inflating other keys more than necessary.
+     */
+    void increment(long key){
+        int min = frequency(key);
+        if(min < MAX_COUNT){
+            for(int row = 0; row < DEPTH; row++){
+                int i = index(key, row);
+                if(mCounters[i] == min){
+                    mCounters[i]++;
+                }
+            }
+        }
+        if(++mAdditions >= mSampleSize){
+            age();
+        }
+    }
+
+    private void age(){
+        for(int i = 0; i < mCounters.length; i++){
+            mCounters[i] >>= 1;
+        }
+        mAdditions >>= 1;
+    }
+
+    void clear(){
+        Arrays.fill(mCounters, (byte) 0);
+        mAdditions = 0;
+    }
+
+    long getFootprintBytes(){
+        return mCounters.length;
+    }
+}
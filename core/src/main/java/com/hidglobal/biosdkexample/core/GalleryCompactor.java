@@ -0,0 +1,354 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * GalleryCompactor reclaims the space of deleted templates.  It copies the live templates of a
+ * TemplateGallery, in slot order, into a new gallery in a work directory, and writes the same
+ * templates to a snapshot file as it goes.  The copy runs in steps of STEP slots and waits on the
+ * MatchPriorityGate before each, so it never competes with a live verification; identifications
+ * and appends keep using the old gallery throughout.
+ *
+ * Only the final step holds the old gallery's lock, which blocks appends but not searches: it
+ * copies what was appended during the copy, tombstones what was deleted, syncs both outputs,
+ * commits the new files and retires the old gallery, which from then on forwards every change
+ * to the new one.  The new files are committed by writing a marker into the work directory and
+ * then moving them into place; TemplateGallery.open() finishes the move if a crash interrupts it.
+ *
+ * The snapshot holds the gallery exactly as it was when the old one was retired, in the
+ * EnrollmentJournal format, labelled from the IdentityDirectory.  It is written to SNAPSHOT_DIR
+ * under a name that only appears once it is complete, and the newest KEEP_SNAPSHOTS are kept.
+ *
+ * One compaction at a time per gallery directory.
+ */
+
+public class GalleryCompactor {
+    private static final Logger LOG = Logger.getLogger("GalleryCompactor");
+    public static final String SNAPSHOT_DIR = "snapshots";
+    static final String SNAPSHOT_PREFIX = "gallery-";
+    static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+    public static final int KEEP_SNAPSHOTS = 2;
+    // Worth compacting once this share of the slots, and at least MIN_DELETED, are tombstones.
+    public static final double DELETED_RATIO = 0.2;
+    public static final int MIN_DELETED = 64;
+    public static final int DROPPED = -1;
+    static final int STEP = 256;
+
+    private final File mDir;
+    private final IdentityDirectory mDirectory;
+    private final MatchPriorityGate mGate;
+    private volatile boolean mCancelled = false;
+
+    /**
+     * directory labels the snapshot and gate paces the copy; either may be null.
+     */
+    public GalleryCompactor(File dir, IdentityDirectory directory, MatchPriorityGate gate){
+        mDir = dir;
+        mDirectory = directory;
+        mGate = gate;
+    }
+
+    public static boolean isWorthwhile(TemplateGallery gallery){
+        int deleted = gallery.getDeletedCount();
+        return deleted >= MIN_DELETED && deleted >= DELETED_RATIO * gallery.size();
+    }
+
+    /**
+     * Stops a running compaction before its next step, and any later one before it starts, e.g.
+     * when the gallery is about to be closed.  The old gallery stays current.
+     */
+    public void cancel(){
+        mCancelled = true;
+    }
+
+    /**
+     * Compacts gallery, which must be current, and returns the gallery that replaced it.  Throws
+     * only if the old gallery is still current.
+     */
+    public Result compact(TemplateGallery gallery) throws IOException {
+        long start = System.nanoTime();
+        File work = new File(mDir, TemplateGallery.COMPACT_DIR);
+        TemplateGallery.deleteTree(work);
+        File snapshots = new File(mDir, SNAPSHOT_DIR);
+        if(!snapshots.isDirectory() && !snapshots.mkdirs()){
+            throw new IOException("Cannot create snapshot directory " + snapshots);
+        }
+        long millis = System.currentTimeMillis();
+        File snapshotFile = new File(snapshots, SNAPSHOT_PREFIX + millis + SNAPSHOT_SUFFIX);
+        File snapshotTemp = new File(snapshots, SNAPSHOT_PREFIX + millis + TEMP_SUFFIX);
+        TemplateGallery target = TemplateGallery.open(work);
+        EnrollmentJournal snapshot = null;
+        boolean committed = false;
+        try {
+            snapshot = EnrollmentJournal.openFile(snapshotTemp);
+            List<EnrollmentRecord> records = new ArrayList<>(STEP);
+            // Catches up with appends until only one step is left for the locked part.
+            int copied = 0;
+            int[] remap = new int[gallery.size()];
+            while(gallery.size() - copied > STEP){
+                awaitTurn();
+                int end = copied + STEP;
+                if(end > remap.length){
+                    remap = Arrays.copyOf(remap, Math.max(end, 2 * remap.length));
+                }
+                copy(gallery, target, copied, end, remap, records, millis);
+                snapshot.append(records);
+                records.clear();
+                copied = end;
+            }
+            awaitTurn();
+            long lockedNanos;
+            boolean installed;
+            int live;
+            long reclaimedBytes;
+            synchronized(gallery){
+                long locked = System.nanoTime();
+                if(gallery.getSuccessor() != null){
+                    throw new IOException("Gallery was replaced during compaction");
+                }
+                for(int slot = 0; slot < copied; slot++){
+                    if(remap[slot] != DROPPED && gallery.isDeleted(slot) && !target.isDeleted(remap[slot])){
+                        long identityId = gallery.getIdentityId(slot);
+                        target.delete(identityId);
+                        records.add(EnrollmentRecord.deletion(identityId, millis));
+                    }
+                }
+                int size = gallery.size();
+                remap = Arrays.copyOf(remap, size);
+                copy(gallery, target, copied, size, remap, records, millis);
+                snapshot.append(records);
+                records.clear();
+                target.reserveIdentityIdsBelow(gallery.peekNextIdentityId());
+                live = target.size() - target.getDeletedCount();
+                reclaimedBytes = gallery.getDataBytes() - target.getDataBytes();
+                target.sync();
+                snapshot.sync();
+                commit(work);
+                gallery.retire(target);
+                committed = true;
+                installed = install(work);
+                lockedNanos = System.nanoTime() - locked;
+            }
+            // The compaction stands from here on; a snapshot that cannot be finished is only lost.
+            EnrollmentJournal written = snapshot;
+            snapshot = null;
+            if(!publish(written, snapshotTemp, snapshotFile)){
+                snapshotFile = null;
+            }
+            pruneSnapshots(snapshots);
+            if(installed){
+                TemplateGallery.deleteTree(work);
+            }
+            Result result = new Result(target, remap, snapshotFile, live, remap.length - live,
+                    reclaimedBytes, System.nanoTime() - start, lockedNanos);
+            LOG.info(result.toString());
+            return result;
+        } finally {
+            if(snapshot != null){
+                snapshot.close();
+            }
+            if(!committed){
+                target.close();
+                TemplateGallery.deleteTree(work);
+                snapshotTemp.delete();
+            }
+        }
+    }
+
+    private static boolean publish(EnrollmentJournal snapshot, File temp, File file){
+        try {
+            try {
+                snapshot.trim();
+            } finally {
+                snapshot.close();
+            }
+            if(temp.renameTo(file)){
+                return true;
+            }
+            LOG.warning("Cannot publish snapshot " + file);
+        } catch(IOException e){
+            LOG.warning("Cannot finish snapshot " + file + ": " + e);
+        }
+        temp.delete();
+        return false;
+    }
+
+    private void awaitTurn() throws IOException {
+        if(mGate != null){
+            try {
+                mGate.awaitIdle();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Compaction interrupted");
+            }
+        }
+        if(mCancelled){
+            throw new InterruptedIOException("Compaction cancelled");
+        }
+    }
+
+    private void copy(TemplateGallery from, TemplateGallery to, int start, int end, int[] remap,
+                      List<EnrollmentRecord> records, long millis) throws IOException {
+        for(int slot = start; slot < end; slot++){
+            if(from.isDeleted(slot)){
+                remap[slot] = DROPPED;
+                continue;
+            }
+            long identityId = from.getIdentityId(slot);
+            byte[] template = from.getTemplate(slot);
+            remap[slot] = to.append(identityId, template);
+            String label = mDirectory == null ? null : mDirectory.getLabel(identityId);
+            records.add(new EnrollmentRecord(identityId, label, template, 0, millis));
+        }
+    }
+
+    /**
+     * Commit point: once the marker is durable the compacted files are the gallery.
+     */
+    private static void commit(File work) throws IOException {
+        FileOutputStream marker = new FileOutputStream(new File(work, TemplateGallery.COMPACT_COMMITTED));
+        try {
+            marker.getFD().sync();
+        } finally {
+            marker.close();
+        }
+    }
+
+    /**
+     * Moves the committed files into place, data first.  Returns false if a move failed, in
+     * which case the next TemplateGallery.open() completes it.
+     */
+    private boolean install(File work){
+        for(String name : new String[]{TemplateGallery.DATA_FILE, TemplateGallery.INDEX_FILE}){
+            if(!new File(work, name).renameTo(new File(mDir, name))){
+                LOG.warning("Cannot install compacted " + name + ", left for the next start");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void pruneSnapshots(File snapshots){
+        File[] files = snapshots.listFiles();
+        if(files == null){
+            return;
+        }
+        List<Long> taken = new ArrayList<>();
+        for(File file : files){
+            String name = file.getName();
+            if(name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)){
+                try {
+                    taken.add(Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(),
+                            name.length() - SNAPSHOT_SUFFIX.length())));
+                } catch(NumberFormatException e){
+                    // Not one of ours.
+                }
+            }
+            else if(name.endsWith(TEMP_SUFFIX)){
+                // Left by a compaction that did not finish.
+                file.delete();
+            }
+        }
+        Collections.sort(taken);
+        for(int i = 0; i < taken.size() - KEEP_SNAPSHOTS; i++){
+            new File(snapshots, SNAPSHOT_PREFIX + taken.get(i) + SNAPSHOT_SUFFIX).delete();
+        }
+    }
+
+    /**
+     * Outcome of a compaction.  getRemap() maps every slot of the old gallery to its slot in the
+     * new one, or DROPPED; surviving slots keep their order.
+     */
+    public static class Result {
+        private final TemplateGallery mGallery;
+        private final int[] mRemap;
+        private final File mSnapshot;
+        private final int mLive;
+        private final int mDropped;
+        private final long mReclaimedBytes;
+        private final long mElapsedNanos;
+        private final long mLockedNanos;
+
+        Result(TemplateGallery gallery, int[] remap, File snapshot, int live, int dropped,
+               long reclaimedBytes, long elapsedNanos, long lockedNanos){
+            mGallery = gallery;
+            mRemap = remap;
+            mSnapshot = snapshot;
+            mLive = live;
+            mDropped = dropped;
+            mReclaimedBytes = reclaimedBytes;
+            mElapsedNanos = elapsedNanos;
+            mLockedNanos = lockedNanos;
+        }
+
+        public TemplateGallery getGallery(){
+            return mGallery;
+        }
+
+        public int[] getRemap(){
+            return mRemap;
+        }
+
+        /**
+         * The snapshot file, or null if it could not be written.
+         */
+        public File getSnapshot(){
+            return mSnapshot;
+        }
+
+        public int getLiveCount(){
+            return mLive;
+        }
+
+        public int getDroppedCount(){
+            return mDropped;
+        }
+
+        public long getReclaimedBytes(){
+            return mReclaimedBytes;
+        }
+
+        public long getElapsedNanos(){
+            return mElapsedNanos;
+        }
+
+        /**
+         * How long appends were blocked.
+         */
+        public long getLockedNanos(){
+            return mLockedNanos;
+        }
+
+        @Override
+        public String toString(){
+            return "Compaction{live=" + mLive + ", dropped=" + mDropped + ", reclaimedKB=" + (mReclaimedBytes >> 10)
+                    + ", elapsedMs=" + mElapsedNanos / 1000000 + ", lockedMs=" + mLockedNanos / 1000000
+                    + ", snapshot=" + (mSnapshot == null ? "none" : mSnapshot.getName()) + "}";
+        }
+    }
+}
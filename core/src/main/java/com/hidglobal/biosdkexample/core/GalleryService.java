@@ -0,0 +1,478 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * GalleryService owns the enrolled gallery and everything kept alongside it: the
+ * IdentityDirectory, the EnrollmentJournal and the BatchEnrollmentWriter that feeds them, the
+ * MinutiaeIndex, HotTier and SearchOrder that identification reads, the DuplicateDetector and
+ * the GalleryCompactor.  The app opens it at startup, closes it on the way out and otherwise
+ * only reads its getters and hands it finished enrollments.
+ *
+ * open() maps the gallery on the caller's thread.  Everything that changes which gallery is
+ * current (installing the opened one, swapping in a compacted one, close()) happens on the
+ * callback executor, which is also where the listener is called, so an app passing its main
+ * thread sees the getters change only between its own callbacks.  The getters themselves may be
+ * read from any thread.
+ *
+ * Indexing runs on a thread of its own after every change to the gallery.  Deleted and
+ * re-enrolled identities leave tombstones; once enough have piled up the gallery is compacted on
+ * the maintenance thread, writing a snapshot for backup on the way, while identification keeps
+ * searching the old one.  The hot tier, the duplicate detector and the writer then move to the
+ * new gallery.
+ */
+
+public class GalleryService {
+    private static final Logger LOG = Logger.getLogger("GalleryService");
+    static final long SHUTDOWN_SECONDS = 5;
+
+    private final File mDir;
+    private final Executor mCallbackExecutor;
+    private final IGalleryServiceListener mListener;
+    private final MatchPriorityGate mMatchGate = new MatchPriorityGate();
+    private final HotTier mHotTier = new HotTier();
+    private final ExecutorService mIndexExecutor = Executors.newSingleThreadExecutor();
+    private final SearchOrder mSearchOrder = new SearchOrder(mIndexExecutor);
+    private final ExecutorService mMaintenanceExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean mCompactionScheduled = new AtomicBoolean();
+    private final CountDownLatch mClosedLatch = new CountDownLatch(1);
+    private volatile TemplateGallery mGallery = null;
+    private volatile MinutiaeIndex mMinutiaeIndex = new MinutiaeIndex();
+    private volatile IdentityDirectory mIdentities = null;
+    private volatile BatchEnrollmentWriter mEnrollmentWriter = null;
+    private EnrollmentJournal mJournal = null;
+    private volatile GalleryCompactor mCompactor = null;
+    private volatile DuplicateDetector mDuplicateDetector = null;
+    private volatile GalleryCompactor.Result mLastCompaction = null;
+    private boolean mClosed = false;
+    private final Runnable mIndexUpdater = new Runnable() {
+        @Override
+        public void run() {
+            // A compaction replaces the gallery before its index, so reading them the other way
+            // round never updates a new index from an old gallery.
+            MinutiaeIndex index = mMinutiaeIndex;
+            TemplateGallery gallery = mGallery;
+            if(gallery != null){
+                index.update(gallery);
+            }
+        }
+    };
+    private final IDuplicateCheckListener mDuplicateCheckListener = new IDuplicateCheckListener() {
+        @Override
+        public void onDuplicateCheckComplete(final DuplicateCheck check) {
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    onChecked(check);
+                }
+            });
+        }
+    };
+    private final IBatchCommitListener mBatchCommitListener = new IBatchCommitListener() {
+        @Override
+        public void onBatchCommitted(List<EnrollmentRecord> batch) {
+            updateIndex();
+            maybeCompact();
+        }
+
+        @Override
+        public void onBatchFailed(List<EnrollmentRecord> batch, IOException e) {
+            final String msg = "Unable to store " + batch.size() + " enrollments: " + e.getMessage();
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mListener.onStorageFailed(msg);
+                }
+            });
+        }
+    };
+
+    /**
+     * Keeps the gallery in dir.  callbackExecutor runs the listener and every change of the
+     * current gallery.
+     */
+    public GalleryService(File dir, Executor callbackExecutor, IGalleryServiceListener listener){
+        mDir = dir;
+        mCallbackExecutor = callbackExecutor;
+        mListener = listener;
+    }
+
+    /**
+     * Opens the gallery, its identity directory and journal, replaying whatever a power loss left
+     * in the journal, and then installs them on the callback executor.  Blocks, so it belongs on
+     * a background thread; mapping the gallery is cheap, templates are only paged in when they
+     * are read, but the identity directory is read in full.
+     */
+    public void open(){
+        TemplateGallery gallery = null;
+        IdentityDirectory identities = null;
+        EnrollmentJournal journal = null;
+        BatchEnrollmentWriter writer = null;
+        try {
+            gallery = TemplateGallery.open(mDir);
+            LOG.info("Template gallery opened with " + gallery.size() + " enrollments");
+        } catch(IOException e){
+            LOG.log(Level.SEVERE, "Unable to open template gallery", e);
+        }
+        if(gallery != null){
+            try {
+                identities = IdentityDirectory.open(mDir);
+            } catch(IOException e){
+                // Enrollments are then stored without a journal or labels.
+                LOG.log(Level.SEVERE, "Unable to open identity directory", e);
+            }
+        }
+        if(identities != null){
+            try {
+                journal = EnrollmentJournal.open(mDir);
+                writer = new BatchEnrollmentWriter(gallery, identities, journal, mBatchCommitListener);
+                LOG.info("Enrollment journal recovered " + writer.getRecoveredCount() + " records");
+            } catch(IOException e){
+                LOG.log(Level.SEVERE, "Unable to recover enrollment journal, enrollments are synced one batch at a time", e);
+                closeJournal(journal);
+                journal = null;
+                writer = new BatchEnrollmentWriter(gallery, identities, mBatchCommitListener);
+            }
+        }
+        final TemplateGallery openedGallery = gallery;
+        final IdentityDirectory openedIdentities = identities;
+        final EnrollmentJournal openedJournal = journal;
+        final BatchEnrollmentWriter openedWriter = writer;
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                onOpened(openedGallery, openedIdentities, openedJournal, openedWriter);
+            }
+        });
+    }
+
+    private void onOpened(TemplateGallery gallery, IdentityDirectory identities, EnrollmentJournal journal,
+                          BatchEnrollmentWriter writer){
+        mGallery = gallery;
+        mIdentities = identities;
+        mJournal = journal;
+        mEnrollmentWriter = writer;
+        if(mClosed){
+            release();
+            return;
+        }
+        if(gallery != null){
+            // Indexing parses every template, so it runs in the background.  Identification
+            // searches the whole gallery until the index has caught up.
+            updateIndex();
+            mCompactor = new GalleryCompactor(mDir, identities, mMatchGate);
+            maybeCompact();
+        }
+        mListener.onGalleryOpened(gallery);
+    }
+
+    /**
+     * Checks enrollments for duplicates with matcher from now on.  Callback executor only, once
+     * the gallery is open; does nothing if it could not be opened.
+     */
+    public void startDeduplication(TemplateMatcher matcher){
+        if(mGallery != null && mDuplicateDetector == null && !mClosed){
+            mDuplicateDetector = new DuplicateDetector(matcher, mGallery, mMinutiaeIndex, mMatchGate);
+        }
+    }
+
+    /**
+     * Stores template as a new identity once the gallery has been searched for the same finger;
+     * the caller does not wait.  A duplicate is reported to the listener instead.  Callback
+     * executor only.
+     */
+    public void enroll(byte[] template){
+        TemplateGallery gallery = mGallery;
+        if(gallery == null){
+            return;
+        }
+        long identityId = gallery.nextIdentityId();
+        DuplicateDetector detector = mDuplicateDetector;
+        if(detector == null){
+            store(identityId, template);
+            return;
+        }
+        detector.check(identityId, template, mDuplicateCheckListener);
+    }
+
+    private void onChecked(DuplicateCheck check){
+        if(check.isCancelled()){
+            return;
+        }
+        if(check.isDuplicate()){
+            mListener.onDuplicateRejected(check);
+            return;
+        }
+        store(check.getIdentityId(), check.getTemplate());
+    }
+
+    private void store(long identityId, byte[] template){
+        TemplateGallery gallery = mGallery;
+        if(gallery == null){
+            return;
+        }
+        // Through the writer, so a single enrollment is journaled like a station batch.
+        EnrollmentRecord record = new EnrollmentRecord(identityId, "", template, 0, System.currentTimeMillis());
+        BatchEnrollmentWriter writer = mEnrollmentWriter;
+        if(writer != null && writer.submit(record)){
+            return;
+        }
+        try {
+            gallery.append(identityId, template);
+            updateIndex();
+        } catch(IOException e){
+            LOG.log(Level.SEVERE, "Unable to store enrollment", e);
+            mListener.onStorageFailed("Unable to store enrollment");
+        }
+    }
+
+    private void updateIndex(){
+        try {
+            mIndexExecutor.execute(mIndexUpdater);
+        } catch(RejectedExecutionException e){
+            // Shutting down.
+        }
+    }
+
+    /**
+     * Schedules a compaction if the gallery has enough tombstones and none is scheduled.  Any
+     * thread.
+     */
+    private void maybeCompact(){
+        final GalleryCompactor compactor = mCompactor;
+        final TemplateGallery gallery = mGallery;
+        if(compactor == null || gallery == null || !GalleryCompactor.isWorthwhile(gallery)
+                || !mCompactionScheduled.compareAndSet(false, true)){
+            return;
+        }
+        try {
+            mMaintenanceExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compact(compactor, gallery);
+                }
+            });
+        } catch(RejectedExecutionException e){
+            // Shutting down.
+            mCompactionScheduled.set(false);
+        }
+    }
+
+    private void compact(GalleryCompactor compactor, final TemplateGallery gallery){
+        // Runs on the maintenance executor, yielding to live verification between steps.
+        // Enrollments committed meanwhile reach the new gallery through the old one.
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+        final GalleryCompactor.Result result;
+        try {
+            result = compactor.compact(gallery);
+        } catch(IOException e){
+            LOG.warning("Gallery compaction stopped: " + e.getMessage());
+            mCompactionScheduled.set(false);
+            return;
+        }
+        // Carries the signatures over instead of parsing every template again.
+        final MinutiaeIndex index = mMinutiaeIndex.compact(result.getRemap());
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                onCompacted(gallery, result, index);
+            }
+        });
+    }
+
+    private void onCompacted(final TemplateGallery old, GalleryCompactor.Result result, MinutiaeIndex index){
+        TemplateGallery gallery = result.getGallery();
+        if(mGallery != old){
+            // Closed meanwhile.
+            closeQuietly(gallery);
+            return;
+        }
+        // Searches already under way keep the old gallery, which stays readable.
+        mGallery = gallery;
+        mMinutiaeIndex = index;
+        mHotTier.rebind(gallery);
+        DuplicateDetector detector = mDuplicateDetector;
+        if(detector != null){
+            detector.setGallery(gallery, index);
+        }
+        BatchEnrollmentWriter writer = mEnrollmentWriter;
+        if(writer != null){
+            writer.setGallery(gallery);
+        }
+        mLastCompaction = result;
+        updateIndex();
+        mMaintenanceExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                closeQuietly(old);
+            }
+        });
+        mCompactionScheduled.set(false);
+        mListener.onGalleryCompacted(result);
+    }
+
+    /**
+     * Stops deduplication and compaction and closes the gallery and its files.  Returns straight
+     * away: closing joins the writer thread and syncs the files, which happens on a thread of its
+     * own.  A gallery still being opened is closed as soon as it is.  Callback executor only.
+     */
+    public void close(){
+        mClosed = true;
+        DuplicateDetector detector = mDuplicateDetector;
+        mDuplicateDetector = null;
+        if(detector != null){
+            detector.shutdown();
+        }
+        release();
+    }
+
+    private void release(){
+        // The fields are cleared first, so nothing reaches a gallery that is being closed.
+        final BatchEnrollmentWriter writer = mEnrollmentWriter;
+        final EnrollmentJournal journal = mJournal;
+        final IdentityDirectory identities = mIdentities;
+        final TemplateGallery gallery = mGallery;
+        mEnrollmentWriter = null;
+        mJournal = null;
+        mIdentities = null;
+        mGallery = null;
+        // A compaction stops at its next step.  Not interrupted: that would close the channels of
+        // a gallery that may just have been installed.
+        GalleryCompactor compactor = mCompactor;
+        if(compactor != null){
+            compactor.cancel();
+        }
+        mMaintenanceExecutor.shutdown();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // The writer commits what is still queued and schedules index updates, so it goes
+                // first.
+                if(writer != null){
+                    writer.close();
+                }
+                // The compaction reads the gallery and reserves identity ids, so both stay open
+                // until it has stopped.
+                try {
+                    if(!mMaintenanceExecutor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)){
+                        LOG.warning("Gallery compaction still running at shutdown");
+                    }
+                } catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                closeJournal(journal);
+                if(identities != null){
+                    try {
+                        identities.close();
+                    } catch(IOException e){
+                        LOG.log(Level.SEVERE, "Unable to close identity directory", e);
+                    }
+                }
+                mIndexExecutor.shutdownNow();
+                if(gallery != null){
+                    closeQuietly(gallery);
+                }
+                mClosedLatch.countDown();
+            }
+        }, "Gallery close").start();
+    }
+
+    /**
+     * Waits for the files closed by close() to be synced and closed.
+     */
+    boolean awaitClosed(long timeout, TimeUnit unit) throws InterruptedException {
+        return mClosedLatch.await(timeout, unit);
+    }
+
+    private static void closeQuietly(TemplateGallery gallery){
+        try {
+            gallery.close();
+        } catch(IOException e){
+            LOG.log(Level.SEVERE, "Unable to close template gallery", e);
+        }
+    }
+
+    private static void closeJournal(EnrollmentJournal journal){
+        if(journal == null){
+            return;
+        }
+        try {
+            journal.close();
+        } catch(IOException e){
+            LOG.log(Level.SEVERE, "Unable to close enrollment journal", e);
+        }
+    }
+
+    public String describeIdentity(long identityId){
+        IdentityDirectory identities = mIdentities;
+        String label = identities == null ? null : identities.getLabel(identityId);
+        return label == null || label.isEmpty() ? "ID " + identityId : label + " (ID " + identityId + ")";
+    }
+
+    /**
+     * The current gallery, or null before it is open, if it could not be opened and after
+     * close().
+     */
+    public TemplateGallery getGallery(){
+        return mGallery;
+    }
+
+    /**
+     * The index of the current gallery.  It may still be catching up: compare its size with the
+     * gallery's.
+     */
+    public MinutiaeIndex getMinutiaeIndex(){
+        return mMinutiaeIndex;
+    }
+
+    public HotTier getHotTier(){
+        return mHotTier;
+    }
+
+    public SearchOrder getSearchOrder(){
+        return mSearchOrder;
+    }
+
+    public DuplicateDetector getDuplicateDetector(){
+        return mDuplicateDetector;
+    }
+
+    public MatchPriorityGate getMatchGate(){
+        return mMatchGate;
+    }
+
+    public BatchEnrollmentWriter getEnrollmentWriter(){
+        return mEnrollmentWriter;
+    }
+
+    public GalleryCompactor.Result getLastCompaction(){
+        return mLastCompaction;
+    }
+}
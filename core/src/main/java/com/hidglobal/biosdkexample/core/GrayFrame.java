@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * GrayFrame is a reusable 8-bit grayscale image buffer.  Fingerprint captures are grayscale, so
+ * keeping them as one byte per pixel instead of a 32-bit ARGB bitmap quarters their size, and
+ * any processing (scaling, statistics) works on the bytes directly.
+ *
+ * The backing array only grows; once a frame has held the largest image it will see, filling or
+ * scaling into it allocates nothing.  Not thread safe.
+ */
+
+public class GrayFrame {
+    private byte[] mPixels = new byte[0];
+    private int mWidth;
+    private int mHeight;
+    // Per column source ranges for scaleInto(), reused between calls
+    private int[] mColumnStart = new int[0];
+    private int[] mColumnEnd = new int[0];
+    private int[] mRowSums = new int[0];
+
+    public int getWidth(){
+        return mWidth;
+    }
+
+    public int getHeight(){
+        return mHeight;
+    }
+
+    /**
+     * The pixels, row major, width * height of them valid.
+     */
+    public byte[] getPixels(){
+        return mPixels;
+    }
+
+    private void resize(int width, int height){
+        if(width < 0 || height < 0){
+            throw new IllegalArgumentException("Bad size " + width + "x" + height);
+        }
+        if(mPixels.length < width * height){
+            mPixels = new byte[width * height];
+        }
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * Fills the frame from ARGB pixels, keeping the green channel, which is the gray level of a
+     * gray pixel and the largest contributor to luminance otherwise.
+     */
+    public void setArgb(int[] argb, int width, int height){
+        resize(width, height);
+        int count = width * height;
+        byte[] pixels = mPixels;
+        for(int i = 0; i < count; i++){
+            pixels[i] = (byte) (argb[i] >> 8);
+        }
+    }
+
+    /**
+     * Writes the frame out as opaque gray ARGB pixels.
+     */
+    public void getArgb(int[] argb){
+        int count = mWidth * mHeight;
+        byte[] pixels = mPixels;
+        for(int i = 0; i < count; i++){
+            int gray = pixels[i] & 0xFF;
+            argb[i] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+        }
+    }
+
+    /**
+     * Scales this frame into dst at width x height by averaging every source pixel that falls in
+     * each destination pixel.  Meant for shrinking; enlarging repeats pixels.
+     */
+    public void scaleInto(GrayFrame dst, int width, int height){
+        if(dst == this){
+            throw new IllegalArgumentException("Cannot scale in place");
+        }
+        dst.resize(width, height);
+        if(width == 0 || height == 0 || mWidth == 0 || mHeight == 0){
+            return;
+        }
+        if(mColumnStart.length < width){
+            mColumnStart = new int[width];
+            mColumnEnd = new int[width];
+            mRowSums = new int[width];
+        }
+        for(int x = 0; x < width; x++){
+            mColumnStart[x] = x * mWidth / width;
+            mColumnEnd[x] = Math.max(mColumnStart[x] + 1, (x + 1) * mWidth / width);
+        }
+        byte[] src = mPixels;
+        byte[] out = dst.mPixels;
+        int[] sums = mRowSums;
+        for(int y = 0; y < height; y++){
+            int rowStart = y * mHeight / height;
+            int rowEnd = Math.max(rowStart + 1, (y + 1) * mHeight / height);
+            for(int x = 0; x < width; x++){
+                sums[x] = 0;
+            }
+            for(int sy = rowStart; sy < rowEnd; sy++){
+                int offset = sy * mWidth;
+                for(int x = 0; x < width; x++){
+                    int sum = 0;
+                    for(int sx = mColumnStart[x]; sx < mColumnEnd[x]; sx++){
+                        sum += src[offset + sx] & 0xFF;
+                    }
+                    sums[x] += sum;
+                }
+            }
+            int rows = rowEnd - rowStart;
+            int offset = y * width;
+            for(int x = 0; x < width; x++){
+                out[offset + x] = (byte) (sums[x] / (rows * (mColumnEnd[x] - mColumnStart[x])));
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HotTier keeps the templates of the identities that match most often in memory and searches
+ * them before the TemplateGallery.  At a site where most identifications are daily regulars a hit
+ * in the hot tier costs a handful of comparisons instead of a scan of the whole gallery; only a
+ * miss falls through to the cold search, which skips the slots the hot tier already compared.
+ *
+ * Admission follows TinyLFU: every match is counted in a FrequencySketch, and once the tier is
+ * full an identity only displaces the least frequent resident if it has matched more often
+ * recently.  A visitor seen once therefore cannot push out a regular.  Residents are searched in
+ * order of their estimated frequency.
+ *
+ * identify() may run concurrently with itself; it reads an immutable snapshot of the tier, which
+ * is republished after every recorded match.  Residents are kept by slot of one gallery; once a
+ * GalleryCompactor replaces it, rebind() resolves them again in the new one.  Until then searches
+ * of the new gallery skip the hot tier and matches in the old one are not counted.
+ */
+
+public class HotTier {
+    public static final int DEFAULT_CAPACITY = 128;
+
+    private final int mCapacity;
+    private final FrequencySketch mSketch;
+    // Residents in descending order of estimated frequency.  Guarded by this.
+    private final long[] mIdentityIds;
+    private final int[] mSlots;
+    private final byte[][] mTemplates;
+    private final int[] mFrequencies;
+    private int mSize;
+    private TemplateGallery mGallery;
+    private static final Snapshot EMPTY = new Snapshot(null, new int[0], new byte[0][], 0);
+    private volatile Snapshot mSnapshot = EMPTY;
+
+    private final AtomicLong mIdentifications = new AtomicLong();
+    private final AtomicLong mHotHits = new AtomicLong();
+    private final AtomicLong mColdHits = new AtomicLong();
+    private final AtomicLong mComparisons = new AtomicLong();
+    private long mAdmissions;
+    private long mEvictions;
+    private long mRejections;
+
+    public HotTier(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HotTier(int capacity){
+        if(capacity < 1){
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+        mCapacity = capacity;
+        mSketch = new FrequencySketch(capacity);
+        mIdentityIds = new long[capacity];
+        mSlots = new int[capacity];
+        mTemplates = new byte[capacity][];
+        mFrequencies = new int[capacity];
+    }
+
+    private static final class Snapshot {
+        final TemplateGallery mGallery;
+        final int[] mSlots;
+        final byte[][] mTemplates;
+        // mSlots in ascending order, for excluding residents from the cold search.
+        final int[] mSortedSlots;
+        final long mTemplateBytes;
+
+        Snapshot(TemplateGallery gallery, int[] slots, byte[][] templates, long templateBytes){
+            mGallery = gallery;
+            mSlots = slots;
+            mTemplates = templates;
+            mSortedSlots = slots.clone();
+            Arrays.sort(mSortedSlots);
+            mTemplateBytes = templateBytes;
+        }
+    }
+
+    /**
+     * Searches the hot tier and, if it has no match, the gallery.  coldCandidates restricts the
+     * gallery search as for ParallelMatcher.identify(); null searches every slot.  The result
+     * covers both searches.  A match found in either tier is counted towards admission.
+     */
+    public IdentificationResult identify(ParallelMatcher parallelMatcher, TemplateMatcher matcher,
+                                         byte[] probe, TemplateGallery gallery, int[] coldCandidates){
+        int cancels = parallelMatcher.getCancelCount();
+        Snapshot hot = mSnapshot;
+        if(hot.mGallery != gallery){
+            hot = EMPTY;
+        }
+        IdentificationResult hotResult = null;
+        if(hot.mSlots.length > 0){
+            hotResult = parallelMatcher.identify(matcher, probe, gallery, hot.mSlots, hot.mTemplates);
+            if(hotResult.isMatch()){
+                mHotHits.incrementAndGet();
+                return finish(hotResult, gallery);
+            }
+            if(parallelMatcher.getCancelCount() != cancels){
+                return finish(hotResult, gallery);
+            }
+        }
+        IdentificationResult coldResult;
+        if(hot.mSlots.length == 0){
+            coldResult = parallelMatcher.identify(matcher, probe, gallery, coldCandidates);
+        }
+        else {
+            coldResult = parallelMatcher.identify(matcher, probe, gallery,
+                    exclude(coldCandidates, hot.mSortedSlots));
+        }
+        if(coldResult.isMatch()){
+            mColdHits.incrementAndGet();
+        }
+        return finish(IdentificationResult.combine(hotResult, coldResult), gallery);
+    }
+
+    private IdentificationResult finish(IdentificationResult result, TemplateGallery gallery){
+        mIdentifications.incrementAndGet();
+        mComparisons.addAndGet(result.getComparisons());
+        if(result.isMatch()){
+            recordMatch(result.getIdentityId(), result.getSlot(), gallery);
+        }
+        return result;
+    }
+
+    /**
+     * The candidates without the residents the hot tier has already compared.  A full search
+     * (null candidates) keeps them: comparing a few residents again is cheaper than listing every
+     * other slot of a large gallery.
+     */
+    private static int[] exclude(int[] candidates, int[] sortedResidents){
+        if(candidates == null){
+            return null;
+        }
+        int[] remaining = new int[candidates.length];
+        int count = 0;
+        for(int slot : candidates){
+            if(Arrays.binarySearch(sortedResidents, slot) < 0){
+                remaining[count++] = slot;
+            }
+        }
+        return count == remaining.length ? candidates : Arrays.copyOf(remaining, count);
+    }
+
+    /**
+     * Counts a match of identityId, found in gallery slot, and admits its template if the
+     * identity now matches more often than the least frequent resident.
+     */
+    public synchronized void recordMatch(long identityId, int slot, TemplateGallery gallery){
+        if(gallery.getSuccessor() != null){
+            // Found in a gallery that has been compacted since; its slots no longer apply.
+            return;
+        }
+        if(gallery != mGallery){
+            rebindLocked(gallery);
+            publish();
+        }
+        int resident = indexOf(identityId);
+        if(resident >= 0){
+            if(mSlots[resident] != slot){
+                // Re-enrolled: the old slot is a tombstone now, which searches skip.
+                mSlots[resident] = slot;
+                mTemplates[resident] = gallery.getTemplate(slot);
+            }
+            count(identityId);
+            publish();
+            return;
+        }
+        mSketch.increment(identityId);
+        int frequency = mSketch.frequency(identityId);
+        int position = mSize;
+        if(mSize == mCapacity){
+            position = mSize - 1;
+            if(frequency <= mSketch.frequency(mIdentityIds[position])){
+                mRejections++;
+                return;
+            }
+            mEvictions++;
+        }
+        else {
+            mSize++;
+        }
+        mIdentityIds[position] = identityId;
+        mSlots[position] = slot;
+        mTemplates[position] = gallery.getTemplate(slot);
+        mFrequencies[position] = frequency;
+        mAdmissions++;
+        sort();
+        publish();
+    }
+
+    /**
+     * Moves the residents to the slots their identities now have in gallery, dropping those it
+     * no longer holds.  Frequencies are kept.
+     */
+    public synchronized void rebind(TemplateGallery gallery){
+        if(gallery != mGallery){
+            rebindLocked(gallery);
+            publish();
+        }
+    }
+
+    private void rebindLocked(TemplateGallery gallery){
+        int size = 0;
+        for(int i = 0; i < mSize; i++){
+            int slot = gallery.findSlot(mIdentityIds[i]);
+            if(slot == LongIntHashMap.NO_VALUE){
+                continue;
+            }
+            mIdentityIds[size] = mIdentityIds[i];
+            mSlots[size] = slot;
+            mTemplates[size] = gallery.getTemplate(slot);
+            mFrequencies[size] = mFrequencies[i];
+            size++;
+        }
+        Arrays.fill(mTemplates, size, mSize, null);
+        mSize = size;
+        mGallery = gallery;
+    }
+
+    private int indexOf(long identityId){
+        for(int i = 0; i < mSize; i++){
+            if(mIdentityIds[i] == identityId){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void count(long identityId){
+        mSketch.increment(identityId);
+        sort();
+    }
+
+    /**
+     * Refreshes the estimates, which aging lowers for everybody, and restores descending order.
+     * Residents are nearly sorted already, so insertion sort is linear in practice.
+     */
+    private void sort(){
+        for(int i = 0; i < mSize; i++){
+            mFrequencies[i] = mSketch.frequency(mIdentityIds[i]);
+        }
+        for(int i = 1; i < mSize; i++){
+            long identityId = mIdentityIds[i];
+            int slot = mSlots[i];
+            byte[] template = mTemplates[i];
+            int frequency = mFrequencies[i];
+            int j = i - 1;
+            while(j >= 0 && mFrequencies[j] < frequency){
+                mIdentityIds[j + 1] = mIdentityIds[j];
+                mSlots[j + 1] = mSlots[j];
+                mTemplates[j + 1] = mTemplates[j];
+                mFrequencies[j + 1] = mFrequencies[j];
+                j--;
+            }
+            mIdentityIds[j + 1] = identityId;
+            mSlots[j + 1] = slot;
+            mTemplates[j + 1] = template;
+            mFrequencies[j + 1] = frequency;
+        }
+    }
+
+    private void publish(){
+        long bytes = 0;
+        for(int i = 0; i < mSize; i++){
+            bytes += mTemplates[i].length;
+        }
+        mSnapshot = new Snapshot(mGallery, Arrays.copyOf(mSlots, mSize), Arrays.copyOf(mTemplates, mSize), bytes);
+    }
+
+    /**
+     * Empties the tier and forgets all frequencies, e.g. when the gallery is replaced.
+     */
+    public synchronized void clear(){
+        Arrays.fill(mTemplates, null);
+        mSize = 0;
+        mSketch.clear();
+        publish();
+    }
+
+    public int getCapacity(){
+        return mCapacity;
+    }
+
+    public int size(){
+        return mSnapshot.mSlots.length;
+    }
+
+    public long getIdentifications(){
+        return mIdentifications.get();
+    }
+
+    public long getHotHits(){
+        return mHotHits.get();
+    }
+
+    public long getColdHits(){
+        return mColdHits.get();
+    }
+
+    /**
+     * Share of identifications answered by the hot tier.
+     */
+    public double getHitRatio(){
+        long identifications = mIdentifications.get();
+        return identifications == 0 ? 0 : (double) mHotHits.get() / identifications;
+    }
+
+    /**
+     * Templates compared per identification, over both tiers.
+     */
+    public double getAverageComparisons(){
+        long identifications = mIdentifications.get();
+        return identifications == 0 ? 0 : (double) mComparisons.get() / identifications;
+    }
+
+    /**
+     * Heap bytes held by the resident templates and the frequency sketch.
+     */
+    public long getHotBytes(){
+        return mSnapshot.mTemplateBytes + mSketch.getFootprintBytes();
+    }
+
+    public synchronized String summary(TemplateGallery gallery){
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US,
+                "Hot tier: %d/%d residents, %d KB heap, hit ratio %.2f (%d hot, %d cold of %d), %.1f compared per search",
+                mSnapshot.mSlots.length, mCapacity, getHotBytes() >> 10, getHitRatio(), mHotHits.get(),
+                mColdHits.get(), mIdentifications.get(), getAverageComparisons()));
+        sb.append("\n  admitted ").append(mAdmissions).append(", evicted ").append(mEvictions)
+                .append(", rejected ").append(mRejections);
+        if(gallery != null){
+            sb.append("\nCold tier: ").append(gallery.size()).append(" templates, ")
+                    .append(gallery.getDataBytes() >> 10).append(" KB mapped, ")
+                    .append(gallery.getSlotMapBytes() >> 10).append(" KB identity map");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString(){
+        return summary(null);
+    }
+}
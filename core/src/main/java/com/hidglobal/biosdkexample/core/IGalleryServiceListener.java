@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * Told about the GalleryService's lifecycle and about enrollments it could not store.  Called
+ * through the service's callback executor.
+ */
+
+public interface IGalleryServiceListener {
+    /**
+     * The gallery is open and searchable, or could not be opened, in which case gallery is null.
+     */
+    void onGalleryOpened(TemplateGallery gallery);
+
+    /**
+     * result's gallery and a compacted MinutiaeIndex have replaced the previous ones.
+     */
+    void onGalleryCompacted(GalleryCompactor.Result result);
+
+    /**
+     * The enrollment was not stored because the finger is already enrolled.
+     */
+    void onDuplicateRejected(DuplicateCheck check);
+
+    void onStorageFailed(String msg);
+}
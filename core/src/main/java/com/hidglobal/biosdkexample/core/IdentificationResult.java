@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * IdentificationResult is the outcome of a 1:N search against the TemplateGallery: the gallery
+ * slot and identity that matched (if any) plus the work it took to get there.
+ */
+
+public class IdentificationResult {
+    public static final int NO_MATCH = -1;
+
+    private final int mSlot;
+    private final long mIdentityId;
+    private final int mComparisons;
+    private final int mBatches;
+    private final int mBatchSize;
+    private final long mElapsedNanos;
+    private final long mMinBatchNanos;
+    private final long mMaxBatchNanos;
+
+    public IdentificationResult(int slot, long identityId, int comparisons, int batches,
+                                int batchSize, long elapsedNanos, long minBatchNanos,
+                                long maxBatchNanos){
+        mSlot = slot;
+        mIdentityId = identityId;
+        mComparisons = comparisons;
+        mBatches = batches;
+        mBatchSize = batchSize;
+        mElapsedNanos = elapsedNanos;
+        mMinBatchNanos = minBatchNanos;
+        mMaxBatchNanos = maxBatchNanos;
+    }
+
+    /**
+     * One result for a search that ran as first and then, since it found nothing, as second.
+     */
+    public static IdentificationResult combine(IdentificationResult first, IdentificationResult second){
+        if(first == null){
+            return second;
+        }
+        long minBatch;
+        if(first.getBatches() == 0){
+            minBatch = second.getMinBatchNanos();
+        }
+        else if(second.getBatches() == 0){
+            minBatch = first.getMinBatchNanos();
+        }
+        else {
+            minBatch = Math.min(first.getMinBatchNanos(), second.getMinBatchNanos());
+        }
+        return new IdentificationResult(second.getSlot(), second.getIdentityId(),
+                first.getComparisons() + second.getComparisons(), first.getBatches() + second.getBatches(),
+                second.getBatchSize(), first.getElapsedNanos() + second.getElapsedNanos(), minBatch,
+                Math.max(first.getMaxBatchNanos(), second.getMaxBatchNanos()));
+    }
+
+    public boolean isMatch(){
+        return mSlot != NO_MATCH;
+    }
+
+    public int getSlot(){
+        return mSlot;
+    }
+
+    public long getIdentityId(){
+        return mIdentityId;
+    }
+
+    public int getComparisons(){
+        return mComparisons;
+    }
+
+    public int getBatches(){
+        return mBatches;
+    }
+
+    public int getBatchSize(){
+        return mBatchSize;
+    }
+
+    public long getElapsedNanos(){
+        return mElapsedNanos;
+    }
+
+    public long getMinBatchNanos(){
+        return mMinBatchNanos;
+    }
+
+    public long getMaxBatchNanos(){
+        return mMaxBatchNanos;
+    }
+
+    public long getAverageBatchNanos(){
+        return mBatches == 0 ? 0 : mElapsedNanos / mBatches;
+    }
+
+    @Override
+    public String toString(){
+        return "IdentificationResult{slot=" + mSlot + ", identityId=" + mIdentityId
+                + ", comparisons=" + mComparisons + ", batches=" + mBatches
+                + ", batchSize=" + mBatchSize + ", elapsedMs=" + mElapsedNanos / 1000000
+                + ", batchMs(min/avg/max)=" + mMinBatchNanos / 1000000 + "/"
+                + getAverageBatchNanos() / 1000000 + "/" + mMaxBatchNanos / 1000000 + "}";
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * IdentityDirectory keeps the metadata that goes with the templates in a TemplateGallery: who an
+ * identity id belongs to and when it was enrolled.  It is an append-only UTF-8 text file next to
+ * the gallery files, one tab separated line per enrollment:
+ *
+ *   identityId  enrolledAtMillis  padResult  label
+ *
+ * A deletion is a line with "deleted" in place of the PAD result and an empty label.
+ *
+ * The whole file is loaded into memory on open; it is small next to the templates.  Appends are
+ * serialized and only durable after sync(); lookups may run concurrently from any thread.
+ */
+
+public class IdentityDirectory implements Closeable {
+    static final String DIRECTORY_FILE = "identities.txt";
+    private static final String CHARSET = "UTF-8";
+    private static final String DELETED = "deleted";
+
+    private final ConcurrentMap<Long, String> mLabels = new ConcurrentHashMap<>();
+    private final FileOutputStream mOut;
+    private boolean mClosed = false;
+
+    private IdentityDirectory(FileOutputStream out){
+        mOut = out;
+    }
+
+    /**
+     * Opens the directory stored in dir, creating an empty one if none exists yet.
+     */
+    public static IdentityDirectory open(File dir) throws IOException {
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            throw new IOException("Cannot create directory " + dir);
+        }
+        File file = new File(dir, DIRECTORY_FILE);
+        IdentityDirectory directory = new IdentityDirectory(new FileOutputStream(file, true));
+        try {
+            directory.load(file);
+        } catch(IOException e){
+            directory.close();
+            throw e;
+        }
+        return directory;
+    }
+
+    private void load(File file) throws IOException {
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+        } catch(FileNotFoundException e){
+            return;
+        }
+        try {
+            String line;
+            while((line = reader.readLine()) != null){
+                String[] fields = line.split("\t", 4);
+                if(fields.length < 4){
+                    // A torn last line from a crash before sync; the template was not committed either.
+                    continue;
+                }
+                try {
+                    long identityId = Long.parseLong(fields[0]);
+                    if(DELETED.equals(fields[2])){
+                        mLabels.remove(identityId);
+                    }
+                    else {
+                        mLabels.put(identityId, fields[3]);
+                    }
+                } catch(NumberFormatException e){
+                    // Skip the damaged line.
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Appends the records, enrollments and deletions, in one write.  Call sync() to make them
+     * durable.
+     */
+    public synchronized void append(List<EnrollmentRecord> records) throws IOException {
+        if(mClosed){
+            throw new IOException("Identity directory is closed");
+        }
+        StringBuilder sb = new StringBuilder();
+        for(EnrollmentRecord record : records){
+            sb.append(record.getIdentityId()).append('\t')
+                    .append(record.getEnrolledAtMillis()).append('\t');
+            if(record.isDeletion()){
+                sb.append(DELETED).append("\t\n");
+            }
+            else {
+                sb.append(record.getPADResult()).append('\t')
+                        .append(clean(record.getLabel())).append('\n');
+            }
+        }
+        mOut.write(sb.toString().getBytes(CHARSET));
+        for(EnrollmentRecord record : records){
+            if(record.isDeletion()){
+                mLabels.remove(record.getIdentityId());
+            }
+            else {
+                mLabels.put(record.getIdentityId(), clean(record.getLabel()));
+            }
+        }
+    }
+
+    private static String clean(String label){
+        return label == null ? "" : label.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    public synchronized void sync() throws IOException {
+        if(!mClosed){
+            mOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Label of identityId, or null if it has none.
+     */
+    public String getLabel(long identityId){
+        return mLabels.get(identityId);
+    }
+
+    public int size(){
+        return mLabels.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(mClosed){
+            return;
+        }
+        mClosed = true;
+        mOut.close();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.Arrays;
+
+/**
+ * LongIntHashMap maps long keys to non-negative int values without boxing.  Keys and values live
+ * in two parallel arrays addressed by open addressing with linear probing, so a map of a hundred
+ * thousand identities is two arrays rather than a hundred thousand entry objects.  Removal shifts
+ * the following run back, so no tombstones accumulate.
+ *
+ * Not thread safe.
+ */
+
+public class LongIntHashMap {
+    public static final int NO_VALUE = -1;
+    private static final long EMPTY_KEY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] mKeys;
+    private int[] mValues;
+    private int mMask;
+    private int mSize;
+    private int mResizeAt;
+    // EMPTY_KEY marks free cells, so a mapping for key 0 is kept aside.
+    private int mZeroValue = NO_VALUE;
+
+    public LongIntHashMap(){
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize){
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize){
+        int capacity = MIN_CAPACITY;
+        // Keep the load factor at or below 1/2 so probe runs stay short.
+        while(capacity < 2L * expectedSize){
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity){
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        mMask = capacity - 1;
+        mResizeAt = capacity >>> 1;
+    }
+
+    private static int hash(long key){
+        // Finalizer of MurmurHash3: sequential identity ids must not cluster.
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Returns the value mapped to key, or NO_VALUE.
+     */
+    public int get(long key){
+        if(key == EMPTY_KEY){
+            return mZeroValue;
+        }
+        long[] keys = mKeys;
+        for(int i = hash(key) & mMask; ; i = (i + 1) & mMask){
+            long k = keys[i];
+            if(k == key){
+                return mValues[i];
+            }
+            if(k == EMPTY_KEY){
+                return NO_VALUE;
+            }
+        }
+    }
+
+    public boolean containsKey(long key){
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Maps key to value and returns the previous value, or NO_VALUE.
+     */
+    public int put(long key, int value){
+        if(value < 0){
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+        if(key == EMPTY_KEY){
+            int previous = mZeroValue;
+            if(previous == NO_VALUE){
+                mSize++;
+            }
+            mZeroValue = value;
+            return previous;
+        }
+        for(int i = hash(key) & mMask; ; i = (i + 1) & mMask){
+            long k = mKeys[i];
+            if(k == key){
+                int previous = mValues[i];
+                mValues[i] = value;
+                return previous;
+            }
+            if(k == EMPTY_KEY){
+                mKeys[i] = key;
+                mValues[i] = value;
+                if(++mSize > mResizeAt){
+                    rehash(mKeys.length << 1);
+                }
+                return NO_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for key and returns its value, or NO_VALUE.
+     */
+    public int remove(long key){
+        if(key == EMPTY_KEY){
+            int previous = mZeroValue;
+            if(previous != NO_VALUE){
+                mZeroValue = NO_VALUE;
+                mSize--;
+            }
+            return previous;
+        }
+        int i = hash(key) & mMask;
+        while(mKeys[i] != key){
+            if(mKeys[i] == EMPTY_KEY){
+                return NO_VALUE;
+            }
+            i = (i + 1) & mMask;
+        }
+        int previous = mValues[i];
+        mSize--;
+        // Shift later members of the run back into the hole unless that would move them before
+        // their home cell.
+        int hole = i;
+        for(int j = (hole + 1) & mMask; mKeys[j] != EMPTY_KEY; j = (j + 1) & mMask){
+            int home = hash(mKeys[j]) & mMask;
+            if(((j - home) & mMask) >= ((j - hole) & mMask)){
+                mKeys[hole] = mKeys[j];
+                mValues[hole] = mValues[j];
+                hole = j;
+            }
+        }
+        mKeys[hole] = EMPTY_KEY;
+        mValues[hole] = 0;
+        return previous;
+    }
+
+    private void rehash(int capacity){
+        long[] keys = mKeys;
+        int[] values = mValues;
+        allocate(capacity);
+        for(int i = 0; i < keys.length; i++){
+            long key = keys[i];
+            if(key == EMPTY_KEY){
+                continue;
+            }
+            int j = hash(key) & mMask;
+            while(mKeys[j] != EMPTY_KEY){
+                j = (j + 1) & mMask;
+            }
+            mKeys[j] = key;
+            mValues[j] = values[i];
+        }
+    }
+
+    public int size(){
+        return mSize;
+    }
+
+    public void clear(){
+        Arrays.fill(mKeys, EMPTY_KEY);
+        mZeroValue = NO_VALUE;
+        mSize = 0;
+    }
+
+    /**
+     * Bytes held by the backing arrays.
+     */
+    public long getFootprintBytes(){
+        return mKeys.length * 8L + mValues.length * 4L;
+    }
+}
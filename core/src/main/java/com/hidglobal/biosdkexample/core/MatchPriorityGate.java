@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * MatchPriorityGate lets live verifications and background searches share one matcher without
+ * the background work adding to a user's wait.  Live work brackets itself with enterLive() and
+ * exitLive(); background matchers call awaitIdle() before every comparison and hold off while any
+ * live work is pending.  A background comparison already running is not interrupted, so live work
+ * waits at most one comparison.
+ */
+
+public class MatchPriorityGate {
+    private int mLive = 0;
+
+    public synchronized void enterLive(){
+        mLive++;
+    }
+
+    public synchronized void exitLive(){
+        if(mLive > 0 && --mLive == 0){
+            notifyAll();
+        }
+    }
+
+    public synchronized boolean isLive(){
+        return mLive > 0;
+    }
+
+    /**
+     * Blocks while live work is pending.
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while(mLive > 0){
+            wait();
+        }
+    }
+}
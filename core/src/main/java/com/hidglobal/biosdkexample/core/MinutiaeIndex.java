@@ -0,0 +1,312 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * MinutiaeIndex is a coarse prefilter over the TemplateGallery.  For every slot it keeps the
+ * minutiae count and a 128 bit geometric signature of the minutiae nearest the centre of the
+ * print, both in primitive arrays.  shortlist() ranks the whole gallery against a probe with a
+ * few bit operations per slot so the best candidates go to the expensive device match first.
+ * The prefilter is coarse and can miss a poor impression of an enrolled finger, so a search that
+ * finds nothing on the shortlist goes on through remaining() before it reports no match.
+ *
+ * The signature hashes every pair of central minutiae by their distance and by the direction of
+ * each minutia relative to the line joining them.  Those values do not change when the finger is
+ * shifted or rotated on the sensor, so two impressions of the same finger share most bits.
+ *
+ * Slots are added in gallery order by a single writer; shortlist() may run concurrently.
+ */
+
+public class MinutiaeIndex {
+    static final int CORE_MINUTIAE = 16;
+    static final int DISTANCE_BUCKET = 16;
+    static final int DISTANCE_BUCKETS = 16;
+    static final int ANGLE_BUCKETS = 8;
+    public static final int MIN_SHORTLIST = 64;
+    public static final int SHORTLIST_DIVISOR = 10;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile int[] mCounts = new int[INITIAL_CAPACITY];
+    private volatile long[] mSignatures = new long[2 * INITIAL_CAPACITY];
+    private volatile int mSize = 0;
+
+    // Scratch space for signature extraction by the writer.
+    private final Scratch mScratch = new Scratch();
+
+    public int size(){
+        return mSize;
+    }
+
+    /**
+     * Suggested shortlist length for a gallery of the given size.
+     */
+    public static int defaultShortlistSize(int gallerySize){
+        return Math.min(gallerySize, Math.max(MIN_SHORTLIST, gallerySize / SHORTLIST_DIVISOR));
+    }
+
+    /**
+     * The slots of a gallery of gallerySize slots that are not in searched, in the order given by
+     * order or in gallery order if it is null.
+     */
+    public static int[] remaining(int[] searched, int[] order, int gallerySize){
+        BitSet skip = new BitSet(gallerySize);
+        for(int slot : searched){
+            skip.set(slot);
+        }
+        int[] remaining = new int[gallerySize - skip.cardinality()];
+        int count = 0;
+        if(order != null){
+            for(int slot : order){
+                if(slot < gallerySize && !skip.get(slot)){
+                    remaining[count++] = slot;
+                }
+            }
+        }
+        else {
+            for(int slot = skip.nextClearBit(0); slot < gallerySize; slot = skip.nextClearBit(slot + 1)){
+                remaining[count++] = slot;
+            }
+        }
+        return count == remaining.length ? remaining : Arrays.copyOf(remaining, count);
+    }
+
+    /**
+     * Indexes every gallery slot that is not indexed yet.
+     */
+    public synchronized void update(TemplateGallery gallery){
+        int count = gallery.size();
+        for(int slot = mSize; slot < count; slot++){
+            add(gallery.getTemplateBuffer(slot));
+        }
+    }
+
+    /**
+     * Returns an index for the gallery a GalleryCompactor built with remap.  Surviving slots keep
+     * their order, so their signatures are carried over instead of parsing the templates again;
+     * anything past what this index covered is left for update().
+     */
+    public synchronized MinutiaeIndex compact(int[] remap){
+        MinutiaeIndex compacted = new MinutiaeIndex();
+        int covered = Math.min(mSize, remap.length);
+        int[] counts = new int[Math.max(INITIAL_CAPACITY, covered)];
+        long[] signatures = new long[2 * counts.length];
+        int size = 0;
+        for(int slot = 0; slot < covered; slot++){
+            if(remap[slot] == GalleryCompactor.DROPPED){
+                continue;
+            }
+            counts[size] = mCounts[slot];
+            signatures[2 * size] = mSignatures[2 * slot];
+            signatures[2 * size + 1] = mSignatures[2 * slot + 1];
+            size++;
+        }
+        compacted.mCounts = counts;
+        compacted.mSignatures = signatures;
+        compacted.mSize = size;
+        return compacted;
+    }
+
+    private void add(ByteBuffer template){
+        int slot = mSize;
+        if(slot == mCounts.length){
+            mCounts = Arrays.copyOf(mCounts, 2 * slot);
+            mSignatures = Arrays.copyOf(mSignatures, 4 * slot);
+        }
+        Ansi378Template parsed = Ansi378Template.parse(template);
+        long[] signatures = mSignatures;
+        if(parsed == null || parsed.getViewCount() == 0){
+            // Unparseable templates never make a shortlist.
+            mCounts[slot] = 0;
+            signatures[2 * slot] = 0;
+            signatures[2 * slot + 1] = 0;
+        }
+        else {
+            mCounts[slot] = parsed.getMinutiaeCount(0);
+            computeSignature(parsed, mScratch, signatures, 2 * slot);
+        }
+        mSize = slot + 1;
+    }
+
+    /**
+     * Returns up to maxCandidates gallery slots ranked by similarity to probe, best first.
+     */
+    public int[] shortlist(byte[] probe, int maxCandidates){
+        Ansi378Template parsed = Ansi378Template.parse(probe);
+        if(parsed == null || parsed.getViewCount() == 0 || maxCandidates <= 0){
+            return new int[0];
+        }
+        long[] probeSignature = signature(parsed);
+        long p0 = probeSignature[0];
+        long p1 = probeSignature[1];
+        int probeCount = parsed.getMinutiaeCount(0);
+        int probeBits = Long.bitCount(p0) + Long.bitCount(p1);
+        if(probeBits == 0){
+            return new int[0];
+        }
+        // Read the size before the arrays: arrays are swapped before the size is bumped.
+        int size = mSize;
+        int[] counts = mCounts;
+        long[] signatures = mSignatures;
+
+        // Min-heap of (score << 32 | slot) holding the best candidates seen so far.
+        long[] heap = new long[Math.min(maxCandidates, size)];
+        int heapSize = 0;
+        for(int slot = 0; slot < size; slot++){
+            int count = counts[slot];
+            // Impressions of the same finger rarely differ by more than a factor of two.
+            if(count == 0 || 2 * count < probeCount || count > 2 * probeCount){
+                continue;
+            }
+            long g0 = signatures[2 * slot];
+            long g1 = signatures[2 * slot + 1];
+            int common = Long.bitCount(p0 & g0) + Long.bitCount(p1 & g1);
+            if(common == 0){
+                continue;
+            }
+            int score = (common << 16) / (probeBits + Long.bitCount(g0) + Long.bitCount(g1));
+            long entry = ((long) score << 32) | slot;
+            if(heapSize < heap.length){
+                heap[heapSize] = entry;
+                siftUp(heap, heapSize++);
+            }
+            else if(heap.length > 0 && entry > heap[0]){
+                heap[0] = entry;
+                siftDown(heap, heapSize);
+            }
+        }
+        long[] ranked = Arrays.copyOf(heap, heapSize);
+        Arrays.sort(ranked);
+        int[] result = new int[heapSize];
+        for(int i = 0; i < heapSize; i++){
+            result[i] = (int) ranked[heapSize - 1 - i];
+        }
+        return result;
+    }
+
+    private static void siftUp(long[] heap, int i){
+        while(i > 0){
+            int parent = (i - 1) >>> 1;
+            if(heap[parent] <= heap[i]){
+                return;
+            }
+            long tmp = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = tmp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size){
+        int i = 0;
+        while(true){
+            int child = 2 * i + 1;
+            if(child >= size){
+                return;
+            }
+            if(child + 1 < size && heap[child + 1] < heap[child]){
+                child++;
+            }
+            if(heap[i] <= heap[child]){
+                return;
+            }
+            long tmp = heap[child];
+            heap[child] = heap[i];
+            heap[i] = tmp;
+            i = child;
+        }
+    }
+
+    static long[] signature(Ansi378Template template){
+        long[] signature = new long[2];
+        computeSignature(template, new Scratch(), signature, 0);
+        return signature;
+    }
+
+    private static void computeSignature(Ansi378Template template, Scratch scratch, long[] out,
+                                         int outIndex){
+        int[] x = scratch.x;
+        int[] y = scratch.y;
+        int[] angle = scratch.angle;
+        long[] order = scratch.order;
+        int n = template.getMinutiaeCount(0);
+        long sumX = 0;
+        long sumY = 0;
+        for(int i = 0; i < n; i++){
+            x[i] = template.getMinutiaX(0, i);
+            y[i] = template.getMinutiaY(0, i);
+            angle[i] = template.getMinutiaAngle(0, i);
+            sumX += x[i];
+            sumY += y[i];
+        }
+        out[outIndex] = 0;
+        out[outIndex + 1] = 0;
+        if(n < 2){
+            return;
+        }
+        // Keep the CORE_MINUTIAE minutiae closest to the centroid, encoded as (distance << 8 | i)
+        // so a plain sort orders them.  Distances are scaled by n so the centroid is exact and a
+        // rotated copy of the print picks the same minutiae.
+        for(int i = 0; i < n; i++){
+            long dx = n * (long) x[i] - sumX;
+            long dy = n * (long) y[i] - sumY;
+            order[i] = ((dx * dx + dy * dy) << 8) | i;
+        }
+        Arrays.sort(order, 0, n);
+        int core = Math.min(n, CORE_MINUTIAE);
+        for(int a = 0; a < core; a++){
+            int i = (int) (order[a] & 0xFF);
+            for(int b = a + 1; b < core; b++){
+                int j = (int) (order[b] & 0xFF);
+                double dx = x[j] - x[i];
+                double dy = y[j] - y[i];
+                int distance = (int) (Math.sqrt(dx * dx + dy * dy) / DISTANCE_BUCKET);
+                if(distance >= DISTANCE_BUCKETS){
+                    continue;
+                }
+                // Minutia angles run counter-clockwise with y pointing up, image rows run down.
+                int line = (int) Math.floor(Math.toDegrees(Math.atan2(-dy, dx)));
+                setPairBit(out, outIndex, distance, angle[i] - line, angle[j] - line);
+                // The same pair seen from the other end, so the bit set does not depend on order.
+                setPairBit(out, outIndex, distance, angle[j] - line - 180, angle[i] - line - 180);
+            }
+        }
+    }
+
+    private static void setPairBit(long[] out, int outIndex, int distance, int angleA, int angleB){
+        int a = angleBucket(angleA);
+        int b = angleBucket(angleB);
+        int hash = ((distance * ANGLE_BUCKETS + a) * ANGLE_BUCKETS + b) * 0x9E3779B1;
+        int bit = (hash >>> 25) & 0x7F;
+        out[outIndex + (bit >>> 6)] |= 1L << (bit & 0x3F);
+    }
+
+    private static int angleBucket(int degrees){
+        int normalized = ((degrees % 360) + 360) % 360;
+        return normalized * ANGLE_BUCKETS / 360;
+    }
+
+    private static class Scratch {
+        final int[] x = new int[256];
+        final int[] y = new int[256];
+        final int[] angle = new int[256];
+        final long[] order = new long[256];
+    }
+}
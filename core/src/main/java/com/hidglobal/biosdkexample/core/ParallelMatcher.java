@@ -0,0 +1,224 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * ParallelMatcher identifies an already captured probe template against the TemplateGallery by
+ * fanning TemplateMatcher.match() calls out over a fork-join pool sized to the number of cores.
+ * The gallery is split into ranges of LEAF_SIZE slots; as soon as any range reports a match the
+ * search is marked done and every outstanding range stops before its next comparison.  Deleted
+ * slots are skipped.
+ *
+ * A candidate list, such as a MinutiaeIndex shortlist, restricts the search to those slots.  A
+ * caller that already holds the candidates' templates in memory, like the HotTier, can pass them
+ * along so the gallery is not read at all.
+ *
+ * A device backed TemplateMatcher serializes its matches, so the pool mostly overlaps
+ * gallery reads with device work; the fan-out pays off fully once several devices share a search.
+ */
+
+public class ParallelMatcher {
+    private static final Logger LOG = Logger.getLogger("ParallelMatcher");
+    static final int LEAF_SIZE = 64;
+
+    private final ForkJoinPool mPool;
+    private volatile Search mActiveSearch;
+    private final AtomicInteger mCancelCount = new AtomicInteger();
+
+    public ParallelMatcher(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelMatcher(int parallelism){
+        mPool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Searches the gallery on the calling thread's behalf and blocks until a match is found or
+     * every template has been compared.
+     */
+    public IdentificationResult identify(TemplateMatcher matcher, byte[] probe, TemplateGallery gallery){
+        return identify(matcher, probe, gallery, null);
+    }
+
+    /**
+     * Like identify(), but only compares the gallery slots listed in candidates.  A null list
+     * searches the whole gallery.
+     */
+    public IdentificationResult identify(TemplateMatcher matcher, byte[] probe, TemplateGallery gallery,
+                                         int[] candidates){
+        return identify(matcher, probe, gallery, candidates, null);
+    }
+
+    /**
+     * Like identify(), but compares templates[i] in place of the template stored in slot
+     * candidates[i].
+     */
+    public IdentificationResult identify(TemplateMatcher matcher, byte[] probe, TemplateGallery gallery,
+                                         int[] candidates, byte[][] templates){
+        if(templates != null && (candidates == null || templates.length != candidates.length)){
+            throw new IllegalArgumentException("One template per candidate required");
+        }
+        Search search = new Search(matcher, probe, gallery, candidates, templates);
+        mActiveSearch = search;
+        long start = System.nanoTime();
+        mPool.invoke(new RangeTask(search, 0, candidates == null ? gallery.size() : candidates.length));
+        long elapsed = System.nanoTime() - start;
+        if(mActiveSearch == search){
+            mActiveSearch = null;
+        }
+        int slot = search.mHit.get();
+        if(search.mErrors.get() > 0){
+            LOG.warning(search.mErrors.get() + " comparisons failed");
+        }
+        int leaves = search.mLeaves.get();
+        IdentificationResult result = new IdentificationResult(slot,
+                slot == IdentificationResult.NO_MATCH ? -1 : gallery.getIdentityId(slot),
+                search.mComparisons.get(), leaves, LEAF_SIZE, elapsed,
+                leaves == 0 ? 0 : search.mMinLeafNanos.get(), search.mMaxLeafNanos.get());
+        LOG.fine(result.toString());
+        return result;
+    }
+
+    /**
+     * Stops the running search.  Ranges already comparing finish their current template.
+     */
+    public void cancel(){
+        mCancelCount.incrementAndGet();
+        Search search = mActiveSearch;
+        if(search != null){
+            search.mCancelled = true;
+        }
+    }
+
+    /**
+     * Number of cancel() calls so far.  A caller running several searches for one request
+     * compares it before and after each to know whether to go on.
+     */
+    public int getCancelCount(){
+        return mCancelCount.get();
+    }
+
+    public void shutdown(){
+        cancel();
+        mPool.shutdownNow();
+    }
+
+    private static class Search {
+        final TemplateMatcher mMatcher;
+        final byte[] mProbe;
+        final TemplateGallery mGallery;
+        final int[] mCandidates;
+        final byte[][] mTemplates;
+        final AtomicInteger mHit = new AtomicInteger(IdentificationResult.NO_MATCH);
+        final AtomicInteger mComparisons = new AtomicInteger();
+        final AtomicInteger mErrors = new AtomicInteger();
+        final AtomicInteger mLeaves = new AtomicInteger();
+        final AtomicLong mMinLeafNanos = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong mMaxLeafNanos = new AtomicLong();
+        volatile boolean mCancelled = false;
+
+        Search(TemplateMatcher matcher, byte[] probe, TemplateGallery gallery, int[] candidates,
+               byte[][] templates){
+            mMatcher = matcher;
+            mProbe = probe;
+            mGallery = gallery;
+            mCandidates = candidates;
+            mTemplates = templates;
+        }
+
+        int slotAt(int position){
+            return mCandidates == null ? position : mCandidates[position];
+        }
+
+        boolean isDone(){
+            return mCancelled || mHit.get() != IdentificationResult.NO_MATCH;
+        }
+
+        void recordLeaf(long nanos){
+            mLeaves.incrementAndGet();
+            long min;
+            while(nanos < (min = mMinLeafNanos.get()) && !mMinLeafNanos.compareAndSet(min, nanos)){
+                // retry
+            }
+            long max;
+            while(nanos > (max = mMaxLeafNanos.get()) && !mMaxLeafNanos.compareAndSet(max, nanos)){
+                // retry
+            }
+        }
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Search mSearch;
+        private final int mFrom;
+        private final int mTo;
+
+        RangeTask(Search search, int from, int to){
+            mSearch = search;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(mSearch.isDone()){
+                return;
+            }
+            if(mTo - mFrom <= LEAF_SIZE){
+                scan();
+                return;
+            }
+            int mid = (mFrom + mTo) >>> 1;
+            invokeAll(new RangeTask(mSearch, mFrom, mid), new RangeTask(mSearch, mid, mTo));
+        }
+
+        private void scan(){
+            long start = System.nanoTime();
+            // Templates of equal length share one copy per leaf instead of one per comparison.
+            byte[] copy = null;
+            for(int position = mFrom; position < mTo && !mSearch.isDone(); position++){
+                int slot = mSearch.slotAt(position);
+                if(mSearch.mGallery.isDeleted(slot)){
+                    continue;
+                }
+                byte[] candidate;
+                if(mSearch.mTemplates != null){
+                    candidate = mSearch.mTemplates[position];
+                }
+                else {
+                    candidate = copy = mSearch.mGallery.copyTemplate(slot, copy);
+                }
+                int score = mSearch.mMatcher.match(mSearch.mProbe, candidate);
+                mSearch.mComparisons.incrementAndGet();
+                if(score == TemplateMatcher.MATCH_ERROR){
+                    mSearch.mErrors.incrementAndGet();
+                }
+                else if(score == 1){
+                    mSearch.mHit.compareAndSet(IdentificationResult.NO_MATCH, slot);
+                }
+            }
+            mSearch.recordLeaf(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SearchOrder learns from past identifications which identities are likely to match next and
+ * publishes a search sequence of gallery slots that tries their templates first.  A 1:N search
+ * stops at its first hit, so the earlier the right template is handed to the matcher the sooner
+ * the result arrives.
+ *
+ * For every identity that has matched it keeps a score that halves every HALF_LIFE_MILLIS, the
+ * hours of the day and the lanes it matched at.  The statistics are keyed by identity id, not by
+ * slot, so they follow an identity that re-enrolls into a new slot or that a GalleryCompactor
+ * moves.  The sequence lists the live slots of matched identities by their score for the current
+ * hour and the requesting lane, then every other slot in gallery order.
+ *
+ * recordMatch() and getOrder() only touch a few fields under a short lock.  Rebuilding the
+ * sequence is O(gallery) and always happens on the executor given to the constructor, after a
+ * match, when the hour or lane changes or when the gallery grew or was replaced; until it is done
+ * searches use the previous sequence, so a live verification never waits for it.
+ */
+
+public class SearchOrder {
+    public static final long HALF_LIFE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+    // An identity that usually comes at this time of day, or to this lane, counts this much more.
+    private static final float HOUR_WEIGHT = 2f;
+    private static final float LANE_WEIGHT = 1.5f;
+    private static final int MAX_LANES = 8;
+
+    private final Executor mExecutor;
+    private final TimeZone mTimeZone;
+    // Statistics, one row per identity that has matched.  Guarded by this.
+    private final LongIntHashMap mRows = new LongIntHashMap();
+    private long[] mRowIdentities = new long[16];
+    private float[] mRowScores = new float[16];
+    private long[] mRowMillis = new long[16];
+    private int[] mRowHours = new int[16];
+    private byte[] mRowLanes = new byte[16];
+    private int mRowCount;
+    private long mStatsVersion;
+
+    private volatile Order mOrder;
+    private volatile int mRequestedLane;
+    private volatile TemplateGallery mRequestedGallery;
+    private final AtomicBoolean mRebuildPending = new AtomicBoolean();
+    private final AtomicLong mRebuilds = new AtomicLong();
+    private final AtomicLong mRebuildNanos = new AtomicLong();
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mPrioritizedHits = new AtomicLong();
+    private final AtomicLong mHitPositions = new AtomicLong();
+
+    private final Runnable mRebuilder = new Runnable() {
+        @Override
+        public void run() {
+            mRebuildPending.set(false);
+            rebuild();
+        }
+    };
+
+    public SearchOrder(Executor executor){
+        this(executor, TimeZone.getDefault());
+    }
+
+    public SearchOrder(Executor executor, TimeZone timeZone){
+        mExecutor = executor;
+        mTimeZone = timeZone;
+    }
+
+    private static final class Order {
+        final TemplateGallery mGallery;
+        final int[] mSlots;
+        // Position in mSlots of each prioritized identity's slot.
+        final LongIntHashMap mPositions;
+        final int mLane;
+        final int mHour;
+        final long mStatsVersion;
+
+        Order(TemplateGallery gallery, int[] slots, LongIntHashMap positions, int lane, int hour,
+              long statsVersion){
+            mGallery = gallery;
+            mSlots = slots;
+            mPositions = positions;
+            mLane = lane;
+            mHour = hour;
+            mStatsVersion = statsVersion;
+        }
+
+        boolean covers(TemplateGallery gallery){
+            return mGallery == gallery && mSlots.length == gallery.size();
+        }
+    }
+
+    private int hourOf(long millis){
+        return (int) (((millis + mTimeZone.getOffset(millis)) / HOUR_MILLIS) % 24);
+    }
+
+    /**
+     * Returns the sequence of slots to search gallery in for a request from lane, or null to
+     * search in gallery order.  Schedules a rebuild if the sequence is out of date; never waits
+     * for one.
+     */
+    public int[] getOrder(TemplateGallery gallery, int lane){
+        Order order = mOrder;
+        boolean covers = order != null && order.covers(gallery);
+        if(!covers || order.mLane != lane || order.mHour != hourOf(System.currentTimeMillis())){
+            requestRebuild(gallery, lane);
+        }
+        return covers ? order.mSlots : null;
+    }
+
+    /**
+     * Counts a match of identityId on lane now.
+     */
+    public void recordMatch(long identityId, int lane){
+        recordMatch(identityId, lane, System.currentTimeMillis());
+    }
+
+    public void recordMatch(long identityId, int lane, long millis){
+        Order order = mOrder;
+        int position = order == null ? LongIntHashMap.NO_VALUE : order.mPositions.get(identityId);
+        mHits.incrementAndGet();
+        if(position != LongIntHashMap.NO_VALUE){
+            mPrioritizedHits.incrementAndGet();
+            mHitPositions.addAndGet(position);
+        }
+        synchronized(this){
+            int row = mRows.get(identityId);
+            if(row == LongIntHashMap.NO_VALUE){
+                row = addRow(identityId);
+            }
+            mRowScores[row] = decayed(mRowScores[row], mRowMillis[row], millis) + 1f;
+            mRowMillis[row] = millis;
+            mRowHours[row] |= 1 << hourOf(millis);
+            mRowLanes[row] |= 1 << Math.min(lane, MAX_LANES - 1);
+            mStatsVersion++;
+        }
+        TemplateGallery gallery = mRequestedGallery;
+        if(gallery != null){
+            requestRebuild(gallery, lane);
+        }
+    }
+
+    private int addRow(long identityId){
+        int row = mRowCount++;
+        if(row == mRowIdentities.length){
+            int capacity = 2 * row;
+            mRowIdentities = Arrays.copyOf(mRowIdentities, capacity);
+            mRowScores = Arrays.copyOf(mRowScores, capacity);
+            mRowMillis = Arrays.copyOf(mRowMillis, capacity);
+            mRowHours = Arrays.copyOf(mRowHours, capacity);
+            mRowLanes = Arrays.copyOf(mRowLanes, capacity);
+        }
+        mRowIdentities[row] = identityId;
+        mRowScores[row] = 0f;
+        mRowHours[row] = 0;
+        mRowLanes[row] = 0;
+        mRows.put(identityId, row);
+        return row;
+    }
+
+    private static float decayed(float score, long scoreMillis, long nowMillis){
+        long age = Math.max(0, nowMillis - scoreMillis);
+        return score * (float) Math.pow(0.5, (double) age / HALF_LIFE_MILLIS);
+    }
+
+    private void requestRebuild(TemplateGallery gallery, int lane){
+        mRequestedLane = lane;
+        mRequestedGallery = gallery;
+        if(gallery.size() > 0 && mRebuildPending.compareAndSet(false, true)){
+            try {
+                mExecutor.execute(mRebuilder);
+            } catch(RejectedExecutionException e){
+                // Shutting down: the current sequence stays in use.
+                mRebuildPending.set(false);
+            }
+        }
+    }
+
+    private void rebuild(){
+        long start = System.nanoTime();
+        int lane = mRequestedLane;
+        TemplateGallery gallery = mRequestedGallery;
+        int gallerySize = gallery.size();
+        long now = System.currentTimeMillis();
+        int hour = hourOf(now);
+        Order previous = mOrder;
+        int rows;
+        long version;
+        long[] identities;
+        long[] ranked;
+        synchronized(this){
+            version = mStatsVersion;
+            if(previous != null && previous.mStatsVersion == version && previous.mLane == lane
+                    && previous.mHour == hour && previous.mGallery == gallery
+                    && previous.mSlots.length == gallerySize){
+                return;
+            }
+            // Rank by score, keeping the row in the low half so sorting carries it along.
+            // Scores are positive, so their float bits sort like the scores themselves.
+            rows = mRowCount;
+            identities = Arrays.copyOf(mRowIdentities, rows);
+            ranked = new long[rows];
+            int hourMask = 1 << hour | 1 << (hour + 23) % 24 | 1 << (hour + 1) % 24;
+            int laneMask = 1 << Math.min(lane, MAX_LANES - 1);
+            for(int row = 0; row < rows; row++){
+                float score = decayed(mRowScores[row], mRowMillis[row], now);
+                if((mRowHours[row] & hourMask) != 0){
+                    score *= HOUR_WEIGHT;
+                }
+                if((mRowLanes[row] & laneMask) != 0){
+                    score *= LANE_WEIGHT;
+                }
+                ranked[row] = (long) Float.floatToIntBits(score) << 32 | row;
+            }
+        }
+        Arrays.sort(ranked);
+        int[] slots = new int[gallerySize];
+        LongIntHashMap positions = new LongIntHashMap(rows);
+        BitSet prioritized = new BitSet(gallerySize);
+        int position = 0;
+        for(int i = rows - 1; i >= 0; i--){
+            long identityId = identities[(int) ranked[i]];
+            // Deleted identities have no live slot; one enrolled after gallerySize is not in it.
+            int slot = gallery.findSlot(identityId);
+            if(slot != LongIntHashMap.NO_VALUE && slot < gallerySize){
+                positions.put(identityId, position);
+                slots[position++] = slot;
+                prioritized.set(slot);
+            }
+        }
+        for(int slot = prioritized.nextClearBit(0); slot < gallerySize; slot = prioritized.nextClearBit(slot + 1)){
+            slots[position++] = slot;
+        }
+        mOrder = new Order(gallery, slots, positions, lane, hour, version);
+        mRebuilds.incrementAndGet();
+        mRebuildNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Forgets every statistic, e.g. when the gallery's identities were replaced.
+     */
+    public synchronized void clear(){
+        mRows.clear();
+        mRowCount = 0;
+        mStatsVersion++;
+        mOrder = null;
+    }
+
+    public long getRebuildCount(){
+        return mRebuilds.get();
+    }
+
+    /**
+     * Share of matches that the published sequence had moved to the front.
+     */
+    public double getPrioritizedHitRatio(){
+        long hits = mHits.get();
+        return hits == 0 ? 0 : (double) mPrioritizedHits.get() / hits;
+    }
+
+    /**
+     * Average position of a prioritized hit in the sequence; 0 is the first template searched.
+     */
+    public double getAverageHitPosition(){
+        long hits = mPrioritizedHits.get();
+        return hits == 0 ? 0 : (double) mHitPositions.get() / hits;
+    }
+
+    public synchronized String summary(){
+        long rebuilds = mRebuilds.get();
+        return String.format(Locale.US,
+                "Search order: %d identities ranked, %d rebuilds (%.1f ms avg), %.2f of hits prioritized at avg position %.1f",
+                mRowCount, rebuilds, rebuilds == 0 ? 0 : mRebuildNanos.get() / 1e6 / rebuilds,
+                getPrioritizedHitRatio(), getAverageHitPosition());
+    }
+
+    @Override
+    public String toString(){
+        return summary();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SimulatedSensor is what a simulated fingerprint sensor does, apart from the SDK interface
+ * around it: it replays the status sequences and latencies of its SimulationProfile, presents the
+ * profile's fingers in turn and decides matches and PAD results.  Keeping it free of Android lets
+ * the outcomes be tested on a plain JVM; SimulatedBioSDKDevice puts it behind BioSDKDevice.
+ *
+ * Operations block for their simulated latency and run one at a time.  cancel() and
+ * setConnected() may be called from any thread and take effect at the next reported status.
+ */
+
+public class SimulatedSensor {
+    static final int[] FINGER_CLEAR_SEQUENCE = { AcqStatus.ACQ_FINGER_PRESENT,
+            AcqStatus.ACQ_FINGER_PRESENT, AcqStatus.ACQ_DONE };
+
+    public enum Outcome { OK, CANCELLED, TIMEOUT, DISCONNECTED }
+
+    private final SimulationProfile mProfile;
+    private final Random mImpressions;
+    private int mNextFinger = 0;
+    private volatile boolean mCancel = false;
+    private volatile boolean mConnected = true;
+
+    public SimulatedSensor(SimulationProfile profile, long seed){
+        mProfile = profile;
+        mImpressions = new Random(seed);
+    }
+
+    /**
+     * One presentation of a finger: its id, the template the sensor extracted and the PAD result.
+     */
+    public static class Impression {
+        private final int mFingerId;
+        private final byte[] mTemplate;
+        private final int mPADResult;
+
+        Impression(int fingerId, byte[] template, int padResult){
+            mFingerId = fingerId;
+            mTemplate = template;
+            mPADResult = padResult;
+        }
+
+        public int getFingerId(){
+            return mFingerId;
+        }
+
+        public byte[] getTemplate(){
+            return mTemplate;
+        }
+
+        public int getPADResult(){
+            return mPADResult;
+        }
+    }
+
+    public SimulationProfile getProfile(){
+        return mProfile;
+    }
+
+    public boolean isConnected(){
+        return mConnected;
+    }
+
+    /**
+     * Plugs the sensor in or out.  Unplugging fails the running operation.
+     */
+    public void setConnected(boolean connected){
+        mConnected = connected;
+    }
+
+    /**
+     * Clears a cancellation left by the previous operation; call before starting one.
+     */
+    public void begin(){
+        mCancel = false;
+    }
+
+    /**
+     * Cancels the running operation.
+     */
+    public void cancel(){
+        mCancel = true;
+    }
+
+    /**
+     * Replays the capture status sequence over the capture latency.
+     */
+    public Outcome capture(int timeOutSeconds, ISimulatedStatusListener listener){
+        return replay(mProfile.getStatusSequence(), mProfile.getCaptureLatencyMs(), timeOutSeconds, listener);
+    }
+
+    /**
+     * Replays a finger being lifted over the finger clear latency.
+     */
+    public Outcome waitForFingerClear(int timeOutSeconds, ISimulatedStatusListener listener){
+        return replay(FINGER_CLEAR_SEQUENCE, mProfile.getFingerClearLatencyMs(), timeOutSeconds, listener);
+    }
+
+    /**
+     * Presents the next finger after a successful capture.
+     */
+    public Impression present(){
+        int[] fingers = mProfile.getFingerIds();
+        int fingerId = fingers[mNextFinger++ % fingers.length];
+        byte[] template = SyntheticTemplates.template(fingerId, mProfile.getImageWidth(),
+                mProfile.getImageHeight(), mImpressions);
+        return new Impression(fingerId, template, mProfile.getPADResult());
+    }
+
+    /**
+     * Returns 1 if probe and candidate come from the same finger, otherwise 0, after the match
+     * latency.
+     */
+    public int match(byte[] probe, byte[] candidate){
+        sleep(mProfile.getMatchLatencyMs());
+        int probeId = SyntheticTemplates.fingerIdOf(probe);
+        return probeId != -1 && probeId == SyntheticTemplates.fingerIdOf(candidate) ? 1 : 0;
+    }
+
+    /**
+     * Returns 1 if probe comes from the same finger as any of candidates, after one match latency
+     * per candidate.
+     */
+    public int matchAny(byte[] probe, List<byte[]> candidates){
+        int probeId = SyntheticTemplates.fingerIdOf(probe);
+        sleep(mProfile.getMatchLatencyMs() * candidates.size());
+        for(byte[] candidate : candidates){
+            if(probeId != -1 && probeId == SyntheticTemplates.fingerIdOf(candidate)){
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Waits out the time the sensor takes to apply a configuration.
+     */
+    public void configure(){
+        sleep(mProfile.getConfigureLatencyMs());
+    }
+
+    private Outcome replay(int[] statuses, long latencyMs, int timeOutSeconds, ISimulatedStatusListener listener){
+        long deadline = timeOutSeconds > 0 ? System.currentTimeMillis() + timeOutSeconds * 1000L : Long.MAX_VALUE;
+        long interval = statuses.length == 0 ? latencyMs : latencyMs / statuses.length;
+        for(int status : statuses){
+            sleep(interval);
+            if(!mConnected){
+                return Outcome.DISCONNECTED;
+            }
+            if(mCancel || !listener.onUpdateStatus(status)){
+                return Outcome.CANCELLED;
+            }
+            if(System.currentTimeMillis() > deadline){
+                return Outcome.TIMEOUT;
+            }
+        }
+        if(statuses.length == 0){
+            sleep(interval);
+        }
+        return mCancel ? Outcome.CANCELLED : Outcome.OK;
+    }
+
+    private static void sleep(long ms){
+        if(ms <= 0){
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * SimulationProfile describes how a SimulatedSensor behaves: the acquisition status sequence it
+ * reports, how long each operation takes, the PAD result, and which fingers are presented.
+ * Fingers are presented in turn, one per acquisition, so a run is reproducible.  Templates of the
+ * same finger always match and templates of different fingers never do.
+ *
+ * A profile can be read from properties named after its settings, e.g.
+ *
+ *   deviceCount=2
+ *   statusSequence=PROCESSING,FINGER_PRESENT,DONE
+ *   captureLatencyMs=150
+ *   fingerIds=1,2,3
+ *   imageSize=320x480
+ *
+ * Settings that are not given keep their defaults.  Statuses are AcqStatus names, with or without
+ * the ACQ_ prefix, or numbers.
+ */
+
+public class SimulationProfile {
+    public static final String DEVICE_COUNT = "deviceCount";
+    public static final String STATUS_SEQUENCE = "statusSequence";
+    public static final String CAPTURE_LATENCY_MS = "captureLatencyMs";
+    public static final String FINGER_CLEAR_LATENCY_MS = "fingerClearLatencyMs";
+    public static final String MATCH_LATENCY_MS = "matchLatencyMs";
+    public static final String CONFIGURE_LATENCY_MS = "configureLatencyMs";
+    public static final String PAD_RESULT = "padResult";
+    public static final String FINGER_IDS = "fingerIds";
+    public static final String IMAGE_SIZE = "imageSize";
+    public static final String SEED = "seed";
+    private int mDeviceCount = 1;
+    private int[] mStatusSequence = { AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_FINGER_PRESENT,
+            AcqStatus.ACQ_FINGER_PRESENT, AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_DONE };
+    private long mCaptureLatencyMs = 600;
+    private long mFingerClearLatencyMs = 300;
+    private long mMatchLatencyMs = 5;
+    private long mConfigureLatencyMs = 20;
+    private int mPADResult = 1;
+    private int[] mFingerIds = { 1 };
+    private int mImageWidth = 320;
+    private int mImageHeight = 480;
+    private long mSeed = 0x5EED;
+
+    /**
+     * Reads a profile in properties format from in, which is left open.
+     */
+    public static SimulationProfile read(InputStream in) throws IOException {
+        Properties properties = new Properties();
+        properties.load(in);
+        SimulationProfile profile = new SimulationProfile();
+        profile.apply(properties);
+        return profile;
+    }
+
+    /**
+     * Overrides the settings named in properties.  Throws IllegalArgumentException, naming the
+     * setting, for a value that does not parse; the settings before it have been applied then.
+     */
+    public void apply(Properties properties){
+        for(String key : properties.stringPropertyNames()){
+            String value = properties.getProperty(key).trim();
+            try {
+                apply(key, value);
+            } catch(IllegalArgumentException e){
+                throw new IllegalArgumentException("Invalid " + key + " \"" + value + "\": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void apply(String key, String value){
+        switch(key){
+            case DEVICE_COUNT:
+                setDeviceCount(Integer.parseInt(value));
+                break;
+            case STATUS_SEQUENCE:
+                String[] names = split(value);
+                int[] statuses = new int[names.length];
+                for(int i = 0; i < names.length; i++){
+                    statuses[i] = parseStatus(names[i]);
+                }
+                setStatusSequence(statuses);
+                break;
+            case CAPTURE_LATENCY_MS:
+                setCaptureLatencyMs(parseLatency(value));
+                break;
+            case FINGER_CLEAR_LATENCY_MS:
+                setFingerClearLatencyMs(parseLatency(value));
+                break;
+            case MATCH_LATENCY_MS:
+                setMatchLatencyMs(parseLatency(value));
+                break;
+            case CONFIGURE_LATENCY_MS:
+                setConfigureLatencyMs(parseLatency(value));
+                break;
+            case PAD_RESULT:
+                setPADResult(Integer.parseInt(value));
+                break;
+            case FINGER_IDS:
+                String[] ids = split(value);
+                int[] fingerIds = new int[ids.length];
+                for(int i = 0; i < ids.length; i++){
+                    fingerIds[i] = Integer.parseInt(ids[i]);
+                }
+                setFingerIds(fingerIds);
+                break;
+            case IMAGE_SIZE:
+                String[] size = value.split("[xX]");
+                if(size.length != 2){
+                    throw new IllegalArgumentException("expected <width>x<height>");
+                }
+                setImageSize(Integer.parseInt(size[0].trim()), Integer.parseInt(size[1].trim()));
+                break;
+            case SEED:
+                setSeed(Long.decode(value));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown setting");
+        }
+    }
+
+    private static String[] split(String list){
+        String[] items = list.split(",");
+        for(int i = 0; i < items.length; i++){
+            items[i] = items[i].trim();
+        }
+        return items.length == 1 && items[0].isEmpty() ? new String[0] : items;
+    }
+
+    private static long parseLatency(String value){
+        long ms = Long.parseLong(value);
+        if(ms < 0){
+            throw new IllegalArgumentException("negative latency");
+        }
+        return ms;
+    }
+
+    private static int parseStatus(String name){
+        String status = name.toUpperCase(Locale.ROOT);
+        if(status.startsWith("ACQ_")){
+            status = status.substring(4);
+        }
+        switch(status){
+            case "DONE":
+                return AcqStatus.ACQ_DONE;
+            case "PROCESSING":
+                return AcqStatus.ACQ_PROCESSING;
+            case "FINGER_PRESENT":
+                return AcqStatus.ACQ_FINGER_PRESENT;
+            default:
+                return Integer.parseInt(name);
+        }
+    }
+
+    public int getDeviceCount(){
+        return mDeviceCount;
+    }
+
+    public void setDeviceCount(int deviceCount){
+        mDeviceCount = Math.max(1, deviceCount);
+    }
+
+    public int[] getStatusSequence(){
+        return mStatusSequence;
+    }
+
+    /**
+     * Statuses reported while a capture is in progress, spread evenly over the capture latency.
+     */
+    public void setStatusSequence(int... statusSequence){
+        mStatusSequence = statusSequence.clone();
+    }
+
+    public long getCaptureLatencyMs(){
+        return mCaptureLatencyMs;
+    }
+
+    public void setCaptureLatencyMs(long captureLatencyMs){
+        mCaptureLatencyMs = captureLatencyMs;
+    }
+
+    public long getFingerClearLatencyMs(){
+        return mFingerClearLatencyMs;
+    }
+
+    public void setFingerClearLatencyMs(long fingerClearLatencyMs){
+        mFingerClearLatencyMs = fingerClearLatencyMs;
+    }
+
+    public long getMatchLatencyMs(){
+        return mMatchLatencyMs;
+    }
+
+    public void setMatchLatencyMs(long matchLatencyMs){
+        mMatchLatencyMs = matchLatencyMs;
+    }
+
+    public long getConfigureLatencyMs(){
+        return mConfigureLatencyMs;
+    }
+
+    public void setConfigureLatencyMs(long configureLatencyMs){
+        mConfigureLatencyMs = configureLatencyMs;
+    }
+
+    public int getPADResult(){
+        return mPADResult;
+    }
+
+    public void setPADResult(int padResult){
+        mPADResult = padResult;
+    }
+
+    public int[] getFingerIds(){
+        return mFingerIds;
+    }
+
+    /**
+     * Fingers presented to the sensor, cycled through one per acquisition.  Ids range from 0 to
+     * SyntheticTemplates.MAX_FINGER_ID.
+     */
+    public void setFingerIds(int... fingerIds){
+        if(fingerIds.length == 0){
+            throw new IllegalArgumentException("At least one finger is required");
+        }
+        for(int fingerId : fingerIds){
+            if(fingerId < 0 || fingerId > SyntheticTemplates.MAX_FINGER_ID){
+                throw new IllegalArgumentException("Finger id out of range: " + fingerId);
+            }
+        }
+        mFingerIds = fingerIds.clone();
+    }
+
+    public int getImageWidth(){
+        return mImageWidth;
+    }
+
+    public int getImageHeight(){
+        return mImageHeight;
+    }
+
+    public void setImageSize(int width, int height){
+        if(width <= 0 || height <= 0){
+            throw new IllegalArgumentException("Image size " + width + "x" + height);
+        }
+        mImageWidth = width;
+        mImageHeight = height;
+    }
+
+    public long getSeed(){
+        return mSeed;
+    }
+
+    public void setSeed(long seed){
+        mSeed = seed;
+    }
+
+    @Override
+    public String toString(){
+        return "SimulationProfile{devices=" + mDeviceCount + ", statuses=" + Arrays.toString(mStatusSequence)
+                + ", captureMs=" + mCaptureLatencyMs + ", fingerClearMs=" + mFingerClearLatencyMs
+                + ", matchMs=" + mMatchLatencyMs + ", configureMs=" + mConfigureLatencyMs
+                + ", pad=" + mPADResult + ", fingers=" + Arrays.toString(mFingerIds)
+                + ", image=" + mImageWidth + "x" + mImageHeight + ", seed=" + mSeed + "}";
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * StartupTimeline records when each cold start milestone was first reached, relative to the
+ * moment the timeline was created.  Startup work runs on several threads at once, so milestones
+ * can be reached in any order; each one keeps only its first mark, which makes it safe to mark
+ * FIRST_CAPTURE on every capture.
+ */
+
+public class StartupTimeline {
+    public enum Milestone {
+        /** SDK initialized and ready to enumerate. */
+        SDK_READY,
+        /** Gallery mapped and identity directory loaded. */
+        GALLERY_LOADED,
+        /** Readers enumerated. */
+        DEVICES_ENUMERATED,
+        /** Every enumerated reader opened. */
+        DEVICES_OPEN,
+        /** First reader configured with the initial security levels. */
+        CONFIGURED,
+        /** Devices and gallery both ready and the first screen shown. */
+        READY,
+        /** First capture completed. */
+        FIRST_CAPTURE
+    }
+
+    private final long mOriginNanos;
+    private final AtomicLongArray mMarks = new AtomicLongArray(Milestone.values().length);
+
+    public StartupTimeline(){
+        mOriginNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks milestone as reached now unless it was reached before.  Returns whether this call set it.
+     */
+    public boolean mark(Milestone milestone){
+        if(mMarks.get(milestone.ordinal()) != 0){
+            return false;
+        }
+        long elapsed = Math.max(1, System.nanoTime() - mOriginNanos);
+        return mMarks.compareAndSet(milestone.ordinal(), 0, elapsed);
+    }
+
+    public boolean isReached(Milestone milestone){
+        return mMarks.get(milestone.ordinal()) != 0;
+    }
+
+    /**
+     * Time from the origin to milestone, or -1 if it has not been reached.
+     */
+    public long getElapsedNanos(Milestone milestone){
+        long elapsed = mMarks.get(milestone.ordinal());
+        return elapsed == 0 ? -1 : elapsed;
+    }
+
+    public String summary(){
+        StringBuilder sb = new StringBuilder();
+        for(Milestone milestone : Milestone.values()){
+            long elapsed = getElapsedNanos(milestone);
+            if(elapsed >= 0){
+                sb.append(String.format("%-18s %7.1f ms\n", milestone, elapsed / 1e6));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder("StartupTimeline{");
+        for(Milestone milestone : Milestone.values()){
+            long elapsed = getElapsedNanos(milestone);
+            if(elapsed >= 0){
+                sb.append(milestone).append("Ms=").append(elapsed / 1000000).append(", ");
+            }
+        }
+        if(sb.length() > 16){
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.append('}').toString();
+    }
+}
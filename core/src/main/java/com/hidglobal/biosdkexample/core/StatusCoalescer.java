@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StatusCoalescer reduces a stream of status values to at most one delivery per frame.
+ * Consecutive identical values (compared by reference) are conflated, and a value offered while a
+ * frame is already pending replaces the pending one.  offer() may be called from any thread;
+ * poll() and reset() belong to the thread that renders.
+ */
+
+public class StatusCoalescer {
+    private final AtomicBoolean mFrameScheduled = new AtomicBoolean(false);
+    private final AtomicLong mPublished = new AtomicLong();
+    private final AtomicLong mConflated = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mDelivered = new AtomicLong();
+    private volatile String mLastPublished;
+    private volatile String mPending;
+
+    public StatusCoalescer(String initial){
+        mLastPublished = initial;
+        mPending = initial;
+    }
+
+    /**
+     * Records value as the one to show next.  Returns true if the caller has to schedule a frame
+     * to deliver it.
+     */
+    public boolean offer(String value){
+        mPublished.incrementAndGet();
+        if(value == mLastPublished){
+            mConflated.incrementAndGet();
+            return false;
+        }
+        mLastPublished = value;
+        mPending = value;
+        if(!mFrameScheduled.compareAndSet(false, true)){
+            // A frame is already pending; the value it would have shown is superseded.
+            mDropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the value to show in the scheduled frame.
+     */
+    public String poll(){
+        // Reset before reading so an offer racing with this frame schedules the next one.
+        mFrameScheduled.set(false);
+        mDelivered.incrementAndGet();
+        return mPending;
+    }
+
+    /**
+     * Replaces the current value without going through a frame.
+     */
+    public void reset(String value){
+        mLastPublished = value;
+        mPending = value;
+    }
+
+    public long getPublishedCount(){
+        return mPublished.get();
+    }
+
+    public long getConflatedCount(){
+        return mConflated.get();
+    }
+
+    public long getDroppedCount(){
+        return mDropped.get();
+    }
+
+    public long getDeliveredCount(){
+        return mDelivered.get();
+    }
+
+    @Override
+    public String toString(){
+        return "published=" + mPublished.get() + ", conflated=" + mConflated.get()
+                + ", dropped=" + mDropped.get() + ", delivered=" + mDelivered.get();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * SyntheticTemplates produces ANSI 378 templates for simulated fingers.  The minutiae of a finger
+ * are derived from its id, and every impression shifts them slightly and drops a few, as a real
+ * sensor would.  The finger id is recorded in the template's product id, which is how simulated
+ * matchers decide whether two templates match.
+ */
+
+public final class SyntheticTemplates {
+    public static final int MAX_FINGER_ID = 0x00FFFFFF;
+    static final int PRODUCT_TAG = 0x53000000; // "S" + 24 bit finger id
+    private static final int TAG_MASK = 0xFF000000;
+    private static final int MIN_MINUTIAE = 28;
+    private static final int MAX_MINUTIAE = 44;
+    private static final int MAX_SHIFT = 6;
+    private static final int RESOLUTION = 197; // pixels per cm, i.e. 500 dpi
+
+    private SyntheticTemplates(){
+    }
+
+    /**
+     * Returns the finger id a simulated template was made from, or -1 for any other template.
+     */
+    public static int fingerIdOf(byte[] template){
+        Ansi378Template parsed = Ansi378Template.parse(template);
+        if(parsed == null || (parsed.getProductId() & TAG_MASK) != PRODUCT_TAG){
+            return -1;
+        }
+        return parsed.getProductId() & MAX_FINGER_ID;
+    }
+
+    /**
+     * Creates one impression of a finger.  impression supplies the per-impression noise.
+     */
+    public static byte[] template(int fingerId, int width, int height, Random impression){
+        Random finger = new Random(fingerId * 0x9E3779B97F4A7C15L);
+        int count = MIN_MINUTIAE + finger.nextInt(MAX_MINUTIAE - MIN_MINUTIAE + 1);
+        int dx = impression.nextInt(2 * MAX_SHIFT + 1) - MAX_SHIFT;
+        int dy = impression.nextInt(2 * MAX_SHIFT + 1) - MAX_SHIFT;
+        int margin = 16;
+        int[] minutiae = new int[count * 4];
+        int kept = 0;
+        for(int i = 0; i < count; i++){
+            int x = margin + finger.nextInt(width - 2 * margin);
+            int y = margin + finger.nextInt(height - 2 * margin);
+            int angle = finger.nextInt(180);
+            int type = 1 + finger.nextInt(2);
+            // Roughly one minutia in ten is missed by any given impression.
+            if(impression.nextInt(10) == 0){
+                continue;
+            }
+            minutiae[kept * 4] = clamp(x + dx, 0, width - 1);
+            minutiae[kept * 4 + 1] = clamp(y + dy, 0, height - 1);
+            minutiae[kept * 4 + 2] = angle;
+            minutiae[kept * 4 + 3] = type;
+            kept++;
+        }
+        return encode(PRODUCT_TAG | (fingerId & MAX_FINGER_ID), width, height, minutiae, kept);
+    }
+
+    /**
+     * Writes a single view ANSI 378 record.  minutiae holds (x, y, angle in units of 2 degrees,
+     * type) for each of the count minutiae.
+     */
+    static byte[] encode(int productId, int width, int height, int[] minutiae, int count){
+        int length = 26 + Ansi378Template.VIEW_HEADER_SIZE + count * Ansi378Template.MINUTIA_SIZE + 2;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(Ansi378Template.FORMAT_ID);
+        record.putInt(Ansi378Template.VERSION_20);
+        record.putShort((short) length);
+        record.putInt(productId);
+        record.putShort((short) 0);
+        record.putShort((short) width);
+        record.putShort((short) height);
+        record.putShort((short) RESOLUTION);
+        record.putShort((short) RESOLUTION);
+        record.put((byte) 1);
+        record.put((byte) 0);
+        // One view: right index finger, live-scan plain impression.
+        record.put((byte) 2);
+        record.put((byte) 0);
+        record.put((byte) 80);
+        record.put((byte) count);
+        for(int i = 0; i < count; i++){
+            record.putShort((short) ((minutiae[i * 4 + 3] << 14) | minutiae[i * 4]));
+            record.putShort((short) minutiae[i * 4 + 1]);
+            record.put((byte) minutiae[i * 4 + 2]);
+            record.put((byte) 60);
+        }
+        record.putShort((short) 0);
+        return record.array();
+    }
+
+    private static int clamp(int value, int min, int max){
+        return Math.max(min, Math.min(max, value));
+    }
+}
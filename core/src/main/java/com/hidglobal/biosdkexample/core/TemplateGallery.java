@@ -0,0 +1,466 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * TemplateGallery is the on-device store for enrolled ANSI 378 templates.  Templates are appended
+ * to a memory-mapped data file and addressed through a fixed-size offset index, so opening the
+ * gallery only maps the two files and reads the index header; nothing is deserialized onto the
+ * heap until a template is actually requested.
+ *
+ * Index file layout (little endian):
+ *   header:  magic(4) version(4) count(4) reserved(4) nextIdentityId(8)
+ *   entry:   identityId(8) offset(8) length(4) flags(4)
+ *
+ * A record becomes visible only once the header count is bumped, which is written last.  Appends
+ * are serialized; reads may run concurrently from any thread.
+ *
+ * Deleting an identity sets FLAG_DELETED on its entry, leaving a tombstone that searches skip.
+ * Appending a template for an identity that already has one tombstones the older template, so
+ * every identity has at most one live slot.  A GalleryCompactor rewrites the live templates into
+ * new files and retires this gallery in favour of the result: a retired gallery stays readable,
+ * so searches already running finish on it, and forwards every change to its successor.
+ *
+ * The mapped data file is the gallery's off-heap arena: the heap holds only a primitive map from
+ * identity id to slot, built from the index when the gallery is opened.  byte[] copies are made on
+ * demand for the templates being handed to a matcher, and copyTemplate() lets callers reuse them.
+ */
+
+public class TemplateGallery implements Closeable {
+    static final int INDEX_MAGIC = 0x314C4147; // "GAL1"
+    static final int INDEX_VERSION = 1;
+    static final int INDEX_HEADER_SIZE = 24;
+    static final int INDEX_ENTRY_SIZE = 24;
+    private static final int HEADER_COUNT = 8;
+    private static final int HEADER_NEXT_ID = 16;
+    private static final int ENTRY_IDENTITY = 0;
+    private static final int ENTRY_OFFSET = 8;
+    private static final int ENTRY_LENGTH = 16;
+    private static final int ENTRY_FLAGS = 20;
+    static final int FLAG_DELETED = 1;
+    private static final int INITIAL_INDEX_ENTRIES = 1024;
+    private static final long INITIAL_DATA_BYTES = 1024 * 1024;
+    static final String INDEX_FILE = "gallery.idx";
+    static final String DATA_FILE = "gallery.dat";
+    static final String COMPACT_DIR = "compact";
+    static final String COMPACT_COMMITTED = "committed";
+
+    private final RandomAccessFile mIndexFile;
+    private final RandomAccessFile mDataFile;
+    private final FileChannel mIndexChannel;
+    private final FileChannel mDataChannel;
+    private volatile MappedByteBuffer mIndex;
+    private volatile MappedByteBuffer mData;
+    private volatile int mCount;
+    private long mDataEnd;
+    private long mNextIdentityId;
+    private boolean mClosed = false;
+    // Guarded by this.
+    private LongIntHashMap mSlots;
+    private volatile int mDeletedCount;
+    private volatile TemplateGallery mSuccessor;
+
+    private TemplateGallery(File dir) throws IOException {
+        mIndexFile = new RandomAccessFile(new File(dir, INDEX_FILE), "rw");
+        mDataFile = new RandomAccessFile(new File(dir, DATA_FILE), "rw");
+        mIndexChannel = mIndexFile.getChannel();
+        mDataChannel = mDataFile.getChannel();
+    }
+
+    /**
+     * Opens the gallery stored in dir, creating an empty one if none exists yet.
+     */
+    public static TemplateGallery open(File dir) throws IOException {
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            throw new IOException("Cannot create gallery directory " + dir);
+        }
+        finishCompaction(dir);
+        TemplateGallery gallery = new TemplateGallery(dir);
+        try {
+            gallery.load();
+        } catch(IOException e){
+            gallery.close();
+            throw e;
+        }
+        return gallery;
+    }
+
+    /**
+     * Completes a compaction that was interrupted after it committed, or discards one that was
+     * interrupted before.
+     */
+    private static void finishCompaction(File dir) throws IOException {
+        File work = new File(dir, COMPACT_DIR);
+        if(!work.isDirectory()){
+            return;
+        }
+        if(new File(work, COMPACT_COMMITTED).exists()){
+            // The data file is moved first, so a leftover index always goes with the moved data.
+            for(String name : new String[]{DATA_FILE, INDEX_FILE}){
+                File compacted = new File(work, name);
+                if(compacted.exists() && !compacted.renameTo(new File(dir, name))){
+                    throw new IOException("Cannot install compacted " + name);
+                }
+            }
+        }
+        deleteTree(work);
+    }
+
+    static void deleteTree(File dir){
+        File[] files = dir.listFiles();
+        if(files != null){
+            for(File file : files){
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private void load() throws IOException {
+        boolean fresh = mIndexChannel.size() < INDEX_HEADER_SIZE;
+        long indexBytes = Math.max(mIndexChannel.size(),
+                INDEX_HEADER_SIZE + (long) INITIAL_INDEX_ENTRIES * INDEX_ENTRY_SIZE);
+        mIndex = map(mIndexChannel, indexBytes);
+        if(fresh){
+            mIndex.putInt(0, INDEX_MAGIC);
+            mIndex.putInt(4, INDEX_VERSION);
+            mIndex.putInt(HEADER_COUNT, 0);
+            mIndex.putLong(HEADER_NEXT_ID, 1);
+        }
+        else if(mIndex.getInt(0) != INDEX_MAGIC || mIndex.getInt(4) != INDEX_VERSION){
+            throw new IOException("Unrecognized gallery index format");
+        }
+        int count = mIndex.getInt(HEADER_COUNT);
+        mNextIdentityId = mIndex.getLong(HEADER_NEXT_ID);
+        mDataEnd = 0;
+        if(count > 0){
+            int last = entryPosition(count - 1);
+            mDataEnd = mIndex.getLong(last + ENTRY_OFFSET) + mIndex.getInt(last + ENTRY_LENGTH);
+        }
+        mData = map(mDataChannel, Math.max(mDataChannel.size(), Math.max(mDataEnd, INITIAL_DATA_BYTES)));
+        mSlots = new LongIntHashMap(Math.max(count, INITIAL_INDEX_ENTRIES));
+        int deleted = 0;
+        for(int slot = 0; slot < count; slot++){
+            int entry = entryPosition(slot);
+            if((mIndex.getInt(entry + ENTRY_FLAGS) & FLAG_DELETED) != 0){
+                deleted++;
+                continue;
+            }
+            int previous = mSlots.put(mIndex.getLong(entry + ENTRY_IDENTITY), slot);
+            if(previous != LongIntHashMap.NO_VALUE){
+                // Re-enrolled before the older entry's tombstone reached storage.
+                tombstone(previous);
+                deleted++;
+            }
+        }
+        mDeletedCount = deleted;
+        mCount = count;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        if(size > Integer.MAX_VALUE){
+            throw new IOException("Gallery file exceeds 2GB mapping limit");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static int entryPosition(int slot){
+        return INDEX_HEADER_SIZE + slot * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Reserves a new, never before used identity id.  The reservation is persisted with the next
+     * append.
+     */
+    public synchronized long nextIdentityId(){
+        if(mSuccessor != null){
+            return mSuccessor.nextIdentityId();
+        }
+        return mNextIdentityId++;
+    }
+
+    synchronized long peekNextIdentityId(){
+        return mNextIdentityId;
+    }
+
+    /**
+     * Makes sure identity ids below next are never handed out.
+     */
+    synchronized void reserveIdentityIdsBelow(long next){
+        if(next > mNextIdentityId){
+            mNextIdentityId = next;
+            mIndex.putLong(HEADER_NEXT_ID, next);
+        }
+    }
+
+    /**
+     * Forwards all further changes to successor.  Called by the GalleryCompactor with this
+     * gallery's lock held, once successor holds everything this gallery does.
+     */
+    synchronized void retire(TemplateGallery successor){
+        mSuccessor = successor;
+    }
+
+    /**
+     * The gallery that replaced this one, or null while this one is current.
+     */
+    public TemplateGallery getSuccessor(){
+        return mSuccessor;
+    }
+
+    /**
+     * The gallery changes currently go to: this one, or the end of its chain of successors.
+     */
+    public TemplateGallery current(){
+        TemplateGallery gallery = this;
+        while(gallery.mSuccessor != null){
+            gallery = gallery.mSuccessor;
+        }
+        return gallery;
+    }
+
+    /**
+     * Appends a template to the gallery.  Returns the slot the template was written to, in
+     * current() if this gallery has been retired.
+     */
+    public synchronized int append(long identityId, byte[] template) throws IOException {
+        if(mSuccessor != null){
+            return mSuccessor.append(identityId, template);
+        }
+        if(mClosed){
+            throw new IOException("Gallery is closed");
+        }
+        if(template == null || template.length == 0){
+            throw new IllegalArgumentException("Empty template");
+        }
+        int slot = mCount;
+        long offset = mDataEnd;
+        ensureDataCapacity(offset + template.length);
+        ensureIndexCapacity(slot + 1);
+
+        ByteBuffer data = mData.duplicate();
+        data.position((int) offset);
+        data.put(template);
+
+        MappedByteBuffer index = mIndex;
+        int entry = entryPosition(slot);
+        index.putLong(entry + ENTRY_IDENTITY, identityId);
+        index.putLong(entry + ENTRY_OFFSET, offset);
+        index.putInt(entry + ENTRY_LENGTH, template.length);
+        index.putInt(entry + ENTRY_FLAGS, 0);
+        if(identityId >= mNextIdentityId){
+            mNextIdentityId = identityId + 1;
+        }
+        index.putLong(HEADER_NEXT_ID, mNextIdentityId);
+        // Commit point: the record only exists once the count covers it.
+        index.putInt(HEADER_COUNT, slot + 1);
+        mDataEnd = offset + template.length;
+        int previous = mSlots.put(identityId, slot);
+        mCount = slot + 1;
+        if(previous != LongIntHashMap.NO_VALUE){
+            tombstone(previous);
+            mDeletedCount++;
+        }
+        return slot;
+    }
+
+    /**
+     * Tombstones identityId's template.  Returns false if the identity has no live template.
+     */
+    public synchronized boolean delete(long identityId) throws IOException {
+        if(mSuccessor != null){
+            return mSuccessor.delete(identityId);
+        }
+        if(mClosed){
+            throw new IOException("Gallery is closed");
+        }
+        int slot = mSlots.remove(identityId);
+        if(slot == LongIntHashMap.NO_VALUE){
+            return false;
+        }
+        tombstone(slot);
+        mDeletedCount++;
+        return true;
+    }
+
+    private void tombstone(int slot){
+        int entry = entryPosition(slot);
+        mIndex.putInt(entry + ENTRY_FLAGS, mIndex.getInt(entry + ENTRY_FLAGS) | FLAG_DELETED);
+    }
+
+    /**
+     * Whether the template in slot was deleted or replaced by a newer one.
+     */
+    public boolean isDeleted(int slot){
+        checkSlot(slot);
+        return (mIndex.getInt(entryPosition(slot) + ENTRY_FLAGS) & FLAG_DELETED) != 0;
+    }
+
+    /**
+     * Number of tombstoned slots.
+     */
+    public int getDeletedCount(){
+        return mDeletedCount;
+    }
+
+    private void ensureDataCapacity(long required) throws IOException {
+        if(required <= mData.capacity()){
+            return;
+        }
+        long size = mData.capacity();
+        while(size < required){
+            size *= 2;
+        }
+        mData = map(mDataChannel, size);
+    }
+
+    private void ensureIndexCapacity(int entries) throws IOException {
+        long required = entryPosition(0) + (long) entries * INDEX_ENTRY_SIZE;
+        if(required <= mIndex.capacity()){
+            return;
+        }
+        mIndex = map(mIndexChannel, Math.max(required, 2L * mIndex.capacity()));
+    }
+
+    /**
+     * Number of committed templates.
+     */
+    public int size(){
+        return mCount;
+    }
+
+    public long getIdentityId(int slot){
+        checkSlot(slot);
+        return mIndex.getLong(entryPosition(slot) + ENTRY_IDENTITY);
+    }
+
+    /**
+     * Returns the slot holding identityId's live template, or LongIntHashMap.NO_VALUE.
+     */
+    public synchronized int findSlot(long identityId){
+        return mSlots.get(identityId);
+    }
+
+    /**
+     * Bytes of template data in the mapped data file.
+     */
+    public synchronized long getDataBytes(){
+        return mDataEnd;
+    }
+
+    /**
+     * Heap bytes held by the identity to slot map.
+     */
+    public synchronized long getSlotMapBytes(){
+        return mSlots.getFootprintBytes();
+    }
+
+    public int getTemplateLength(int slot){
+        checkSlot(slot);
+        return mIndex.getInt(entryPosition(slot) + ENTRY_LENGTH);
+    }
+
+    /**
+     * Returns a read-only view of the template stored in slot.  No bytes are copied; the view
+     * stays valid for the lifetime of the gallery.
+     */
+    public ByteBuffer getTemplateBuffer(int slot){
+        checkSlot(slot);
+        int entry = entryPosition(slot);
+        MappedByteBuffer index = mIndex;
+        int offset = (int) index.getLong(entry + ENTRY_OFFSET);
+        int length = index.getInt(entry + ENTRY_LENGTH);
+        ByteBuffer view = mData.asReadOnlyBuffer();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice();
+    }
+
+    /**
+     * Copies the template stored in slot onto the heap, in the form BioSDKDevice expects.
+     */
+    public byte[] getTemplate(int slot){
+        return copyTemplate(slot, null);
+    }
+
+    /**
+     * Copies the template stored in slot into reuse if it has exactly the template's length,
+     * otherwise into a new array.  Returns the array holding the template.
+     */
+    public byte[] copyTemplate(int slot, byte[] reuse){
+        ByteBuffer view = getTemplateBuffer(slot);
+        byte[] template = reuse != null && reuse.length == view.remaining()
+                ? reuse : new byte[view.remaining()];
+        view.get(template);
+        return template;
+    }
+
+    private void checkSlot(int slot){
+        // Read the count before the buffers: buffers are swapped before the count is bumped.
+        if(slot < 0 || slot >= mCount){
+            throw new IndexOutOfBoundsException("slot " + slot + " of " + mCount);
+        }
+    }
+
+    /**
+     * Flushes both mappings to storage.
+     */
+    public synchronized void sync(){
+        if(mSuccessor != null){
+            mSuccessor.sync();
+            return;
+        }
+        if(mClosed){
+            return;
+        }
+        sync0();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(mClosed){
+            return;
+        }
+        mClosed = true;
+        try {
+            if(mIndex != null){
+                sync0();
+            }
+        } finally {
+            mIndexFile.close();
+            mDataFile.close();
+        }
+    }
+
+    private void sync0(){
+        if(mData != null){
+            mData.force();
+        }
+        mIndex.force();
+    }
+}
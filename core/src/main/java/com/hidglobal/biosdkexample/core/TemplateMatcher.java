@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * TemplateMatcher compares two ANSI 378 templates.  It is the only part of a fingerprint device the
+ * core needs, so matching can be served by a sensor, a simulator or a software matcher.
+ * Implementations must be safe to call from several threads and must not keep the arrays they are
+ * given: callers reuse them for the next comparison.
+ */
+
+public interface TemplateMatcher {
+    int MATCH_ERROR = -1;
+
+    /**
+     * Returns 1 for a match, 0 for no match and MATCH_ERROR if the comparison could not be made.
+     */
+    int match(byte[] probe, byte[] candidate);
+}
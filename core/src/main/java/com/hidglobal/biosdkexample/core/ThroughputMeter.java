@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+/**
+ * ThroughputMeter measures a continuous verification session: how many transactions complete per
+ * minute and how long the sensor sits armed with nobody on it.  Idle time runs from the moment a
+ * capture is armed until a finger is first detected; the rest of a transaction is user and
+ * pipeline time.
+ *
+ * The sustained rate is taken over the last WINDOW transactions so that it reflects the current
+ * queue at the gate rather than the whole session.  Not thread safe; feed it from one thread.
+ */
+
+public class ThroughputMeter {
+    public static final int WINDOW = 16;
+    private static final double NANOS_PER_MINUTE = 60e9;
+
+    private final long[] mCompletions = new long[WINDOW];
+    private long mStartNanos;
+    private long mStopNanos;
+    private long mArmedNanos;
+    private long mTransactions;
+    private long mIdleNanos;
+    private long mMaxIdleNanos;
+    private long mIdleCount;
+
+    public void start(long nowNanos){
+        mStartNanos = nowNanos;
+        mStopNanos = 0;
+        mArmedNanos = 0;
+        mTransactions = 0;
+        mIdleNanos = 0;
+        mMaxIdleNanos = 0;
+        mIdleCount = 0;
+    }
+
+    public void stop(long nowNanos){
+        if(mStopNanos == 0){
+            mStopNanos = nowNanos;
+        }
+    }
+
+    public boolean isRunning(){
+        return mStartNanos != 0 && mStopNanos == 0;
+    }
+
+    /**
+     * The sensor is ready for the next finger.
+     */
+    public void armed(long nowNanos){
+        mArmedNanos = nowNanos;
+    }
+
+    /**
+     * A finger reached the sensor.  Returns the idle time since the capture was armed, or -1 if
+     * the finger was already accounted for.
+     */
+    public long fingerDetected(long nowNanos){
+        if(mArmedNanos == 0){
+            return -1;
+        }
+        long idle = nowNanos - mArmedNanos;
+        mArmedNanos = 0;
+        mIdleNanos += idle;
+        mIdleCount++;
+        if(idle > mMaxIdleNanos){
+            mMaxIdleNanos = idle;
+        }
+        return idle;
+    }
+
+    public void completed(long nowNanos){
+        mCompletions[(int)(mTransactions % WINDOW)] = nowNanos;
+        mTransactions++;
+    }
+
+    public long getTransactions(){
+        return mTransactions;
+    }
+
+    public long getElapsedNanos(long nowNanos){
+        if(mStartNanos == 0){
+            return 0;
+        }
+        return (mStopNanos != 0 ? mStopNanos : nowNanos) - mStartNanos;
+    }
+
+    /**
+     * Transactions per minute since start().
+     */
+    public double getTransactionsPerMinute(long nowNanos){
+        long elapsed = getElapsedNanos(nowNanos);
+        return elapsed <= 0 ? 0 : mTransactions * NANOS_PER_MINUTE / elapsed;
+    }
+
+    /**
+     * Transactions per minute between the oldest and newest of the last WINDOW completions, or 0
+     * until two transactions have completed.
+     */
+    public double getSustainedPerMinute(){
+        int n = (int)Math.min(mTransactions, WINDOW);
+        if(n < 2){
+            return 0;
+        }
+        long newest = mCompletions[(int)((mTransactions - 1) % WINDOW)];
+        long oldest = mCompletions[(int)((mTransactions - n) % WINDOW)];
+        return newest == oldest ? 0 : (n - 1) * NANOS_PER_MINUTE / (newest - oldest);
+    }
+
+    public long getIdleNanos(){
+        return mIdleNanos;
+    }
+
+    public long getMeanIdleNanos(){
+        return mIdleCount == 0 ? 0 : mIdleNanos / mIdleCount;
+    }
+
+    public long getMaxIdleNanos(){
+        return mMaxIdleNanos;
+    }
+
+    /**
+     * Share of the session the armed sensor spent waiting for a finger.
+     */
+    public double getIdleFraction(long nowNanos){
+        long elapsed = getElapsedNanos(nowNanos);
+        return elapsed <= 0 ? 0 : (double)mIdleNanos / elapsed;
+    }
+
+    public String summary(long nowNanos){
+        return String.format("%d tx  %.1f/min (last %d: %.1f/min)  idle %.0f%% mean %.1f s",
+                mTransactions, getTransactionsPerMinute(nowNanos), Math.min(mTransactions, WINDOW),
+                getSustainedPerMinute(), getIdleFraction(nowNanos) * 100, getMeanIdleNanos() / 1e9);
+    }
+
+    @Override
+    public String toString(){
+        return "ThroughputMeter{" + summary(System.nanoTime()) + "}";
+    }
+}
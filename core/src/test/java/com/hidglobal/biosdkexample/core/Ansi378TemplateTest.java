@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Field access on records written by SyntheticTemplates, and rejection of malformed records.
+ */
+public class Ansi378TemplateTest {
+    private static final int[] MINUTIAE = {
+            // x, y, angle / 2, type
+            10, 20, 0, Ansi378Template.MINUTIA_TYPE_RIDGE_ENDING,
+            300, 16383, 179, Ansi378Template.MINUTIA_TYPE_BIFURCATION,
+            0, 0, 45, Ansi378Template.MINUTIA_TYPE_OTHER,
+    };
+
+    private static byte[] record(){
+        return SyntheticTemplates.encode(0x12345678, 320, 480, MINUTIAE, MINUTIAE.length / 4);
+    }
+
+    @Test
+    public void readsHeaderAndMinutiae(){
+        byte[] bytes = record();
+        Ansi378Template template = Ansi378Template.parse(bytes);
+        assertNotNull(template);
+        assertEquals(bytes.length, template.getRecordLength());
+        assertEquals(0x12345678, template.getProductId());
+        assertEquals(320, template.getImageWidth());
+        assertEquals(480, template.getImageHeight());
+        assertEquals(1, template.getViewCount());
+        assertEquals(2, template.getFingerPosition(0));
+        assertEquals(3, template.getMinutiaeCount(0));
+        assertEquals(3, template.getTotalMinutiaeCount());
+        for(int i = 0; i < 3; i++){
+            assertEquals(MINUTIAE[i * 4], template.getMinutiaX(0, i));
+            assertEquals(MINUTIAE[i * 4 + 1], template.getMinutiaY(0, i));
+            assertEquals(2 * MINUTIAE[i * 4 + 2], template.getMinutiaAngle(0, i));
+            assertEquals(MINUTIAE[i * 4 + 3], template.getMinutiaType(0, i));
+        }
+    }
+
+    @Test
+    public void readsFromBufferPosition(){
+        byte[] bytes = record();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 10);
+        buffer.position(7);
+        buffer.put(bytes);
+        buffer.position(7);
+        Ansi378Template template = Ansi378Template.parse(buffer);
+        assertNotNull(template);
+        assertEquals(7, buffer.position());
+        assertEquals(300, template.getMinutiaX(0, 1));
+        assertEquals(358, template.getMinutiaAngle(0, 1));
+    }
+
+    @Test
+    public void rejectsMalformedRecords(){
+        byte[] bytes = record();
+        assertNull(Ansi378Template.parse((byte[]) null));
+        assertNull(Ansi378Template.parse(Arrays.copyOf(bytes, 20)));
+        assertNull(Ansi378Template.parse(Arrays.copyOf(bytes, bytes.length - 1)));
+
+        byte[] format = bytes.clone();
+        format[0] = 'X';
+        assertNull(Ansi378Template.parse(format));
+
+        // A minutiae count that runs past the record length.
+        byte[] count = bytes.clone();
+        count[29] = (byte) 200;
+        assertNull(Ansi378Template.parse(count));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hidglobal.biosdkexample.core.EnrollmentJournalTest.enrollment;
+import static org.junit.Assert.*;
+
+/**
+ * Journal replay and commit accounting of the BatchEnrollmentWriter.
+ */
+public class BatchEnrollmentWriterTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static class Listener implements IBatchCommitListener {
+        final CountDownLatch mCommitted = new CountDownLatch(1);
+        final AtomicInteger mFailed = new AtomicInteger();
+
+        @Override
+        public void onBatchCommitted(List<EnrollmentRecord> batch) {
+            mCommitted.countDown();
+        }
+
+        @Override
+        public void onBatchFailed(List<EnrollmentRecord> batch, IOException e) {
+            mFailed.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void replaySkipsWhatWasAlreadyApplied() throws IOException {
+        File dir = mFolder.newFolder();
+        EnrollmentRecord first = enrollment(1);
+        EnrollmentRecord second = enrollment(2);
+        EnrollmentRecord deletion = EnrollmentRecord.deletion(1, 3000);
+        // A crash after the first record was applied and before the checkpoint.
+        TemplateGallery gallery = TemplateGallery.open(dir);
+        IdentityDirectory directory = IdentityDirectory.open(dir);
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        journal.append(Arrays.asList(first, second, deletion));
+        journal.sync();
+        gallery.append(first.getIdentityId(), first.getTemplate());
+        directory.append(Arrays.asList(first));
+        journal.close();
+        directory.close();
+        gallery.close();
+
+        gallery = TemplateGallery.open(dir);
+        directory = IdentityDirectory.open(dir);
+        journal = EnrollmentJournal.open(dir);
+        Listener listener = new Listener();
+        BatchEnrollmentWriter writer = new BatchEnrollmentWriter(gallery, directory, journal, listener);
+        assertEquals(3, writer.getRecoveredCount());
+        // The first template is not appended again.
+        assertEquals(2, gallery.size());
+        assertEquals(LongIntHashMap.NO_VALUE, gallery.findSlot(first.getIdentityId()));
+        int slot = gallery.findSlot(second.getIdentityId());
+        assertArrayEquals(second.getTemplate(), gallery.getTemplate(slot));
+        assertEquals(second.getLabel(), directory.getLabel(second.getIdentityId()));
+        // Checkpointed: the next start has nothing to replay.
+        assertEquals(0, journal.size());
+        writer.close();
+        journal.close();
+        directory.close();
+        gallery.close();
+
+        journal = EnrollmentJournal.open(dir);
+        assertTrue(journal.getRecovered().isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void syncedBatchIsCommittedEvenIfApplyingFails() throws Exception {
+        File dir = mFolder.newFolder();
+        TemplateGallery gallery = TemplateGallery.open(dir);
+        IdentityDirectory directory = IdentityDirectory.open(dir);
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        Listener listener = new Listener();
+        BatchEnrollmentWriter writer = new BatchEnrollmentWriter(gallery, directory, journal, listener);
+        // Applying now fails after the template reached the gallery.
+        directory.close();
+        EnrollmentRecord record = enrollment(1);
+        assertTrue(writer.submit(record));
+        assertTrue(listener.mCommitted.await(10, TimeUnit.SECONDS));
+        assertEquals(1, writer.getCommittedCount());
+        assertEquals(0, writer.getFailedCount());
+        assertEquals(0, listener.mFailed.get());
+        assertEquals(1, writer.getApplyFailureCount());
+        assertTrue(record.isCommitted());
+        writer.close();
+        // Still unapplied, so the journal was not emptied on close.
+        assertTrue(journal.size() > 0);
+        journal.close();
+        gallery.close();
+
+        gallery = TemplateGallery.open(dir);
+        directory = IdentityDirectory.open(dir);
+        journal = EnrollmentJournal.open(dir);
+        writer = new BatchEnrollmentWriter(gallery, directory, journal, new Listener());
+        assertEquals(1, writer.getRecoveredCount());
+        assertEquals(1, gallery.size());
+        assertEquals(record.getLabel(), directory.getLabel(record.getIdentityId()));
+        writer.close();
+        journal.close();
+        directory.close();
+        gallery.close();
+    }
+
+    @Test
+    public void failedApplyIsRetriedWithTheNextBatch() throws Exception {
+        File dir = mFolder.newFolder();
+        TemplateGallery gallery = TemplateGallery.open(dir);
+        IdentityDirectory directory = IdentityDirectory.open(dir);
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        final CountDownLatch committed = new CountDownLatch(2);
+        final AtomicInteger failed = new AtomicInteger();
+        BatchEnrollmentWriter writer = new BatchEnrollmentWriter(gallery, directory, journal,
+                new IBatchCommitListener() {
+                    @Override
+                    public void onBatchCommitted(List<EnrollmentRecord> batch) {
+                        committed.countDown();
+                    }
+
+                    @Override
+                    public void onBatchFailed(List<EnrollmentRecord> batch, IOException e) {
+                        failed.incrementAndGet();
+                    }
+                });
+        // A retired gallery forwards to its successor, which is closed: the first apply fails.
+        TemplateGallery successor = TemplateGallery.open(mFolder.newFolder());
+        successor.close();
+        gallery.retire(successor);
+        EnrollmentRecord first = enrollment(1);
+        assertTrue(writer.submit(first));
+        while(writer.getApplyFailureCount() == 0){
+            Thread.sleep(1);
+        }
+        // Back to a working gallery: the next batch applies both.
+        TemplateGallery replacement = TemplateGallery.open(mFolder.newFolder());
+        writer.setGallery(replacement);
+        EnrollmentRecord second = enrollment(2);
+        assertTrue(writer.submit(second));
+        assertTrue(committed.await(10, TimeUnit.SECONDS));
+        writer.close();
+        assertEquals(0, failed.get());
+        assertEquals(2, writer.getCommittedCount());
+        assertEquals(1, writer.getApplyFailureCount());
+        assertEquals(2, replacement.size());
+        assertNotEquals(LongIntHashMap.NO_VALUE, replacement.findSlot(first.getIdentityId()));
+        assertNotEquals(LongIntHashMap.NO_VALUE, replacement.findSlot(second.getIdentityId()));
+        assertEquals(first.getLabel(), directory.getLabel(first.getIdentityId()));
+        assertEquals(second.getLabel(), directory.getLabel(second.getIdentityId()));
+        // Applied, so the close checkpoint emptied the journal.
+        assertEquals(0, journal.size());
+        journal.close();
+        directory.close();
+        replacement.close();
+        gallery.close();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * DuplicateDetector finds a duplicate whether or not the MinutiaeIndex shortlists it.
+ */
+public class DuplicateDetectorTest {
+    private static final int ENROLLMENTS = 1000;
+    private static final TemplateMatcher SAME_FINGER = new TemplateMatcher() {
+        @Override
+        public int match(byte[] probe, byte[] candidate) {
+            int finger = SyntheticTemplates.fingerIdOf(probe);
+            return finger >= 0 && finger == SyntheticTemplates.fingerIdOf(candidate) ? 1 : 0;
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private TemplateGallery mGallery;
+    private MinutiaeIndex mIndex;
+    private DuplicateDetector mDetector;
+
+    @Before
+    public void enroll() throws IOException {
+        mGallery = TemplateGallery.open(mFolder.newFolder());
+        Random random = new Random(11);
+        for(int i = 0; i < ENROLLMENTS; i++){
+            mGallery.append(mGallery.nextIdentityId(), SyntheticTemplates.template(i + 1, 320, 480, random));
+        }
+        mIndex = new MinutiaeIndex();
+        mIndex.update(mGallery);
+        mDetector = new DuplicateDetector(SAME_FINGER, mGallery, mIndex, new MatchPriorityGate());
+    }
+
+    @After
+    public void close() throws IOException {
+        mDetector.shutdown();
+        mGallery.close();
+    }
+
+    private DuplicateCheck check(byte[] template) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        DuplicateCheck check = mDetector.check(mGallery.nextIdentityId(), template, new IDuplicateCheckListener() {
+            @Override
+            public void onDuplicateCheckComplete(DuplicateCheck check) {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(check.isDone());
+        return check;
+    }
+
+    @Test
+    public void findsAShortlistedDuplicateWithoutTheRest() throws InterruptedException {
+        byte[] probe = SyntheticTemplates.template(300, 320, 480, new Random(12));
+        int[] shortlist = mIndex.shortlist(probe, MinutiaeIndex.defaultShortlistSize(ENROLLMENTS));
+        boolean shortlisted = false;
+        for(int slot : shortlist){
+            shortlisted |= slot == 299;
+        }
+        assertTrue(shortlisted);
+        DuplicateCheck check = check(probe);
+        assertEquals(mGallery.getIdentityId(299), check.getDuplicateOf());
+        assertTrue(check.getComparisons() <= shortlist.length);
+    }
+
+    @Test
+    public void findsADuplicateTheShortlistMisses() throws InterruptedException {
+        // Same finger as slot 499 to the matcher, but minutiae the prefilter cannot relate to it.
+        byte[] probe = SyntheticTemplates.template(500, 320, 480, new Random(13));
+        byte[] unrelated = SyntheticTemplates.template(ENROLLMENTS + 1, 320, 480, new Random(13));
+        System.arraycopy(probe, 10, unrelated, 10, 4);
+        assertEquals(500, SyntheticTemplates.fingerIdOf(unrelated));
+        int[] shortlist = mIndex.shortlist(unrelated, MinutiaeIndex.defaultShortlistSize(ENROLLMENTS));
+        for(int slot : shortlist){
+            assertNotEquals(499, slot);
+        }
+        DuplicateCheck check = check(unrelated);
+        assertEquals(mGallery.getIdentityId(499), check.getDuplicateOf());
+        assertTrue(check.getComparisons() > shortlist.length);
+    }
+
+    @Test
+    public void newFingerIsComparedWithEverySlot() throws InterruptedException {
+        DuplicateCheck check = check(SyntheticTemplates.template(ENROLLMENTS + 7, 320, 480, new Random(14)));
+        assertFalse(check.isDuplicate());
+        assertEquals(ENROLLMENTS, check.getComparisons());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Recovery of the records a crash leaves in an EnrollmentJournal.
+ */
+public class EnrollmentJournalTest {
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    static EnrollmentRecord enrollment(long identityId){
+        byte[] template = SyntheticTemplates.template((int) identityId, 320, 480, new Random(identityId));
+        return new EnrollmentRecord(identityId, "identity-" + identityId, template, 1, 1000 + identityId);
+    }
+
+    /**
+     * Writes three records, syncing after each, and returns the journal size after each one.
+     */
+    private long[] writeThree(File dir) throws IOException {
+        long[] ends = new long[3];
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        try {
+            for(int i = 0; i < 3; i++){
+                journal.append(Arrays.asList(enrollment(i + 1)));
+                journal.sync();
+                ends[i] = journal.size();
+            }
+        } finally {
+            journal.close();
+        }
+        return ends;
+    }
+
+    @Test
+    public void recoversEveryCompleteRecord() throws IOException {
+        File dir = mFolder.newFolder();
+        writeThree(dir);
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        List<EnrollmentRecord> recovered = journal.getRecovered();
+        assertEquals(3, recovered.size());
+        for(int i = 0; i < 3; i++){
+            EnrollmentRecord expected = enrollment(i + 1);
+            EnrollmentRecord record = recovered.get(i);
+            assertEquals(expected.getIdentityId(), record.getIdentityId());
+            assertEquals(expected.getLabel(), record.getLabel());
+            assertArrayEquals(expected.getTemplate(), record.getTemplate());
+            assertEquals(expected.getEnrolledAtMillis(), record.getEnrolledAtMillis());
+        }
+        assertEquals(0, journal.getTornBytes());
+        journal.close();
+    }
+
+    @Test
+    public void dropsTruncatedTail() throws IOException {
+        File dir = mFolder.newFolder();
+        long[] ends = writeThree(dir);
+        File file = new File(dir, EnrollmentJournal.JOURNAL_FILE);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // Power lost half way through the third record.
+            raf.setLength((ends[1] + ends[2]) / 2);
+        } finally {
+            raf.close();
+        }
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        assertEquals(2, journal.getRecovered().size());
+        assertEquals(2, journal.getRecovered().get(1).getIdentityId());
+        assertEquals(ends[1], journal.size());
+        assertTrue(journal.getTornBytes() > 0);
+        journal.close();
+    }
+
+    @Test
+    public void dropsCorruptTailAndAppendsAfterIt() throws IOException {
+        File dir = mFolder.newFolder();
+        long[] ends = writeThree(dir);
+        File file = new File(dir, EnrollmentJournal.JOURNAL_FILE);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long position = ends[2] - 1;
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        assertEquals(2, journal.getRecovered().size());
+        assertEquals(ends[2] - ends[1], journal.getTornBytes());
+        // The torn record is cleared, so a new one follows the last good record.
+        journal.append(Arrays.asList(enrollment(4)));
+        journal.sync();
+        journal.close();
+
+        journal = EnrollmentJournal.open(dir);
+        List<EnrollmentRecord> recovered = journal.getRecovered();
+        assertEquals(3, recovered.size());
+        assertEquals(4, recovered.get(2).getIdentityId());
+        assertEquals(0, journal.getTornBytes());
+        journal.close();
+    }
+
+    @Test
+    public void recoversDeletions() throws IOException {
+        File dir = mFolder.newFolder();
+        EnrollmentJournal journal = EnrollmentJournal.open(dir);
+        journal.append(Arrays.asList(enrollment(1), EnrollmentRecord.deletion(1, 2000)));
+        journal.sync();
+        journal.close();
+
+        journal = EnrollmentJournal.open(dir);
+        List<EnrollmentRecord> recovered = journal.getRecovered();
+        assertEquals(2, recovered.size());
+        assertFalse(recovered.get(0).isDeletion());
+        assertTrue(recovered.get(1).isDeletion());
+        assertEquals(1, recovered.get(1).getIdentityId());
+        journal.close();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * FrequencySketch estimates, saturation and aging.
+ */
+public class FrequencySketchTest {
+
+    @Test
+    public void neverUnderCounts(){
+        FrequencySketch sketch = new FrequencySketch(64);
+        for(long key = 0; key < 64; key++){
+            for(int i = 0; i < key % 8; i++){
+                sketch.increment(key);
+            }
+        }
+        for(long key = 0; key < 64; key++){
+            assertTrue("key " + key, sketch.frequency(key) >= key % 8);
+        }
+        assertEquals(0, sketch.frequency(1000));
+    }
+
+    @Test
+    public void saturates(){
+        FrequencySketch sketch = new FrequencySketch(100);
+        for(int i = 0; i < 40; i++){
+            sketch.increment(5);
+        }
+        assertEquals(15, sketch.frequency(5));
+    }
+
+    @Test
+    public void agesAfterTheSampleSize(){
+        // A capacity of 1 samples 10 additions.
+        FrequencySketch sketch = new FrequencySketch(1);
+        for(int i = 0; i < 8; i++){
+            sketch.increment(1);
+        }
+        assertEquals(8, sketch.frequency(1));
+        sketch.increment(2);
+        sketch.increment(2);
+        // The tenth addition halved every counter.
+        assertEquals(4, sketch.frequency(1));
+        assertEquals(1, sketch.frequency(2));
+
+        sketch.clear();
+        assertEquals(0, sketch.frequency(1));
+        assertEquals(0, sketch.frequency(2));
+    }
+}
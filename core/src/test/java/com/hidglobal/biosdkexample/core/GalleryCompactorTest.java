@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * A compaction and the structures that follow it to the new slot numbers: the MinutiaeIndex, the
+ * HotTier and the SearchOrder.
+ */
+public class GalleryCompactorTest {
+    private static final int ENROLLMENTS = 3 * GalleryCompactor.STEP;
+    private static final TemplateMatcher EXACT = new TemplateMatcher() {
+        @Override
+        public int match(byte[] probe, byte[] candidate) {
+            return Arrays.equals(probe, candidate) ? 1 : 0;
+        }
+    };
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static boolean dropped(int slot){
+        return slot % 3 == 1;
+    }
+
+    /**
+     * Enrolls ENROLLMENTS identities and deletes every third, enough to make compaction
+     * worthwhile.
+     */
+    private static TemplateGallery populate(File dir) throws IOException {
+        TemplateGallery gallery = TemplateGallery.open(dir);
+        Random random = new Random(0xC0);
+        for(int i = 0; i < ENROLLMENTS; i++){
+            gallery.append(gallery.nextIdentityId(), SyntheticTemplates.template(i + 1, 320, 480, random));
+        }
+        for(int slot = 0; slot < ENROLLMENTS; slot++){
+            if(dropped(slot)){
+                gallery.delete(gallery.getIdentityId(slot));
+            }
+        }
+        return gallery;
+    }
+
+    @Test
+    public void remapCarriesEverySurvivorInOrder() throws IOException {
+        File dir = mFolder.newFolder();
+        TemplateGallery gallery = populate(dir);
+        assertTrue(GalleryCompactor.isWorthwhile(gallery));
+        long nextIdentityId = gallery.peekNextIdentityId();
+
+        GalleryCompactor.Result result = new GalleryCompactor(dir, null, null).compact(gallery);
+        TemplateGallery compacted = result.getGallery();
+        int[] remap = result.getRemap();
+        assertSame(compacted, gallery.getSuccessor());
+        assertSame(compacted, gallery.current());
+        assertEquals(ENROLLMENTS, remap.length);
+        int previous = -1;
+        int live = 0;
+        for(int slot = 0; slot < remap.length; slot++){
+            if(dropped(slot)){
+                assertEquals(GalleryCompactor.DROPPED, remap[slot]);
+                continue;
+            }
+            live++;
+            assertTrue(remap[slot] > previous);
+            previous = remap[slot];
+            assertEquals(gallery.getIdentityId(slot), compacted.getIdentityId(remap[slot]));
+            assertArrayEquals(gallery.getTemplate(slot), compacted.getTemplate(remap[slot]));
+            assertEquals(remap[slot], compacted.findSlot(gallery.getIdentityId(slot)));
+        }
+        assertEquals(live, result.getLiveCount());
+        assertEquals(live, compacted.size());
+        assertEquals(0, compacted.getDeletedCount());
+        assertEquals(ENROLLMENTS - live, result.getDroppedCount());
+        // Ids of deleted identities are never handed out again.
+        assertEquals(nextIdentityId, compacted.nextIdentityId());
+        compacted.close();
+        gallery.close();
+
+        TemplateGallery reopened = TemplateGallery.open(dir);
+        assertEquals(live, reopened.size());
+        reopened.close();
+    }
+
+    @Test
+    public void compactedIndexMatchesAFreshOne() throws IOException {
+        File dir = mFolder.newFolder();
+        TemplateGallery gallery = populate(dir);
+        MinutiaeIndex index = new MinutiaeIndex();
+        index.update(gallery);
+
+        GalleryCompactor.Result result = new GalleryCompactor(dir, null, null).compact(gallery);
+        TemplateGallery compacted = result.getGallery();
+        MinutiaeIndex carried = index.compact(result.getRemap());
+        MinutiaeIndex fresh = new MinutiaeIndex();
+        fresh.update(compacted);
+        assertEquals(compacted.size(), carried.size());
+        for(int slot = 0; slot < compacted.size(); slot += 17){
+            byte[] probe = compacted.getTemplate(slot);
+            int[] shortlist = carried.shortlist(probe, MinutiaeIndex.MIN_SHORTLIST);
+            assertArrayEquals(fresh.shortlist(probe, MinutiaeIndex.MIN_SHORTLIST), shortlist);
+            assertEquals(slot, shortlist[0]);
+        }
+        // Carried over indexes pick up later enrollments as usual.
+        compacted.append(compacted.nextIdentityId(), SyntheticTemplates.template(ENROLLMENTS + 1, 320, 480, new Random(1)));
+        carried.update(compacted);
+        assertEquals(compacted.size(), carried.size());
+        compacted.close();
+        gallery.close();
+    }
+
+    @Test
+    public void hotTierRebindsToCompactedSlots() throws IOException {
+        File dir = mFolder.newFolder();
+        TemplateGallery gallery = populate(dir);
+        HotTier hot = new HotTier(4);
+        int survivor = 3 * 100;
+        int doomed = 3 * 100 + 1;
+        // The doomed identity matched before it was deleted.
+        hot.recordMatch(gallery.getIdentityId(survivor), survivor, gallery);
+        hot.recordMatch(gallery.getIdentityId(doomed), doomed, gallery);
+        assertEquals(2, hot.size());
+
+        GalleryCompactor.Result result = new GalleryCompactor(dir, null, null).compact(gallery);
+        TemplateGallery compacted = result.getGallery();
+        hot.rebind(compacted);
+        assertEquals(1, hot.size());
+        // A match reported against the retired gallery is stale and ignored.
+        hot.recordMatch(gallery.getIdentityId(survivor + 3), survivor + 3, gallery);
+        assertEquals(1, hot.size());
+
+        ParallelMatcher matcher = new ParallelMatcher(2);
+        try {
+            IdentificationResult found = hot.identify(matcher, EXACT, gallery.getTemplate(survivor), compacted, null);
+            assertTrue(found.isMatch());
+            assertEquals(result.getRemap()[survivor], found.getSlot());
+            assertEquals(gallery.getIdentityId(survivor), found.getIdentityId());
+            assertEquals(1, hot.getHotHits());
+            assertEquals(1, found.getComparisons());
+        } finally {
+            matcher.shutdown();
+        }
+        compacted.close();
+        gallery.close();
+    }
+
+    @Test
+    public void searchOrderFollowsIdentitiesAcrossCompaction() throws IOException {
+        File dir = mFolder.newFolder();
+        TemplateGallery gallery = populate(dir);
+        SearchOrder order = new SearchOrder(INLINE);
+        int frequent = 3 * 200;
+        int occasional = 3 * 50;
+        int doomed = 3 * 10 + 1;
+        for(int i = 0; i < 5; i++){
+            order.recordMatch(gallery.getIdentityId(frequent), 0);
+        }
+        order.recordMatch(gallery.getIdentityId(occasional), 0);
+        for(int i = 0; i < 10; i++){
+            order.recordMatch(gallery.getIdentityId(doomed), 0);
+        }
+
+        GalleryCompactor.Result result = new GalleryCompactor(dir, null, null).compact(gallery);
+        int[] remap = result.getRemap();
+        TemplateGallery compacted = result.getGallery();
+        int size = compacted.size();
+        // Nothing to move: the statistics are keyed by identity, the sequence follows the gallery.
+        assertNull(order.getOrder(compacted, 0));
+        int[] slots = order.getOrder(compacted, 0);
+        assertNotNull(slots);
+        assertEquals(size, slots.length);
+        assertEquals(remap[frequent], slots[0]);
+        assertEquals(remap[occasional], slots[1]);
+        // The rest follows in gallery order, every slot exactly once.
+        int[] sorted = slots.clone();
+        Arrays.sort(sorted);
+        for(int slot = 0; slot < size; slot++){
+            assertEquals(slot, sorted[slot]);
+        }
+        compacted.close();
+        gallery.close();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * The GalleryService lifecycle: opening, storing and deduplicating enrollments, swapping in a
+ * compacted gallery and closing.
+ */
+public class GalleryServiceTest {
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final TemplateMatcher EXACT = new TemplateMatcher() {
+        @Override
+        public int match(byte[] probe, byte[] candidate) {
+            return Arrays.equals(probe, candidate) ? 1 : 0;
+        }
+    };
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    /**
+     * Queues every callback so the test can wait for it.
+     */
+    private static class Events implements IGalleryServiceListener {
+        final BlockingQueue<Object> mOpened = new LinkedBlockingQueue<>();
+        final BlockingQueue<GalleryCompactor.Result> mCompacted = new LinkedBlockingQueue<>();
+        final BlockingQueue<DuplicateCheck> mRejected = new LinkedBlockingQueue<>();
+        final BlockingQueue<String> mFailures = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onGalleryOpened(TemplateGallery gallery) {
+            mOpened.add(gallery == null ? "failed" : gallery);
+        }
+
+        @Override
+        public void onGalleryCompacted(GalleryCompactor.Result result) {
+            mCompacted.add(result);
+        }
+
+        @Override
+        public void onDuplicateRejected(DuplicateCheck check) {
+            mRejected.add(check);
+        }
+
+        @Override
+        public void onStorageFailed(String msg) {
+            mFailures.add(msg);
+        }
+    }
+
+    private static void close(GalleryService service) throws InterruptedException {
+        service.close();
+        assertTrue(service.awaitClosed(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(service.getGallery());
+        assertNull(service.getEnrollmentWriter());
+    }
+
+    @Test
+    public void storesEnrollmentsAcrossARestart() throws Exception {
+        File dir = mFolder.newFolder();
+        Events events = new Events();
+        GalleryService service = new GalleryService(dir, INLINE, events);
+        service.open();
+        TemplateGallery gallery = service.getGallery();
+        assertNotNull(gallery);
+        assertSame(gallery, events.mOpened.poll());
+        assertNotNull(service.getEnrollmentWriter());
+        Random random = new Random(7);
+        for(int i = 0; i < 3; i++){
+            service.enroll(SyntheticTemplates.template(i + 1, 320, 480, random));
+        }
+        close(service);
+        assertTrue(events.mFailures.isEmpty());
+
+        TemplateGallery reopened = TemplateGallery.open(dir);
+        assertEquals(3, reopened.size());
+        reopened.close();
+    }
+
+    @Test
+    public void rejectsAFingerEnrolledTwice() throws Exception {
+        Events events = new Events();
+        GalleryService service = new GalleryService(mFolder.newFolder(), INLINE, events);
+        service.open();
+        service.startDeduplication(EXACT);
+        assertNotNull(service.getDuplicateDetector());
+        byte[] template = SyntheticTemplates.template(1, 320, 480, new Random(3));
+        long first = service.getGallery().peekNextIdentityId();
+        service.enroll(template);
+        service.enroll(template.clone());
+        DuplicateCheck rejected = events.mRejected.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(rejected);
+        assertEquals(first, rejected.getDuplicateOf());
+        assertEquals("ID " + first, service.describeIdentity(first));
+        close(service);
+        assertNull(service.getDuplicateDetector());
+    }
+
+    @Test
+    public void swapsInTheCompactedGallery() throws Exception {
+        File dir = mFolder.newFolder();
+        int enrollments = 3 * GalleryCompactor.STEP;
+        TemplateGallery populated = TemplateGallery.open(dir);
+        Random random = new Random(0xC0);
+        for(int i = 0; i < enrollments; i++){
+            populated.append(populated.nextIdentityId(), SyntheticTemplates.template(i + 1, 320, 480, random));
+        }
+        for(int slot = 1; slot < enrollments; slot += 3){
+            populated.delete(populated.getIdentityId(slot));
+        }
+        int live = populated.size() - populated.getDeletedCount();
+        populated.close();
+
+        Events events = new Events();
+        GalleryService service = new GalleryService(dir, INLINE, events);
+        service.open();
+        // Opening a gallery with enough tombstones schedules a compaction.
+        GalleryCompactor.Result result = events.mCompacted.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(result);
+        assertSame(result, service.getLastCompaction());
+        assertSame(result.getGallery(), service.getGallery());
+        assertEquals(live, service.getGallery().size());
+        assertEquals(0, service.getGallery().getDeletedCount());
+        close(service);
+
+        TemplateGallery reopened = TemplateGallery.open(dir);
+        assertEquals(live, reopened.size());
+        reopened.close();
+    }
+
+    @Test
+    public void closeBeforeOpenClosesTheGalleryOnceOpened() throws IOException, InterruptedException {
+        Events events = new Events();
+        GalleryService service = new GalleryService(mFolder.newFolder(), INLINE, events);
+        service.close();
+        service.open();
+        assertTrue(events.mOpened.isEmpty());
+        assertNull(service.getGallery());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * HotTier admission and eviction by recent frequency, and how its search combines with the cold
+ * search of the gallery.
+ */
+public class HotTierTest {
+    private static final int IDENTITIES = 200;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private TemplateGallery mGallery;
+    private ParallelMatcher mMatcher;
+    private final AtomicInteger mComparisons = new AtomicInteger();
+    private final TemplateMatcher mExact = new TemplateMatcher() {
+        @Override
+        public int match(byte[] probe, byte[] candidate) {
+            mComparisons.incrementAndGet();
+            return Arrays.equals(probe, candidate) ? 1 : 0;
+        }
+    };
+
+    @Before
+    public void openGallery() throws IOException {
+        mGallery = TemplateGallery.open(mFolder.newFolder());
+        Random random = new Random(3);
+        for(int i = 0; i < IDENTITIES; i++){
+            mGallery.append(mGallery.nextIdentityId(), SyntheticTemplates.template(i + 1, 320, 480, random));
+        }
+        mMatcher = new ParallelMatcher(2);
+    }
+
+    @After
+    public void closeGallery() throws IOException {
+        mMatcher.shutdown();
+        mGallery.close();
+    }
+
+    private void match(HotTier hot, int slot, int times){
+        for(int i = 0; i < times; i++){
+            hot.recordMatch(mGallery.getIdentityId(slot), slot, mGallery);
+        }
+    }
+
+    /**
+     * Whether slot is found by the hot tier alone.  A hit counts as a match, like any other.
+     */
+    private boolean isResident(HotTier hot, int slot){
+        return hot.identify(mMatcher, mExact, mGallery.getTemplate(slot), mGallery, new int[0]).isMatch();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCapacity(){
+        new HotTier(0);
+    }
+
+    @Test
+    public void admitsUntilFull(){
+        HotTier hot = new HotTier(3);
+        assertEquals(0, hot.size());
+        match(hot, 10, 1);
+        match(hot, 20, 1);
+        match(hot, 10, 1);
+        assertEquals(2, hot.size());
+        match(hot, 30, 1);
+        assertEquals(3, hot.size());
+        assertTrue(isResident(hot, 10));
+        assertTrue(isResident(hot, 20));
+        assertTrue(isResident(hot, 30));
+        assertFalse(isResident(hot, 40));
+    }
+
+    @Test
+    public void visitorCannotDisplaceRegulars(){
+        HotTier hot = new HotTier(2);
+        match(hot, 10, 3);
+        match(hot, 20, 3);
+        match(hot, 30, 1);
+        assertEquals(2, hot.size());
+        assertFalse(isResident(hot, 30));
+        assertTrue(isResident(hot, 10));
+        assertTrue(isResident(hot, 20));
+    }
+
+    @Test
+    public void newRegularEvictsTheLeastFrequentResident(){
+        HotTier hot = new HotTier(2);
+        match(hot, 10, 5);
+        match(hot, 20, 2);
+        // Rejected while it has matched no more often than slot 20, admitted once it has.
+        match(hot, 30, 2);
+        assertEquals(2, hot.size());
+        assertFalse(isResident(hot, 30));
+        match(hot, 30, 1);
+        assertEquals(2, hot.size());
+        assertTrue(isResident(hot, 30));
+        assertTrue(isResident(hot, 10));
+        assertFalse(isResident(hot, 20));
+    }
+
+    @Test
+    public void hotHitSkipsTheGallery(){
+        HotTier hot = new HotTier(4);
+        match(hot, 50, 2);
+        mComparisons.set(0);
+        IdentificationResult result = hot.identify(mMatcher, mExact, mGallery.getTemplate(50), mGallery, null);
+        assertTrue(result.isMatch());
+        assertEquals(50, result.getSlot());
+        assertEquals(mGallery.getIdentityId(50), result.getIdentityId());
+        assertEquals(1, result.getComparisons());
+        assertEquals(1, mComparisons.get());
+        assertEquals(1, hot.getHotHits());
+        assertEquals(0, hot.getColdHits());
+    }
+
+    @Test
+    public void coldSearchSkipsResidents(){
+        HotTier hot = new HotTier(4);
+        match(hot, 1, 1);
+        match(hot, 2, 1);
+        int[] candidates = {1, 2, 3, 4, 5};
+        IdentificationResult result = hot.identify(mMatcher, mExact, mGallery.getTemplate(5), mGallery, candidates);
+        assertTrue(result.isMatch());
+        assertEquals(5, result.getSlot());
+        // Two residents, then the three candidates they do not cover.
+        assertEquals(5, result.getComparisons());
+        assertEquals(1, hot.getColdHits());
+        assertEquals(1, hot.getIdentifications());
+        assertEquals(0, hot.getHotHits());
+        // The cold hit counts towards admission.
+        assertEquals(3, hot.size());
+    }
+
+    @Test
+    public void residentFollowsReEnrollment() throws IOException {
+        HotTier hot = new HotTier(2);
+        match(hot, 7, 2);
+        byte[] template = mGallery.getTemplate(7);
+        int moved = mGallery.append(mGallery.getIdentityId(7), template);
+        match(hot, moved, 1);
+        assertEquals(1, hot.size());
+        IdentificationResult result = hot.identify(mMatcher, mExact, template, mGallery, new int[0]);
+        assertEquals(moved, result.getSlot());
+    }
+
+    @Test
+    public void clearForgetsResidentsAndFrequencies(){
+        HotTier hot = new HotTier(1);
+        match(hot, 10, 4);
+        hot.clear();
+        assertEquals(0, hot.size());
+        match(hot, 20, 1);
+        match(hot, 10, 1);
+        assertTrue(isResident(hot, 20));
+        assertFalse(isResident(hot, 10));
+    }
+}
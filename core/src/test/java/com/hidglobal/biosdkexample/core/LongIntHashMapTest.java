@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * LongIntHashMap against a HashMap, with enough keys per table that probe runs are long and
+ * removals have to shift their neighbours back.
+ */
+public class LongIntHashMapTest {
+
+    private static void assertSameMappings(Map<Long, Integer> expected, LongIntHashMap map, long[] keys){
+        assertEquals(expected.size(), map.size());
+        for(long key : keys){
+            Integer value = expected.get(key);
+            assertEquals("key " + key, value == null ? LongIntHashMap.NO_VALUE : value.intValue(), map.get(key));
+            assertEquals(value != null, map.containsKey(key));
+        }
+    }
+
+    @Test
+    public void putGetRemove(){
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(42));
+        assertEquals(LongIntHashMap.NO_VALUE, map.put(42, 7));
+        assertEquals(7, map.put(42, 8));
+        assertEquals(8, map.get(42));
+        assertEquals(1, map.size());
+        assertEquals(8, map.remove(42));
+        assertEquals(LongIntHashMap.NO_VALUE, map.remove(42));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void keyZeroAndExtremes(){
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(0, 1);
+        map.put(Long.MIN_VALUE, 2);
+        map.put(Long.MAX_VALUE, 3);
+        map.put(-1, 4);
+        assertEquals(4, map.size());
+        assertEquals(1, map.get(0));
+        assertEquals(2, map.get(Long.MIN_VALUE));
+        assertEquals(3, map.get(Long.MAX_VALUE));
+        assertEquals(4, map.get(-1));
+        assertEquals(1, map.remove(0));
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(0));
+        assertEquals(3, map.size());
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(Long.MIN_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeValues(){
+        new LongIntHashMap().put(1, -1);
+    }
+
+    @Test
+    public void removalKeepsProbeChainsIntact(){
+        // Sequential ids, as the gallery hands them out, grown from the smallest table.
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        long[] keys = new long[4096];
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = i + 1;
+            map.put(keys[i], i);
+            expected.put(keys[i], i);
+        }
+        assertSameMappings(expected, map, keys);
+        for(int i = 0; i < keys.length; i += 2){
+            assertEquals(i, map.remove(keys[i]));
+            expected.remove(keys[i]);
+        }
+        assertSameMappings(expected, map, keys);
+        for(int i = 0; i < keys.length; i += 2){
+            map.put(keys[i], i + 1);
+            expected.put(keys[i], i + 1);
+        }
+        assertSameMappings(expected, map, keys);
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap(){
+        Random random = new Random(0x1D);
+        // Few distinct keys in a table that stays small, so most operations hit a collision.
+        long[] keys = new long[64];
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = i == 0 ? 0 : random.nextLong();
+        }
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        for(int op = 0; op < 100000; op++){
+            long key = keys[random.nextInt(keys.length)];
+            if(random.nextInt(3) == 0){
+                Integer previous = expected.remove(key);
+                assertEquals(previous == null ? LongIntHashMap.NO_VALUE : previous.intValue(), map.remove(key));
+            }
+            else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                Integer previous = expected.put(key, value);
+                assertEquals(previous == null ? LongIntHashMap.NO_VALUE : previous.intValue(), map.put(key, value));
+            }
+            if(op % 1000 == 0){
+                assertSameMappings(expected, map, keys);
+            }
+        }
+        assertSameMappings(expected, map, keys);
+    }
+}
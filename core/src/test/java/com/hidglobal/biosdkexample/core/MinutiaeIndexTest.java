@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The MinutiaeIndex signature must not change when the finger is shifted or rotated on the
+ * sensor, so a rotated impression still makes the shortlist of the original and vice versa.
+ */
+public class MinutiaeIndexTest {
+    private static final int SIZE = 480;
+    private static final int CENTRE = SIZE / 2;
+    private static final int MINUTIAE = 36;
+    private static final int OTHER_FINGERS = 500;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    /**
+     * Minutiae of one finger, within a circle around the centre so any rotation keeps them on the
+     * image.
+     */
+    private static int[] finger(long seed){
+        Random random = new Random(seed);
+        int[] minutiae = new int[MINUTIAE * 4];
+        for(int i = 0; i < MINUTIAE; i++){
+            double radius = 150 * Math.sqrt(random.nextDouble());
+            double direction = 2 * Math.PI * random.nextDouble();
+            minutiae[i * 4] = CENTRE + (int) Math.round(radius * Math.cos(direction));
+            minutiae[i * 4 + 1] = CENTRE + (int) Math.round(radius * Math.sin(direction));
+            minutiae[i * 4 + 2] = random.nextInt(180);
+            minutiae[i * 4 + 3] = 1 + random.nextInt(2);
+        }
+        return minutiae;
+    }
+
+    /**
+     * Turns the print counter-clockwise as seen on screen, then shifts it.  Image rows run down
+     * while ANSI 378 angles run counter-clockwise with y pointing up.
+     */
+    private static int[] rotate(int[] minutiae, int degrees, int dx, int dy){
+        double sin = Math.sin(Math.toRadians(degrees));
+        double cos = Math.cos(Math.toRadians(degrees));
+        int[] rotated = minutiae.clone();
+        for(int i = 0; i < minutiae.length / 4; i++){
+            int x = minutiae[i * 4] - CENTRE;
+            int y = minutiae[i * 4 + 1] - CENTRE;
+            rotated[i * 4] = CENTRE + dx + (int) Math.round(x * cos + y * sin);
+            rotated[i * 4 + 1] = CENTRE + dy + (int) Math.round(y * cos - x * sin);
+            rotated[i * 4 + 2] = (minutiae[i * 4 + 2] + degrees / 2) % 180;
+        }
+        return rotated;
+    }
+
+    private static byte[] template(int[] minutiae){
+        return SyntheticTemplates.encode(0, SIZE, SIZE, minutiae, minutiae.length / 4);
+    }
+
+    private static long[] signature(int[] minutiae){
+        return MinutiaeIndex.signature(Ansi378Template.parse(template(minutiae)));
+    }
+
+    private static int indexOf(int[] slots, int slot){
+        for(int i = 0; i < slots.length; i++){
+            if(slots[i] == slot){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void signatureIgnoresQuarterTurnsAndShifts(){
+        for(long seed = 1; seed <= 20; seed++){
+            int[] original = finger(seed);
+            long[] expected = signature(original);
+            assertTrue(Long.bitCount(expected[0]) + Long.bitCount(expected[1]) > 0);
+            for(int degrees = 90; degrees < 360; degrees += 90){
+                assertArrayEquals("seed " + seed + " at " + degrees + " degrees", expected,
+                        signature(rotate(original, degrees, 13, -21)));
+            }
+        }
+    }
+
+    @Test
+    public void rotatedImpressionsShortlistEachOther() throws IOException {
+        TemplateGallery gallery = TemplateGallery.open(mFolder.newFolder());
+        try {
+            int[] original = finger(0);
+            int[] rotated = rotate(original, 20, -9, 14);
+            gallery.append(gallery.nextIdentityId(), template(original));
+            for(int i = 0; i < OTHER_FINGERS; i++){
+                gallery.append(gallery.nextIdentityId(), template(finger(1000 + i)));
+            }
+            gallery.append(gallery.nextIdentityId(), template(rotated));
+            int rotatedSlot = gallery.size() - 1;
+            MinutiaeIndex index = new MinutiaeIndex();
+            index.update(gallery);
+            assertEquals(gallery.size(), index.size());
+
+            int max = MinutiaeIndex.defaultShortlistSize(gallery.size());
+            int[] forOriginal = index.shortlist(template(original), max);
+            int[] forRotated = index.shortlist(template(rotated), max);
+            assertEquals(0, forOriginal[0]);
+            assertEquals(rotatedSlot, forRotated[0]);
+            assertTrue(indexOf(forOriginal, rotatedSlot) >= 0);
+            assertTrue(indexOf(forRotated, 0) >= 0);
+        }
+        finally {
+            gallery.close();
+        }
+    }
+
+    @Test
+    public void unparseableProbeShortlistsNothing() throws IOException {
+        TemplateGallery gallery = TemplateGallery.open(mFolder.newFolder());
+        try {
+            gallery.append(gallery.nextIdentityId(), template(finger(1)));
+            MinutiaeIndex index = new MinutiaeIndex();
+            index.update(gallery);
+            assertEquals(0, index.shortlist(new byte[] {1, 2, 3}, 10).length);
+            assertEquals(0, index.shortlist(template(finger(1)), 0).length);
+        }
+        finally {
+            gallery.close();
+        }
+    }
+
+    @Test
+    public void remainingFollowsTheGivenOrder(){
+        int[] searched = {4, 1, 7};
+        assertArrayEquals(new int[] {0, 2, 3, 5, 6, 8}, MinutiaeIndex.remaining(searched, null, 9));
+        int[] order = {8, 7, 6, 5, 4, 3, 2, 1, 0};
+        assertArrayEquals(new int[] {8, 6, 5, 3, 2, 0}, MinutiaeIndex.remaining(searched, order, 9));
+        assertEquals(0, MinutiaeIndex.remaining(order, null, 9).length);
+    }
+}
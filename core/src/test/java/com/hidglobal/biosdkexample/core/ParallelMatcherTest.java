@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * ParallelMatcher over the whole gallery, a candidate list and in-memory templates, and how a
+ * search stops at the first hit or on cancel().
+ */
+public class ParallelMatcherTest {
+    private static final int SLOTS = 20 * ParallelMatcher.LEAF_SIZE;
+    private static final int PARALLELISM = 2;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private TemplateGallery mGallery;
+    private ParallelMatcher mMatcher;
+    private final AtomicInteger mComparisons = new AtomicInteger();
+    private final TemplateMatcher mExact = new TemplateMatcher() {
+        @Override
+        public int match(byte[] probe, byte[] candidate) {
+            mComparisons.incrementAndGet();
+            return Arrays.equals(probe, candidate) ? 1 : 0;
+        }
+    };
+
+    @Before
+    public void openGallery() throws IOException {
+        mGallery = TemplateGallery.open(mFolder.newFolder());
+        Random random = new Random(5);
+        for(int i = 0; i < SLOTS; i++){
+            mGallery.append(mGallery.nextIdentityId(), SyntheticTemplates.template(i + 1, 320, 480, random));
+        }
+        mMatcher = new ParallelMatcher(PARALLELISM);
+    }
+
+    @After
+    public void closeGallery() throws IOException {
+        mMatcher.shutdown();
+        mGallery.close();
+    }
+
+    @Test
+    public void findsTheMatchingSlot(){
+        for(int slot : new int[] {0, 777, SLOTS - 1}){
+            IdentificationResult result = mMatcher.identify(mExact, mGallery.getTemplate(slot), mGallery);
+            assertTrue(result.isMatch());
+            assertEquals(slot, result.getSlot());
+            assertEquals(mGallery.getIdentityId(slot), result.getIdentityId());
+        }
+    }
+
+    @Test
+    public void searchesEverythingWithoutAMatch(){
+        byte[] stranger = SyntheticTemplates.template(SLOTS + 1, 320, 480, new Random(6));
+        IdentificationResult result = mMatcher.identify(mExact, stranger, mGallery);
+        assertFalse(result.isMatch());
+        assertEquals(IdentificationResult.NO_MATCH, result.getSlot());
+        assertEquals(SLOTS, result.getComparisons());
+        // Split in halves down to at most LEAF_SIZE slots per range.
+        assertTrue(result.getBatches() >= SLOTS / ParallelMatcher.LEAF_SIZE);
+    }
+
+    @Test
+    public void stopsAtTheFirstHit(){
+        IdentificationResult result = mMatcher.identify(mExact, mGallery.getTemplate(0), mGallery);
+        assertEquals(0, result.getSlot());
+        // Ranges already running finish their current comparison; nothing else is started.
+        assertTrue(result.getComparisons() < SLOTS / 4);
+        assertEquals(result.getComparisons(), mComparisons.get());
+    }
+
+    @Test
+    public void skipsDeletedSlots() throws IOException {
+        byte[] template = mGallery.getTemplate(10);
+        assertTrue(mGallery.delete(mGallery.getIdentityId(10)));
+        IdentificationResult result = mMatcher.identify(mExact, template, mGallery);
+        assertFalse(result.isMatch());
+        assertEquals(SLOTS - 1, result.getComparisons());
+    }
+
+    @Test
+    public void comparesOnlyTheCandidates(){
+        int[] candidates = {900, 5, 300};
+        IdentificationResult hit = mMatcher.identify(mExact, mGallery.getTemplate(300), mGallery, candidates);
+        assertEquals(300, hit.getSlot());
+        assertEquals(mGallery.getIdentityId(300), hit.getIdentityId());
+
+        mComparisons.set(0);
+        IdentificationResult miss = mMatcher.identify(mExact, mGallery.getTemplate(301), mGallery, candidates);
+        assertFalse(miss.isMatch());
+        assertEquals(3, miss.getComparisons());
+        assertEquals(3, mComparisons.get());
+        assertEquals(0, mMatcher.identify(mExact, mGallery.getTemplate(0), mGallery, new int[0]).getComparisons());
+    }
+
+    @Test
+    public void comparesTheTemplatesGivenForTheCandidates(){
+        byte[] elsewhere = SyntheticTemplates.template(SLOTS + 2, 320, 480, new Random(7));
+        int[] candidates = {40, 41};
+        byte[][] templates = {mGallery.getTemplate(40), elsewhere};
+        IdentificationResult result = mMatcher.identify(mExact, elsewhere, mGallery, candidates, templates);
+        // Reported as the candidate's slot, although the gallery holds a different template there.
+        assertEquals(41, result.getSlot());
+        assertEquals(mGallery.getIdentityId(41), result.getIdentityId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresOneTemplatePerCandidate(){
+        mMatcher.identify(mExact, mGallery.getTemplate(0), mGallery, new int[] {1, 2}, new byte[1][]);
+    }
+
+    @Test
+    public void cancelStopsTheRunningSearch() throws InterruptedException {
+        final CountDownLatch comparing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TemplateMatcher blocking = new TemplateMatcher() {
+            @Override
+            public int match(byte[] probe, byte[] candidate) {
+                comparing.countDown();
+                try {
+                    release.await();
+                } catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                mComparisons.incrementAndGet();
+                return 0;
+            }
+        };
+        final AtomicReference<IdentificationResult> result = new AtomicReference<>();
+        Thread search = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(mMatcher.identify(blocking, mGallery.getTemplate(0), mGallery));
+            }
+        });
+        search.start();
+        assertTrue(comparing.await(10, TimeUnit.SECONDS));
+        int cancels = mMatcher.getCancelCount();
+        mMatcher.cancel();
+        assertEquals(cancels + 1, mMatcher.getCancelCount());
+        release.countDown();
+        search.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(search.isAlive());
+        assertFalse(result.get().isMatch());
+        // At most the comparison each worker was in the middle of.
+        assertTrue(result.get().getComparisons() <= PARALLELISM + 1);
+
+        // The matcher serves the next search as usual.
+        assertEquals(5, mMatcher.identify(mExact, mGallery.getTemplate(5), mGallery).getSlot());
+    }
+}
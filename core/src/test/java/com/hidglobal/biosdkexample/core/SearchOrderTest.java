@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * SearchOrder ranking by decayed score, hour of day and lane, and how the statistics follow an
+ * identity rather than a slot.  Rebuilds run inline, so the second getOrder() of a changed
+ * gallery or lane returns the new sequence.
+ */
+public class SearchOrderTest {
+    private static final int IDENTITIES = 100;
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final Executor INLINE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private TemplateGallery mGallery;
+
+    @Before
+    public void openGallery() throws IOException {
+        mGallery = TemplateGallery.open(mFolder.newFolder());
+        Random random = new Random(7);
+        for(int i = 0; i < IDENTITIES; i++){
+            mGallery.append(mGallery.nextIdentityId(), SyntheticTemplates.template(i + 1, 320, 480, random));
+        }
+    }
+
+    @After
+    public void closeGallery() throws IOException {
+        mGallery.close();
+    }
+
+    private long identity(int slot){
+        return mGallery.getIdentityId(slot);
+    }
+
+    private static int[] order(SearchOrder order, TemplateGallery gallery, int lane){
+        order.getOrder(gallery, lane);
+        return order.getOrder(gallery, lane);
+    }
+
+    private static void assertPermutation(int[] slots, int size){
+        int[] sorted = slots.clone();
+        Arrays.sort(sorted);
+        for(int slot = 0; slot < size; slot++){
+            assertEquals(slot, sorted[slot]);
+        }
+    }
+
+    @Test
+    public void galleryOrderUntilSomethingMatched(){
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        int[] slots = order(order, mGallery, 0);
+        assertEquals(IDENTITIES, slots.length);
+        for(int slot = 0; slot < IDENTITIES; slot++){
+            assertEquals(slot, slots[slot]);
+        }
+    }
+
+    @Test
+    public void ranksByScoreThenGalleryOrder(){
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        long now = System.currentTimeMillis();
+        for(int i = 0; i < 3; i++){
+            order.recordMatch(identity(40), 0, now);
+        }
+        order.recordMatch(identity(70), 0, now);
+        order.recordMatch(identity(10), 0, now);
+        order.recordMatch(identity(10), 0, now);
+        int[] slots = order(order, mGallery, 0);
+        assertEquals(40, slots[0]);
+        assertEquals(10, slots[1]);
+        assertEquals(70, slots[2]);
+        assertEquals(0, slots[3]);
+        assertEquals(IDENTITIES - 1, slots[IDENTITIES - 1]);
+        assertPermutation(slots, IDENTITIES);
+    }
+
+    @Test
+    public void oldMatchesDecay(){
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        long now = System.currentTimeMillis();
+        // Three matches two half-lives ago are worth less than one now.
+        long old = now - 2 * SearchOrder.HALF_LIFE_MILLIS - HOUR / 2;
+        for(int i = 0; i < 3; i++){
+            order.recordMatch(identity(5), 0, old);
+        }
+        order.recordMatch(identity(6), 0, now);
+        int[] slots = order(order, mGallery, 0);
+        assertEquals(6, slots[0]);
+        assertEquals(5, slots[1]);
+    }
+
+    @Test
+    public void favoursTheRequestingLane(){
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        long now = System.currentTimeMillis();
+        order.recordMatch(identity(20), 0, now);
+        order.recordMatch(identity(30), 1, now);
+        assertEquals(20, order(order, mGallery, 0)[0]);
+        assertEquals(30, order(order, mGallery, 1)[0]);
+    }
+
+    @Test
+    public void favoursTheCurrentHour(){
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        long now = System.currentTimeMillis();
+        // Both equally recent for the decay, but only one usually comes at this time of day.
+        long elsewhere = now - 12 * HOUR;
+        order.recordMatch(identity(50), 0, elsewhere);
+        order.recordMatch(identity(50), 0, now);
+        order.recordMatch(identity(60), 0, elsewhere);
+        order.recordMatch(identity(60), 0, elsewhere + HOUR);
+        order.recordMatch(identity(60), 0, elsewhere + 2 * HOUR);
+        assertEquals(50, order(order, mGallery, 0)[0]);
+    }
+
+    @Test
+    public void followsAnIdentityToItsNewSlot() throws IOException {
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        long regular = identity(25);
+        long leaver = identity(35);
+        order.recordMatch(regular, 0);
+        order.recordMatch(regular, 0);
+        order.recordMatch(leaver, 0);
+        assertEquals(25, order(order, mGallery, 0)[0]);
+
+        // Re-enrolling moves the identity to a new slot; deleting it leaves none.
+        int moved = mGallery.append(regular, mGallery.getTemplate(25));
+        assertTrue(mGallery.delete(leaver));
+        int[] slots = order(order, mGallery, 0);
+        assertEquals(IDENTITIES + 1, slots.length);
+        assertEquals(moved, slots[0]);
+        assertEquals(0, slots[1]);
+        assertPermutation(slots, IDENTITIES + 1);
+    }
+
+    @Test
+    public void publishedOrderOnlyServesItsGallery() throws IOException {
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        order.recordMatch(identity(3), 0);
+        assertNotNull(order(order, mGallery, 0));
+        TemplateGallery other = TemplateGallery.open(mFolder.newFolder());
+        try {
+            other.append(identity(3), mGallery.getTemplate(3));
+            assertNull(order.getOrder(other, 0));
+            assertArrayEquals(new int[] {0}, order.getOrder(other, 0));
+        }
+        finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void countsHitsTheSequenceMovedForward(){
+        SearchOrder order = new SearchOrder(INLINE, UTC);
+        order.recordMatch(identity(8), 0);
+        order(order, mGallery, 0);
+        order.recordMatch(identity(8), 0);
+        order.recordMatch(identity(9), 0);
+        assertEquals(1.0 / 3, order.getPrioritizedHitRatio(), 1e-9);
+        assertEquals(0, order.getAverageHitPosition(), 1e-9);
+
+        order.clear();
+        assertNull(order.getOrder(mGallery, 0));
+        assertEquals(0, order(order, mGallery, 0)[0]);
+    }
+}
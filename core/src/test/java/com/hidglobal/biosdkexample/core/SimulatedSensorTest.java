@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Outcomes of a SimulatedSensor: status replay, cancellation, unplugging, the fingers presented
+ * and match results.
+ */
+public class SimulatedSensorTest {
+
+    private static SimulationProfile fastProfile(){
+        SimulationProfile profile = new SimulationProfile();
+        profile.setCaptureLatencyMs(0);
+        profile.setFingerClearLatencyMs(0);
+        profile.setMatchLatencyMs(0);
+        profile.setConfigureLatencyMs(0);
+        return profile;
+    }
+
+    private static class Recorder implements ISimulatedStatusListener {
+        final List<Integer> mStatuses = new ArrayList<>();
+        int mCancelAt = -1;
+
+        @Override
+        public boolean onUpdateStatus(int status) {
+            mStatuses.add(status);
+            return mStatuses.size() != mCancelAt;
+        }
+    }
+
+    @Test
+    public void captureReplaysTheStatusSequence(){
+        SimulationProfile profile = fastProfile();
+        profile.setStatusSequence(AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_FINGER_PRESENT, AcqStatus.ACQ_DONE);
+        SimulatedSensor sensor = new SimulatedSensor(profile, 1);
+        Recorder recorder = new Recorder();
+        assertEquals(SimulatedSensor.Outcome.OK, sensor.capture(5, recorder));
+        assertEquals(Arrays.asList(AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_FINGER_PRESENT, AcqStatus.ACQ_DONE),
+                recorder.mStatuses);
+    }
+
+    @Test
+    public void listenerCancels(){
+        SimulatedSensor sensor = new SimulatedSensor(fastProfile(), 1);
+        Recorder recorder = new Recorder();
+        recorder.mCancelAt = 2;
+        assertEquals(SimulatedSensor.Outcome.CANCELLED, sensor.capture(5, recorder));
+        assertEquals(2, recorder.mStatuses.size());
+    }
+
+    @Test
+    public void cancelStopsTheOperationUntilTheNextBegins(){
+        final SimulatedSensor sensor = new SimulatedSensor(fastProfile(), 1);
+        sensor.begin();
+        sensor.cancel();
+        assertEquals(SimulatedSensor.Outcome.CANCELLED, sensor.capture(5, new Recorder()));
+        sensor.begin();
+        assertEquals(SimulatedSensor.Outcome.OK, sensor.capture(5, new Recorder()));
+    }
+
+    @Test
+    public void unpluggingFailsTheRunningOperation(){
+        final SimulatedSensor sensor = new SimulatedSensor(fastProfile(), 1);
+        Recorder unplugger = new Recorder() {
+            @Override
+            public boolean onUpdateStatus(int status) {
+                sensor.setConnected(false);
+                return super.onUpdateStatus(status);
+            }
+        };
+        assertEquals(SimulatedSensor.Outcome.DISCONNECTED, sensor.capture(5, unplugger));
+        assertEquals(1, unplugger.mStatuses.size());
+        assertFalse(sensor.isConnected());
+        sensor.setConnected(true);
+        assertEquals(SimulatedSensor.Outcome.OK, sensor.waitForFingerClear(5, new Recorder()));
+    }
+
+    @Test
+    public void timesOut(){
+        SimulationProfile profile = fastProfile();
+        profile.setStatusSequence(AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_PROCESSING);
+        profile.setCaptureLatencyMs(2200);
+        SimulatedSensor sensor = new SimulatedSensor(profile, 1);
+        assertEquals(SimulatedSensor.Outcome.TIMEOUT, sensor.capture(1, new Recorder()));
+    }
+
+    @Test
+    public void presentsFingersInTurnAndMatchesByFinger(){
+        SimulationProfile profile = fastProfile();
+        profile.setFingerIds(7, 8);
+        profile.setPADResult(0);
+        SimulatedSensor sensor = new SimulatedSensor(profile, 1);
+        SimulatedSensor.Impression first = sensor.present();
+        SimulatedSensor.Impression second = sensor.present();
+        SimulatedSensor.Impression third = sensor.present();
+        assertEquals(7, first.getFingerId());
+        assertEquals(8, second.getFingerId());
+        assertEquals(7, third.getFingerId());
+        assertEquals(0, first.getPADResult());
+        // Two impressions of a finger differ but still match.
+        assertFalse(Arrays.equals(first.getTemplate(), third.getTemplate()));
+        assertEquals(1, sensor.match(first.getTemplate(), third.getTemplate()));
+        assertEquals(0, sensor.match(first.getTemplate(), second.getTemplate()));
+        assertEquals(1, sensor.matchAny(third.getTemplate(), Arrays.asList(second.getTemplate(), first.getTemplate())));
+        assertEquals(0, sensor.matchAny(second.getTemplate(), Arrays.asList(first.getTemplate(), third.getTemplate())));
+        assertEquals(0, sensor.match(new byte[]{ 1, 2, 3 }, first.getTemplate()));
+    }
+
+    @Test
+    public void sameSeedPresentsTheSameImpressions(){
+        SimulatedSensor a = new SimulatedSensor(fastProfile(), 42);
+        SimulatedSensor b = new SimulatedSensor(fastProfile(), 42);
+        for(int i = 0; i < 3; i++){
+            assertArrayEquals(a.present().getTemplate(), b.present().getTemplate());
+        }
+    }
+}
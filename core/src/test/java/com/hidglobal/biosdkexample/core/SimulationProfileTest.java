@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 HID Global Corporation/ASSA ABLOY AB. ALL RIGHTS RESERVED.
+ *
+ * You are free to use this example code to generate similar functionality
+ * tailored to your own specific needs.
+ *
+ * For a list of applicable patents and patents pending, visit www.hidglobal.com/patents/
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.hidglobal.biosdkexample.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reading a SimulationProfile from properties.
+ */
+public class SimulationProfileTest {
+
+    private static SimulationProfile read(String text) throws IOException {
+        return SimulationProfile.read(new ByteArrayInputStream(text.getBytes("ISO-8859-1")));
+    }
+
+    @Test
+    public void readsEverySetting() throws IOException {
+        SimulationProfile profile = read("deviceCount=3\n"
+                + "statusSequence=ACQ_PROCESSING, finger_present, 0\n"
+                + "captureLatencyMs=150\n"
+                + "fingerClearLatencyMs=40\n"
+                + "matchLatencyMs=2\n"
+                + "configureLatencyMs=7\n"
+                + "padResult=0\n"
+                + "fingerIds=4,5,6\n"
+                + "imageSize=256x360\n"
+                + "seed=0x10\n");
+        assertEquals(3, profile.getDeviceCount());
+        assertArrayEquals(new int[]{ AcqStatus.ACQ_PROCESSING, AcqStatus.ACQ_FINGER_PRESENT, AcqStatus.ACQ_DONE },
+                profile.getStatusSequence());
+        assertEquals(150, profile.getCaptureLatencyMs());
+        assertEquals(40, profile.getFingerClearLatencyMs());
+        assertEquals(2, profile.getMatchLatencyMs());
+        assertEquals(7, profile.getConfigureLatencyMs());
+        assertEquals(0, profile.getPADResult());
+        assertArrayEquals(new int[]{ 4, 5, 6 }, profile.getFingerIds());
+        assertEquals(256, profile.getImageWidth());
+        assertEquals(360, profile.getImageHeight());
+        assertEquals(16, profile.getSeed());
+    }
+
+    @Test
+    public void missingSettingsKeepTheirDefaults() throws IOException {
+        SimulationProfile defaults = new SimulationProfile();
+        SimulationProfile profile = read("# only the latency\ncaptureLatencyMs=10\n");
+        assertEquals(10, profile.getCaptureLatencyMs());
+        assertEquals(defaults.getDeviceCount(), profile.getDeviceCount());
+        assertArrayEquals(defaults.getStatusSequence(), profile.getStatusSequence());
+        assertArrayEquals(defaults.getFingerIds(), profile.getFingerIds());
+        assertEquals(defaults.getSeed(), profile.getSeed());
+    }
+
+    @Test
+    public void emptyStatusSequence() throws IOException {
+        assertEquals(0, read("statusSequence=\n").getStatusSequence().length);
+    }
+
+    @Test
+    public void overridesApplyOnTop() throws IOException {
+        SimulationProfile profile = read("captureLatencyMs=10\nmatchLatencyMs=3\n");
+        Properties overrides = new Properties();
+        overrides.setProperty(SimulationProfile.CAPTURE_LATENCY_MS, "20");
+        profile.apply(overrides);
+        assertEquals(20, profile.getCaptureLatencyMs());
+        assertEquals(3, profile.getMatchLatencyMs());
+    }
+
+    private static void assertRejected(String text, String setting) throws IOException {
+        try {
+            read(text);
+            fail("Accepted " + text);
+        } catch(IllegalArgumentException e){
+            assertTrue(e.getMessage(), e.getMessage().contains(setting));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidSettings() throws IOException {
+        assertRejected("captureLatencyMs=-1", SimulationProfile.CAPTURE_LATENCY_MS);
+        assertRejected("matchLatencyMs=fast", SimulationProfile.MATCH_LATENCY_MS);
+        assertRejected("statusSequence=PROCESSING,LIFTED", SimulationProfile.STATUS_SEQUENCE);
+        assertRejected("fingerIds=", SimulationProfile.FINGER_IDS);
+        assertRejected("fingerIds=1,-2", SimulationProfile.FINGER_IDS);
+        assertRejected("imageSize=320", SimulationProfile.IMAGE_SIZE);
+        assertRejected("imageSize=0x480", SimulationProfile.IMAGE_SIZE);
+        assertRejected("captureLatency=10", "captureLatency");
+    }
+}